@@ -3,11 +3,13 @@ package com.shop.online;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
 @MapperScan("com.shop.online.mapper")
 @EnableTransactionManagement
+@EnableScheduling
 public class  OnlineShopApplication {
     public static void main(String[] args) {
         SpringApplication.run(OnlineShopApplication.class, args);
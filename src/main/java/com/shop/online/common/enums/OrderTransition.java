@@ -0,0 +1,64 @@
+package com.shop.online.common.enums;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 订单状态流转表
+ * 订单状态: 0-待付款，1-待发货，2-待收货，3-已完成，4-已取消，5-已退款
+ * 每个流转只允许从fromStatuses中的状态变为toStatus
+ */
+public enum OrderTransition {
+
+    PAY("支付", 1, "订单状态不正确，只能支付待付款订单", 0),
+
+    CANCEL("取消", 4, "只能取消待付款或待发货的订单", 0, 1),
+
+    EXPIRE("超时取消", 4, "只能取消超时未付款的订单", 0),
+
+    SHIP("发货", 2, "只能发货待发货状态的订单", 1),
+
+    CONFIRM("确认收货", 3, "只能确认待收货订单", 2),
+
+    REFUND("退款", 5, "只能对已完成的订单申请退款", 3);
+
+    private final String description;
+
+    private final Integer toStatus;
+
+    private final String rejectMessage;
+
+    private final Set<Integer> fromStatuses;
+
+    OrderTransition(String description, Integer toStatus, String rejectMessage, Integer... fromStatuses) {
+        this.description = description;
+        this.toStatus = toStatus;
+        this.rejectMessage = rejectMessage;
+        this.fromStatuses = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fromStatuses)));
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Integer getToStatus() {
+        return toStatus;
+    }
+
+    /**
+     * 订单状态不满足流转条件时给用户的提示
+     */
+    public String getRejectMessage() {
+        return rejectMessage;
+    }
+
+    public Set<Integer> getFromStatuses() {
+        return fromStatuses;
+    }
+
+    public boolean canTransit(Integer status) {
+        return fromStatuses.contains(status);
+    }
+}
@@ -0,0 +1,91 @@
+package com.shop.online.common.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 销售统计的时间周期
+ * 周按ISO周（周一开始）划分，周标签为 ISO周所属年份-W周数，跨年的周不会被拆成两段
+ */
+public enum SalesPeriod {
+
+    DAY("day"),
+
+    WEEK("week"),
+
+    MONTH("month");
+
+    private final String key;
+
+    SalesPeriod(String key) {
+        this.key = key;
+    }
+
+    /**
+     * 请求参数中的周期名，也是SQL中选择分桶表达式的依据
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 按请求参数解析周期，未知或为空时按天
+     */
+    public static SalesPeriod of(String key) {
+        for (SalesPeriod period : values()) {
+            if (period.key.equals(key)) {
+                return period;
+            }
+        }
+        return DAY;
+    }
+
+    /**
+     * 日期所在周期的第一天
+     */
+    public LocalDate start(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case DAY:
+            default:
+                return date;
+        }
+    }
+
+    /**
+     * 日期所在周期相对于 origin 所在周期的序号，从0开始，用作分桶数组的下标
+     */
+    public int index(LocalDate origin, LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return (int) (ChronoUnit.DAYS.between(start(origin), start(date)) / 7);
+            case MONTH:
+                return (int) ChronoUnit.MONTHS.between(start(origin), start(date));
+            case DAY:
+            default:
+                return (int) ChronoUnit.DAYS.between(origin, date);
+        }
+    }
+
+    /**
+     * 周期的展示标签：2024-03-05、2024-W10、2024-03
+     */
+    public String label(LocalDate periodStart) {
+        switch (this) {
+            case WEEK:
+                return String.format("%d-W%02d", periodStart.get(IsoFields.WEEK_BASED_YEAR),
+                        periodStart.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH:
+                return String.format("%d-%02d", periodStart.getYear(), periodStart.getMonthValue());
+            case DAY:
+            default:
+                return periodStart.toString();
+        }
+    }
+}
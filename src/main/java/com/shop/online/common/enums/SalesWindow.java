@@ -0,0 +1,59 @@
+package com.shop.online.common.enums;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时热销统计的滑动窗口
+ * 窗口切成固定时长的时间片，过期按整片淘汰，实际覆盖的时长比窗口最多少一个时间片
+ */
+public enum SalesWindow {
+
+    HOUR("hour", 5, 12),
+
+    DAY("day", 60, 24),
+
+    WEEK("week", 360, 28);
+
+    private final String key;
+
+    private final int slotMinutes;
+
+    private final int slotCount;
+
+    SalesWindow(String key, int slotMinutes, int slotCount) {
+        this.key = key;
+        this.slotMinutes = slotMinutes;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * 请求参数中的窗口名
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public long getSlotMillis() {
+        return TimeUnit.MINUTES.toMillis(slotMinutes);
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public long getMillis() {
+        return getSlotMillis() * slotCount;
+    }
+
+    /**
+     * 按请求参数解析窗口，未知或为空时按天
+     */
+    public static SalesWindow of(String key) {
+        for (SalesWindow window : values()) {
+            if (window.key.equals(key)) {
+                return window;
+            }
+        }
+        return DAY;
+    }
+}
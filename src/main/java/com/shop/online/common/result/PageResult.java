@@ -10,10 +10,26 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PageResult<T> {
+    /**
+     * 总记录数，客户端不需要总数时为null
+     */
     private Long total;
     private List<T> list;
+    /**
+     * 游标分页时下一页的游标，没有下一页时为null
+     */
+    private String nextCursor;
+
+    public PageResult(Long total, List<T> list) {
+        this(total, list, null);
+    }
+
     public static <T> PageResult<T> of(long total, List<T> list) {
         return new PageResult<>(total, list);
     }
 
-} 
\ No newline at end of file
+    public static <T> PageResult<T> of(Long total, List<T> list, String nextCursor) {
+        return new PageResult<>(total, list, nextCursor);
+    }
+
+} 
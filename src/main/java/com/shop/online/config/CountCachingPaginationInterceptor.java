@@ -0,0 +1,57 @@
+package com.shop.online.config;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.ParameterUtils;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.shop.online.util.LocalCache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+
+/**
+ * 分页拦截器：把分页下推为数据库方言的 LIMIT，COUNT 查询去掉 ORDER BY 和无关的 LEFT JOIN，
+ * 并按“SQL + 参数”短时间缓存总数。第一页总是重新统计并刷新缓存，
+ * 第2..N页在缓存有效期内直接复用总数，省去翻页时重复的 COUNT。
+ * 缓存只靠TTL失效，翻页期间数据变化时总数可能短暂滞后。
+ */
+public class CountCachingPaginationInterceptor extends PaginationInnerInterceptor {
+
+    private final LocalCache<CacheKey, Long> totals;
+
+    /**
+     * @param ttlMillis 总数缓存时间（毫秒），不大于0时不缓存
+     */
+    public CountCachingPaginationInterceptor(DbType dbType, int maxEntries, long ttlMillis) {
+        super(dbType);
+        setOptimizeJoin(true);
+        this.totals = ttlMillis > 0 ? new LocalCache<>(maxEntries, ttlMillis) : null;
+    }
+
+    @Override
+    public boolean willDoQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                               ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        IPage<?> page = ParameterUtils.findPage(parameter).orElse(null);
+        if (totals == null || page == null || page.getSize() < 0 || !page.searchCount()) {
+            return super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        }
+
+        // 语句ID、SQL和参数值都相同才视为同一个列表，页码不参与
+        CacheKey key = executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql);
+        if (page.getCurrent() > 1) {
+            Long total = totals.get(key);
+            if (total != null) {
+                page.setTotal(total);
+                return continuePage(page);
+            }
+        }
+        boolean proceed = super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        totals.put(key, page.getTotal());
+        return proceed;
+    }
+}
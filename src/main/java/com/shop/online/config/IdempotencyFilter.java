@@ -0,0 +1,179 @@
+package com.shop.online.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.online.util.LocalCache;
+import com.shop.online.vo.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 幂等过滤器
+ * 对带 Idempotency-Key 请求头的下单、支付请求，保存第一次成功的响应；
+ * 相同用户携带相同Key的重试直接返回保存的响应，不再访问数据库；
+ * 并发的重复请求等待正在处理的那一个完成后返回同样的结果。
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String REPLAYED_HEADER = "Idempotency-Replayed";
+
+    @Value("${idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${idempotency.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LocalCache<String, CompletableFuture<StoredResponse>> store;
+
+    /**
+     * 保存的响应
+     */
+    private static class StoredResponse {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        StoredResponse(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        store = new LocalCache<>(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equalsIgnoreCase(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        return !(path.endsWith("/orders/create") || path.endsWith("/orders/pay"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = storeKey(request);
+        CompletableFuture<StoredResponse> inFlight = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = store.putIfAbsent(key, inFlight);
+        
+        if (existing != null) {
+            StoredResponse stored = await(existing);
+            if (stored != null) {
+                logger.info("幂等请求重放: {} {}", request.getRequestURI(), request.getHeader(HEADER));
+                replay(stored, response);
+                return;
+            }
+            if (existing.isDone()) {
+                // 第一次请求失败，没有可重放的响应，本次按新请求处理
+                doFilterInternal(request, response, filterChain);
+            } else {
+                writeInProgress(response);
+            }
+            return;
+        }
+        
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            store.remove(key, inFlight);
+            inFlight.completeExceptionally(e);
+            throw e;
+        }
+        
+        byte[] body = wrapper.getContentAsByteArray();
+        if (isSuccess(wrapper.getStatus(), body)) {
+            inFlight.complete(new StoredResponse(wrapper.getStatus(), wrapper.getContentType(), body));
+        } else {
+            // 失败的请求事务已回滚，不保存响应，允许客户端用同一个Key重试
+            store.remove(key, inFlight);
+            inFlight.complete(null);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * 控制器出错时也返回HTTP 200，需要再看Result中的code
+     */
+    private boolean isSuccess(int status, byte[] body) {
+        if (status < 200 || status >= 300) {
+            return false;
+        }
+        try {
+            return objectMapper.readTree(body).path("code").asInt() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 同一用户、同一接口、同一Key才视为重复请求，Key只对签发它的用户有效
+     */
+    private String storeKey(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        String principal = authorization == null ? ""
+                : DigestUtils.md5DigestAsHex(authorization.getBytes(StandardCharsets.UTF_8));
+        return principal + ":" + request.getRequestURI() + ":" + request.getHeader(HEADER);
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> future) {
+        try {
+            return future.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status);
+        if (stored.contentType != null) {
+            response.setContentType(stored.contentType);
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body.length);
+        response.getOutputStream().write(stored.body);
+    }
+
+    private void writeInProgress(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_CONFLICT);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Result.error(409, "请求正在处理中，请稍后重试"));
+    }
+}
@@ -1,14 +1,42 @@
 package com.shop.online.config;
 
+import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import org.apache.ibatis.reflection.MetaObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class MyBatisPlusConfig implements MetaObjectHandler {
 
+    @Value("${mybatis-plus.pagination.max-limit:500}")
+    private long maxLimit;
+
+    @Value("${mybatis-plus.pagination.count-cache.max-entries:2000}")
+    private int countCacheMaxEntries;
+
+    @Value("${mybatis-plus.pagination.count-cache.ttl-seconds:30}")
+    private long countCacheTtlSeconds;
+
+    /**
+     * 分页插件，没有它 selectPage 不会分页，而是把整个结果集查回内存
+     */
+    @Bean
+    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+        CountCachingPaginationInterceptor pagination = new CountCachingPaginationInterceptor(
+                DbType.MYSQL, countCacheMaxEntries, TimeUnit.SECONDS.toMillis(countCacheTtlSeconds));
+        // 单页最多返回的条数，防止传入超大的size
+        pagination.setMaxLimit(maxLimit);
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(pagination);
+        return interceptor;
+    }
+
     @Override
     public void insertFill(MetaObject metaObject) {
         LocalDateTime now = LocalDateTime.now();
@@ -20,4 +48,4 @@ public class MyBatisPlusConfig implements MetaObjectHandler {
     public void updateFill(MetaObject metaObject) {
         this.setFieldValByName("updatedTime", LocalDateTime.now(), metaObject);
     }
-} 
\ No newline at end of file
+}
@@ -10,7 +10,9 @@ import com.shop.online.entity.User;
 import com.shop.online.service.AdminService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -42,6 +44,28 @@ public class AdminController {
         }
     }
 
+    /**
+     * 订阅管理员统计数据，计数变化时推送 stats 事件
+     */
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAdminStats() {
+        return adminService.subscribeAdminStats();
+    }
+
+    /**
+     * 按数据库校对管理员统计数据
+     */
+    @PostMapping("/stats/reconcile")
+    public Result<Map<String, Object>> reconcileAdminStats() {
+        log.info("收到校对平台统计请求");
+        try {
+            return Result.success(adminService.reconcileAdminStats());
+        } catch (Exception e) {
+            log.error("校对平台统计失败: {}", e.getMessage(), e);
+            return Result.error("校对平台统计失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取待处理的卖家申请列表
      */
@@ -306,6 +330,7 @@ public class AdminController {
     
     /**
      * 获取所有订单列表（分页）
+     * 传cursor时使用游标分页（第一页传空字符串），用返回的nextCursor请求下一页；withTotal=false时不统计总数
      */
     @GetMapping("/orders")
     public Result<?> getAllOrders(
@@ -313,11 +338,13 @@ public class AdminController {
             @RequestParam(required = false) String username,
             @RequestParam(required = false) Integer status,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int pageSize) {
-        log.info("收到获取所有订单列表请求, 订单号: {}, 用户名: {}, 状态: {}, 页码: {}, 每页数量: {}", 
-                 orderNo, username, status, page, pageSize);
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        log.info("收到获取所有订单列表请求, 订单号: {}, 用户名: {}, 状态: {}, 页码: {}, 每页数量: {}, 游标: {}", 
+                 orderNo, username, status, page, pageSize, cursor);
         try {
-            PageResult<?> pageResult = adminService.getAllOrders(orderNo, username, status, page, pageSize);
+            PageResult<?> pageResult = adminService.getAllOrders(orderNo, username, status, page, pageSize, cursor, withTotal);
             log.info("获取所有订单列表成功，总记录数: {}", pageResult.getTotal());
             return Result.success(pageResult);
         } catch (Exception e) {
@@ -342,6 +369,190 @@ public class AdminController {
         }
     }
     
+    /**
+     * 管理员批量发货
+     */
+    @PostMapping("/orders/batch-ship")
+    public Result<Integer> batchShipOrders(@RequestBody List<String> orderNos) {
+        log.info("收到管理员批量发货请求, 订单数: {}", orderNos.size());
+        try {
+            int shipped = adminService.batchShipOrders(orderNos);
+            log.info("管理员批量发货完成, 请求数: {}, 成功数: {}", orderNos.size(), shipped);
+            return Result.success(shipped);
+        } catch (Exception e) {
+            log.error("管理员批量发货失败: {}", e.getMessage(), e);
+            return Result.error("批量发货失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取未付款订单超时取消的运行指标（时间轮各层任务数、取消延迟）
+     */
+    @GetMapping("/orders/expiration/stats")
+    public Result<Map<String, Object>> getOrderExpirationStats() {
+        try {
+            return Result.success(adminService.getOrderExpirationStats());
+        } catch (Exception e) {
+            log.error("获取超时取消指标失败: {}", e.getMessage(), e);
+            return Result.error("获取超时取消指标失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取订单详情缓存的命中指标
+     */
+    @GetMapping("/orders/detail-cache/stats")
+    public Result<Map<String, Object>> getOrderDetailCacheStats() {
+        try {
+            return Result.success(adminService.getOrderDetailCacheStats());
+        } catch (Exception e) {
+            log.error("获取订单详情缓存指标失败: {}", e.getMessage(), e);
+            return Result.error("获取订单详情缓存指标失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按已完成订单的明细重新计算商品销量
+     */
+    @PostMapping("/products/sales/rebuild")
+    public Result<Integer> rebuildProductSales() {
+        log.info("收到重新计算商品销量请求");
+        try {
+            int updated = adminService.rebuildProductSales();
+            log.info("商品销量重新计算完成, 更新商品数: {}", updated);
+            return Result.success(updated);
+        } catch (Exception e) {
+            log.error("重新计算商品销量失败: {}", e.getMessage(), e);
+            return Result.error("重新计算商品销量失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 立即归档超过保留期的冷订单
+     */
+    @PostMapping("/orders/archive/run")
+    public Result<Map<String, Object>> archiveOrders() {
+        log.info("收到订单归档请求");
+        try {
+            return Result.success(adminService.archiveOrders());
+        } catch (Exception e) {
+            log.error("订单归档失败: {}", e.getMessage(), e);
+            return Result.error("订单归档失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按订单表校对卖家订单计数
+     */
+    @PostMapping("/orders/seller-stats/reconcile")
+    public Result<Map<String, Object>> reconcileSellerOrderStats() {
+        log.info("收到校对卖家订单计数请求");
+        try {
+            return Result.success(adminService.reconcileSellerOrderStats());
+        } catch (Exception e) {
+            log.error("校对卖家订单计数失败: {}", e.getMessage(), e);
+            return Result.error("校对卖家订单计数失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按订单表重新生成销售日汇总
+     */
+    @PostMapping("/sales/rollup/rebuild")
+    public Result<Map<String, Object>> rebuildSalesRollups() {
+        log.info("收到重建销售日汇总请求");
+        try {
+            return Result.success(adminService.rebuildSalesRollups());
+        } catch (Exception e) {
+            log.error("重建销售日汇总失败: {}", e.getMessage(), e);
+            return Result.error("重建销售日汇总失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取全平台实时热销商品
+     */
+    @GetMapping("/sales/top-products")
+    public Result<List<Map<String, Object>>> getPlatformTopProducts(
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        try {
+            return Result.success(adminService.getPlatformTopProducts(window, limit));
+        } catch (Exception e) {
+            log.error("获取实时热销商品失败: {}", e.getMessage(), e);
+            return Result.error("获取实时热销商品失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按订单表重新加载实时热销统计
+     */
+    @PostMapping("/sales/top-products/reload")
+    public Result<Map<String, Object>> reloadBestSellers() {
+        log.info("收到重新加载实时热销统计请求");
+        try {
+            return Result.success(adminService.reloadBestSellers());
+        } catch (Exception e) {
+            log.error("重新加载实时热销统计失败: {}", e.getMessage(), e);
+            return Result.error("重新加载实时热销统计失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取销售分析缓存的命中指标
+     */
+    @GetMapping("/sales/analytics-cache/stats")
+    public Result<Map<String, Object>> getSalesAnalyticsCacheStats() {
+        try {
+            return Result.success(adminService.getSalesAnalyticsCacheStats());
+        } catch (Exception e) {
+            log.error("获取销售分析缓存指标失败: {}", e.getMessage(), e);
+            return Result.error("获取销售分析缓存指标失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取查询并发执行器的指标（线程、队列、超时与失败次数）
+     */
+    @GetMapping("/query-fan-out/stats")
+    public Result<Map<String, Object>> getQueryFanOutStats() {
+        try {
+            return Result.success(adminService.getQueryFanOutStats());
+        } catch (Exception e) {
+            log.error("获取查询并发执行器指标失败: {}", e.getMessage(), e);
+            return Result.error("获取查询并发执行器指标失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取最近一次订单归档的统计
+     */
+    @GetMapping("/orders/archive/stats")
+    public Result<Map<String, Object>> getOrderArchiveStats() {
+        try {
+            return Result.success(adminService.getOrderArchiveStats());
+        } catch (Exception e) {
+            log.error("获取订单归档统计失败: {}", e.getMessage(), e);
+            return Result.error("获取订单归档统计失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 管理员批量取消订单
+     */
+    @PostMapping("/orders/batch-cancel")
+    public Result<Integer> batchCancelOrders(@RequestBody List<String> orderNos) {
+        log.info("收到管理员批量取消订单请求, 订单数: {}", orderNos.size());
+        try {
+            int cancelled = adminService.batchCancelOrders(orderNos);
+            log.info("管理员批量取消订单完成, 请求数: {}, 成功数: {}", orderNos.size(), cancelled);
+            return Result.success(cancelled);
+        } catch (Exception e) {
+            log.error("管理员批量取消订单失败: {}", e.getMessage(), e);
+            return Result.error("批量取消订单失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取订单详情
      */
@@ -40,9 +40,11 @@ public class ProductController {
             @PathVariable Integer categoryId,
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "12") Integer size,
-            @RequestParam(required = false) String sortBy) {
-        log.info("根据分类查询商品: categoryId={}, page={}, size={}, sortBy={}", categoryId, page, size, sortBy);
-        return Result.success(productService.getProductsByCategory(categoryId, page, size, sortBy));
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        log.info("根据分类查询商品: categoryId={}, page={}, size={}, sortBy={}, cursor={}", categoryId, page, size, sortBy, cursor);
+        return Result.success(productService.getProductsByCategory(categoryId, page, size, sortBy, cursor, withTotal));
     }
 
     @GetMapping("/{id}")
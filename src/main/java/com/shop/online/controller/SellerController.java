@@ -12,6 +12,7 @@ import com.shop.online.service.OrderService;
 import com.shop.online.service.ProductService;
 import com.shop.online.service.SellerService;
 import com.shop.online.service.UserService;
+import com.shop.online.service.impl.QueryFanOutExecutor;
 import com.shop.online.util.FileUtil;
 import com.shop.online.vo.OrderVO;
 import com.shop.online.vo.ProductVO;
@@ -50,6 +51,9 @@ public class SellerController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private QueryFanOutExecutor queryFanOutExecutor;
+
     /**
      * 商家入驻申请
      */
@@ -332,13 +336,16 @@ public class SellerController {
 
     /**
      * 获取卖家订单列表
+     * 传cursor时使用游标分页（第一页传空字符串），用返回的nextCursor请求下一页；withTotal=false时不统计总数
      */
     @GetMapping("/orders")
     public Result<PageResult<OrderVO>> getSellerOrders(
             @RequestParam(required = false) String status,
             @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        log.info("获取卖家订单列表: status={}, page={}, size={}", status, page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean withTotal) {
+        log.info("获取卖家订单列表: status={}, page={}, size={}, cursor={}", status, page, size, cursor);
         try {
             // 获取当前卖家信息
             Seller seller = sellerService.getCurrentSeller();
@@ -362,6 +369,8 @@ public class SellerController {
             params.put("sellerId", seller.getId());
             params.put("page", page);
             params.put("size", size);
+            params.put("cursor", cursor);
+            params.put("withTotal", withTotal);
             
             // 处理常规状态
             if (status != null && !status.isEmpty() && !"0".equals(status)) {
@@ -421,6 +430,32 @@ public class SellerController {
         }
     }
 
+    /**
+     * 批量发货
+     */
+    @PostMapping("/orders/batch-ship")
+    public Result<Integer> batchShipOrders(@RequestBody List<String> orderNos) {
+        log.info("卖家批量发货请求: 订单数={}", orderNos.size());
+        try {
+            // 获取当前卖家信息
+            Seller seller = sellerService.getCurrentSeller();
+            if (seller == null) {
+                log.error("获取卖家信息失败");
+                return Result.error("获取卖家信息失败，请重新登录");
+            }
+            
+            int shipped = orderService.batchShipOrders(orderNos, seller.getId());
+            log.info("卖家 [{}] 批量发货完成: 请求数={}, 成功数={}", seller.getId(), orderNos.size(), shipped);
+            return Result.success(shipped);
+        } catch (BusinessException e) {
+            log.error("卖家批量发货业务异常: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("卖家批量发货系统异常", e);
+            return Result.error("批量发货失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取卖家已退款订单列表
      */
@@ -458,24 +493,31 @@ public class SellerController {
         log.info("获取卖家统计数据");
         try {
             Seller seller = sellerService.getCurrentSeller();
+            Long sellerId = seller.getId();
             
-            // 构建统计结果
-            Map<String, Object> result = new HashMap<>();
-            
-            // 获取各状态订单数量
+            // 各项统计互不依赖，并发查询；某项超时或失败时为null，其他项照常返回
+            QueryFanOutExecutor.FanOut fanOut = queryFanOutExecutor.start();
             // 待发货订单数
-            int pendingShipments = orderService.countSellerOrdersByStatus(seller.getId(), 1);
+            QueryFanOutExecutor.Query<Integer> pendingShipments = fanOut.submit("pendingShipments",
+                    () -> orderService.countSellerOrdersByStatus(sellerId, 1), null);
             // 总订单数
-            int totalOrders = orderService.countSellerOrders(seller.getId());
+            QueryFanOutExecutor.Query<Integer> totalOrders = fanOut.submit("totalOrders",
+                    () -> orderService.countSellerOrders(sellerId), null);
             // 商品总数
-            int totalProducts = productService.countSellerProducts(seller.getId());
+            QueryFanOutExecutor.Query<Integer> totalProducts = fanOut.submit("totalProducts",
+                    () -> productService.countSellerProducts(sellerId), null);
             // 库存不足商品数
-            int lowStockProducts = productService.countSellerLowStockProducts(seller.getId(), 10);
+            QueryFanOutExecutor.Query<Integer> lowStockProducts = fanOut.submit("lowStockProducts",
+                    () -> productService.countSellerLowStockProducts(sellerId, 10), null);
             
-            result.put("pendingShipments", pendingShipments);
-            result.put("totalOrders", totalOrders);
-            result.put("totalProducts", totalProducts);
-            result.put("lowStockProducts", lowStockProducts);
+            // 构建统计结果
+            Map<String, Object> result = new HashMap<>();
+            result.put("pendingShipments", pendingShipments.get());
+            result.put("totalOrders", totalOrders.get());
+            result.put("totalProducts", totalProducts.get());
+            result.put("lowStockProducts", lowStockProducts.get());
+            result.put("partial", fanOut.isPartial());
+            result.put("degraded", fanOut.getDegraded());
             
             return Result.success(result);
         } catch (Exception e) {
@@ -636,6 +678,26 @@ public class SellerController {
         }
     }
     
+    /**
+     * 获取实时热销商品（最近1小时、1天或7天）
+     */
+    @GetMapping("/sales/top-products")
+    public Result<List<Map<String, Object>>> getRealtimeTopProducts(
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("获取实时热销商品: window={}, limit={}", window, limit);
+        try {
+            Seller seller = sellerService.getCurrentSeller();
+            return Result.success(orderService.getRealtimeTopProducts(seller.getId(), window, limit));
+        } catch (BusinessException e) {
+            log.error("获取实时热销商品失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("获取实时热销商品失败", e);
+            return Result.error("获取实时热销商品失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取销售数据分析
      */
@@ -710,9 +772,10 @@ public class SellerController {
             @RequestParam String startDate,
             @RequestParam String endDate,
             @RequestParam(defaultValue = "monthly") String reportType,
+            @RequestParam(defaultValue = "csv") String fileType,
             HttpServletResponse response) {
-        log.info("导出财务报表: startDate={}, endDate={}, reportType={}", 
-                startDate, endDate, reportType);
+        log.info("导出财务报表: startDate={}, endDate={}, reportType={}, fileType={}", 
+                startDate, endDate, reportType, fileType);
         try {
             Seller seller = sellerService.getCurrentSeller();
             
@@ -725,15 +788,26 @@ public class SellerController {
             
             // 设置响应头
             String fileName = "financial_report_" + startDate + "_to_" + endDate;
-            response.setContentType("text/csv;charset=utf-8");
-            response.setHeader("Content-Disposition", "attachment;filename=" + fileName + ".csv");
+            boolean csv = "csv".equalsIgnoreCase(fileType);
+            if (csv) {
+                response.setContentType("text/csv;charset=utf-8");
+                response.setHeader("Content-Disposition", "attachment;filename=" + fileName + ".csv");
+            } else {
+                response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                response.setHeader("Content-Disposition", "attachment;filename=" + fileName + ".xlsx");
+            }
             
-            // 导出报表
-            orderService.exportFinancialReport(params, response.getOutputStream(), "csv");
+            // 导出报表，边查询边写入响应
+            orderService.exportFinancialReport(params, response.getOutputStream(), csv ? "csv" : "xlsx");
             
         } catch (Exception e) {
             log.error("导出财务报表失败", e);
+            // 已经开始写出文件内容时无法再返回错误信息
+            if (response.isCommitted()) {
+                return;
+            }
             try {
+                response.reset();
                 response.setContentType("application/json;charset=utf-8");
                 response.getWriter().write("{\"code\":500,\"message\":\"" + e.getMessage() + "\"}");
             } catch (IOException ex) {
@@ -0,0 +1,16 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 卖家的一个已完成订单的买家，用于重建每日买家统计
+ */
+@Data
+public class BuyerOrderDTO {
+
+    private Long userId;
+
+    private LocalDateTime createdTime;
+}
@@ -0,0 +1,28 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 财务报表的一行订单，商品信息按批另外查询
+ */
+@Data
+public class FinancialReportRowDTO {
+
+    private Long id;
+
+    private String orderNo;
+
+    private LocalDateTime createdTime;
+
+    private Integer status;
+
+    private BigDecimal totalAmount;
+
+    /**
+     * 买家用户名，用户不存在或已删除时为空
+     */
+    private String username;
+}
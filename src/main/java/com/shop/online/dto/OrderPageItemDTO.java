@@ -0,0 +1,16 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 订单列表使用的订单项，附带买家是否已评价该商品
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class OrderPageItemDTO extends OrderItemDTO {
+    /**
+     * 订单已完成且买家已评价该商品
+     */
+    private Boolean reviewed;
+}
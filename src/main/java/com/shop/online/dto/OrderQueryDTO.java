@@ -27,4 +27,14 @@ public class OrderQueryDTO {
      * 是否查询包含已退款商品的订单
      */
     private Boolean hasRefundedItems;
+    
+    /**
+     * 开始日期（yyyy-MM-dd），早于归档保留期时会同时查询归档订单
+     */
+    private String startDate;
+    
+    /**
+     * 结束日期（yyyy-MM-dd）
+     */
+    private String endDate;
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品在一个时间片内的销售合计，用于重新加载实时热销统计
+ */
+@Data
+public class ProductSalesSlotDTO {
+
+    private Long sellerId;
+
+    private Long productId;
+
+    private String productName;
+
+    /**
+     * 相对于加载起点的时间片序号
+     */
+    private Long slot;
+
+    private BigDecimal amount;
+
+    private Long quantity;
+}
@@ -0,0 +1,37 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单的销售明细行，用于增减销售日汇总、每日买家统计和实时热销统计
+ * 订单没有未退款的明细时，商品相关字段为空
+ */
+@Data
+public class SalesLineDTO {
+
+    private Long orderId;
+
+    private Long sellerId;
+
+    private Long userId;
+
+    private LocalDateTime createdTime;
+
+    /**
+     * 订单最后一次流转的时间，已完成的订单即确认收货时间
+     */
+    private LocalDateTime updatedTime;
+
+    private Long productId;
+
+    private String productName;
+
+    private Long categoryId;
+
+    private BigDecimal price;
+
+    private Integer quantity;
+}
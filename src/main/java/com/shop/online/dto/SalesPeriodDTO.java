@@ -0,0 +1,22 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 一个统计周期（天、周、月）的销售汇总，由SQL分桶求和得到
+ */
+@Data
+public class SalesPeriodDTO {
+
+    /**
+     * 周期的第一天
+     */
+    private LocalDate periodStart;
+
+    private Integer orderCount;
+
+    private BigDecimal amount;
+}
@@ -0,0 +1,21 @@
+package com.shop.online.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 一个商品或类别在日期范围内的销售合计
+ */
+@Data
+public class SalesTotalDTO {
+
+    /**
+     * 商品ID或类别ID
+     */
+    private Long id;
+
+    private BigDecimal amount;
+
+    private Long quantity;
+}
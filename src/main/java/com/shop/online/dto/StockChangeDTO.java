@@ -0,0 +1,34 @@
+package com.shop.online.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存变更DTO，一行代表一个商品的库存变化量
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChangeDTO {
+    private Long productId;
+    private Integer quantity;
+
+    /**
+     * 合并同一商品的多行数量，保证批量SQL中每个商品只出现一次
+     */
+    public static List<StockChangeDTO> merge(List<StockChangeDTO> changes) {
+        Map<Long, Integer> merged = new LinkedHashMap<>();
+        for (StockChangeDTO change : changes) {
+            merged.merge(change.getProductId(), change.getQuantity(), Integer::sum);
+        }
+        List<StockChangeDTO> result = new ArrayList<>(merged.size());
+        merged.forEach((productId, quantity) -> result.add(new StockChangeDTO(productId, quantity)));
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package com.shop.online.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 热点库存流水实体类
+ */
+@Data
+@TableName("hot_stock_journal")
+public class HotStockJournal {
+
+    /**
+     * 流水ID
+     */
+    private Long id;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 库存变化量，预占为负、归还为正
+     */
+    private Integer delta;
+}
@@ -0,0 +1,34 @@
+package com.shop.online.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 卖家每日买家统计实体类
+ */
+@Data
+@TableName("sales_daily_buyer")
+public class SalesDailyBuyer {
+
+    /**
+     * 卖家ID
+     */
+    private Long sellerId;
+
+    /**
+     * 下单日期
+     */
+    private LocalDate salesDate;
+
+    /**
+     * 已完成订单买家的 HyperLogLog 序列化结果
+     */
+    private byte[] buyers;
+
+    /**
+     * 回头客的 HyperLogLog 序列化结果
+     */
+    private byte[] repeatBuyers;
+}
@@ -0,0 +1,50 @@
+package com.shop.online.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 卖家商品销售日汇总实体类
+ */
+@Data
+@TableName("sales_daily_product")
+public class SalesDailyProduct {
+
+    /**
+     * 卖家ID
+     */
+    private Long sellerId;
+
+    /**
+     * 下单日期
+     */
+    private LocalDate salesDate;
+
+    /**
+     * 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 商品分类ID
+     */
+    private Long categoryId;
+
+    /**
+     * 销量（增减时为变化量）
+     */
+    private Integer quantity;
+
+    /**
+     * 销售额（增减时为变化量）
+     */
+    private BigDecimal amount;
+
+    /**
+     * 包含该商品的订单数（增减时为变化量）
+     */
+    private Integer orderCount;
+}
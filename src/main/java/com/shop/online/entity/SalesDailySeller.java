@@ -0,0 +1,35 @@
+package com.shop.online.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 卖家销售日汇总实体类
+ */
+@Data
+@TableName("sales_daily_seller")
+public class SalesDailySeller {
+
+    /**
+     * 卖家ID
+     */
+    private Long sellerId;
+
+    /**
+     * 下单日期
+     */
+    private LocalDate salesDate;
+
+    /**
+     * 已完成订单数（增减时为变化量）
+     */
+    private Integer orderCount;
+
+    /**
+     * 销售额（增减时为变化量）
+     */
+    private BigDecimal amount;
+}
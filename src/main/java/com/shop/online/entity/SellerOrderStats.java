@@ -0,0 +1,31 @@
+package com.shop.online.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 卖家订单状态计数实体类
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("seller_order_stats")
+public class SellerOrderStats {
+
+    /**
+     * 卖家ID
+     */
+    private Long sellerId;
+
+    /**
+     * 订单状态
+     */
+    private Integer status;
+
+    /**
+     * 订单数（增减时为变化量）
+     */
+    private Integer orderCount;
+}
@@ -0,0 +1,21 @@
+package com.shop.online.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 库存不足异常，携带缺货的商品ID，便于上层组装提示并回滚事务
+ */
+public class StockShortageException extends BusinessException {
+
+    private final List<Long> productIds;
+
+    public StockShortageException(String message, List<Long> productIds) {
+        super(message);
+        this.productIds = Collections.unmodifiableList(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
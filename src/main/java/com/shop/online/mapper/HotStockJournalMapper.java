@@ -0,0 +1,67 @@
+package com.shop.online.mapper;
+
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.entity.HotStockJournal;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 热点库存流水和租约Mapper接口
+ */
+@Mapper
+public interface HotStockJournalMapper {
+
+    /**
+     * 插入流水
+     * @param deltas 每个商品的库存变化量（预占为负）
+     */
+    @Insert("<script>" +
+            "INSERT INTO hot_stock_journal (product_id, delta) VALUES " +
+            "<foreach collection='deltas' item='delta' separator=','>" +
+            "(#{delta.productId}, #{delta.quantity})" +
+            "</foreach>" +
+            "</script>")
+    int insertDeltas(@Param("deltas") List<StockChangeDTO> deltas);
+
+    /**
+     * 按ID顺序读取已提交的流水（一致性读，不加锁，不阻塞下单事务插入流水）
+     */
+    @Select("SELECT id, product_id, delta FROM hot_stock_journal ORDER BY id LIMIT #{limit}")
+    List<HotStockJournal> selectBatch(@Param("limit") int limit);
+
+    /**
+     * 删除已写回的流水
+     */
+    @Delete("<script>" +
+            "DELETE FROM hot_stock_journal WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 获取或续期租约：没有持有者、持有者是自己或租约已过期时成功，时间以数据库为准
+     * @return 1表示持有租约
+     */
+    @Update("UPDATE hot_stock_lease SET owner = #{owner}, expire_time = TIMESTAMPADD(SECOND, #{leaseSeconds}, NOW()) " +
+            "WHERE id = 1 AND (owner IS NULL OR owner = #{owner} OR expire_time < NOW())")
+    int acquireLease(@Param("owner") String owner, @Param("leaseSeconds") int leaseSeconds);
+
+    /**
+     * 释放自己持有的租约
+     */
+    @Update("UPDATE hot_stock_lease SET owner = NULL, expire_time = NULL WHERE id = 1 AND owner = #{owner}")
+    int releaseLease(@Param("owner") String owner);
+
+    /**
+     * 当前租约的持有者
+     */
+    @Select("SELECT owner FROM hot_stock_lease WHERE id = 1")
+    String selectLeaseOwner();
+}
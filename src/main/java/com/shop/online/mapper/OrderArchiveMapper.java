@@ -0,0 +1,145 @@
+package com.shop.online.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.shop.online.dto.OrderItemDTO;
+import com.shop.online.dto.OrderPageItemDTO;
+import com.shop.online.entity.Order;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单归档Mapper接口
+ * 负责把冷订单从 order/order_item 搬到 order_archive/order_item_archive，以及归档数据的读取
+ */
+@Mapper
+public interface OrderArchiveMapper {
+
+    String ORDER_COLUMNS = "id, order_no, user_id, seller_id, total_amount, status, payment_method, " +
+            "phone, location, created_time, updated_time, deleted";
+
+    String ORDER_ITEM_COLUMNS = "id, order_id, product_id, product_name, product_image, price, quantity, " +
+            "total_amount, created_time, updated_time, deleted";
+
+    /**
+     * 热表与归档表合并后的订单，两边分别按同一个条件过滤（条件里有排序、LIMIT时各自生效），外层统一按 (created_time, id) 倒序
+     */
+    String ORDERS_WITH_ARCHIVE = "(SELECT " + ORDER_COLUMNS + " FROM `order` ${ew.customSqlSegment}) " +
+            "UNION ALL " +
+            "(SELECT " + ORDER_COLUMNS + " FROM order_archive ${ew.customSqlSegment})";
+
+    /**
+     * 挑选可归档的订单并加锁
+     * @param statuses 可归档的状态（已完成、已取消、已退款）
+     * @param before 创建时间早于该时间的订单才归档
+     * @param limit 每批数量
+     * @return 订单ID
+     */
+    @Select("<script>" +
+            "SELECT id FROM `order` WHERE status IN " +
+            "<foreach collection='statuses' item='status' open='(' separator=',' close=')'>#{status}</foreach>" +
+            " AND created_time &lt; #{before} LIMIT #{limit} FOR UPDATE" +
+            "</script>")
+    List<Long> selectArchivableIds(@Param("statuses") Collection<Integer> statuses,
+                                   @Param("before") LocalDateTime before,
+                                   @Param("limit") int limit);
+
+    /**
+     * 复制订单到归档表
+     */
+    @Insert("<script>" +
+            "INSERT INTO order_archive (" + ORDER_COLUMNS + ") " +
+            "SELECT " + ORDER_COLUMNS + " FROM `order` WHERE id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyOrders(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 复制订单明细（含已退款）到归档表
+     */
+    @Insert("<script>" +
+            "INSERT INTO order_item_archive (" + ORDER_ITEM_COLUMNS + ") " +
+            "SELECT " + ORDER_ITEM_COLUMNS + " FROM order_item WHERE order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyOrderItems(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 从热表删除已复制的订单明细
+     */
+    @Delete("<script>" +
+            "DELETE FROM order_item WHERE order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteOrderItems(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 从热表删除已复制的订单
+     */
+    @Delete("<script>" +
+            "DELETE FROM `order` WHERE id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteOrders(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 按订单号查询归档订单
+     */
+    @Select("SELECT " + ORDER_COLUMNS + " FROM order_archive WHERE order_no = #{orderNo}")
+    Order selectByOrderNo(@Param("orderNo") String orderNo);
+
+    /**
+     * 根据订单ID列表查询归档的未退款订单明细，与 OrderItemMapper.selectByOrderIds 对应
+     */
+    @Select("<script>" +
+            "SELECT * FROM order_item_archive WHERE order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            " AND deleted = 0" +
+            "</script>")
+    List<OrderItemDTO> selectItemsByOrderIds(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 根据订单ID列表查询归档的订单明细，字段、排序与 OrderItemMapper.selectWithReviewStateByOrderIds 一致
+     */
+    @Select("<script>" +
+            "SELECT oi.*, CASE WHEN o.status = 3 AND EXISTS (" +
+            "SELECT 1 FROM product_review r WHERE r.user_id = o.user_id AND r.order_no = o.order_no " +
+            "AND r.product_id = oi.product_id AND r.deleted = 0" +
+            ") THEN 1 ELSE 0 END AS reviewed " +
+            "FROM order_item_archive oi JOIN order_archive o ON o.id = oi.order_id " +
+            "WHERE oi.order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            " ORDER BY oi.order_id, oi.deleted, oi.id" +
+            "</script>")
+    List<OrderPageItemDTO> selectItemsWithReviewStateByOrderIds(@Param("orderIds") List<Long> orderIds);
+
+    /**
+     * 分页查询热表与归档表中的订单
+     */
+    @Select("SELECT * FROM (" + ORDERS_WITH_ARCHIVE + ") t ORDER BY created_time DESC, id DESC")
+    IPage<Order> selectPageWithArchive(IPage<Order> page, @Param(Constants.WRAPPER) Wrapper<Order> queryWrapper);
+
+    /**
+     * 查询热表与归档表中的订单，用于游标分页
+     */
+    @Select("SELECT * FROM (" + ORDERS_WITH_ARCHIVE + ") t ORDER BY created_time DESC, id DESC")
+    List<Order> selectListWithArchive(@Param(Constants.WRAPPER) Wrapper<Order> queryWrapper);
+
+    /**
+     * 统计热表与归档表中的订单数
+     */
+    @Select("SELECT COUNT(*) FROM (" + ORDERS_WITH_ARCHIVE + ") t")
+    Long selectCountWithArchive(@Param(Constants.WRAPPER) Wrapper<Order> queryWrapper);
+}
@@ -1,7 +1,9 @@
 package com.shop.online.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.shop.online.dto.OrderItemDTO;
+import com.shop.online.dto.OrderPageItemDTO;
 import com.shop.online.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -47,6 +49,27 @@ public interface OrderItemMapper {
             "</script>")
     List<OrderItemDTO> selectByOrderIds(@Param("orderIds") List<Long> orderIds);
     
+    /**
+     * 根据订单ID列表查询全部订单明细（含已退款），同时带出已完成订单中买家是否已评价
+     * 同一订单内未退款的明细排在前面
+     * 
+     * @param orderIds 订单ID列表
+     * @return 订单明细列表
+     */
+    @Select("<script>" +
+            "SELECT oi.*, CASE WHEN o.status = 3 AND EXISTS (" +
+            "SELECT 1 FROM product_review r WHERE r.user_id = o.user_id AND r.order_no = o.order_no " +
+            "AND r.product_id = oi.product_id AND r.deleted = 0" +
+            ") THEN 1 ELSE 0 END AS reviewed " +
+            "FROM order_item oi JOIN `order` o ON o.id = oi.order_id " +
+            "WHERE oi.order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            " ORDER BY oi.order_id, oi.deleted, oi.id" +
+            "</script>")
+    List<OrderPageItemDTO> selectWithReviewStateByOrderIds(@Param("orderIds") List<Long> orderIds);
+    
     /**
      * 根据订单ID查询已退款（已删除）的订单明细
      * 
@@ -72,29 +95,33 @@ public interface OrderItemMapper {
     List<OrderItemDTO> selectRefundedByOrderIds(@Param("orderIds") List<Long> orderIds);
     
     /**
-     * 根据用户ID查询已退款的订单明细
+     * 分页查询用户已退款的订单明细，按明细ID倒序
      * 
+     * @param page 分页参数
      * @param userId 用户ID
-     * @return 已退款的订单明细列表
+     * @return 已退款的订单明细
      */
     @Select("SELECT oi.* FROM order_item oi " +
            "JOIN `order` o ON oi.order_id = o.id " +
            "WHERE o.user_id = #{userId} " +
            "AND oi.deleted = 1 " +
-           "AND o.deleted = 0")
-    List<OrderItemDTO> selectRefundedByUserId(@Param("userId") Long userId);
+           "AND o.deleted = 0 " +
+           "ORDER BY oi.id DESC")
+    IPage<OrderItemDTO> selectRefundedByUserId(IPage<OrderItemDTO> page, @Param("userId") Long userId);
     
     /**
-     * 根据卖家ID查询已退款的订单明细
+     * 分页查询卖家已退款的订单明细，按明细ID倒序
      * 
+     * @param page 分页参数
      * @param sellerId 卖家ID
-     * @return 已退款的订单明细列表
+     * @return 已退款的订单明细
      */
     @Select("SELECT oi.* FROM order_item oi " +
            "JOIN `order` o ON oi.order_id = o.id " +
            "WHERE o.seller_id = #{sellerId} " +
-           "AND oi.deleted = 1 ")
-    List<OrderItemDTO> selectRefundedBySellerId(@Param("sellerId") Long sellerId);
+           "AND oi.deleted = 1 " +
+           "ORDER BY oi.id DESC")
+    IPage<OrderItemDTO> selectRefundedBySellerId(IPage<OrderItemDTO> page, @Param("sellerId") Long sellerId);
     
     /**
      * 根据ID查询订单明细
@@ -1,14 +1,19 @@
 package com.shop.online.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.shop.online.dto.FinancialReportRowDTO;
 import com.shop.online.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 订单Mapper接口
@@ -16,52 +21,139 @@ import java.util.Map;
 @Mapper
 public interface OrderMapper extends BaseMapper<Order> {
     /**
-     * 按商品类别统计销售数据
-     * @param sellerId 卖家ID
-     * @param startDate 开始日期
-     * @param endDate 结束日期
-     * @return 销售数据列表
+     * 按订单号流转单个订单：当前状态等于 fromStatus 时才更新
+     * @param userId 买家ID，为空时不限制
+     * @param sellerId 卖家ID，为空时不限制
+     * @param paymentMethod 支付方式，为空时不修改
+     * @return 1表示由本次调用完成流转，0表示订单不存在、不属于该用户或状态不满足
+     */
+    @Update("<script>" +
+            "UPDATE `order` SET status = #{toStatus}, updated_time = NOW()" +
+            "<if test='paymentMethod != null'>, payment_method = #{paymentMethod}</if>" +
+            " WHERE order_no = #{orderNo} AND deleted = 0" +
+            "<if test='userId != null'> AND user_id = #{userId}</if>" +
+            "<if test='sellerId != null'> AND seller_id = #{sellerId}</if>" +
+            " AND status = #{fromStatus}" +
+            "</script>")
+    int transitStatus(@Param("orderNo") String orderNo,
+                      @Param("userId") Long userId,
+                      @Param("sellerId") Long sellerId,
+                      @Param("fromStatus") Integer fromStatus,
+                      @Param("toStatus") Integer toStatus,
+                      @Param("paymentMethod") Integer paymentMethod);
+
+    /**
+     * 批量流转同一卖家的订单：当前状态等于 fromStatus 的订单才更新，其余跳过
+     * @return 实际流转的订单数
+     */
+    @Update("<script>" +
+            "UPDATE `order` SET status = #{toStatus}, updated_time = NOW()" +
+            " WHERE order_no IN " +
+            "<foreach collection='orderNos' item='orderNo' open='(' separator=',' close=')'>" +
+            "#{orderNo}" +
+            "</foreach>" +
+            " AND deleted = 0 AND seller_id = #{sellerId} AND status = #{fromStatus}" +
+            "</script>")
+    int transitStatusBatch(@Param("orderNos") Collection<String> orderNos,
+                           @Param("sellerId") Long sellerId,
+                           @Param("fromStatus") Integer fromStatus,
+                           @Param("toStatus") Integer toStatus);
+
+    /**
+     * 锁定可以流转的订单，返回流转前的卖家和状态，用于需要知道具体是哪些订单流转了的批量操作
+     * @param orderNos 订单号列表
+     * @param userId 买家ID，为空时不限制
+     * @param sellerId 卖家ID，为空时不限制（管理员）
+     * @param fromStatuses 允许的当前状态
+     * @return 订单（只有id、seller_id、status）
+     */
+    @Select("<script>" +
+            "SELECT id, seller_id, status FROM `order` WHERE deleted = 0 AND order_no IN " +
+            "<foreach collection='orderNos' item='orderNo' open='(' separator=',' close=')'>" +
+            "#{orderNo}" +
+            "</foreach>" +
+            "<if test='userId != null'> AND user_id = #{userId}</if>" +
+            "<if test='sellerId != null'> AND seller_id = #{sellerId}</if>" +
+            " AND status IN " +
+            "<foreach collection='fromStatuses' item='status' open='(' separator=',' close=')'>" +
+            "#{status}" +
+            "</foreach>" +
+            " FOR UPDATE" +
+            "</script>")
+    List<Order> lockTransitable(@Param("orderNos") Collection<String> orderNos,
+                                @Param("userId") Long userId,
+                                @Param("sellerId") Long sellerId,
+                                @Param("fromStatuses") Collection<Integer> fromStatuses);
+    
+    /**
+     * 按ID批量流转订单（调用前已通过lockTransitable锁定），状态条件作为兜底
+     * @param ids 订单ID列表
+     * @param fromStatuses 允许的当前状态
+     * @param toStatus 目标状态
+     * @return 实际流转的订单数
+     */
+    @Update("<script>" +
+            "UPDATE `order` SET status = #{toStatus}, updated_time = NOW()" +
+            " WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            " AND status IN " +
+            "<foreach collection='fromStatuses' item='status' open='(' separator=',' close=')'>" +
+            "#{status}" +
+            "</foreach>" +
+            "</script>")
+    int transitStatusByIds(@Param("ids") Collection<Long> ids,
+                           @Param("fromStatuses") Collection<Integer> fromStatuses,
+                           @Param("toStatus") Integer toStatus);
+    
+    /**
+     * 按ID顺序分批查询待付款订单，用于重启后重建超时取消任务
+     * @param lastId 上一批最后一个订单ID
+     * @param limit 每批数量
+     * @return 订单（只有id、order_no、created_time）
      */
-    @Select("SELECT c.name as category, SUM(oi.price * oi.quantity) as amount " +
-            "FROM `order` o " +
-            "JOIN order_item oi ON o.id = oi.order_id " +
-            "JOIN product p ON oi.product_id = p.id " +
-            "JOIN category c ON p.category_id = c.id " +
-            "WHERE o.seller_id = #{sellerId} " +
-            "AND o.created_time >= #{startDate} " +
-            "AND o.created_time <= #{endDate} " +
-            "AND o.status = 3 " +
-            "AND o.deleted = 0 " +
-            "GROUP BY c.name " +
-            "ORDER BY amount DESC")
-    List<Map<String, Object>> getSalesByCategory(@Param("sellerId") Long sellerId, 
-                                               @Param("startDate") LocalDateTime startDate, 
-                                               @Param("endDate") LocalDateTime endDate);
+    @Select("SELECT id, order_no, created_time FROM `order` " +
+            "WHERE status = 0 AND deleted = 0 AND id > #{lastId} " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Order> selectPendingPaymentAfter(@Param("lastId") Long lastId, @Param("limit") int limit);
     
     /**
-     * 获取热销商品
+     * 卖家在时间范围内已完成的订单（可合并归档表），按创建时间排列，用于流式导出财务报表
+     * 结果逐行交给 handler，不在内存中汇总；MySQL连接需开启 useCursorFetch，按 fetchSize 分批从服务端取数，
+     * 读取期间同一连接上仍可执行其他查询
      * @param sellerId 卖家ID
-     * @param startDate 开始日期
-     * @param endDate 结束日期
-     * @param limit 限制数量
-     * @return 热销商品列表
+     * @param startTime 开始时间（含）
+     * @param endTime 结束时间（含）
+     * @param includeArchive 是否合并归档表（开始时间早于归档保留期时）
+     * @param handler 逐行处理
      */
-    @Select("SELECT p.id as productId, p.name as productName, " +
-            "SUM(oi.price * oi.quantity) as salesAmount, " +
-            "SUM(oi.quantity) as salesCount " +
-            "FROM `order` o " +
-            "JOIN order_item oi ON o.id = oi.order_id " +
-            "JOIN product p ON oi.product_id = p.id " +
-            "WHERE o.seller_id = #{sellerId} " +
-            "AND o.created_time >= #{startDate} " +
-            "AND o.created_time <= #{endDate} " +
-            "AND o.status = 3 " +
-            "AND o.deleted = 0 " +
-            "GROUP BY p.id, p.name " +
-            "ORDER BY salesAmount DESC " +
-            "LIMIT #{limit}")
-    List<Map<String, Object>> getTopSellingProducts(@Param("sellerId") Long sellerId, 
-                                                  @Param("startDate") LocalDateTime startDate, 
-                                                  @Param("endDate") LocalDateTime endDate,
-                                                  @Param("limit") Integer limit);
-} 
\ No newline at end of file
+    @Select("<script>" +
+            "SELECT o.id, o.order_no, o.created_time, o.status, o.total_amount, u.username FROM " +
+            "<choose>" +
+            "<when test='includeArchive'>(" +
+            "SELECT id, order_no, user_id, created_time, status, total_amount FROM `order` " +
+            "WHERE seller_id = #{sellerId} AND status = 3 AND deleted = 0 " +
+            "AND created_time &gt;= #{startTime} AND created_time &lt;= #{endTime} " +
+            "UNION ALL " +
+            "SELECT id, order_no, user_id, created_time, status, total_amount FROM order_archive " +
+            "WHERE seller_id = #{sellerId} AND status = 3 AND deleted = 0 " +
+            "AND created_time &gt;= #{startTime} AND created_time &lt;= #{endTime}" +
+            ") o </when>" +
+            "<otherwise>`order` o </otherwise>" +
+            "</choose>" +
+            "LEFT JOIN `user` u ON u.id = o.user_id AND u.deleted = 0 " +
+            "<if test='!includeArchive'>" +
+            "WHERE o.seller_id = #{sellerId} AND o.status = 3 AND o.deleted = 0 " +
+            "AND o.created_time &gt;= #{startTime} AND o.created_time &lt;= #{endTime} " +
+            "</if>" +
+            "ORDER BY o.created_time, o.id" +
+            "</script>")
+    @Options(fetchSize = 1000)
+    @ResultType(FinancialReportRowDTO.class)
+    void selectFinancialReportRows(@Param("sellerId") Long sellerId,
+                                   @Param("startTime") LocalDateTime startTime,
+                                   @Param("endTime") LocalDateTime endTime,
+                                   @Param("includeArchive") boolean includeArchive,
+                                   ResultHandler<FinancialReportRowDTO> handler);
+}
@@ -0,0 +1,22 @@
+package com.shop.online.mapper;
+
+import com.shop.online.dto.AdminStatsDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * 平台统计Mapper接口
+ */
+@Mapper
+public interface PlatformStatsMapper {
+
+    /**
+     * 一次查询统计用户数、卖家数、待审核的入驻申请数、上架商品数，均不含已删除的记录
+     */
+    @Select("SELECT " +
+            "(SELECT COUNT(*) FROM `user` WHERE deleted = 0) AS user_count, " +
+            "(SELECT COUNT(*) FROM `user` WHERE role = 1 AND deleted = 0) AS seller_count, " +
+            "(SELECT COUNT(*) FROM seller WHERE status = 0 AND deleted = 0) AS pending_requests, " +
+            "(SELECT COUNT(*) FROM product WHERE status = 1 AND deleted = 0) AS product_count")
+    AdminStatsDTO countPlatformStats();
+}
@@ -1,22 +1,18 @@
 package com.shop.online.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.shop.online.dto.StockChangeDTO;
 import com.shop.online.entity.Product;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
     
-    /**
-     * 统计商品总数
-     * @return 商品总数
-     */
-    @Select("SELECT COUNT(*) FROM product WHERE status = 1")
-    Long countProducts();
-    
     /**
      * 判断是否为一级分类
      * @param categoryId 分类ID
@@ -32,4 +28,56 @@ public interface ProductMapper extends BaseMapper<Product> {
      */
     @Select("SELECT id FROM category WHERE parent_id = #{parentId}")
     List<Long> getSubCategoryIds(Long parentId);
-} 
\ No newline at end of file
+    
+    /**
+     * 批量预占库存：一条UPDATE扣减所有商品，每行都要求 stock >= 扣减数量
+     * @param items 库存变更列表（同一商品只能出现一次）
+     * @return 实际扣减成功的商品行数，小于items.size()说明有商品库存不足
+     */
+    int reserveStock(@Param("items") List<StockChangeDTO> items);
+    
+    /**
+     * 查询库存足够扣减的商品，用于在预占失败后定位缺货商品
+     * @param items 库存变更列表
+     * @return 库存充足且未删除的商品ID列表
+     */
+    List<Long> selectReservableProductIds(@Param("items") List<StockChangeDTO> items);
+    
+    /**
+     * 批量增加库存（数量可为负），用于取消/退款恢复库存和热点库存写回
+     * @param items 库存变更列表（同一商品只能出现一次）
+     * @return 更新的商品行数
+     */
+    int increaseStock(@Param("items") List<StockChangeDTO> items);
+    
+    /**
+     * 按订单批量恢复库存：一条UPDATE把订单下所有未退款明细的数量加回商品库存
+     * @param orderIds 订单ID列表
+     * @param excludeProductIds 不在数据库中恢复的商品ID（热点商品），可为空
+     * @return 更新的商品行数
+     */
+    int restoreStockByOrderIds(@Param("orderIds") List<Long> orderIds,
+                               @Param("excludeProductIds") Collection<Long> excludeProductIds);
+    
+    /**
+     * 按商品汇总订单中未退款明细的数量
+     * @param orderIds 订单ID列表
+     * @param productIds 需要汇总的商品ID，为null时汇总全部商品
+     * @return 每个商品一行，quantity为汇总数量
+     */
+    List<StockChangeDTO> sumOrderQuantities(@Param("orderIds") List<Long> orderIds,
+                                            @Param("productIds") Collection<Long> productIds);
+    
+    /**
+     * 批量累加商品销量（数量可为负），结果不低于0
+     * @param items 销量变更列表（同一商品只能出现一次）
+     * @return 更新的商品行数
+     */
+    int increaseSales(@Param("items") List<StockChangeDTO> items);
+    
+    /**
+     * 按已完成订单（含已归档的订单）的明细重新计算所有商品的销量
+     * @return 更新的商品行数
+     */
+    int rebuildSales();
+}
@@ -0,0 +1,308 @@
+package com.shop.online.mapper;
+
+import com.shop.online.dto.BuyerOrderDTO;
+import com.shop.online.dto.ProductSalesSlotDTO;
+import com.shop.online.dto.SalesLineDTO;
+import com.shop.online.dto.SalesPeriodDTO;
+import com.shop.online.dto.SalesTotalDTO;
+import com.shop.online.entity.Category;
+import com.shop.online.entity.Product;
+import com.shop.online.entity.SalesDailyBuyer;
+import com.shop.online.entity.SalesDailyProduct;
+import com.shop.online.entity.SalesDailySeller;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 销售日汇总Mapper接口
+ */
+@Mapper
+public interface SalesRollupMapper {
+
+    /**
+     * 已完成的订单（含归档）
+     */
+    String COMPLETED_ORDERS = "(" +
+            "SELECT id, seller_id, created_time FROM `order` WHERE status = 3 AND deleted = 0 " +
+            "UNION ALL " +
+            "SELECT id, seller_id, created_time FROM order_archive WHERE status = 3 AND deleted = 0" +
+            ")";
+
+    /**
+     * 卖家 #{sellerId} 的已完成订单（含归档）
+     */
+    String SELLER_COMPLETED_ORDERS = "(" +
+            "SELECT user_id, created_time FROM `order` " +
+            "WHERE seller_id = #{sellerId} AND status = 3 AND deleted = 0 " +
+            "UNION ALL " +
+            "SELECT user_id, created_time FROM order_archive " +
+            "WHERE seller_id = #{sellerId} AND status = 3 AND deleted = 0" +
+            ")";
+
+    /**
+     * 未单独退款的订单明细（含归档）
+     */
+    String ACTIVE_ITEMS = "(" +
+            "SELECT order_id, product_id, price, quantity FROM order_item WHERE deleted = 0 " +
+            "UNION ALL " +
+            "SELECT order_id, product_id, price, quantity FROM order_item_archive WHERE deleted = 0" +
+            ")";
+
+    /**
+     * 查询订单未退款的明细行，没有明细的订单也返回一行（商品字段为空）
+     * @param orderIds 订单ID列表
+     * @param itemId 只查询该明细，为空时查询全部
+     */
+    @Select("<script>" +
+            "SELECT o.id AS order_id, o.seller_id, o.user_id, o.created_time, o.updated_time, oi.product_id, p.name AS product_name, p.category_id, oi.price, oi.quantity " +
+            "FROM `order` o " +
+            "LEFT JOIN order_item oi ON oi.order_id = o.id AND oi.deleted = 0" +
+            "<if test='itemId != null'> AND oi.id = #{itemId}</if> " +
+            "LEFT JOIN product p ON p.id = oi.product_id " +
+            "WHERE o.id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<SalesLineDTO> selectLines(@Param("orderIds") Collection<Long> orderIds, @Param("itemId") Long itemId);
+
+    /**
+     * 按订单号查询订单未退款的明细行，与 selectLines 相同
+     */
+    @Select("SELECT o.id AS order_id, o.seller_id, o.user_id, o.created_time, o.updated_time, oi.product_id, p.name AS product_name, p.category_id, oi.price, oi.quantity " +
+            "FROM `order` o " +
+            "LEFT JOIN order_item oi ON oi.order_id = o.id AND oi.deleted = 0 " +
+            "LEFT JOIN product p ON p.id = oi.product_id " +
+            "WHERE o.order_no = #{orderNo}")
+    List<SalesLineDTO> selectLinesByOrderNo(@Param("orderNo") String orderNo);
+
+    /**
+     * 累加卖家日汇总，行不存在时插入
+     * @param deltas 按 (seller_id, sales_date) 排好序的变化量
+     */
+    @Insert("<script>" +
+            "INSERT INTO sales_daily_seller (seller_id, sales_date, order_count, amount, updated_time) VALUES " +
+            "<foreach collection='deltas' item='d' separator=','>" +
+            "(#{d.sellerId}, #{d.salesDate}, #{d.orderCount}, #{d.amount}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "amount = amount + VALUES(amount), updated_time = NOW()" +
+            "</script>")
+    int addSellerDays(@Param("deltas") List<SalesDailySeller> deltas);
+
+    /**
+     * 累加商品日汇总，行不存在时插入
+     * @param deltas 按 (seller_id, sales_date, product_id) 排好序的变化量
+     */
+    @Insert("<script>" +
+            "INSERT INTO sales_daily_product (seller_id, sales_date, product_id, category_id, quantity, amount, " +
+            "order_count, updated_time) VALUES " +
+            "<foreach collection='deltas' item='d' separator=','>" +
+            "(#{d.sellerId}, #{d.salesDate}, #{d.productId}, #{d.categoryId}, #{d.quantity}, #{d.amount}, " +
+            "#{d.orderCount}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), amount = amount + VALUES(amount), " +
+            "order_count = order_count + VALUES(order_count), updated_time = NOW()" +
+            "</script>")
+    int addProductDays(@Param("deltas") List<SalesDailyProduct> deltas);
+
+    @Delete("DELETE FROM sales_daily_seller")
+    int deleteAllSellerDays();
+
+    @Delete("DELETE FROM sales_daily_product")
+    int deleteAllProductDays();
+
+    /**
+     * 按订单表重新生成卖家日汇总
+     */
+    @Insert("INSERT INTO sales_daily_seller (seller_id, sales_date, order_count, amount) " +
+            "SELECT o.seller_id, CAST(o.created_time AS DATE), COUNT(*), COALESCE(SUM(i.amount), 0) " +
+            "FROM " + COMPLETED_ORDERS + " o " +
+            "LEFT JOIN (SELECT order_id, SUM(price * quantity) AS amount FROM " + ACTIVE_ITEMS + " a " +
+            "GROUP BY order_id) i ON i.order_id = o.id " +
+            "GROUP BY o.seller_id, CAST(o.created_time AS DATE)")
+    int rebuildSellerDays();
+
+    /**
+     * 按订单表重新生成商品日汇总
+     */
+    @Insert("INSERT INTO sales_daily_product (seller_id, sales_date, product_id, category_id, quantity, amount, " +
+            "order_count) " +
+            "SELECT o.seller_id, CAST(o.created_time AS DATE), oi.product_id, MAX(p.category_id), " +
+            "SUM(oi.quantity), SUM(oi.price * oi.quantity), COUNT(DISTINCT o.id) " +
+            "FROM " + COMPLETED_ORDERS + " o " +
+            "JOIN " + ACTIVE_ITEMS + " oi ON oi.order_id = o.id " +
+            "LEFT JOIN product p ON p.id = oi.product_id " +
+            "GROUP BY o.seller_id, CAST(o.created_time AS DATE), oi.product_id")
+    int rebuildProductDays();
+
+    /**
+     * 按周期分桶汇总卖家在日期范围内（含首尾）的销售，只返回有成交的周期
+     * 周从周一开始（DAYOFWEEK 周日为1），月从1日开始；MySQL与H2的MySQL模式都支持这些函数
+     * @param period day / week / month，见 SalesPeriod
+     */
+    @Select("<script>" +
+            "SELECT period_start, SUM(order_count) AS order_count, SUM(amount) AS amount FROM (" +
+            "SELECT <choose>" +
+            "<when test=\"period == 'week'\">TIMESTAMPADD(DAY, -MOD(DAYOFWEEK(sales_date) + 5, 7), sales_date)</when>" +
+            "<when test=\"period == 'month'\">TIMESTAMPADD(DAY, 1 - DAYOFMONTH(sales_date), sales_date)</when>" +
+            "<otherwise>sales_date</otherwise>" +
+            "</choose> AS period_start, order_count, amount " +
+            "FROM sales_daily_seller " +
+            "WHERE seller_id = #{sellerId} AND sales_date BETWEEN #{startDate} AND #{endDate}" +
+            ") d GROUP BY period_start HAVING SUM(order_count) != 0 ORDER BY period_start" +
+            "</script>")
+    List<SalesPeriodDTO> selectSellerPeriods(@Param("sellerId") Long sellerId,
+                                             @Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate,
+                                             @Param("period") String period);
+
+    /**
+     * 按类别合计卖家在日期范围内（含首尾）的销售，含全部退款后件数为0的类别，过滤、排序由调用方在合并各段后完成
+     */
+    @Select("SELECT category_id AS id, SUM(amount) AS amount, SUM(quantity) AS quantity " +
+            "FROM sales_daily_product " +
+            "WHERE seller_id = #{sellerId} AND sales_date BETWEEN #{startDate} AND #{endDate} " +
+            "GROUP BY category_id")
+    List<SalesTotalDTO> selectCategoryTotals(@Param("sellerId") Long sellerId,
+                                             @Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+
+    /**
+     * 按商品合计卖家在日期范围内（含首尾）的销售，含全部退款后件数为0的商品，过滤、排序由调用方在合并各段后完成
+     */
+    @Select("SELECT product_id AS id, SUM(amount) AS amount, SUM(quantity) AS quantity " +
+            "FROM sales_daily_product " +
+            "WHERE seller_id = #{sellerId} AND sales_date BETWEEN #{startDate} AND #{endDate} " +
+            "GROUP BY product_id")
+    List<SalesTotalDTO> selectProductTotals(@Param("sellerId") Long sellerId,
+                                            @Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 商品名称（含已删除的商品）
+     */
+    @Select("<script>" +
+            "SELECT id, name FROM product WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Product> selectProductNames(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 类别名称（含已删除的类别）
+     */
+    @Select("<script>" +
+            "SELECT id, name FROM category WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Category> selectCategoryNames(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按 (卖家, 商品, 时间片) 汇总 since 之后确认收货的订单明细，用于重新加载实时热销统计
+     * 以订单的更新时间近似确认收货时间；已退款的明细已逻辑删除，整单退款的订单不再是已完成，都不计入
+     * @param since 起点，时间片序号相对于它计算
+     * @param slotMinutes 时间片时长（分钟）
+     * @param handler 逐行处理，不在内存中保留全部结果
+     */
+    @Select("SELECT seller_id, product_id, MAX(product_name) AS product_name, slot, " +
+            "SUM(amount) AS amount, SUM(quantity) AS quantity FROM (" +
+            "SELECT o.seller_id, oi.product_id, p.name AS product_name, " +
+            "FLOOR(TIMESTAMPDIFF(MINUTE, #{since}, o.updated_time) / #{slotMinutes}) AS slot, " +
+            "oi.price * oi.quantity AS amount, oi.quantity " +
+            "FROM `order` o " +
+            "JOIN order_item oi ON oi.order_id = o.id AND oi.deleted = 0 " +
+            "LEFT JOIN product p ON p.id = oi.product_id " +
+            "WHERE o.status = 3 AND o.deleted = 0 AND o.updated_time >= #{since}" +
+            ") s GROUP BY seller_id, product_id, slot")
+    @Options(fetchSize = 1000)
+    @ResultType(ProductSalesSlotDTO.class)
+    void selectRecentProductSlots(@Param("since") LocalDateTime since,
+                                  @Param("slotMinutes") int slotMinutes,
+                                  ResultHandler<ProductSalesSlotDTO> handler);
+
+    /**
+     * 订单中属于回头客的订单：同一买家在该卖家还有其他已完成订单（含归档），需在订单改为已完成之后调用
+     */
+    @Select("<script>" +
+            "SELECT o.id FROM `order` o WHERE o.id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND (EXISTS (SELECT 1 FROM `order` p WHERE p.user_id = o.user_id AND p.deleted = 0 " +
+            "AND p.seller_id = o.seller_id AND p.status = 3 AND p.id != o.id) " +
+            "OR EXISTS (SELECT 1 FROM order_archive p WHERE p.user_id = o.user_id AND p.deleted = 0 " +
+            "AND p.seller_id = o.seller_id AND p.status = 3))" +
+            "</script>")
+    List<Long> selectRepeatOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * 确保每日买家统计行存在，并锁定
+     * @param days 按 (seller_id, sales_date) 排好序
+     */
+    @Insert("<script>" +
+            "INSERT INTO sales_daily_buyer (seller_id, sales_date) VALUES " +
+            "<foreach collection='days' item='d' separator=','>(#{d.sellerId}, #{d.salesDate})</foreach>" +
+            " ON DUPLICATE KEY UPDATE seller_id = VALUES(seller_id)" +
+            "</script>")
+    int ensureBuyerDays(@Param("days") List<SalesDailyBuyer> days);
+
+    @Select("SELECT seller_id, sales_date, buyers, repeat_buyers FROM sales_daily_buyer " +
+            "WHERE seller_id = #{sellerId} AND sales_date = #{salesDate} FOR UPDATE")
+    SalesDailyBuyer selectBuyerDayForUpdate(@Param("sellerId") Long sellerId, @Param("salesDate") LocalDate salesDate);
+
+    @Update("UPDATE sales_daily_buyer SET buyers = #{buyers}, repeat_buyers = #{repeatBuyers}, updated_time = NOW() " +
+            "WHERE seller_id = #{sellerId} AND sales_date = #{salesDate}")
+    int updateBuyerDay(SalesDailyBuyer day);
+
+    /**
+     * 卖家日期范围内（含首尾）的每日买家统计
+     */
+    @Select("SELECT seller_id, sales_date, buyers, repeat_buyers FROM sales_daily_buyer " +
+            "WHERE seller_id = #{sellerId} AND sales_date BETWEEN #{startDate} AND #{endDate}")
+    List<SalesDailyBuyer> selectBuyerDays(@Param("sellerId") Long sellerId,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+
+    @Select("SELECT COUNT(*) FROM sales_daily_buyer")
+    long countBuyerDays();
+
+    /**
+     * 有销售日汇总的卖家ID，按ID分批列出
+     */
+    @Select("SELECT DISTINCT seller_id FROM sales_daily_seller WHERE seller_id > #{lastSellerId} " +
+            "ORDER BY seller_id LIMIT #{limit}")
+    List<Long> selectRollupSellerIdsAfter(@Param("lastSellerId") Long lastSellerId, @Param("limit") int limit);
+
+    /**
+     * 锁定卖家的全部每日买家统计行（含间隙），重建期间该卖家的确认收货等待重建提交
+     */
+    @Select("SELECT sales_date FROM sales_daily_buyer WHERE seller_id = #{sellerId} FOR UPDATE")
+    List<LocalDate> lockBuyerDays(@Param("sellerId") Long sellerId);
+
+    @Delete("DELETE FROM sales_daily_buyer WHERE seller_id = #{sellerId}")
+    int deleteBuyerDays(@Param("sellerId") Long sellerId);
+
+    @Insert("<script>" +
+            "INSERT INTO sales_daily_buyer (seller_id, sales_date, buyers, repeat_buyers) VALUES " +
+            "<foreach collection='days' item='d' separator=','>" +
+            "(#{d.sellerId}, #{d.salesDate}, #{d.buyers}, #{d.repeatBuyers})" +
+            "</foreach>" +
+            "</script>")
+    int insertBuyerDays(@Param("days") List<SalesDailyBuyer> days);
+
+    /**
+     * 卖家已完成订单（含归档）的买家和下单时间，按买家、下单时间排序，每个买家的第一行即其在本店的第一个已完成订单
+     */
+    @Select("SELECT user_id, created_time FROM " + SELLER_COMPLETED_ORDERS + " o ORDER BY user_id, created_time")
+    @Options(fetchSize = 1000)
+    @ResultType(BuyerOrderDTO.class)
+    void selectCompletedBuyers(@Param("sellerId") Long sellerId, ResultHandler<BuyerOrderDTO> handler);
+}
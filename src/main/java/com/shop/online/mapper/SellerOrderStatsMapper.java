@@ -0,0 +1,82 @@
+package com.shop.online.mapper;
+
+import com.shop.online.entity.Order;
+import com.shop.online.entity.SellerOrderStats;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 卖家订单状态计数Mapper接口
+ */
+@Mapper
+public interface SellerOrderStatsMapper {
+
+    /**
+     * 累加计数，行不存在时插入
+     * @param deltas 按 (seller_id, status) 排好序的变化量，保证并发事务按相同顺序加锁
+     */
+    @Insert("<script>" +
+            "INSERT INTO seller_order_stats (seller_id, status, order_count, updated_time) VALUES " +
+            "<foreach collection='deltas' item='delta' separator=','>" +
+            "(#{delta.sellerId}, #{delta.status}, #{delta.orderCount}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), updated_time = NOW()" +
+            "</script>")
+    int addCounts(@Param("deltas") List<SellerOrderStats> deltas);
+
+    /**
+     * 查询订单所属的卖家，用于登记按订单号流转的订单
+     * @return 订单（只有order_no、seller_id）
+     */
+    @Select("<script>" +
+            "SELECT order_no, seller_id FROM `order` WHERE order_no IN " +
+            "<foreach collection='orderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach>" +
+            "</script>")
+    List<Order> selectOrderSellers(@Param("orderNos") Collection<String> orderNos);
+
+    /**
+     * 查询卖家各状态的订单数
+     */
+    @Select("SELECT seller_id, status, order_count FROM seller_order_stats WHERE seller_id = #{sellerId}")
+    List<SellerOrderStats> selectBySellerId(@Param("sellerId") Long sellerId);
+
+    /**
+     * 锁定卖家的计数行，校对期间该卖家的订单状态变化会等待
+     */
+    @Select("SELECT seller_id, status, order_count FROM seller_order_stats WHERE seller_id = #{sellerId} FOR UPDATE")
+    List<SellerOrderStats> lockBySellerId(@Param("sellerId") Long sellerId);
+
+    /**
+     * 按订单表（含归档表）实际统计卖家各状态的订单数
+     */
+    @Select("SELECT #{sellerId} AS seller_id, status, COUNT(*) AS order_count FROM (" +
+            "SELECT status FROM `order` WHERE seller_id = #{sellerId} AND deleted = 0 " +
+            "UNION ALL " +
+            "SELECT status FROM order_archive WHERE seller_id = #{sellerId} AND deleted = 0" +
+            ") o GROUP BY status ORDER BY status")
+    List<SellerOrderStats> countActualBySellerId(@Param("sellerId") Long sellerId);
+
+    /**
+     * 删除卖家的全部计数行
+     */
+    @Delete("DELETE FROM seller_order_stats WHERE seller_id = #{sellerId}")
+    int deleteBySellerId(@Param("sellerId") Long sellerId);
+
+    /**
+     * 按ID顺序分批列出有订单或有计数的卖家，用于校对
+     * @param lastSellerId 上一批最后一个卖家ID
+     * @param limit 每批数量
+     */
+    @Select("SELECT seller_id FROM (" +
+            "SELECT seller_id FROM `order` WHERE seller_id > #{lastSellerId} " +
+            "UNION SELECT seller_id FROM order_archive WHERE seller_id > #{lastSellerId} " +
+            "UNION SELECT seller_id FROM seller_order_stats WHERE seller_id > #{lastSellerId}" +
+            ") s ORDER BY seller_id LIMIT #{limit}")
+    List<Long> selectSellerIdsAfter(@Param("lastSellerId") Long lastSellerId, @Param("limit") int limit);
+}
@@ -7,7 +7,10 @@ import com.shop.online.dto.SellerRequestDTO;
 import com.shop.online.entity.User;
 import com.shop.online.entity.Seller;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
 import java.util.List;
+import java.util.Map;
 
 /**
  * 管理员服务接口
@@ -19,6 +22,17 @@ public interface AdminService {
      */
     AdminStatsDTO getAdminStats();
 
+    /**
+     * 订阅管理员统计数据的推送（SSE）
+     */
+    SseEmitter subscribeAdminStats();
+
+    /**
+     * 按数据库校对管理员统计数据
+     * @return 校对结果
+     */
+    Map<String, Object> reconcileAdminStats();
+
     /**
      * 获取待处理的卖家申请
      */
@@ -99,9 +113,12 @@ public interface AdminService {
      * @param status 订单状态
      * @param page 页码
      * @param pageSize 每页数量
+     * @param cursor 游标，不为null时使用游标分页并忽略页码（第一页传空字符串）
+     * @param withTotal 是否统计总数
      * @return 订单分页结果
      */
-    PageResult<?> getAllOrders(String orderNo, String username, Integer status, int page, int pageSize);
+    PageResult<?> getAllOrders(String orderNo, String username, Integer status, int page, int pageSize,
+                               String cursor, boolean withTotal);
 
     /**
      * 管理员发货
@@ -110,8 +127,84 @@ public interface AdminService {
      */
     boolean shipOrder(String orderNo);
 
+    /**
+     * 管理员批量发货，状态不是待发货的订单会被跳过
+     * @param orderNos 订单号列表
+     * @return 实际发货的订单数
+     */
+    int batchShipOrders(List<String> orderNos);
+
+    /**
+     * 管理员批量取消订单并恢复库存，状态不是待付款/待发货的订单会被跳过
+     * @param orderNos 订单号列表
+     * @return 实际取消的订单数
+     */
+    int batchCancelOrders(List<String> orderNos);
+
     /**
      * 获取订单详情
      */
     Object getOrderDetail(String orderNo);
+
+    /**
+     * 获取未付款订单超时取消的运行指标
+     */
+    Map<String, Object> getOrderExpirationStats();
+
+    /**
+     * 获取订单详情缓存的命中指标
+     */
+    Map<String, Object> getOrderDetailCacheStats();
+
+    /**
+     * 按已完成订单的明细重新计算商品销量
+     * @return 更新的商品行数
+     */
+    int rebuildProductSales();
+
+    /**
+     * 立即归档超过保留期的已完成、已取消、已退款订单
+     * @return 本次归档的统计（订单数、明细数、行/秒等）
+     */
+    Map<String, Object> archiveOrders();
+
+    /**
+     * 获取最近一次订单归档的统计
+     */
+    Map<String, Object> getOrderArchiveStats();
+
+    /**
+     * 按订单表重新统计并修正卖家订单计数
+     * @return 本次校对的统计（卖家数、修正数等）
+     */
+    Map<String, Object> reconcileSellerOrderStats();
+
+    /**
+     * 按订单表（含归档）重新生成销售日汇总
+     * @return 重建的统计（卖家日汇总行数、商品日汇总行数等）
+     */
+    Map<String, Object> rebuildSalesRollups();
+
+    /**
+     * 获取全平台最近一段时间的实时热销商品
+     * @param window 窗口：hour、day、week
+     * @param limit 返回的商品数
+     */
+    List<Map<String, Object>> getPlatformTopProducts(String window, Integer limit);
+
+    /**
+     * 按订单表重新加载实时热销统计
+     * @return 加载的统计
+     */
+    Map<String, Object> reloadBestSellers();
+
+    /**
+     * 获取销售分析缓存的命中指标
+     */
+    Map<String, Object> getSalesAnalyticsCacheStats();
+
+    /**
+     * 获取查询并发执行器的指标
+     */
+    Map<String, Object> getQueryFanOutStats();
 } 
\ No newline at end of file
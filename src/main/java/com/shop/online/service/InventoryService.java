@@ -0,0 +1,31 @@
+package com.shop.online.service;
+
+import com.shop.online.dto.StockChangeDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 库存服务接口
+ */
+public interface InventoryService {
+
+    /**
+     * 预占（扣减）库存，必须在事务中调用
+     * 所有商品要么全部扣减成功，要么抛出StockShortageException并由事务回滚
+     * @param changes 库存变更列表，同一商品可出现多次
+     */
+    void reserve(List<StockChangeDTO> changes);
+
+    /**
+     * 恢复库存（取消订单、退款），在事务中调用时随事务提交生效
+     * @param changes 库存变更列表，同一商品可出现多次
+     */
+    void restore(List<StockChangeDTO> changes);
+
+    /**
+     * 按订单恢复库存（订单下所有未退款的明细），订单数量较多时分批执行
+     * @param orderIds 订单ID集合
+     */
+    void restoreByOrderIds(Collection<Long> orderIds);
+}
@@ -6,8 +6,10 @@ import com.shop.online.dto.CreateOrderDTO;
 import com.shop.online.dto.OrderQueryDTO;
 import com.shop.online.vo.OrderVO;
 import com.shop.online.common.result.PageResult;
+import java.util.List;
 import java.util.Map;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 订单服务接口
@@ -68,7 +70,8 @@ public interface OrderService extends IService<Order> {
 
     /**
      * 获取卖家订单列表
-     * @param params 查询参数
+     * @param params 查询参数：sellerId、page、size、status、startDate、endDate，
+     *               cursor（游标分页，第一页传空字符串）、withTotal（false时不统计总数）
      * @return 订单列表
      */
     PageResult<OrderVO> getSellerOrders(Map<String, Object> params);
@@ -80,6 +83,14 @@ public interface OrderService extends IService<Order> {
      * @return 是否成功
      */
     boolean shipOrder(String orderNo, Long sellerId);
+    
+    /**
+     * 卖家批量发货，状态不是待发货的订单会被跳过
+     * @param orderNos 订单号列表
+     * @param sellerId 卖家ID
+     * @return 实际发货的订单数
+     */
+    int batchShipOrders(List<String> orderNos, Long sellerId);
 
     /**
      * 统计卖家指定状态的订单数量
@@ -103,14 +114,23 @@ public interface OrderService extends IService<Order> {
      */
     Map<String, Object> getSalesAnalytics(Map<String, Object> params);
 
+    /**
+     * 获取卖家最近一段时间的实时热销商品
+     * @param sellerId 卖家ID
+     * @param window 窗口：hour、day、week
+     * @param limit 返回的商品数
+     * @return 热销商品，按销售额从高到低
+     */
+    List<Map<String, Object>> getRealtimeTopProducts(Long sellerId, String window, Integer limit);
+
     /**
      * 导出财务报表
      * @param params 查询参数，包含sellerId、startDate、endDate、reportType等
      * @param outputStream 输出流
-     * @param fileType 文件类型，csv或excel
+     * @param fileType 文件类型，csv，其他值导出Excel(xlsx)
      * @throws IOException IO异常
      */
-    void exportFinancialReport(Map<String, Object> params, java.io.OutputStream outputStream, String fileType) throws java.io.IOException;
+    void exportFinancialReport(Map<String, Object> params, OutputStream outputStream, String fileType) throws IOException;
 
     /**
      * 对单个商品申请退款
@@ -38,11 +38,25 @@ public interface ProductService {
      */
     PageResult<ProductVO> getProductsByCategoryWithSort(Long categoryId, Integer page, Integer size, String sortBy);
 
+    /**
+     * 根据分类ID获取商品列表(包含排序)，支持游标分页
+     * @param cursor 游标，不为null时使用游标分页并忽略页码（第一页传空字符串）
+     * @param withTotal 是否统计总数
+     */
+    PageResult<ProductVO> getProductsByCategoryWithSort(Long categoryId, Integer page, Integer size, String sortBy,
+                                                        String cursor, boolean withTotal);
+
     /**
      * 根据分类ID获取商品列表(分类ID为Integer类型)
      */
     PageResult<ProductVO> getProductsByCategory(Integer categoryId, Integer page, Integer size, String sortBy);
 
+    /**
+     * 根据分类ID获取商品列表(分类ID为Integer类型)，支持游标分页
+     */
+    PageResult<ProductVO> getProductsByCategory(Integer categoryId, Integer page, Integer size, String sortBy,
+                                                String cursor, boolean withTotal);
+
     /**
      * 创建商品
      * @param product 商品信息
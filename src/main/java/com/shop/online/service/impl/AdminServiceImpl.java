@@ -2,6 +2,8 @@ package com.shop.online.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.common.enums.SalesWindow;
 import com.shop.online.common.result.PageResult;
 import com.shop.online.dto.AdminStatsDTO;
 import com.shop.online.dto.OrderItemDTO;
@@ -18,6 +20,7 @@ import com.shop.online.mapper.SellerMapper;
 import com.shop.online.mapper.SellerRequestMapper;
 import com.shop.online.mapper.UserMapper;
 import com.shop.online.service.AdminService;
+import com.shop.online.service.InventoryService;
 import com.shop.online.vo.OrderVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -25,6 +28,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -55,63 +59,70 @@ public class AdminServiceImpl implements AdminService {
     
     @Autowired
     private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderExpirationScheduler orderExpirationScheduler;
+
+    @Autowired
+    private SalesCounter salesCounter;
+
+    @Autowired
+    private OrderDetailCache orderDetailCache;
+
+    @Autowired
+    private OrderPageAssembler orderPageAssembler;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private SellerOrderCounter sellerOrderCounter;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    @Autowired
+    private BestSellerTracker bestSellerTracker;
+
+    @Autowired
+    private SalesAnalyticsCache salesAnalyticsCache;
+
+    @Autowired
+    private QueryFanOutExecutor queryFanOutExecutor;
+
+    @Autowired
+    private PlatformCounters platformCounters;
     
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    /**
+     * 平台统计直接读取 PlatformCounters 的内存计数，不查询数据库
+     */
     @Override
     public AdminStatsDTO getAdminStats() {
-        try {
-            log.info("开始获取管理员统计数据");
-            AdminStatsDTO statsDTO = new AdminStatsDTO();
-            
-            try {
-                // 总用户数
-                LambdaQueryWrapper<User> userQuery = new LambdaQueryWrapper<>();
-                Long userCount = userMapper.selectCount(userQuery);
-                statsDTO.setUserCount(userCount);
-//                log.info("获取到总用户数: {}", userCount);
-            } catch (Exception e) {
-                log.error("获取总用户数时出错: {}", e.getMessage(), e);
-                statsDTO.setUserCount(0L);
-            }
-            
-            try {
-                // 卖家数
-                LambdaQueryWrapper<User> sellerQuery = new LambdaQueryWrapper<>();
-                sellerQuery.eq(User::getRole, 1); // 1是卖家角色
-                Long sellerCount = userMapper.selectCount(sellerQuery);
-                statsDTO.setSellerCount(sellerCount);
-//                log.info("获取到卖家数: {}", sellerCount);
-            } catch (Exception e) {
-                log.error("获取卖家数时出错: {}", e.getMessage(), e);
-                statsDTO.setSellerCount(0L);
-            }
-            
-            try {
-                // 待处理申请数
-                Long pendingCount = sellerRequestMapper.countPendingRequests();
-                statsDTO.setPendingRequests(pendingCount);
-//                log.info("获取到待处理申请数: {}", pendingCount);
-            } catch (Exception e) {
-                log.error("获取待处理申请数时出错: {}", e.getMessage(), e);
-                statsDTO.setPendingRequests(0L);
-            }
-            
-            try {
-                // 商品总数
-                Long productCount = productMapper.countProducts();
-                statsDTO.setProductCount(productCount);
-//                log.info("获取到商品总数: {}", productCount);
-            } catch (Exception e) {
-                log.error("获取商品总数时出错: {}", e.getMessage(), e);
-                statsDTO.setProductCount(0L);
-            }
-            
-            return statsDTO;
-        } catch (Exception e) {
-            log.error("获取管理员统计数据时发生错误: {}", e.getMessage(), e);
-            throw new RuntimeException("获取管理员统计数据失败: " + e.getMessage(), e);
-        }
+        return platformCounters.getStats();
+    }
+
+    /**
+     * 订阅平台统计推送
+     */
+    @Override
+    public SseEmitter subscribeAdminStats() {
+        return platformCounters.subscribe();
+    }
+
+    /**
+     * 按数据库校对平台统计
+     */
+    @Override
+    public Map<String, Object> reconcileAdminStats() {
+        return platformCounters.reconcile();
     }
 
     @Override
@@ -196,12 +207,19 @@ public class AdminServiceImpl implements AdminService {
             // seller没有reviewerId字段，暂时忽略adminId
             int rows = sellerRequestMapper.updateById(seller);
             log.info("更新卖家申请状态结果: {}", rows > 0 ? "成功" : "失败");
+            if (rows > 0) {
+                platformCounters.sellerRequestStatusChanged(0, 1);
+            }
             
             // 更新用户角色为卖家
             User user = userMapper.selectById(seller.getUserId());
             if (user != null) {
+                Integer oldRole = user.getRole();
                 user.setRole(1); // 设置为卖家角色
                 int userRows = userMapper.updateById(user);
+                if (userRows > 0) {
+                    platformCounters.roleChanged(oldRole, 1);
+                }
 //                log.info("更新用户角色结果: {}", userRows > 0 ? "成功" : "失败");
             } else {
                 log.warn("找不到ID为 {} 的用户", seller.getUserId());
@@ -240,6 +258,9 @@ public class AdminServiceImpl implements AdminService {
             seller.setRejectReason(reason);
             int rows = sellerRequestMapper.updateById(seller);
             log.info("更新卖家申请状态结果: {}", rows > 0 ? "成功" : "失败");
+            if (rows > 0) {
+                platformCounters.sellerRequestStatusChanged(0, 2);
+            }
             
             return true;
         } catch (RuntimeException e) {
@@ -382,10 +403,14 @@ public class AdminServiceImpl implements AdminService {
                 throw new RuntimeException("商品不存在");
             }
             
+            Integer oldStatus = product.getStatus();
             product.setStatus(status);
             product.setUpdatedTime(LocalDateTime.now());
             int rows = productMapper.updateById(product);
             log.info("更新商品状态结果: {}", rows > 0 ? "成功" : "失败");
+            if (rows > 0) {
+                platformCounters.productStatusChanged(oldStatus, status);
+            }
             
             return rows > 0;
         } catch (RuntimeException e) {
@@ -410,6 +435,9 @@ public class AdminServiceImpl implements AdminService {
             
             int rows = productMapper.deleteById(id);
             log.info("删除商品结果: {}", rows > 0 ? "成功" : "失败");
+            if (rows > 0) {
+                platformCounters.productStatusChanged(product.getStatus(), null);
+            }
             
             return rows > 0;
         } catch (RuntimeException e) {
@@ -493,6 +521,9 @@ public class AdminServiceImpl implements AdminService {
             
             int result = sellerMapper.updateById(updateSeller);
             log.info("更新卖家状态结果: {}", result > 0);
+            if (result > 0) {
+                platformCounters.sellerRequestStatusChanged(seller.getStatus(), status);
+            }
             
             // 如果是将状态改为已通过(1)，需要更新用户角色为卖家
             if (status == 1) {
@@ -504,7 +535,9 @@ public class AdminServiceImpl implements AdminService {
                         User updateUser = new User();
                         updateUser.setId(userId);
                         updateUser.setRole(1); // 1表示卖家角色
-                        userMapper.updateById(updateUser);
+                        if (userMapper.updateById(updateUser) > 0) {
+                            platformCounters.roleChanged(user.getRole(), 1);
+                        }
                         log.info("用户角色已更新为卖家, 用户ID: {}", userId);
                     } else {
                         log.warn("未找到对应的用户, 用户ID: {}", userId);
@@ -540,6 +573,9 @@ public class AdminServiceImpl implements AdminService {
             // 删除卖家记录
             int result = sellerMapper.deleteById(id);
             log.info("删除卖家结果: {}", result > 0);
+            if (result > 0) {
+                platformCounters.sellerRequestStatusChanged(seller.getStatus(), null);
+            }
             
             return result > 0;
         } catch (Exception e) {
@@ -679,9 +715,10 @@ public class AdminServiceImpl implements AdminService {
     }
 
     @Override
-    public PageResult<?> getAllOrders(String orderNo, String username, Integer status, int page, int pageSize) {
-        log.info("获取所有订单列表, 订单号: {}, 用户名: {}, 状态: {}, 页码: {}, 每页数量: {}", 
-                orderNo, username, status, page, pageSize);
+    public PageResult<?> getAllOrders(String orderNo, String username, Integer status, int page, int pageSize,
+                                      String cursor, boolean withTotal) {
+        log.info("获取所有订单列表, 订单号: {}, 用户名: {}, 状态: {}, 页码: {}, 每页数量: {}, 游标: {}", 
+                orderNo, username, status, page, pageSize, cursor);
         
         try {
             // 构建查询条件
@@ -715,81 +752,8 @@ public class AdminServiceImpl implements AdminService {
             // 只查询未删除的订单
             queryWrapper.eq(Order::getDeleted, 0);
             
-            // 按创建时间倒序排列
-            queryWrapper.orderByDesc(Order::getCreatedTime);
-            
-            // 执行分页查询
-            Page<Order> pageResult = new Page<>(page, pageSize);
-            Page<Order> orderPage = orderMapper.selectPage(pageResult, queryWrapper);
-            
-            // 转换为前端需要的格式
-            List<OrderVO> orderVOList = new ArrayList<>();
-            
-            if (orderPage.getRecords() != null && !orderPage.getRecords().isEmpty()) {
-                // 查询订单项信息
-                List<Long> orderIds = orderPage.getRecords().stream()
-                        .map(Order::getId)
-                        .collect(Collectors.toList());
-                
-                // 查询订单对应的订单项
-                List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderIds(orderIds);
-                
-                // 按订单ID分组
-                Map<Long, List<OrderItemDTO>> orderItemMap = orderItems.stream()
-                        .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
-                
-                // 查询用户信息，用于返回用户名
-                Map<Long, String> userMap = new HashMap<>();
-                List<Long> userIds = orderPage.getRecords().stream()
-                        .map(Order::getUserId)
-                        .collect(Collectors.toList());
-                
-                if (!userIds.isEmpty()) {
-                    LambdaQueryWrapper<User> userQuery = new LambdaQueryWrapper<>();
-                    userQuery.in(User::getId, userIds);
-                    List<User> users = userMapper.selectList(userQuery);
-                    
-                    for (User user : users) {
-                        userMap.put(user.getId(), user.getUsername());
-                    }
-                }
-                
-                // 转换为VO
-                for (Order order : orderPage.getRecords()) {
-                    OrderVO orderVO = new OrderVO();
-                    orderVO.setId(order.getId().intValue());
-                    orderVO.setOrderNo(order.getOrderNo());
-                    orderVO.setStatus(order.getStatus().toString());
-                    orderVO.setTotalAmount(order.getTotalAmount());
-                    orderVO.setCreateTime(order.getCreatedTime());
-                    orderVO.setUpdateTime(order.getUpdatedTime());
-                    orderVO.setUserId(order.getUserId());
-                    orderVO.setUsername(userMap.getOrDefault(order.getUserId(), "未知用户"));
-                    
-                    // 设置支付方式
-                    if (order.getPaymentMethod() != null) {
-                        orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-                    }
-                    
-                    // 设置订单商品
-                    List<OrderItemDTO> items = orderItemMap.getOrDefault(order.getId(), new ArrayList<>());
-                    List<OrderVO.OrderProductVO> productVOList = items.stream().map(item -> {
-                        OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-                        productVO.setId(item.getProductId().intValue());
-                        productVO.setName(item.getProductName());
-                        productVO.setImage(item.getProductImage());
-                        productVO.setPrice(item.getPrice());
-                        productVO.setQuantity(item.getQuantity());
-                        return productVO;
-                    }).collect(Collectors.toList());
-                    
-                    orderVO.setProducts(productVOList);
-                    
-                    orderVOList.add(orderVO);
-                }
-            }
-            
-            return PageResult.of(orderPage.getTotal(), orderVOList);
+            // 按创建时间倒序分页，传入cursor时使用游标分页
+            return orderPageAssembler.loadPage(orderMapper, queryWrapper, page, pageSize, cursor, withTotal, true);
         } catch (Exception e) {
             log.error("获取所有订单列表失败: {}", e.getMessage(), e);
             throw new RuntimeException("获取所有订单列表失败: " + e.getMessage(), e);
@@ -801,39 +765,131 @@ public class AdminServiceImpl implements AdminService {
     public boolean shipOrder(String orderNo) {
         log.info("管理员发货操作, 订单号: {}", orderNo);
         try {
-            // 查询订单
-            LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(Order::getOrderNo, orderNo)
-                      .eq(Order::getDeleted, 0); // 未删除的订单
-            
-            Order order = orderMapper.selectOne(queryWrapper);
-            
-            if (order == null) {
-                log.error("订单不存在, 订单号: {}", orderNo);
-                throw new RuntimeException("订单不存在");
-            }
-            
-            // 检查订单状态是否为待发货
-            if (order.getStatus() != 1) {
-                log.error("订单状态不是待发货, 订单号: {}, 状态: {}", orderNo, order.getStatus());
-                throw new RuntimeException("订单状态不是待发货");
-            }
-            
-            // 更新订单状态为待收货
-            order.setStatus(2); // 待收货
-            order.setUpdatedTime(LocalDateTime.now());
-            
-            int rows = orderMapper.updateById(order);
+            // 待发货(1) -> 待收货(2)
+            orderStateMachine.transitOrThrow(OrderTransition.SHIP, orderNo, null, null);
             
             log.info("管理员发货成功, 订单号: {}", orderNo);
             
-            return rows > 0;
+            return true;
         } catch (Exception e) {
             log.error("管理员发货失败, 订单号: {}, 错误: {}", orderNo, e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * 管理员批量发货
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int batchShipOrders(List<String> orderNos) {
+        log.info("管理员批量发货, 订单数: {}", orderNos == null ? 0 : orderNos.size());
+        return orderStateMachine.transitBatch(OrderTransition.SHIP, orderNos, null);
+    }
+
+    /**
+     * 获取未付款订单超时取消的运行指标
+     */
+    @Override
+    public Map<String, Object> getOrderExpirationStats() {
+        return orderExpirationScheduler.getStats();
+    }
+
+    /**
+     * 获取订单详情缓存的命中指标
+     */
+    @Override
+    public Map<String, Object> getOrderDetailCacheStats() {
+        return orderDetailCache.getStats();
+    }
+
+    /**
+     * 重新计算商品销量
+     */
+    @Override
+    public int rebuildProductSales() {
+        return salesCounter.rebuild();
+    }
+
+    /**
+     * 立即归档冷订单
+     */
+    @Override
+    public Map<String, Object> archiveOrders() {
+        return orderArchiver.archive();
+    }
+
+    /**
+     * 获取最近一次订单归档的统计
+     */
+    @Override
+    public Map<String, Object> getOrderArchiveStats() {
+        return orderArchiver.getLastRun();
+    }
+
+    /**
+     * 校对卖家订单计数
+     */
+    @Override
+    public Map<String, Object> reconcileSellerOrderStats() {
+        return sellerOrderCounter.reconcile();
+    }
+
+    /**
+     * 重建销售日汇总
+     */
+    @Override
+    public Map<String, Object> rebuildSalesRollups() {
+        return salesRollup.rebuild();
+    }
+
+    /**
+     * 全平台实时热销商品
+     */
+    @Override
+    public List<Map<String, Object>> getPlatformTopProducts(String window, Integer limit) {
+        return bestSellerTracker.getTopProducts(BestSellerTracker.PLATFORM, SalesWindow.of(window),
+                limit == null || limit <= 0 ? 10 : limit);
+    }
+
+    /**
+     * 重新加载实时热销统计
+     */
+    @Override
+    public Map<String, Object> reloadBestSellers() {
+        return bestSellerTracker.reload();
+    }
+
+    /**
+     * 获取销售分析缓存的命中指标
+     */
+    @Override
+    public Map<String, Object> getSalesAnalyticsCacheStats() {
+        return salesAnalyticsCache.getStats();
+    }
+
+    /**
+     * 获取查询并发执行器的指标
+     */
+    @Override
+    public Map<String, Object> getQueryFanOutStats() {
+        return queryFanOutExecutor.getStats();
+    }
+
+    /**
+     * 管理员批量取消订单
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int batchCancelOrders(List<String> orderNos) {
+        log.info("管理员批量取消订单, 订单数: {}", orderNos == null ? 0 : orderNos.size());
+        List<Long> cancelledIds = orderStateMachine.transitBatchReturningIds(OrderTransition.CANCEL, orderNos, null);
+        
+        // 只为本次实际取消的订单恢复库存
+        inventoryService.restoreByOrderIds(cancelledIds);
+        return cancelledIds.size();
+    }
+
     /**
      * 获取订单详情
      */
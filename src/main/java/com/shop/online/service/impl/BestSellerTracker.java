@@ -0,0 +1,247 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.common.enums.SalesWindow;
+import com.shop.online.dto.ProductSalesSlotDTO;
+import com.shop.online.dto.SalesLineDTO;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.util.MoneyBuckets;
+import com.shop.online.util.SlidingSpaceSaving;
+import com.shop.online.util.SpaceSaving;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 实时热销商品
+ * 确认收货时按商品累加销售额（分）和件数，整单退款、单个商品退款时扣减，每个卖家一份、全平台一份，
+ * 分别覆盖最近1小时、1天、7天的滑动窗口（见 SalesWindow），查询热销商品只读内存。
+ * 每个窗口的每个时间片用 Space-Saving 最多跟踪 capacity 个商品，内存只与活跃的卖家、商品数有关；
+ * 返回的销售额可能高估，高估的上界随结果一起返回，窗口销售额超过 总销售额 / capacity 的商品一定在结果中。
+ * 成交记在提交时间所在的时间片，退款扣减记在原确认收货时间所在的时间片，因此窗口统计的是窗口内确认收货、至今未退款的销售，
+ * 与按订单表重新加载（以订单更新时间作为确认收货时间，已退款的部分不计入）的口径一致。
+ * 多实例部署时每个实例只收到本实例提交的事件，其他实例的成交要等下次重新加载才出现在本实例的结果中。
+ */
+@Component
+@Slf4j
+public class BestSellerTracker {
+
+    /**
+     * 全平台统计使用的卖家ID
+     */
+    public static final Long PLATFORM = 0L;
+
+    @Autowired
+    private SalesRollupMapper salesRollupMapper;
+
+    @Value("${sales.top-k.capacity:100}")
+    private int capacity;
+
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * 卖家ID -> 各窗口的统计，重新加载时整体替换
+     */
+    private volatile Map<Long, SellerWindows> sellers = new ConcurrentHashMap<>();
+
+    private volatile Map<Long, String> productNames = new ConcurrentHashMap<>();
+
+    /**
+     * 重新加载期间收到的事件，加载完成后补记到新的统计中；不在加载时为null
+     */
+    private List<Event> replay;
+
+    private final Object reloadLock = new Object();
+
+    /**
+     * 一个商品的销售变化
+     */
+    private static class Event {
+        final Long sellerId;
+        final Long productId;
+        final String productName;
+        final long timeMillis;
+        final long cents;
+        final long units;
+
+        Event(Long sellerId, Long productId, String productName, long timeMillis, long cents, long units) {
+            this.sellerId = sellerId;
+            this.productId = productId;
+            this.productName = productName;
+            this.timeMillis = timeMillis;
+            this.cents = cents;
+            this.units = units;
+        }
+    }
+
+    /**
+     * 一个卖家（或全平台）各窗口的统计
+     */
+    private class SellerWindows {
+        final Map<SalesWindow, SlidingSpaceSaving<Long>> windows = new EnumMap<>(SalesWindow.class);
+
+        SellerWindows() {
+            for (SalesWindow window : SalesWindow.values()) {
+                windows.put(window, new SlidingSpaceSaving<>(capacity, window.getSlotMillis(), window.getSlotCount()));
+            }
+        }
+
+        synchronized void add(long timeMillis, Long productId, long cents, long units) {
+            for (SlidingSpaceSaving<Long> window : windows.values()) {
+                window.add(timeMillis, productId, cents, units);
+            }
+        }
+
+        synchronized SpaceSaving<Long> snapshot(SalesWindow window, long nowMillis) {
+            return windows.get(window).snapshot(nowMillis);
+        }
+    }
+
+    /**
+     * 登记订单明细的销售变化，在确认收货、退款的事务提交后调用
+     * @param lines 流转前查询的明细行，商品为空的行被忽略
+     * @param sign 1 表示成交，-1 表示退款（需要明细行的 updatedTime，即确认收货时间）
+     */
+    public void record(Collection<SalesLineDTO> lines, int sign) {
+        long now = clock.getAsLong();
+        for (SalesLineDTO line : lines) {
+            if (line.getProductId() == null) {
+                continue;
+            }
+            long cents = MoneyBuckets.toCents(line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+            long time = sign > 0 ? now : line.getUpdatedTime().atZone(zoneId).toInstant().toEpochMilli();
+            Event event = new Event(line.getSellerId(), line.getProductId(), line.getProductName(), time,
+                    sign * cents, (long) sign * line.getQuantity());
+            Map<Long, SellerWindows> target;
+            Map<Long, String> names;
+            synchronized (this) {
+                target = sellers;
+                names = productNames;
+                if (replay != null) {
+                    replay.add(event);
+                }
+            }
+            apply(target, names, event);
+        }
+    }
+
+    /**
+     * 卖家在窗口内的热销商品，按销售额从高到低
+     * @param sellerId 卖家ID，PLATFORM 表示全平台
+     * @param window 窗口
+     * @param limit 返回的商品数
+     * @return productId、productName、salesAmount（可能高估）、salesCount（件数）、maxError（销售额最多高估的金额）
+     */
+    public List<Map<String, Object>> getTopProducts(Long sellerId, SalesWindow window, int limit) {
+        SellerWindows seller = sellers.get(sellerId);
+        List<Map<String, Object>> topProducts = new ArrayList<>();
+        if (seller == null) {
+            return topProducts;
+        }
+        Map<Long, String> names = productNames;
+        for (SpaceSaving.Counter<Long> counter : seller.snapshot(window, clock.getAsLong()).top(limit)) {
+            Map<String, Object> product = new HashMap<>();
+            product.put("productId", counter.getKey());
+            product.put("productName", names.get(counter.getKey()));
+            product.put("salesAmount", BigDecimal.valueOf(counter.getCount(), 2));
+            product.put("salesCount", counter.getUnits());
+            product.put("maxError", BigDecimal.valueOf(counter.getError(), 2));
+            topProducts.add(product);
+        }
+        return topProducts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    @Scheduled(cron = "${sales.top-k.reload-cron:0 */10 * * * ?}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * 按订单表重新加载最近7天的统计：SQL中按 (卖家, 商品, 5分钟) 汇总后逐行写入新的统计，完成后整体替换
+     * 加载期间提交的事件在替换前补记，加载开始前提交的事件已包含在查询结果中
+     * @return 本次加载的统计
+     */
+    public Map<String, Object> reload() {
+        synchronized (reloadLock) {
+            long start = clock.getAsLong();
+            long slotMillis = SalesWindow.HOUR.getSlotMillis();
+            long sinceMillis = (start - SalesWindow.WEEK.getMillis()) / slotMillis * slotMillis;
+            LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(sinceMillis), zoneId);
+
+            Map<Long, SellerWindows> loaded = new ConcurrentHashMap<>();
+            Map<Long, String> names = new ConcurrentHashMap<>();
+            long[] rows = {0};
+            synchronized (this) {
+                replay = new ArrayList<>();
+            }
+            try {
+                salesRollupMapper.selectRecentProductSlots(since, (int) TimeUnit.MILLISECONDS.toMinutes(slotMillis),
+                        context -> {
+                            ProductSalesSlotDTO row = context.getResultObject();
+                            apply(loaded, names, new Event(row.getSellerId(), row.getProductId(), row.getProductName(),
+                                    sinceMillis + row.getSlot() * slotMillis, MoneyBuckets.toCents(row.getAmount()),
+                                    row.getQuantity()));
+                            rows[0]++;
+                        });
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw e;
+            }
+            int replayed;
+            synchronized (this) {
+                for (Event event : replay) {
+                    apply(loaded, names, event);
+                }
+                replayed = replay.size();
+                replay = null;
+                sellers = loaded;
+                productNames = names;
+            }
+
+            Map<String, Object> report = new HashMap<>();
+            report.put("rows", rows[0]);
+            report.put("sellers", loaded.size() - (loaded.containsKey(PLATFORM) ? 1 : 0));
+            report.put("replayedEvents", replayed);
+            report.put("elapsedMillis", clock.getAsLong() - start);
+            report.put("finishedAt", LocalDateTime.now());
+            log.info("实时热销统计已重新加载: {}", report);
+            return report;
+        }
+    }
+
+    private void apply(Map<Long, SellerWindows> target, Map<Long, String> names, Event event) {
+        if (event.productName != null) {
+            names.put(event.productId, event.productName);
+        }
+        target.computeIfAbsent(event.sellerId, id -> new SellerWindows())
+                .add(event.timeMillis, event.productId, event.cents, event.units);
+        target.computeIfAbsent(PLATFORM, id -> new SellerWindows())
+                .add(event.timeMillis, event.productId, event.cents, event.units);
+    }
+}
@@ -0,0 +1,329 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.FinancialReportRowDTO;
+import com.shop.online.dto.OrderItemDTO;
+import com.shop.online.mapper.OrderArchiveMapper;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 财务报表的流式导出
+ * 已完成的订单逐行读取（fetchSize 分批从服务端取数），每凑满 chunk-size 个订单一次查询带出这批订单的商品，写出后丢弃，
+ * 内存占用只与批大小有关，与导出的订单数无关。
+ * CSV 直接写入输出流；Excel 使用 SXSSF，内存中只保留最近 excel-row-window 行，其余行写入临时文件，
+ * 列宽固定，不扫描单元格；超过单个工作表的最大行数时续写到下一个工作表。
+ * 开始时间早于归档保留期时合并读取归档表（order_archive/order_item_archive）。
+ * 导出期间占用一个数据库连接（只读事务），直到最后一行写出。
+ */
+@Component
+@Slf4j
+public class FinancialReportExporter {
+
+    private static final String[] HEADERS = {"订单号", "创建时间", "状态", "金额", "用户名", "商品数量", "商品名称"};
+
+    /**
+     * Excel 各列宽度（字符数）
+     */
+    private static final int[] COLUMN_WIDTHS = {24, 20, 10, 14, 20, 10, 60};
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String SHEET_NAME = "财务报表";
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${order.export.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${order.export.excel-row-window:100}")
+    private int excelRowWindow;
+
+    /**
+     * 每个工作表最多的数据行数（不含标题行）
+     */
+    private int maxRowsPerSheet = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+    /**
+     * 报表格式
+     */
+    private interface ReportWriter extends AutoCloseable {
+
+        void writeRow(FinancialReportRowDTO order, List<String> productNames) throws IOException;
+
+        /**
+         * 一批订单写完
+         */
+        void endChunk() throws IOException;
+
+        void finish() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * 导出卖家在时间范围内已完成的订单
+     * @param fileType csv，其他值导出Excel
+     * @return 导出的订单数
+     */
+    public long export(Long sellerId, LocalDateTime startTime, LocalDateTime endTime, String fileType,
+                       OutputStream outputStream) throws IOException {
+        boolean includeArchive = orderArchiver.needsArchive(startTime);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        try (ReportWriter writer = "csv".equalsIgnoreCase(fileType)
+                ? new CsvReportWriter(outputStream) : new ExcelReportWriter(outputStream)) {
+            // 订单查询与每批的商品查询在同一个只读事务（同一个连接）中执行
+            Long count = readOnly.execute(status -> {
+                List<FinancialReportRowDTO> chunk = new ArrayList<>(chunkSize);
+                long[] written = {0};
+                orderMapper.selectFinancialReportRows(sellerId, startTime, endTime, includeArchive, context -> {
+                    chunk.add(context.getResultObject());
+                    if (chunk.size() >= chunkSize) {
+                        written[0] += writeChunk(chunk, includeArchive, writer);
+                        chunk.clear();
+                    }
+                });
+                if (!chunk.isEmpty()) {
+                    written[0] += writeChunk(chunk, includeArchive, writer);
+                }
+                return written[0];
+            });
+            writer.finish();
+            return count == null ? 0 : count;
+        } catch (RuntimeException e) {
+            // 写出失败（如客户端断开下载）时抛出原来的 IOException；在 handler 中抛出的异常会被 MyBatis 包装
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 查询一批订单的商品并写出
+     */
+    private int writeChunk(List<FinancialReportRowDTO> chunk, boolean includeArchive, ReportWriter writer) {
+        List<Long> orderIds = new ArrayList<>(chunk.size());
+        for (FinancialReportRowDTO order : chunk) {
+            orderIds.add(order.getId());
+        }
+        Map<Long, List<String>> productNames = new HashMap<>(chunk.size() * 2);
+        List<OrderItemDTO> items = orderItemMapper.selectByOrderIds(orderIds);
+        if (includeArchive) {
+            items.addAll(orderArchiveMapper.selectItemsByOrderIds(orderIds));
+        }
+        for (OrderItemDTO item : items) {
+            productNames.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item.getProductName());
+        }
+        try {
+            for (FinancialReportRowDTO order : chunk) {
+                writer.writeRow(order, productNames.getOrDefault(order.getId(), Collections.emptyList()));
+            }
+            writer.endChunk();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk.size();
+    }
+
+    private static String username(FinancialReportRowDTO order) {
+        return order.getUsername() != null ? order.getUsername() : "未知用户";
+    }
+
+    private static String statusText(Integer status) {
+        if (status == null) return "未知状态";
+
+        switch (status) {
+            case 0: return "已取消";
+            case 1: return "待发货";
+            case 2: return "已发货";
+            case 3: return "已完成";
+            case 4: return "已退款";
+            default: return "未知状态";
+        }
+    }
+
+    /**
+     * CSV：UTF-8 带BOM（Excel可以正确识别编码），每批写完刷新到输出流
+     */
+    private static class CsvReportWriter implements ReportWriter {
+
+        private final Writer writer;
+
+        CsvReportWriter(OutputStream outputStream) throws IOException {
+            outputStream.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(String.join(",", HEADERS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void writeRow(FinancialReportRowDTO order, List<String> productNames) throws IOException {
+            writer.write(escape(order.getOrderNo()));
+            writer.write(',');
+            writer.write(order.getCreatedTime().format(TIME_FORMATTER));
+            writer.write(',');
+            writer.write(statusText(order.getStatus()));
+            writer.write(',');
+            writer.write(String.valueOf(order.getTotalAmount()));
+            writer.write(',');
+            writer.write(escape(username(order)));
+            writer.write(',');
+            writer.write(String.valueOf(productNames.size()));
+            writer.write(',');
+            writer.write(escape(String.join(", ", productNames)));
+            writer.write("\r\n");
+        }
+
+        /**
+         * 包含逗号、引号或换行的字段用引号括起，字段中的引号写两次
+         */
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void endChunk() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            // 输出流由调用方关闭
+        }
+    }
+
+    /**
+     * Excel：SXSSF 按行窗口写入临时文件，最后一次性写入输出流
+     */
+    private class ExcelReportWriter implements ReportWriter {
+
+        private final OutputStream outputStream;
+
+        private final SXSSFWorkbook workbook;
+
+        private final CellStyle amountStyle;
+
+        private Sheet sheet;
+
+        private int sheetCount;
+
+        private int rowNum;
+
+        ExcelReportWriter(OutputStream outputStream) {
+            this.outputStream = outputStream;
+            workbook = new SXSSFWorkbook(excelRowWindow);
+            workbook.setCompressTempFiles(true);
+            amountStyle = workbook.createCellStyle();
+            amountStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+            newSheet();
+        }
+
+        private void newSheet() {
+            sheetCount++;
+            sheet = workbook.createSheet(sheetCount == 1 ? SHEET_NAME : SHEET_NAME + sheetCount);
+            // 不跟踪列宽，使用固定列宽
+            ((SXSSFSheet) sheet).untrackAllColumnsForAutoSizing();
+            for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+                sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+            }
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                headerRow.createCell(i).setCellValue(HEADERS[i]);
+            }
+            rowNum = 1;
+        }
+
+        @Override
+        public void writeRow(FinancialReportRowDTO order, List<String> productNames) {
+            if (rowNum > maxRowsPerSheet) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(order.getOrderNo());
+            row.createCell(1).setCellValue(order.getCreatedTime().format(TIME_FORMATTER));
+            row.createCell(2).setCellValue(statusText(order.getStatus()));
+            if (order.getTotalAmount() != null) {
+                Cell amountCell = row.createCell(3);
+                amountCell.setCellValue(order.getTotalAmount().doubleValue());
+                amountCell.setCellStyle(amountStyle);
+            }
+            row.createCell(4).setCellValue(username(order));
+            row.createCell(5).setCellValue(productNames.size());
+            row.createCell(6).setCellValue(String.join(", ", productNames));
+        }
+
+        @Override
+        public void endChunk() {
+            // 超出行窗口的行已由 SXSSF 写入临时文件
+        }
+
+        @Override
+        public void finish() throws IOException {
+            workbook.write(outputStream);
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 删除临时文件
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 组提交执行器
+ * 把几毫秒内并发到达的写请求合并成一批，在同一个数据库事务中执行，只提交一次；
+ * 每个请求在自己的保存点中执行，某个请求失败只回滚它自己，其他请求照常提交，
+ * 调用方仍然拿到各自的结果或异常。
+ */
+@Component
+@Slf4j
+public class GroupCommitExecutor {
+
+    private final boolean enabled;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitMillis;
+
+    private final int workers;
+
+    private final TransactionTemplate batchTemplate;
+
+    private final TransactionTemplate requestTemplate;
+
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private static class Task<T> {
+        final Supplier<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+
+        Task(Supplier<T> work) {
+            this.work = work;
+        }
+
+        void run() {
+            result = work.get();
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+
+    public GroupCommitExecutor(PlatformTransactionManager transactionManager,
+                               @Value("${order.group-commit.enabled:false}") boolean enabled,
+                               @Value("${order.group-commit.max-batch-size:32}") int maxBatchSize,
+                               @Value("${order.group-commit.max-wait-millis:5}") long maxWaitMillis,
+                               @Value("${order.group-commit.workers:2}") int workers) {
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.workers = workers;
+        this.batchTemplate = new TransactionTemplate(transactionManager);
+        this.requestTemplate = new TransactionTemplate(transactionManager);
+        this.requestTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::loop, "group-commit-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        log.info("组提交已启用: 每批最多{}个请求, 最长等待{}ms, 工作线程{}个", maxBatchSize, maxWaitMillis, workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        List<Task<?>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(task -> task.future.completeExceptionally(new IllegalStateException("服务正在关闭")));
+    }
+
+    /**
+     * 提交写请求并等待所在批次提交
+     * work在批处理线程中执行，不能依赖调用线程的ThreadLocal（如当前登录用户）
+     */
+    public <T> T execute(Supplier<T> work) {
+        Task<T> task = new Task<>(work);
+        queue.add(task);
+        try {
+            return task.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void loop() {
+        List<Task<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Task<?> task = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    batch.add(task);
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(task -> task.future.completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(List<Task<?>> batch) {
+        List<Task<?>> succeeded = new ArrayList<>(batch.size());
+        try {
+            batchTemplate.executeWithoutResult(status -> {
+                for (Task<?> task : batch) {
+                    try {
+                        requestTemplate.executeWithoutResult(savepoint ->
+                                TransactionHooks.withSavepointScope(() -> {
+                                    task.run();
+                                    return null;
+                                }));
+                        succeeded.add(task);
+                    } catch (RuntimeException e) {
+                        task.future.completeExceptionally(e);
+                    }
+                }
+            });
+            succeeded.forEach(Task::complete);
+            log.debug("组提交完成: 请求数={}, 成功数={}", batch.size(), succeeded.size());
+        } catch (RuntimeException e) {
+            log.error("组提交失败: 请求数={}", batch.size(), e);
+            succeeded.forEach(task -> task.future.completeExceptionally(e));
+        }
+    }
+}
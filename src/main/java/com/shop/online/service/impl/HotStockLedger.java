@@ -0,0 +1,302 @@
+package com.shop.online.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.entity.HotStockJournal;
+import com.shop.online.entity.Product;
+import com.shop.online.mapper.HotStockJournalMapper;
+import com.shop.online.mapper.ProductMapper;
+import com.shop.online.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 热点商品库存台账
+ * 对配置为热点的商品在内存中用CAS计数器扣减库存，避免所有下单请求争抢同一行的行锁；
+ * 预占和归还在订单事务中插入 hot_stock_journal 流水（只插入，不更新热点行），定时任务把流水批量写回 product.stock 后删除。
+ * 宕机时已提交的扣减保存在流水中，重启加载时先写回剩余流水再读取库存，不会丢失扣减而超卖。
+ * 可售库存只在本实例内存中，多个实例同时启用会各自认为拥有全部库存而超卖：
+ * 启用时通过 hot_stock_lease 获取租约，租约被其他实例持有时启动失败，写回时续期，正常停机时释放。
+ */
+@Component
+@Slf4j
+public class HotStockLedger {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private HotStockJournalMapper hotStockJournalMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.hot.product-ids:}")
+    private Set<Long> hotProductIds;
+
+    @Value("${inventory.hot.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    @Value("${inventory.hot.lease-seconds:30}")
+    private int leaseSeconds;
+
+    @Value("${inventory.hot.instance-id:}")
+    private String instanceId;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * 是否持有租约
+     */
+    private volatile boolean leaseHeld;
+
+    private long leaseRenewedAt;
+
+    /**
+     * 单个商品的库存槽位
+     */
+    private static class Slot {
+        /** 内存中可售库存，预占时立即扣减 */
+        final AtomicLong available;
+        /** 最近一次确认的数据库库存 */
+        volatile long persisted;
+
+        Slot(long stock) {
+            this.available = new AtomicLong(stock);
+            this.persisted = stock;
+        }
+    }
+
+    /**
+     * 启动时获取租约，写回上次剩余的流水，再从数据库恢复热点商品库存
+     */
+    @PostConstruct
+    public void load() {
+        if (hotProductIds == null || hotProductIds.isEmpty()) {
+            return;
+        }
+        if (!StringUtils.hasText(instanceId)) {
+            instanceId = hostName() + ":" + serverPort;
+        }
+        if (hotStockJournalMapper.acquireLease(instanceId, leaseSeconds) == 0) {
+            throw new IllegalStateException("热点库存台账只能在一个实例上启用，租约由 "
+                    + hotStockJournalMapper.selectLeaseOwner() + " 持有；其他实例请清空 inventory.hot.product-ids");
+        }
+        leaseHeld = true;
+        leaseRenewedAt = System.currentTimeMillis();
+
+        int recovered = writeBackJournal();
+        for (Product product : selectStocks(hotProductIds)) {
+            slots.put(product.getId(), new Slot(product.getStock() == null ? 0 : product.getStock()));
+        }
+        log.info("热点库存台账已加载: 实例={}, 配置商品={}, 加载成功={}, 写回上次剩余流水={}条",
+                instanceId, hotProductIds, slots.keySet(), recovered);
+    }
+
+    public boolean isHot(Long productId) {
+        return leaseHeld && slots.containsKey(productId);
+    }
+
+    /**
+     * 当前由台账管理的商品ID
+     */
+    public Set<Long> hotProductIds() {
+        return leaseHeld ? Collections.unmodifiableSet(slots.keySet()) : Collections.emptySet();
+    }
+
+    /**
+     * 在内存中预占库存，全部成功或全部不扣减
+     * @return 缺货的商品ID，为空表示预占成功
+     */
+    public List<Long> tryReserve(List<StockChangeDTO> changes) {
+        List<StockChangeDTO> taken = new ArrayList<>(changes.size());
+        for (StockChangeDTO change : changes) {
+            AtomicLong available = slots.get(change.getProductId()).available;
+            long current;
+            do {
+                current = available.get();
+                if (current < change.getQuantity()) {
+                    release(taken);
+                    return Collections.singletonList(change.getProductId());
+                }
+            } while (!available.compareAndSet(current, current - change.getQuantity()));
+            taken.add(change);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 事务回滚时归还预占的库存
+     */
+    public void release(List<StockChangeDTO> changes) {
+        for (StockChangeDTO change : changes) {
+            slots.get(change.getProductId()).available.addAndGet(change.getQuantity());
+        }
+    }
+
+    /**
+     * 预占成功后在同一事务中写入扣减流水，随订单一起提交
+     */
+    public void confirm(List<StockChangeDTO> changes) {
+        List<StockChangeDTO> deltas = new ArrayList<>(changes.size());
+        for (StockChangeDTO change : changes) {
+            deltas.add(new StockChangeDTO(change.getProductId(), -change.getQuantity()));
+        }
+        hotStockJournalMapper.insertDeltas(deltas);
+    }
+
+    /**
+     * 取消或退款时在事务中写入归还流水，提交后恢复可售库存
+     */
+    public void restore(List<StockChangeDTO> changes) {
+        hotStockJournalMapper.insertDeltas(changes);
+        TransactionHooks.afterCommit(() -> {
+            for (StockChangeDTO change : changes) {
+                Slot slot = slots.get(change.getProductId());
+                if (slot != null) {
+                    slot.available.addAndGet(change.getQuantity());
+                }
+            }
+        });
+    }
+
+    /**
+     * 续期租约，把流水批量写回数据库，并吸收后台直接修改库存带来的偏差
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (!leaseHeld) {
+            return;
+        }
+        renewLease();
+
+        try {
+            writeBackJournal();
+        } catch (Exception e) {
+            log.error("热点库存写回失败，下次重试", e);
+            return;
+        }
+
+        // 卖家或管理员直接修改库存时，数据库值与台账预期不一致，把差值计入可售库存
+        for (Product product : selectStocks(slots.keySet())) {
+            Slot slot = slots.get(product.getId());
+            long actual = product.getStock() == null ? 0 : product.getStock();
+            long drift = actual - slot.persisted;
+            if (drift != 0) {
+                slot.available.addAndGet(drift);
+                slot.persisted = actual;
+                log.info("热点商品库存被外部修改: productId={}, 偏差={}", product.getId(), drift);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!leaseHeld) {
+            return;
+        }
+        flush();
+        hotStockJournalMapper.releaseLease(instanceId);
+        leaseHeld = false;
+    }
+
+    /**
+     * 写回全部已提交的流水，每批一个事务：累加到 product.stock 后删除这批流水
+     * @return 写回的流水条数
+     */
+    private int writeBackJournal() {
+        int total = 0;
+        while (true) {
+            List<StockChangeDTO> applied = new ArrayList<>();
+            Integer rows = transactionTemplate.execute(status -> {
+                List<HotStockJournal> batch = hotStockJournalMapper.selectBatch(flushBatchSize);
+                if (batch.isEmpty()) {
+                    return 0;
+                }
+                List<StockChangeDTO> changes = new ArrayList<>(batch.size());
+                List<Long> ids = new ArrayList<>(batch.size());
+                for (HotStockJournal journal : batch) {
+                    changes.add(new StockChangeDTO(journal.getProductId(), journal.getDelta()));
+                    ids.add(journal.getId());
+                }
+                List<StockChangeDTO> merged = StockChangeDTO.merge(changes);
+                merged.removeIf(change -> change.getQuantity() == 0);
+                if (!merged.isEmpty()) {
+                    productMapper.increaseStock(merged);
+                }
+                hotStockJournalMapper.deleteByIds(ids);
+                applied.addAll(merged);
+                return batch.size();
+            });
+            int count = rows == null ? 0 : rows;
+            // 提交后才计入已确认的库存
+            for (StockChangeDTO change : applied) {
+                Slot slot = slots.get(change.getProductId());
+                if (slot != null) {
+                    slot.persisted += change.getQuantity();
+                }
+            }
+            total += count;
+            if (count < flushBatchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 每三分之一个租约期续期一次；租约已被其他实例接管（本实例长时间未能续期）时停用台账，热点商品改走数据库扣减
+     */
+    private void renewLease() {
+        long now = System.currentTimeMillis();
+        if (now - leaseRenewedAt < TimeUnit.SECONDS.toMillis(leaseSeconds) / 3) {
+            return;
+        }
+        try {
+            if (hotStockJournalMapper.acquireLease(instanceId, leaseSeconds) > 0) {
+                leaseRenewedAt = now;
+                return;
+            }
+        } catch (Exception e) {
+            log.error("热点库存租约续期失败，下次重试", e);
+            return;
+        }
+        leaseHeld = false;
+        log.error("热点库存租约已被 {} 接管，本实例停用热点库存台账", hotStockJournalMapper.selectLeaseOwner());
+    }
+
+    private List<Product> selectStocks(Set<Long> productIds) {
+        LambdaQueryWrapper<Product> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Product::getId, Product::getStock)
+                .in(Product::getId, productIds);
+        return productMapper.selectList(queryWrapper);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.exception.StockShortageException;
+import com.shop.online.mapper.ProductMapper;
+import com.shop.online.service.InventoryService;
+import com.shop.online.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 库存服务实现类
+ */
+@Service
+@Slf4j
+public class InventoryServiceImpl implements InventoryService {
+
+    /**
+     * 按订单恢复库存时每条SQL处理的订单数
+     */
+    private static final int RESTORE_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private HotStockLedger hotStockLedger;
+
+    /**
+     * 预占库存
+     * 热点商品在内存台账中扣减并写入流水，事务回滚时归还；
+     * 其余商品只有一条带 stock >= quantity 条件的UPDATE，
+     * 只有在扣减行数不足时，才回滚到保存点并查询具体缺货的商品
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void reserve(List<StockChangeDTO> changes) {
+        if (CollectionUtils.isEmpty(changes)) {
+            return;
+        }
+        
+        List<StockChangeDTO> hot = new ArrayList<>();
+        List<StockChangeDTO> merged = new ArrayList<>();
+        splitHot(StockChangeDTO.merge(changes), hot, merged);
+        
+        if (!hot.isEmpty()) {
+            List<Long> shortages = hotStockLedger.tryReserve(hot);
+            if (!shortages.isEmpty()) {
+                log.warn("热点库存预占失败, 缺货商品: {}", shortages);
+                throw new StockShortageException("商品库存不足: " + shortages, shortages);
+            }
+            TransactionHooks.afterCompletion(null, () -> hotStockLedger.release(hot));
+            hotStockLedger.confirm(hot);
+        }
+        
+        if (merged.isEmpty()) {
+            return;
+        }
+        
+        TransactionStatus status = TransactionAspectSupport.currentTransactionStatus();
+        Object savepoint = status.createSavepoint();
+        
+        int updated = productMapper.reserveStock(merged);
+        if (updated == merged.size()) {
+            status.releaseSavepoint(savepoint);
+            return;
+        }
+        
+        // 撤销本次部分扣减，使后续查询看到扣减前的库存
+        status.rollbackToSavepoint(savepoint);
+        status.releaseSavepoint(savepoint);
+        
+        Set<Long> reservable = new HashSet<>(productMapper.selectReservableProductIds(merged));
+        List<Long> shortages = merged.stream()
+                .map(StockChangeDTO::getProductId)
+                .filter(productId -> !reservable.contains(productId))
+                .collect(Collectors.toList());
+        if (shortages.isEmpty()) {
+            // 回滚后库存又被其他事务补足，无法精确定位时按全部商品处理
+            shortages = merged.stream().map(StockChangeDTO::getProductId).collect(Collectors.toList());
+        }
+        
+        log.warn("库存预占失败, 请求商品数: {}, 扣减成功: {}, 缺货商品: {}", merged.size(), updated, shortages);
+        throw new StockShortageException("商品库存不足: " + shortages, shortages);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void restore(List<StockChangeDTO> changes) {
+        if (CollectionUtils.isEmpty(changes)) {
+            return;
+        }
+        
+        List<StockChangeDTO> hot = new ArrayList<>();
+        List<StockChangeDTO> cold = new ArrayList<>();
+        splitHot(StockChangeDTO.merge(changes), hot, cold);
+        
+        if (!hot.isEmpty()) {
+            // 热点库存写入归还流水，提交后才归还可售库存，避免回滚后库存被多加
+            hotStockLedger.restore(hot);
+        }
+        if (!cold.isEmpty()) {
+            int updated = productMapper.increaseStock(cold);
+            log.info("库存已恢复: 商品数={}, 更新行数={}", cold.size(), updated);
+        }
+    }
+
+    /**
+     * 按订单恢复库存
+     * 每批订单只执行一条UPDATE，由数据库在语句内完成累加，并发恢复不会互相覆盖
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void restoreByOrderIds(Collection<Long> orderIds) {
+        if (CollectionUtils.isEmpty(orderIds)) {
+            return;
+        }
+        
+        Set<Long> hotProductIds = hotStockLedger.hotProductIds();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        for (int from = 0; from < ids.size(); from += RESTORE_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + RESTORE_BATCH_SIZE, ids.size()));
+            
+            int updated = productMapper.restoreStockByOrderIds(batch, hotProductIds);
+            log.info("按订单恢复库存: 订单数={}, 更新商品数={}", batch.size(), updated);
+            
+            if (!hotProductIds.isEmpty()) {
+                List<StockChangeDTO> hot = productMapper.sumOrderQuantities(batch, hotProductIds);
+                if (!hot.isEmpty()) {
+                    hotStockLedger.restore(hot);
+                }
+            }
+        }
+    }
+
+    private void splitHot(List<StockChangeDTO> changes, List<StockChangeDTO> hot, List<StockChangeDTO> cold) {
+        for (StockChangeDTO change : changes) {
+            if (hotStockLedger.isHot(change.getProductId())) {
+                hot.add(change);
+            } else {
+                cold.add(change);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.mapper.OrderArchiveMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 冷订单归档
+ * 定时把创建超过保留期、且已完成(3)/已取消(4)/已退款(5)的订单连同明细整单搬到归档表，
+ * 每批一个事务（复制后删除），批与批之间暂停以限制对线上库的压力。
+ * 定时归档在自己的线程中执行，不占用 @Scheduled 的调度线程（库存写回、超时取消等短任务不会被长时间的归档阻塞），
+ * 上一次还没结束时跳过本次。
+ * 读取时：按订单号查不到时再查归档表；列表查询的时间范围早于保留期时才合并归档表。
+ */
+@Component
+@Slf4j
+public class OrderArchiver {
+
+    private static final List<Integer> ARCHIVABLE_STATUSES = Arrays.asList(3, 4, 5);
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.archive.min-age-days:180}")
+    private int minAgeDays;
+
+    @Value("${order.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.archive.pause-millis:200}")
+    private long pauseMillis;
+
+    private volatile Map<String, Object> lastRun = new HashMap<>();
+
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 归档保留期的起点，创建时间早于它的订单可能已在归档表中
+     */
+    public LocalDateTime getCutoff() {
+        return LocalDateTime.now().minusDays(minAgeDays);
+    }
+
+    /**
+     * 查询的时间范围是否需要合并归档表
+     * @param rangeStart 查询的开始时间，为空表示只看近期订单
+     */
+    public boolean needsArchive(LocalDateTime rangeStart) {
+        return rangeStart != null && rangeStart.isBefore(getCutoff());
+    }
+
+    @Scheduled(cron = "${order.archive.cron:0 30 3 * * ?}")
+    public void scheduledArchive() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        archiveExecutor.execute(() -> {
+            try {
+                archive();
+            } catch (Exception e) {
+                log.error("订单归档失败: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        // 中断批间暂停，正在执行的批次事务照常结束
+        archiveExecutor.shutdownNow();
+    }
+
+    /**
+     * 分批归档，直到没有可归档的订单
+     * @return 本次运行的统计
+     */
+    public synchronized Map<String, Object> archive() {
+        LocalDateTime before = getCutoff();
+        long start = System.currentTimeMillis();
+        long orders = 0;
+        long items = 0;
+        int batches = 0;
+        log.info("开始归档订单: 创建时间早于={}, 每批={}", before, batchSize);
+
+        while (true) {
+            int[] moved = transactionTemplate.execute(status -> moveBatch(before));
+            if (moved == null || moved[0] == 0) {
+                break;
+            }
+            orders += moved[0];
+            items += moved[1];
+            batches++;
+            if (moved[0] < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+
+        long elapsedMillis = Math.max(System.currentTimeMillis() - start, 1);
+        double rowsPerSecond = (orders + items) * 1000.0 / elapsedMillis;
+        Map<String, Object> report = new HashMap<>();
+        report.put("before", before);
+        report.put("batches", batches);
+        report.put("orders", orders);
+        report.put("orderItems", items);
+        report.put("elapsedMillis", elapsedMillis);
+        report.put("rowsPerSecond", Math.round(rowsPerSecond));
+        report.put("finishedAt", LocalDateTime.now());
+        lastRun = report;
+        log.info("订单归档完成: 批数={}, 订单={}, 明细={}, 耗时={}ms, 速度={}行/秒",
+                batches, orders, items, elapsedMillis, Math.round(rowsPerSecond));
+        return report;
+    }
+
+    /**
+     * 最近一次归档的统计
+     */
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    private int[] moveBatch(LocalDateTime before) {
+        List<Long> ids = orderArchiveMapper.selectArchivableIds(ARCHIVABLE_STATUSES, before, batchSize);
+        if (ids.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        int items = orderArchiveMapper.copyOrderItems(ids);
+        orderArchiveMapper.copyOrders(ids);
+        orderArchiveMapper.deleteOrderItems(ids);
+        int orders = orderArchiveMapper.deleteOrders(ids);
+        return new int[]{orders, items};
+    }
+
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("订单归档被中断");
+            return false;
+        }
+    }
+}
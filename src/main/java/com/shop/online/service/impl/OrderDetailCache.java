@@ -0,0 +1,145 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.util.LocalCache;
+import com.shop.online.util.TransactionHooks;
+import com.shop.online.vo.OrderVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单详情缓存
+ * 按订单号缓存组装好的 OrderVO，省去订单、明细、已退款明细三次查询；
+ * 订单状态流转、退款、评价后由对应的业务方法失效，TTL兜底其它途径的修改。
+ * 每次失效递增订单的版本号，查询前取得版本号、放入时版本号已变化的结果不放入缓存，
+ * 失效之前开始的查询不会把旧数据放回缓存。版本号按订单号哈希分段保存，占用内存固定，
+ * 不同订单落在同一分段时只会多一次未命中。
+ * 缓存的对象由多个请求共享，调用方不能修改。
+ */
+@Component
+@Slf4j
+public class OrderDetailCache {
+
+    @Value("${order.detail-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${order.detail-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * 版本号分段数，2的幂
+     */
+    private static final int VERSION_STRIPES = 4096;
+
+    private LocalCache<String, Entry> cache;
+
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    /**
+     * 缓存条目，记录订单所属用户用于权限校验
+     */
+    private static class Entry {
+        final Long userId;
+        final OrderVO order;
+
+        Entry(Long userId, OrderVO order) {
+            this.userId = userId;
+            this.order = order;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    /**
+     * 获取指定用户的订单详情
+     * @return 未缓存或订单不属于该用户时返回null
+     */
+    public OrderVO get(String orderNo, Long userId) {
+        Entry entry = cache.get(orderNo);
+        if (entry == null || !Objects.equals(entry.userId, userId)) {
+            return null;
+        }
+        return entry.order;
+    }
+
+    /**
+     * 订单当前的版本号，在查询订单之前调用，放入缓存时传回
+     */
+    public long version(String orderNo) {
+        synchronized (versions) {
+            return versions[stripe(orderNo)];
+        }
+    }
+
+    /**
+     * 放入查询结果，查询开始后订单被失效过时丢弃
+     * @param version 查询之前 {@link #version} 返回的版本号
+     */
+    public void put(String orderNo, Long userId, OrderVO order, long version) {
+        synchronized (versions) {
+            if (versions[stripe(orderNo)] == version) {
+                cache.put(orderNo, new Entry(userId, order));
+            }
+        }
+    }
+
+    /**
+     * 失效订单详情：立即删除，并在当前事务结束后再删除一次，
+     * 防止事务提交前开始的查询把旧数据重新放回缓存
+     */
+    public void evict(String orderNo) {
+        invalidate(orderNo);
+        TransactionHooks.afterCompletion(() -> invalidate(orderNo), () -> invalidate(orderNo));
+    }
+
+    private void invalidate(String orderNo) {
+        synchronized (versions) {
+            versions[stripe(orderNo)]++;
+            cache.remove(orderNo);
+        }
+    }
+
+    private static int stripe(String orderNo) {
+        int hash = orderNo.hashCode();
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    public void evictAll(Collection<String> orderNos) {
+        for (String orderNo : orderNos) {
+            evict(orderNo);
+        }
+    }
+
+    /**
+     * 定期清理过期条目，避免长期不访问的订单占用内存
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        cache.evictExpired();
+    }
+
+    /**
+     * 缓存命中指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hitCount", cache.getHitCount());
+        stats.put("missCount", cache.getMissCount());
+        stats.put("hitRate", cache.getHitRate());
+        return stats;
+    }
+}
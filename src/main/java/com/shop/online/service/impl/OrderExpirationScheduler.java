@@ -0,0 +1,166 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.entity.Order;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.service.InventoryService;
+import com.shop.online.util.HierarchicalTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未付款订单超时取消
+ * 下单后把订单放入分层时间轮，到期时批量把仍是待付款的订单改为已取消并恢复库存；
+ * 已支付的订单条件更新不会命中，因此不需要在支付时从时间轮中移除。
+ */
+@Component
+@Slf4j
+public class OrderExpirationScheduler {
+
+    /** 时间轮：1秒一格，每层60格，3层可容纳约2.5天 */
+    private static final int WHEEL_SIZE = 60;
+
+    private static final int WHEEL_LEVELS = 3;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.pay-timeout-minutes:30}")
+    private long payTimeoutMinutes;
+
+    @Value("${order.expire.batch-size:500}")
+    private int batchSize;
+
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    private final HierarchicalTimingWheel<ExpiringOrder> wheel = new HierarchicalTimingWheel<>(
+            TimeUnit.SECONDS.toMillis(1), WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    private final AtomicLong lastLagMillis = new AtomicLong();
+
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    private static class ExpiringOrder {
+        final String orderNo;
+        final long deadline;
+
+        ExpiringOrder(String orderNo, long deadline) {
+            this.orderNo = orderNo;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * 登记新订单的支付截止时间
+     */
+    public void register(String orderNo, LocalDateTime createdTime) {
+        long deadline = createdTime.atZone(zoneId).toInstant().toEpochMilli()
+                + TimeUnit.MINUTES.toMillis(payTimeoutMinutes);
+        wheel.add(new ExpiringOrder(orderNo, deadline), deadline);
+    }
+
+    /**
+     * 启动后按ID分批扫描待付款订单，重建时间轮
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Order> orders = orderMapper.selectPendingPaymentAfter(lastId, batchSize);
+            for (Order order : orders) {
+                register(order.getOrderNo(), order.getCreatedTime());
+            }
+            total += orders.size();
+            if (orders.size() < batchSize) {
+                break;
+            }
+            lastId = orders.get(orders.size() - 1).getId();
+        }
+        log.info("超时取消任务已重建: 待付款订单数={}", total);
+    }
+
+    /**
+     * 每秒推进时间轮，到期订单按批取消
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<ExpiringOrder> expired = wheel.advance(now);
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<ExpiringOrder> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                cancelBatch(batch, now);
+            } catch (Exception e) {
+                // 本批失败时放回时间轮，下一秒重试
+                log.error("超时订单取消失败，稍后重试: 数量={}", batch.size(), e);
+                for (ExpiringOrder order : batch) {
+                    wheel.add(order, now + 1000);
+                }
+            }
+        }
+    }
+
+    private void cancelBatch(List<ExpiringOrder> batch, long now) {
+        Map<String, ExpiringOrder> byOrderNo = new LinkedHashMap<>();
+        for (ExpiringOrder order : batch) {
+            byOrderNo.put(order.orderNo, order);
+        }
+        
+        Integer cancelled = transactionTemplate.execute(status -> {
+            List<Long> ids = orderStateMachine.transitBatchReturningIds(
+                    OrderTransition.EXPIRE, byOrderNo.keySet(), null);
+            inventoryService.restoreByOrderIds(ids);
+            return ids.size();
+        });
+        
+        long lag = 0;
+        for (ExpiringOrder order : batch) {
+            lag = Math.max(lag, now - order.deadline);
+        }
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+        cancelledCount.addAndGet(cancelled == null ? 0 : cancelled);
+        if (cancelled != null && cancelled > 0) {
+            log.info("超时未付款订单已取消: 到期数={}, 取消数={}, 延迟={}ms", batch.size(), cancelled, lag);
+        }
+    }
+
+    /**
+     * 运行指标：时间轮各层任务数、累计取消数、取消延迟
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", wheel.size());
+        stats.put("levelSizes", wheel.levelSizes());
+        stats.put("cancelledCount", cancelledCount.get());
+        stats.put("lastLagMillis", lastLagMillis.get());
+        stats.put("maxLagMillis", maxLagMillis.get());
+        return stats;
+    }
+}
@@ -0,0 +1,206 @@
+package com.shop.online.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.shop.online.common.result.PageResult;
+import com.shop.online.dto.OrderPageItemDTO;
+import com.shop.online.entity.Order;
+import com.shop.online.entity.User;
+import com.shop.online.mapper.OrderArchiveMapper;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.UserMapper;
+import com.shop.online.util.KeysetPagination;
+import com.shop.online.vo.OrderVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 订单列表组装器
+ * 买家、卖家、管理员的各个订单列表共用：分页查出订单后，
+ * 一次查询带出全部订单项（含已退款、含评价状态），需要买家信息时再一次查询用户，
+ * 在内存中按订单ID、用户ID哈希分组后直接用setter组装 OrderVO。
+ * 订单统一按 (created_time, id) 倒序，支持页码分页和游标分页。
+ * 热表中没有明细的订单视为已归档，再到归档表中补查明细。
+ */
+@Component
+public class OrderPageAssembler {
+
+    private static final String UNKNOWN_USER = "未知用户";
+
+    /**
+     * 订单列表的排序键
+     */
+    private static final KeysetPagination<Order> ORDER_KEYSET = new KeysetPagination<Order>()
+            .desc(Order::getCreatedTime, KeysetPagination.DATE_TIME)
+            .desc(Order::getId, KeysetPagination.LONG);
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Value("${mybatis-plus.pagination.max-limit:500}")
+    private long maxLimit;
+
+    /**
+     * 查询并组装一页订单
+     * @param queryWrapper 筛选条件，不要包含排序
+     * @param cursor 不为null时使用游标分页（第一页传空字符串），忽略页码
+     * @param withTotal 是否统计总数，不需要时省去COUNT查询
+     * @param withBuyers 是否填充买家用户名
+     */
+    public PageResult<OrderVO> loadPage(BaseMapper<Order> mapper, LambdaQueryWrapper<Order> queryWrapper,
+                                        int page, int size, String cursor, boolean withTotal, boolean withBuyers) {
+        return loadPage(mapper, queryWrapper, page, size, cursor, withTotal, withBuyers, false);
+    }
+
+    /**
+     * 查询并组装一页订单
+     * @param includeArchive 是否同时查询归档表（查询的时间范围早于归档保留期时）
+     */
+    public PageResult<OrderVO> loadPage(BaseMapper<Order> mapper, LambdaQueryWrapper<Order> queryWrapper,
+                                        int page, int size, String cursor, boolean withTotal, boolean withBuyers,
+                                        boolean includeArchive) {
+        if (cursor == null) {
+            ORDER_KEYSET.applyOrder(queryWrapper);
+            Page<Order> pageParam = new Page<>(page, size, withTotal);
+            IPage<Order> orderPage = includeArchive
+                    ? orderArchiveMapper.selectPageWithArchive(pageParam, queryWrapper)
+                    : mapper.selectPage(pageParam, queryWrapper);
+            PageResult<OrderVO> result = assemble(orderPage, withBuyers);
+            if (!withTotal) {
+                result.setTotal(null);
+            }
+            return result;
+        }
+
+        Long total = null;
+        if (withTotal) {
+            total = includeArchive ? orderArchiveMapper.selectCountWithArchive(queryWrapper)
+                    : mapper.selectCount(queryWrapper);
+        }
+        // 合并查询时两边各取 limit+1 行，外层排序后再截取
+        int limit = KeysetPagination.clampSize(size, maxLimit);
+        ORDER_KEYSET.apply(queryWrapper, cursor, limit);
+        List<Order> orders = includeArchive ? orderArchiveMapper.selectListWithArchive(queryWrapper)
+                : mapper.selectList(queryWrapper);
+        String nextCursor = ORDER_KEYSET.nextCursor(orders, limit);
+        return PageResult.of(total, assemble(orders, withBuyers), nextCursor);
+    }
+
+    /**
+     * 组装一页订单
+     * @param withBuyers 是否填充买家用户名（卖家、管理员列表需要）
+     */
+    public PageResult<OrderVO> assemble(IPage<Order> page, boolean withBuyers) {
+        return PageResult.of(page.getTotal(), assemble(page.getRecords(), withBuyers));
+    }
+
+    /**
+     * 组装订单列表，保持传入顺序
+     * @param withBuyers 是否填充买家用户名（卖家、管理员列表需要）
+     */
+    public List<OrderVO> assemble(List<Order> orders, boolean withBuyers) {
+        if (orders == null || orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> orderIds = new ArrayList<>(orders.size());
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (Order order : orders) {
+            orderIds.add(order.getId());
+            userIds.add(order.getUserId());
+        }
+
+        Map<Long, List<OrderVO.OrderProductVO>> productsByOrder = new HashMap<>(orders.size() * 2);
+        for (OrderPageItemDTO item : orderItemMapper.selectWithReviewStateByOrderIds(orderIds)) {
+            productsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(toProductVO(item));
+        }
+        List<Long> archivedIds = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            if (!productsByOrder.containsKey(orderId)) {
+                archivedIds.add(orderId);
+            }
+        }
+        if (!archivedIds.isEmpty()) {
+            for (OrderPageItemDTO item : orderArchiveMapper.selectItemsWithReviewStateByOrderIds(archivedIds)) {
+                productsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(toProductVO(item));
+            }
+        }
+
+        Map<Long, String> usernames = withBuyers ? selectUsernames(userIds) : Collections.emptyMap();
+
+        List<OrderVO> result = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            OrderVO orderVO = toOrderVO(order);
+            List<OrderVO.OrderProductVO> products = productsByOrder.getOrDefault(order.getId(), new ArrayList<>());
+            // 整单已退款(5)时所有商品都视为已退款
+            if (order.getStatus() != null && order.getStatus() == 5) {
+                products.forEach(product -> product.setRefunded(true));
+            }
+            orderVO.setProducts(products);
+            if (withBuyers) {
+                orderVO.setUsername(usernames.getOrDefault(order.getUserId(), UNKNOWN_USER));
+            }
+            result.add(orderVO);
+        }
+        return result;
+    }
+
+    private Map<Long, String> selectUsernames(Set<Long> userIds) {
+        LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(User::getId, User::getUsername).in(User::getId, userIds);
+        List<User> users = userMapper.selectList(queryWrapper);
+
+        Map<Long, String> usernames = new HashMap<>(users.size() * 2);
+        for (User user : users) {
+            usernames.put(user.getId(), user.getUsername());
+        }
+        return usernames;
+    }
+
+    private static OrderVO toOrderVO(Order order) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setId(order.getId().intValue());
+        orderVO.setOrderNo(order.getOrderNo());
+        orderVO.setStatus(order.getStatus().toString());
+        orderVO.setTotalAmount(order.getTotalAmount());
+        orderVO.setCreateTime(order.getCreatedTime());
+        orderVO.setUpdateTime(order.getUpdatedTime());
+        orderVO.setUserId(order.getUserId());
+        orderVO.setPhone(order.getPhone());
+        orderVO.setLocation(order.getLocation());
+        if (order.getPaymentMethod() != null) {
+            orderVO.setPaymentMethod(order.getPaymentMethod().toString());
+        }
+        return orderVO;
+    }
+
+    private static OrderVO.OrderProductVO toProductVO(OrderPageItemDTO item) {
+        OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
+        productVO.setId(item.getProductId().intValue());
+        productVO.setName(item.getProductName());
+        productVO.setImage(item.getProductImage());
+        productVO.setPrice(item.getPrice());
+        productVO.setQuantity(item.getQuantity());
+        // deleted=1 表示该商品已单独退款
+        productVO.setRefunded(item.getDeleted() != null && item.getDeleted() == 1);
+        productVO.setReviewed(Boolean.TRUE.equals(item.getReviewed()));
+        return productVO;
+    }
+}
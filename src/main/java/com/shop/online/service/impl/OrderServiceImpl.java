@@ -1,56 +1,60 @@
 package com.shop.online.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.common.enums.SalesPeriod;
+import com.shop.online.common.enums.SalesWindow;
 import com.shop.online.common.result.PageResult;
 import com.shop.online.dto.CreateOrderDTO;
 import com.shop.online.dto.OrderItemDTO;
 import com.shop.online.dto.OrderQueryDTO;
+import com.shop.online.dto.SalesPeriodDTO;
+import com.shop.online.dto.StockChangeDTO;
 import com.shop.online.entity.Cart;
+import com.shop.online.entity.Category;
 import com.shop.online.entity.Order;
 import com.shop.online.entity.Product;
-import com.shop.online.entity.User;
 import com.shop.online.exception.BusinessException;
+import com.shop.online.exception.StockShortageException;
 import com.shop.online.mapper.CartMapper;
+import com.shop.online.mapper.OrderArchiveMapper;
 import com.shop.online.mapper.OrderItemMapper;
 import com.shop.online.mapper.OrderMapper;
 import com.shop.online.mapper.ProductMapper;
-import com.shop.online.mapper.ProductReviewMapper;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.service.InventoryService;
 import com.shop.online.service.OrderService;
 import com.shop.online.service.UserService;
+import com.shop.online.util.HyperLogLog;
+import com.shop.online.util.MoneyBuckets;
+import com.shop.online.util.OrderNoGenerator;
+import com.shop.online.util.TransactionHooks;
 import com.shop.online.vo.OrderVO;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.Set;
 
 /**
  * 订单服务实现类
@@ -59,6 +63,12 @@ import java.util.Set;
 @Slf4j
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements OrderService {
 
+    /**
+     * 订单存在单独退款的明细，走 order_item(order_id, deleted) 索引的半连接
+     */
+    private static final String REFUNDED_ITEM_EXISTS =
+            "SELECT 1 FROM order_item oi WHERE oi.order_id = `order`.id AND oi.deleted = 1";
+
     @Autowired
     private CartMapper cartMapper;
 
@@ -72,7 +82,55 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     private UserService userService;
     
     @Autowired
-    private ProductReviewMapper productReviewMapper;
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private OrderNoGenerator orderNoGenerator;
+    
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    
+    @Autowired
+    private OrderExpirationScheduler orderExpirationScheduler;
+    
+    @Autowired
+    private GroupCommitExecutor groupCommitExecutor;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private SalesCounter salesCounter;
+    
+    @Autowired
+    private OrderDetailCache orderDetailCache;
+    
+    @Autowired
+    private OrderPageAssembler orderPageAssembler;
+    
+    @Autowired
+    private FinancialReportExporter financialReportExporter;
+    
+    @Autowired
+    private OrderArchiver orderArchiver;
+    
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+    
+    @Autowired
+    private SellerOrderCounter sellerOrderCounter;
+    
+    @Autowired
+    private SalesRollup salesRollup;
+    
+    @Autowired
+    private SalesRollupMapper salesRollupMapper;
+
+    @Autowired
+    private BestSellerTracker bestSellerTracker;
+    
+    @Autowired
+    private SalesAnalyticsCache salesAnalyticsCache;
 
     /**
      * 获取订单列表
@@ -116,123 +174,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
                 queryWrapper.eq(Order::getDeleted, 0);
             }
             
-            // 按创建时间倒序
-            queryWrapper.orderByDesc(Order::getCreatedTime);
-            
-            // 分页查询
-            Page<Order> page = new Page<>(queryDTO.getPage(), queryDTO.getSize());
-            Page<Order> orderPage = baseMapper.selectPage(page, queryWrapper);
-            
-            if (CollectionUtils.isEmpty(orderPage.getRecords())) {
-                log.info("查询结果为空，返回空列表");
-                // 确保返回正确的格式
-                PageResult<OrderVO> emptyResult = PageResult.of(orderPage.getTotal(), new ArrayList<>());
-                return emptyResult;
-            }
-            
-            // 查询订单项
-            List<Long> orderIds = orderPage.getRecords().stream()
-                    .map(Order::getId)
-                    .collect(Collectors.toList());
-            
-            // 查询订单对应的订单项 - 未删除的订单项
-            List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderIds(orderIds);
-            
-            // 额外查询已退款的订单项（已删除的订单项）
-            List<OrderItemDTO> refundedItems = orderItemMapper.selectRefundedByOrderIds(orderIds);
-            log.info("查询到已退款订单项数量: {}", refundedItems.size());
-            
-            // 将所有订单项合并，包括正常的和已退款的
-            List<OrderItemDTO> allItems = new ArrayList<>(orderItems);
-            allItems.addAll(refundedItems);
-            
-            // 按订单ID分组
-            Map<Long, List<OrderItemDTO>> orderItemMap = allItems.stream()
-                    .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
-            
-            // 转换VO
-            List<OrderVO> orderVOList = orderPage.getRecords().stream().map(order -> {
-                OrderVO orderVO = new OrderVO();
-                
-                // 不要使用BeanUtils复制，因为字段名不一致，直接设置
-                orderVO.setId(order.getId().intValue());
-                orderVO.setOrderNo(order.getOrderNo());
-                orderVO.setStatus(order.getStatus().toString());
-                orderVO.setTotalAmount(order.getTotalAmount());
-                
-                // 设置手机号和地址
-                orderVO.setPhone(order.getPhone());
-                orderVO.setLocation(order.getLocation());
-                
-                // 设置订单创建时间
-                if (order.getCreatedTime() != null) {
-                    orderVO.setCreateTime(order.getCreatedTime());
-                } else {
-                    LocalDateTime now = LocalDateTime.now();
-                    orderVO.setCreateTime(now);
-                    log.warn("订单 {} 创建时间为null，设置为当前时间: {}", order.getOrderNo(), now);
-                }
-                
-                if (order.getUpdatedTime() != null) {
-                    orderVO.setUpdateTime(order.getUpdatedTime());
-                } else {
-                    orderVO.setUpdateTime(LocalDateTime.now());
-                }
-                
-                // 设置支付方式
-                if (order.getPaymentMethod() != null) {
-                    orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-                }
-                
-                // 封装订单商品
-                List<OrderItemDTO> items = orderItemMap.getOrDefault(order.getId(), new ArrayList<>());
-                
-                List<OrderVO.OrderProductVO> productVOList = items.stream().map(item -> {
-                    OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-                    productVO.setId(item.getProductId().intValue());
-                    productVO.setName(item.getProductName());
-                    productVO.setImage(item.getProductImage());
-                    productVO.setPrice(item.getPrice());
-                    productVO.setQuantity(item.getQuantity());
-                    
-                    // 设置默认为未评价和未退款
-                    productVO.setReviewed(false);
-                    productVO.setRefunded(false);
-                    
-                    // 设置退款状态 - 如果订单项的deleted=1，则表示已退款
-                    if (item.getDeleted() != null && item.getDeleted() == 1) {
-                        productVO.setRefunded(true);
-                        log.debug("订单商品已退款: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                    }
-                    
-                    // 检查订单状态是否为已完成(3)，只有已完成的订单才需要检查评价状态
-                    if (order.getStatus() == 3) {
-                        try {
-                            // 检查该用户是否已对该商品进行评价
-                            Integer reviewCount = productReviewMapper.hasReviewed(
-                                userId, order.getOrderNo(), item.getProductId());
-                            // 如果reviewCount大于0，表示已评价
-                            boolean isReviewed = reviewCount != null && reviewCount > 0;
-                            productVO.setReviewed(isReviewed);
-                            
-                            if (isReviewed) {
-                                log.debug("订单商品已评价: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                            }
-                        } catch (Exception e) {
-                            log.error("检查商品评价状态失败: orderNo={}, productId={}", order.getOrderNo(), item.getProductId(), e);
-                        }
-                    }
-                    
-                    return productVO;
-                }).collect(Collectors.toList());
-                
-                orderVO.setProducts(productVOList);
-                
-                return orderVO;
-            }).collect(Collectors.toList());
+            // 按日期范围筛选，范围早于归档保留期时合并查询归档表
+            LocalDateTime startDateTime = applyDateRange(queryWrapper, queryDTO.getStartDate(), queryDTO.getEndDate());
             
-            PageResult<OrderVO> result = PageResult.of(orderPage.getTotal(), orderVOList);
-            return result;
+            // 按创建时间倒序分页
+            return orderPageAssembler.loadPage(baseMapper, queryWrapper, queryDTO.getPage(), queryDTO.getSize(),
+                    null, true, false, orderArchiver.needsArchive(startDateTime));
         } catch (Exception e) {
             log.error("获取订单列表时发生异常", e);
             throw e;
@@ -241,17 +188,27 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
 
     /**
      * 创建订单
+     * 开启组提交时，与其他并发下单请求合并到同一个事务中提交
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public OrderVO createOrder(CreateOrderDTO createOrderDTO) {
+        // 获取当前用户（批处理线程中没有登录信息，必须在这里取）
+        Long userId = userService.getCurrentUser().getId();
+//        log.info("当前用户ID: {}", userId);
+        
+        if (groupCommitExecutor.isEnabled()) {
+            return groupCommitExecutor.execute(() -> doCreateOrder(userId, createOrderDTO));
+        }
+        return transactionTemplate.execute(status -> doCreateOrder(userId, createOrderDTO));
+    }
+
+    /**
+     * 在当前事务中创建订单
+     */
+    private OrderVO doCreateOrder(Long userId, CreateOrderDTO createOrderDTO) {
 //        log.info("开始创建订单: {}", createOrderDTO);
         
         try {
-            // 获取当前用户
-            Long userId = userService.getCurrentUser().getId();
-//            log.info("当前用户ID: {}", userId);
-            
             // 验证必填字段
             if (createOrderDTO.getPhone() == null || createOrderDTO.getPhone().trim().isEmpty()) {
                 throw new BusinessException("收货人手机号不能为空");
@@ -408,8 +365,13 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             baseMapper.insert(order);
 //            log.info("订单已保存, ID: {}", order.getId());
             
+            // 提交后登记支付截止时间，超时未付款自动取消
+            LocalDateTime createdTime = order.getCreatedTime();
+            TransactionHooks.afterCommit(() -> orderExpirationScheduler.register(orderNo, createdTime));
+            
             // 创建订单项
             List<OrderItemDTO> orderItems = new ArrayList<>();
+            List<StockChangeDTO> stockChanges = new ArrayList<>();
             for (Cart cartItem : cartItems) {
                 Product product = productMap.get(cartItem.getProductId());
                 
@@ -417,13 +379,23 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
                 orderItem.setOrderId(order.getId());
                 
                 orderItems.add(orderItem);
-                
-                // 扣减库存
-                product.setStock(product.getStock() - cartItem.getQuantity());
-                productMapper.updateById(product);
-//                log.debug("商品库存已更新, 商品: {}, 新库存: {}", product.getName(), product.getStock());
+                stockChanges.add(new StockChangeDTO(product.getId(), cartItem.getQuantity()));
             }
             
+            // 扣减库存：一条带库存条件的UPDATE，上面的检查只是快速失败，这里才是并发安全的判断
+            try {
+                inventoryService.reserve(stockChanges);
+            } catch (StockShortageException e) {
+                String productNames = e.getProductIds().stream()
+                        .map(productMap::get)
+                        .map(product -> product != null ? product.getName() : "商品")
+                        .collect(Collectors.joining("、"));
+                throw new StockShortageException(productNames + "库存不足", e.getProductIds());
+            }
+            
+            // 卖家待付款订单数+1，提交前写入；预占库存成功后才登记
+            sellerOrderCounter.recordCreated(sellerId);
+            
 //            log.info("保存订单项, 数量: {}", orderItems.size());
             orderItemMapper.insertBatch(orderItems);
             
@@ -515,53 +487,11 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             Long userId = currentUser.getId();
 //            log.info("当前用户ID: {}", userId);
             
-            // 查询订单
-//            log.info("查询订单信息，订单号: {}, 用户ID: {}", cleanOrderNo, userId);
-            LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(Order::getOrderNo, cleanOrderNo);
-            queryWrapper.eq(Order::getUserId, userId);
-            queryWrapper.eq(Order::getDeleted, 0); // 只查询未删除订单
-            Order order = baseMapper.selectOne(queryWrapper);
-            
-            // 如果找不到订单，尝试只用订单号再查询一次（可能是因为userId不匹配）
-            if (order == null) {
-                log.warn("未找到订单（基于用户ID查询），尝试仅使用订单号查询，订单号: {}", cleanOrderNo);
-                LambdaQueryWrapper<Order> orderNoQuery = new LambdaQueryWrapper<>();
-                orderNoQuery.eq(Order::getOrderNo, cleanOrderNo);
-                orderNoQuery.eq(Order::getDeleted, 0);
-                order = baseMapper.selectOne(orderNoQuery);
-                
-                if (order != null) {
-                    log.warn("找到订单，但不属于当前用户，订单用户ID: {}, 当前用户ID: {}", order.getUserId(), userId);
-                    throw new BusinessException("订单不存在或不属于当前用户");
-                }
-            }
-            
-            if (order == null) {
-                log.error("订单不存在，订单号: {}", cleanOrderNo);
-                throw new BusinessException("订单不存在，请重新提交订单");
-            }
-            
-            log.info("找到订单: ID={}, 订单号={}, 状态={}", order.getId(), order.getOrderNo(), order.getStatus());
-            
-            if (order.getStatus() != 0) {
-                log.error("订单状态不正确，当前状态: {}, 需要状态: 0", order.getStatus());
-                throw new BusinessException("订单状态不正确，只能支付待付款订单");
-            }
-            
-            // 更新订单状态
-            order.setStatus(1); // 待发货
-            order.setUpdatedTime(LocalDateTime.now());
-            
-            // 设置支付方式（如果提供）
+            // 待付款(0) -> 待发货(1)，一条带状态条件的UPDATE，重复支付只有一次成功
+            orderStateMachine.transitOrThrow(OrderTransition.PAY, cleanOrderNo, userId, null, paymentMethod);
             if (paymentMethod != null) {
-                order.setPaymentMethod(paymentMethod);
                 log.info("设置订单支付方式: {}", paymentMethod);
             }
-            
-//            log.info("更新订单状态: 待付款(0) -> 待发货(1)");
-            baseMapper.updateById(order);
-//            log.info("订单支付成功，订单号: {}", cleanOrderNo);
         } catch (BusinessException e) {
             log.error("支付订单业务异常: {}", e.getMessage());
             throw e;
@@ -580,42 +510,11 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         // 获取当前用户
         Long userId = userService.getCurrentUser().getId();
         
-        // 查询订单
-        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Order::getOrderNo, orderNo);
-        queryWrapper.eq(Order::getUserId, userId);
-        queryWrapper.eq(Order::getDeleted, 0); // 只查询未删除订单
-        Order order = baseMapper.selectOne(queryWrapper);
-        
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-        
-        // 修改：允许取消待付款(0)和待发货(1)的订单
-        if (order.getStatus() != 0 && order.getStatus() != 1) {
-            throw new BusinessException("只能取消待付款或待发货的订单");
-        }
-        
-        // 使用 LambdaUpdateWrapper 直接更新订单的状态
-        LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
-        updateWrapper.eq(Order::getId, order.getId())
-                .set(Order::getStatus, 4) // 已取消
-                .set(Order::getUpdatedTime, LocalDateTime.now());
-        
-        boolean updated = update(updateWrapper);
-        log.info("订单状态更新为已取消: orderId={}, updated={}", order.getId(), updated);
-        
-        // 查询订单项
-        List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderId(order.getId());
+        // 允许取消待付款(0)和待发货(1)的订单，只有流转成功的请求才恢复库存
+        orderStateMachine.transitOrThrow(OrderTransition.CANCEL, orderNo, userId, null);
         
         // 恢复库存
-        for (OrderItemDTO orderItem : orderItems) {
-            Product product = productMapper.selectById(orderItem.getProductId());
-            if (product != null) {
-                product.setStock(product.getStock() + orderItem.getQuantity());
-                productMapper.updateById(product);
-            }
-        }
+        inventoryService.restoreByOrderIds(Collections.singletonList(getOrderId(orderNo)));
         
         log.info("订单已取消: {}", orderNo);
     }
@@ -629,42 +528,16 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         // 获取当前用户
         Long userId = userService.getCurrentUser().getId();
         
-        // 查询订单
-        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Order::getOrderNo, orderNo);
-        queryWrapper.eq(Order::getUserId, userId);
-        queryWrapper.eq(Order::getDeleted, 0); // 只查询未删除订单
-        Order order = baseMapper.selectOne(queryWrapper);
-        
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-        
-        // 只允许已完成(3)的订单申请退款
-        if (order.getStatus() != 3) {
-            throw new BusinessException("只能对已完成的订单申请退款");
-        }
-        
-        // 更新订单状态为已退款(5)
-        LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
-        updateWrapper.eq(Order::getId, order.getId())
-                .set(Order::getStatus, 5) // 已退款
-                .set(Order::getUpdatedTime, LocalDateTime.now());
-        
-        boolean updated = update(updateWrapper);
-        log.info("订单退款状态已更新: {}, 更新结果: {}", orderNo, updated);
-        
-        // 查询订单项
-        List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderId(order.getId());
+        // 只允许已完成(3)的订单申请退款，更新为已退款(5)
+        orderStateMachine.transitOrThrow(OrderTransition.REFUND, orderNo, userId, null);
         
         // 恢复库存
-        for (OrderItemDTO orderItem : orderItems) {
-            Product product = productMapper.selectById(orderItem.getProductId());
-            if (product != null) {
-                product.setStock(product.getStock() + orderItem.getQuantity());
-                productMapper.updateById(product);
-            }
-        }
+        List<Long> orderIds = Collections.singletonList(getOrderId(orderNo));
+        inventoryService.restoreByOrderIds(orderIds);
+        
+        // 扣减销量（已单独退款的明细之前已扣减）
+        List<StockChangeDTO> soldItems = productMapper.sumOrderQuantities(orderIds, null);
+        TransactionHooks.afterCommit(() -> salesCounter.subtract(soldItems));
         
         log.info("订单退款成功: {}", orderNo);
     }
@@ -678,27 +551,13 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         // 获取当前用户
         Long userId = userService.getCurrentUser().getId();
         
-        // 查询订单
-        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Order::getOrderNo, orderNo);
-        queryWrapper.eq(Order::getUserId, userId);
-        queryWrapper.eq(Order::getDeleted, 0); // 只查询未删除订单
-        Order order = baseMapper.selectOne(queryWrapper);
+        // 待收货(2) -> 已完成(3)
+        orderStateMachine.transitOrThrow(OrderTransition.CONFIRM, orderNo, userId, null);
         
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-        
-        // 修改判断条件，应该是待收货(状态2)的订单才能确认收货
-        if (order.getStatus() != 2) {
-            throw new BusinessException("只能确认待收货订单");
-        }
-        
-        // 更新订单状态
-        order.setStatus(3); // 已完成
-        order.setUpdatedTime(LocalDateTime.now());
-        
-        baseMapper.updateById(order);
+        // 订单完成后计入销量
+        List<StockChangeDTO> soldItems = productMapper.sumOrderQuantities(
+                Collections.singletonList(getOrderId(orderNo)), null);
+        TransactionHooks.afterCommit(() -> salesCounter.add(soldItems));
         
 //        log.info("订单确认收货成功: {}", orderNo);
     }
@@ -711,6 +570,13 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         // 获取当前用户
         Long userId = userService.getCurrentUser().getId();
         
+        OrderVO cached = orderDetailCache.get(orderNo, userId);
+        if (cached != null) {
+            return cached;
+        }
+        // 查询之前取版本号，查询期间订单被修改时不放入缓存
+        long version = orderDetailCache.version(orderNo);
+        
         // 查询订单
         LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Order::getOrderNo, orderNo);
@@ -719,77 +585,24 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         Order order = baseMapper.selectOne(queryWrapper);
         
         if (order == null) {
-            throw new BusinessException("订单不存在");
+            // 热表中没有时再查归档表
+            order = orderArchiveMapper.selectByOrderNo(orderNo);
+            if (order != null && (!userId.equals(order.getUserId()) || order.getDeleted() != 0)) {
+                order = null;
+            }
         }
         
-        // 查询未退款的订单项
-        List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderId(order.getId());
-        
-        // 额外查询已退款的订单项（deleted=1）
-        List<OrderItemDTO> refundedItems = orderItemMapper.selectRefundedByOrderId(order.getId());
-        log.info("查询到已退款订单项数量: {}", refundedItems.size());
-        
-        // 将所有订单项合并，包括正常的和已退款的
-        List<OrderItemDTO> allItems = new ArrayList<>(orderItems);
-        allItems.addAll(refundedItems);
-        
-        // 转换VO
-        OrderVO orderVO = new OrderVO();
-        BeanUtils.copyProperties(order, orderVO);
-        orderVO.setStatus(order.getStatus().toString());
+        if (order == null) {
+            throw new BusinessException("订单不存在");
+        }
         
-        // 设置支付方式
-        if (order.getPaymentMethod() != null) {
-            orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-        } else {
+        // 组装订单项（含已退款）及评价状态
+        OrderVO orderVO = orderPageAssembler.assemble(Collections.singletonList(order), false).get(0);
+        if (orderVO.getPaymentMethod() == null) {
             orderVO.setPaymentMethod("0");
         }
         
-        // 设置手机号和地址
-        orderVO.setPhone(order.getPhone());
-        orderVO.setLocation(order.getLocation());
-        
-        List<OrderVO.OrderProductVO> productVOList = allItems.stream().map(item -> {
-            OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-            productVO.setId(item.getProductId().intValue());
-            productVO.setName(item.getProductName());
-            productVO.setImage(item.getProductImage());
-            productVO.setPrice(item.getPrice());
-            productVO.setQuantity(item.getQuantity());
-            
-            // 设置默认为未评价和未退款
-            productVO.setReviewed(false);
-            productVO.setRefunded(false);
-            
-            // 设置退款状态 - 如果订单项的deleted=1，则表示已退款
-            if (item.getDeleted() != null && item.getDeleted() == 1) {
-                productVO.setRefunded(true);
-                log.debug("订单商品已退款: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-            }
-            
-            // 检查订单状态是否为已完成(3)，只有已完成的订单才需要检查评价状态
-            if (order.getStatus() == 3) {
-                try {
-                    // 检查该用户是否已对该商品进行评价
-                    Integer reviewCount = productReviewMapper.hasReviewed(
-                        userId, order.getOrderNo(), item.getProductId());
-                    // 如果reviewCount大于0，表示已评价
-                    boolean isReviewed = reviewCount != null && reviewCount > 0;
-                    productVO.setReviewed(isReviewed);
-                    
-                    if (isReviewed) {
-                        log.debug("订单商品已评价: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                    }
-                } catch (Exception e) {
-                    log.error("检查商品评价状态失败: orderNo={}, productId={}", order.getOrderNo(), item.getProductId(), e);
-                }
-            }
-            
-            return productVO;
-        }).collect(Collectors.toList());
-        
-        orderVO.setProducts(productVOList);
-        
+        orderDetailCache.put(orderNo, userId, orderVO, version);
         return orderVO;
     }
 
@@ -797,15 +610,17 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
      * 生成订单号
      */
     private String generateOrderNo() {
-        // 生成订单号规则：年月日时分秒+4位随机数
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-        String dateTime = LocalDateTime.now().format(formatter);
-        
-        // 4位随机数
-        Random random = new Random();
-        int randomNum = random.nextInt(9000) + 1000;
-        
-        return dateTime + randomNum;
+        // 生成订单号规则：年月日时分秒+节点号+秒内序号，见OrderNoGenerator
+        return orderNoGenerator.nextOrderNo();
+    }
+    
+    /**
+     * 根据订单号查询订单ID
+     */
+    private Long getOrderId(String orderNo) {
+        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Order::getId).eq(Order::getOrderNo, orderNo);
+        return baseMapper.selectOne(queryWrapper).getId();
     }
     
     /**
@@ -819,13 +634,15 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             Integer page = Integer.parseInt(params.getOrDefault("page", 1).toString());
             Integer size = Integer.parseInt(params.getOrDefault("size", 10).toString());
             String status = (String) params.get("status");
+            String cursor = (String) params.get("cursor");
+            boolean withTotal = !Boolean.FALSE.equals(params.get("withTotal"));
             
             // 获取日期范围参数
             String startDateStr = (String) params.get("startDate");
             String endDateStr = (String) params.get("endDate");
             
-            log.info("查询参数: sellerId={}, page={}, size={}, status={}, startDate={}, endDate={}", 
-                    sellerId, page, size, status, startDateStr, endDateStr);
+            log.info("查询参数: sellerId={}, page={}, size={}, status={}, startDate={}, endDate={}, cursor={}", 
+                    sellerId, page, size, status, startDateStr, endDateStr, cursor);
             
             // 构建查询条件
             LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
@@ -847,141 +664,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
                 queryWrapper.eq(Order::getDeleted, 0);
             }
             
-            // 按日期范围筛选
-            if (StringUtils.hasText(startDateStr)) {
-                LocalDateTime startDateTime = LocalDateTime.parse(startDateStr + "T00:00:00");
-                queryWrapper.ge(Order::getCreatedTime, startDateTime);
-            }
-            
-            if (StringUtils.hasText(endDateStr)) {
-                LocalDateTime endDateTime = LocalDateTime.parse(endDateStr + "T23:59:59");
-                queryWrapper.le(Order::getCreatedTime, endDateTime);
-            }
-            
-            // 按订单创建时间降序排序
-            queryWrapper.orderByDesc(Order::getCreatedTime);
-            
-            // 分页查询
-            Page<Order> page1 = new Page<>(page, size);
-            Page<Order> orderPage = baseMapper.selectPage(page1, queryWrapper);
-            
-            if (orderPage.getRecords().isEmpty()) {
-                log.info("没有查询到订单记录");
-                return PageResult.of(0, new ArrayList<>());
-            }
-            
-            // 获取订单ID列表
-            List<Long> orderIds = orderPage.getRecords().stream()
-                    .map(Order::getId)
-                    .collect(Collectors.toList());
-            
-            // 查询订单项 - 包括正常的和已退款的（deleted=0和deleted=1）
-            List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderIds(orderIds);
-            
-            // 额外查询已退款的订单项（已删除的订单项）
-            List<OrderItemDTO> refundedItems = orderItemMapper.selectRefundedByOrderIds(orderIds);
-            log.info("查询到已退款订单项数量: {}", refundedItems.size());
-            
-            // 将所有订单项合并，包括正常的和已退款的
-            List<OrderItemDTO> allItems = new ArrayList<>(orderItems);
-            allItems.addAll(refundedItems);
-            
-            // 按订单ID分组
-            Map<Long, List<OrderItemDTO>> orderItemMap = allItems.stream()
-                    .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
-            
-            // 获取所有用户ID
-            List<Long> userIds = orderPage.getRecords().stream()
-                    .map(Order::getUserId)
-                    .distinct()
-                    .collect(Collectors.toList());
-            
-            // 批量查询用户信息
-            final Map<Long, String> userMap = new HashMap<>();
-            if (!userIds.isEmpty()) {
-                // 执行用户信息查询，这里简化处理
-                List<User> users = userService.list(new LambdaQueryWrapper<User>().in(User::getId, userIds));
-                userIds.forEach(userId -> {
-                    User user = users.stream()
-                            .filter(u -> u.getId().equals(userId))
-                            .findFirst()
-                            .orElse(null);
-                    userMap.put(userId, user != null ? user.getUsername() : "未知用户");
-                });
-            }
+            // 按日期范围筛选，范围早于归档保留期时合并查询归档表
+            LocalDateTime startDateTime = applyDateRange(queryWrapper, startDateStr, endDateStr);
             
-            // 转换为VO
-            List<OrderVO> orderVOList = orderPage.getRecords().stream().map(order -> {
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(order, orderVO);
-                
-                // 设置订单状态为字符串
-                orderVO.setStatus(order.getStatus().toString());
-                
-                // 设置订单创建时间
-                if (order.getCreatedTime() != null) {
-                    orderVO.setCreateTime(order.getCreatedTime());
-                }
-                
-                // 设置用户名
-                String username = userMap.getOrDefault(order.getUserId(), "未知用户");
-                orderVO.setUsername(username);
-                
-                // 设置支付方式
-                if (order.getPaymentMethod() != null) {
-                    orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-                }
-                
-                // 获取订单项
-                List<OrderItemDTO> items = orderItemMap.getOrDefault(order.getId(), new ArrayList<>());
-                
-                List<OrderVO.OrderProductVO> productVOList = items.stream().map(item -> {
-                    OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-                    productVO.setId(item.getProductId().intValue());
-                    productVO.setName(item.getProductName());
-                    productVO.setImage(item.getProductImage());
-                    productVO.setPrice(item.getPrice());
-                    productVO.setQuantity(item.getQuantity());
-                    
-                    // 设置默认为未评价和未退款
-                    productVO.setReviewed(false);
-                    productVO.setRefunded(false);
-                    
-                    // 设置退款状态 - 如果订单项的deleted=1，则表示已退款
-                    if (item.getDeleted() != null && item.getDeleted() == 1) {
-                        productVO.setRefunded(true);
-                        log.debug("订单商品已退款: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                    }
-                    
-                    // 检查订单状态是否为已完成(3)，只有已完成的订单才需要检查评价状态
-                    if (order.getStatus() == 3) {
-                        try {
-                            // 检查该用户是否已对该商品进行评价
-                            Integer reviewCount = productReviewMapper.hasReviewed(
-                                order.getUserId(), order.getOrderNo(), item.getProductId());
-                            // 如果reviewCount大于0，表示已评价
-                            boolean isReviewed = reviewCount != null && reviewCount > 0;
-                            productVO.setReviewed(isReviewed);
-                            
-                            if (isReviewed) {
-                                log.debug("订单商品已评价: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                            }
-                        } catch (Exception e) {
-                            log.error("检查商品评价状态失败: orderNo={}, productId={}", order.getOrderNo(), item.getProductId(), e);
-                        }
-                    }
-                    
-                    return productVO;
-                }).collect(Collectors.toList());
-                
-                orderVO.setProducts(productVOList);
-                
-                return orderVO;
-            }).collect(Collectors.toList());
-            
-            // 返回订单列表
-            PageResult<OrderVO> result = PageResult.of(orderPage.getTotal(), orderVOList);
-            return result;
+            // 按订单创建时间降序分页，传入cursor时使用游标分页
+            return orderPageAssembler.loadPage(baseMapper, queryWrapper, page, size, cursor, withTotal, true,
+                    orderArchiver.needsArchive(startDateTime));
             
         } catch (Exception e) {
             log.error("获取卖家订单列表时发生异常", e);
@@ -989,6 +677,24 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         }
     }
     
+    /**
+     * 按日期范围（yyyy-MM-dd，含首尾两天）筛选订单创建时间
+     * @return 开始时间，未指定时返回null
+     */
+    private LocalDateTime applyDateRange(LambdaQueryWrapper<Order> queryWrapper, String startDate, String endDate) {
+        LocalDateTime startDateTime = null;
+        if (StringUtils.hasText(startDate)) {
+            startDateTime = LocalDateTime.parse(startDate + "T00:00:00");
+            queryWrapper.ge(Order::getCreatedTime, startDateTime);
+        }
+        
+        if (StringUtils.hasText(endDate)) {
+            LocalDateTime endDateTime = LocalDateTime.parse(endDate + "T23:59:59");
+            queryWrapper.le(Order::getCreatedTime, endDateTime);
+        }
+        return startDateTime;
+    }
+    
     /**
      * 卖家发货
      */
@@ -997,66 +703,50 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     public boolean shipOrder(String orderNo, Long sellerId) {
         log.info("卖家发货: orderNo={}, sellerId={}", orderNo, sellerId);
         
-        // 查询订单
-        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Order::getOrderNo, orderNo);
-        queryWrapper.eq(Order::getSellerId, sellerId);
-        queryWrapper.eq(Order::getDeleted, 0);  // 未删除
-        Order order = baseMapper.selectOne(queryWrapper);
-        
-        if (order == null) {
-            log.error("订单不存在: {}", orderNo);
-            throw new BusinessException("订单不存在");
-        }
-        
-        if (order.getStatus() != 1) {  // 1-待发货
-            log.error("订单状态不正确, 当前状态: {}", order.getStatus());
-            throw new BusinessException("只能发货待发货状态的订单");
-        }
-        
-        // 更新订单状态
-        order.setStatus(2);  // 2-已发货
-        order.setUpdatedTime(LocalDateTime.now());
-        
-        int updated = baseMapper.updateById(order);
+        // 待发货(1) -> 已发货(2)
+        orderStateMachine.transitOrThrow(OrderTransition.SHIP, orderNo, null, sellerId);
         log.info("订单状态已更新为已发货: {}", orderNo);
         
-        return updated > 0;
+        return true;
     }
     
     /**
-     * 统计卖家指定状态的订单数量
+     * 卖家批量发货
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int batchShipOrders(List<String> orderNos, Long sellerId) {
+        log.info("卖家批量发货: sellerId={}, 订单数={}", sellerId, orderNos == null ? 0 : orderNos.size());
+        return orderStateMachine.transitBatch(OrderTransition.SHIP, orderNos, sellerId);
+    }
+    
+    /**
+     * 统计卖家指定状态的订单数量（读取卖家订单计数，含已归档订单）
      */
     @Override
     public int countSellerOrdersByStatus(Long sellerId, Integer status) {
-        log.info("统计卖家订单数量: sellerId={}, status={}", sellerId, status);
-        
-        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Order::getSellerId, sellerId);
-        queryWrapper.eq(Order::getStatus, status);
-        queryWrapper.eq(Order::getDeleted, 0);  // 未删除
-        
-        long count = baseMapper.selectCount(queryWrapper);
-        log.info("卖家订单数量统计结果: {}", count);
-        
-        return Math.toIntExact(count);
+        int count = sellerOrderCounter.getCounts(sellerId).getOrDefault(status, 0);
+        log.info("卖家订单数量: sellerId={}, status={}, count={}", sellerId, status, count);
+        return count;
     }
     
     /**
-     * 统计卖家订单总数
+     * 统计卖家订单总数（读取卖家订单计数，含已归档订单）
      */
     @Override
     public int countSellerOrders(Long sellerId) {
-        log.info("统计卖家订单总数: sellerId={}", sellerId);
-        
-        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Order::getSellerId, sellerId)
-                   .eq(Order::getDeleted, 0);
-        return Math.toIntExact(count(queryWrapper));
+        int count = 0;
+        for (Integer statusCount : sellerOrderCounter.getCounts(sellerId).values()) {
+            count += statusCount;
+        }
+        log.info("卖家订单总数: sellerId={}, count={}", sellerId, count);
+        return count;
     }
     
     /**
      * 获取销售数据分析
+     * 只读取销售日汇总，按下单日期统计已完成订单，金额不含单独退款的商品；
+     * 日期范围按自然月分段，各段的合计由 SalesAnalyticsCache 缓存，这里按周期、类别、商品合并
      */
     @Override
     public Map<String, Object> getSalesAnalytics(Map<String, Object> params) {
@@ -1073,87 +763,97 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
                 throw new BusinessException("卖家ID不能为空");
             }
             
-            // 设置默认值
-            if (!StringUtils.hasText(period)) {
-                period = "day";
-            }
+            // 解析日期，默认为近30天
+            LocalDate start = StringUtils.hasText(startDate) ? LocalDate.parse(startDate) : LocalDate.now().minusDays(30);
+            LocalDate end = StringUtils.hasText(endDate) ? LocalDate.parse(endDate) : LocalDate.now();
             
-            LocalDateTime startDateTime = null;
-            LocalDateTime endDateTime = null;
+            // 按自然月分段读取（已结束的段来自缓存），再合并各段
+            List<SalesAnalyticsCache.Bucket> buckets = salesAnalyticsCache.getBuckets(sellerId, start, end);
             
-            // 解析日期
-            if (StringUtils.hasText(startDate)) {
-                startDateTime = LocalDateTime.parse(startDate + "T00:00:00");
-            } else {
-                // 默认为近30天
-                startDateTime = LocalDateTime.now().minusDays(30);
+            // 每天的合计按周期序号累加，金额按分累加，输出 BigDecimal，不经过 double
+            SalesPeriod salesPeriod = SalesPeriod.of(period);
+            MoneyBuckets periodSales = new MoneyBuckets(end.isBefore(start) ? 0 : salesPeriod.index(start, end) + 1);
+            for (SalesAnalyticsCache.Bucket bucket : buckets) {
+                for (SalesPeriodDTO day : bucket.getDays()) {
+                    periodSales.add(salesPeriod.index(start, day.getPeriodStart()), day.getAmount(), day.getOrderCount());
+                }
             }
-            
-            if (StringUtils.hasText(endDate)) {
-                endDateTime = LocalDateTime.parse(endDate + "T23:59:59");
-            } else {
-                endDateTime = LocalDateTime.now();
+            MoneyBuckets total = new MoneyBuckets(1);
+            List<Map<String, Object>> salesByTime = new ArrayList<>();
+            for (int i = 0; i < periodSales.size(); i++) {
+                if (periodSales.getCount(i) == 0) {
+                    continue;
+                }
+                total.add(0, periodSales.getCents(i), periodSales.getCount(i));
+                
+                Map<String, Object> timeData = new HashMap<>();
+                timeData.put("period", salesPeriod.label(periodStart(salesPeriod, start, i)));
+                timeData.put("amount", periodSales.getAmount(i));
+                timeData.put("orderCount", periodSales.getCount(i));
+                salesByTime.add(timeData);
             }
-            
-            // 查询订单数据
-            LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(Order::getSellerId, sellerId)
-                       .eq(Order::getDeleted, 0)
-                       .ge(Order::getCreatedTime, startDateTime)
-                       .le(Order::getCreatedTime, endDateTime)
-                       .eq(Order::getStatus, 3) // 只包含已完成的订单
-                       .orderByAsc(Order::getCreatedTime);
-            
-            List<Order> orders = list(queryWrapper);
-            log.info("查询到已完成订单数量: {}", orders.size());
+            log.info("查询到有成交的周期数: {}", salesByTime.size());
             
             // 计算销售总览数据
-            double totalSales = orders.stream()
-                    .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                    .sum();
-            
-            int totalOrders = orders.size();
-            double averageOrderValue = totalOrders > 0 ? totalSales / totalOrders : 0;
+            int totalOrders = total.getCount(0);
+            BigDecimal totalSales = total.getAmount(0);
+            BigDecimal averageOrderValue = totalOrders > 0
+                    ? totalSales.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
             
             Map<String, Object> overviewData = new HashMap<>();
             overviewData.put("totalSales", totalSales);
             overviewData.put("totalOrders", totalOrders);
             overviewData.put("averageOrderValue", averageOrderValue);
             
-            // 按时间分组销售数据
-            Map<String, List<Order>> ordersByTime = groupOrdersByTime(orders, period);
-            
-            List<Map<String, Object>> salesByTime = new ArrayList<>();
-            for (Map.Entry<String, List<Order>> entry : ordersByTime.entrySet()) {
-                Map<String, Object> timeData = new HashMap<>();
-                timeData.put("period", entry.getKey());
-                
-                double amount = entry.getValue().stream()
-                        .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                        .sum();
-                
-                timeData.put("amount", amount);
-                timeData.put("orderCount", entry.getValue().size());
-                
-                salesByTime.add(timeData);
+            // 买家数与回头客：合并各段的 HyperLogLog，相对标准误差约1.6%（见 HyperLogLog）
+            // 买家统计只增不减，整单退款的订单的买家仍计入
+            HyperLogLog buyers = new HyperLogLog();
+            HyperLogLog repeatBuyers = new HyperLogLog();
+            for (SalesAnalyticsCache.Bucket bucket : buckets) {
+                buyers.merge(bucket.getBuyers());
+                repeatBuyers.merge(bucket.getRepeatBuyers());
             }
-            
-            // 修改：按商品类别统计销售数据，只统计已完成的订单
-            List<Map<String, Object>> salesByCategory = baseMapper.getSalesByCategory(sellerId, startDateTime, endDateTime);
+            long uniqueBuyers = buyers.estimate();
+            long repeatBuyerCount = Math.min(repeatBuyers.estimate(), uniqueBuyers);
+            overviewData.put("uniqueBuyers", uniqueBuyers);
+            overviewData.put("repeatBuyers", repeatBuyerCount);
+            overviewData.put("repeatRate", uniqueBuyers > 0 ? repeatBuyerCount * 100.0 / uniqueBuyers : 0);
+            overviewData.put("buyerEstimateError", HyperLogLog.RELATIVE_STANDARD_ERROR);
+            
+            // 按商品类别统计销售数据：同名类别合并，只保留件数大于0的类别，按金额从高到低
+            Map<Long, long[]> categoryTotals = sumTotals(buckets, SalesAnalyticsCache.Bucket::getCategories);
+            Map<String, long[]> categoryByName = new HashMap<>();
+            if (!categoryTotals.isEmpty()) {
+                for (Category category : salesRollupMapper.selectCategoryNames(categoryTotals.keySet())) {
+                    long[] sum = categoryByName.computeIfAbsent(category.getName(), name -> new long[2]);
+                    long[] categoryTotal = categoryTotals.get(category.getId());
+                    sum[0] = Math.addExact(sum[0], categoryTotal[0]);
+                    sum[1] += categoryTotal[1];
+                }
+            }
+            List<Map.Entry<String, long[]>> categories = new ArrayList<>(categoryByName.entrySet());
+            categories.removeIf(category -> category.getValue()[1] <= 0);
+            categories.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
             
             // 计算类别销售占比
-            double totalCategorySales = salesByCategory.stream()
-                    .mapToDouble(category -> ((Number) category.get("amount")).doubleValue())
-                    .sum();
-                    
-            for (Map<String, Object> categoryData : salesByCategory) {
-                double amount = ((Number) categoryData.get("amount")).doubleValue();
-                double percentage = totalCategorySales > 0 ? (amount / totalCategorySales) * 100 : 0;
-                categoryData.put("percentage", percentage);
+            long totalCategoryCents = 0;
+            for (Map.Entry<String, long[]> category : categories) {
+                totalCategoryCents = Math.addExact(totalCategoryCents, category.getValue()[0]);
+            }
+            List<Map<String, Object>> salesByCategory = new ArrayList<>();
+            for (Map.Entry<String, long[]> category : categories) {
+                Map<String, Object> categoryData = new HashMap<>();
+                categoryData.put("category", category.getKey());
+                categoryData.put("amount", BigDecimal.valueOf(category.getValue()[0], 2));
+                categoryData.put("percentage", totalCategoryCents > 0
+                        ? category.getValue()[0] * 100.0 / totalCategoryCents : 0);
+                salesByCategory.add(categoryData);
             }
             
-            // 修改：获取热销商品，只统计已完成的订单
-            List<Map<String, Object>> topProducts = baseMapper.getTopSellingProducts(sellerId, startDateTime, endDateTime, 10);
+            // 获取热销商品：件数大于0的商品按金额从高到低取前10个
+            List<Map<String, Object>> topProducts = topProducts(
+                    sumTotals(buckets, SalesAnalyticsCache.Bucket::getProducts), 10);
             
             // 组合结果
             Map<String, Object> result = new HashMap<>();
@@ -1162,7 +862,15 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             result.put("salesByCategory", salesByCategory);
             result.put("topProducts", topProducts);
             
-            log.info("销售数据分析完成");
+            // 查询超时或失败、以空值代替的数据项，前端据此提示数据不完整
+            Set<String> degraded = new TreeSet<>();
+            for (SalesAnalyticsCache.Bucket bucket : buckets) {
+                degraded.addAll(bucket.getMissing());
+            }
+            result.put("partial", !degraded.isEmpty());
+            result.put("degraded", new ArrayList<>(degraded));
+            
+            log.info("销售数据分析完成{}", degraded.isEmpty() ? "" : "，部分数据缺失: " + degraded);
             return result;
             
         } catch (Exception e) {
@@ -1170,43 +878,86 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             throw e;
         }
     }
-    
+
     /**
-     * 按时间周期分组订单
+     * 第 index 个周期的第一天
      */
-    private Map<String, List<Order>> groupOrdersByTime(List<Order> orders, String period) {
-        DateTimeFormatter formatter;
-        Function<LocalDateTime, String> groupingFunction;
-        
-        switch (period) {
-            case "week":
-                formatter = DateTimeFormatter.ofPattern("yyyy-'W'ww");
-                groupingFunction = dateTime -> dateTime.format(formatter);
-                break;
-            case "month":
-                formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-                groupingFunction = dateTime -> dateTime.format(formatter);
-                break;
-            case "day":
+    private static LocalDate periodStart(SalesPeriod salesPeriod, LocalDate origin, int index) {
+        LocalDate first = salesPeriod.start(origin);
+        switch (salesPeriod) {
+            case WEEK:
+                return first.plusWeeks(index);
+            case MONTH:
+                return first.plusMonths(index);
+            case DAY:
             default:
-                formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                groupingFunction = dateTime -> dateTime.format(formatter);
-                break;
+                return first.plusDays(index);
         }
-        
-        return orders.stream()
-                .collect(Collectors.groupingBy(
-                        order -> groupingFunction.apply(order.getCreatedTime()),
-                        LinkedHashMap::new,
-                        Collectors.toList()
-                ));
+    }
+
+    /**
+     * 按ID合计各段的 {金额(分), 件数}
+     */
+    private static Map<Long, long[]> sumTotals(List<SalesAnalyticsCache.Bucket> buckets,
+                                               Function<SalesAnalyticsCache.Bucket, Map<Long, long[]>> totals) {
+        Map<Long, long[]> sums = new HashMap<>();
+        for (SalesAnalyticsCache.Bucket bucket : buckets) {
+            for (Map.Entry<Long, long[]> entry : totals.apply(bucket).entrySet()) {
+                long[] sum = sums.computeIfAbsent(entry.getKey(), id -> new long[2]);
+                sum[0] = Math.addExact(sum[0], entry.getValue()[0]);
+                sum[1] += entry.getValue()[1];
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * 件数大于0的商品中金额最高的 limit 个，金额相同时按商品ID；找不到商品记录的跳过
+     */
+    private List<Map<String, Object>> topProducts(Map<Long, long[]> productTotals, int limit) {
+        List<Map.Entry<Long, long[]>> candidates = new ArrayList<>(productTotals.entrySet());
+        candidates.removeIf(product -> product.getValue()[1] <= 0);
+        candidates.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Long.compare(b.getValue()[0], a.getValue()[0]) : Long.compare(a.getKey(), b.getKey()));
+        
+        List<Map<String, Object>> topProducts = new ArrayList<>();
+        for (int from = 0; from < candidates.size() && topProducts.size() < limit; from += limit) {
+            List<Map.Entry<Long, long[]>> batch = candidates.subList(from, Math.min(from + limit, candidates.size()));
+            Map<Long, String> names = new HashMap<>();
+            for (Product product : salesRollupMapper.selectProductNames(
+                    batch.stream().map(Map.Entry::getKey).collect(Collectors.toList()))) {
+                names.put(product.getId(), product.getName());
+            }
+            for (Map.Entry<Long, long[]> product : batch) {
+                if (topProducts.size() >= limit || !names.containsKey(product.getKey())) {
+                    continue;
+                }
+                Map<String, Object> productData = new HashMap<>();
+                productData.put("productId", product.getKey());
+                productData.put("productName", names.get(product.getKey()));
+                productData.put("salesAmount", BigDecimal.valueOf(product.getValue()[0], 2));
+                productData.put("salesCount", product.getValue()[1]);
+                topProducts.add(productData);
+            }
+        }
+        return topProducts;
+    }
+
+    /**
+     * 获取卖家实时热销商品
+     * 只读内存中的滑动窗口统计，不查询数据库
+     */
+    @Override
+    public List<Map<String, Object>> getRealtimeTopProducts(Long sellerId, String window, Integer limit) {
+        return bestSellerTracker.getTopProducts(sellerId, SalesWindow.of(window),
+                limit == null || limit <= 0 ? 10 : limit);
     }
     
     /**
      * 导出财务报表
      */
     @Override
-    public void exportFinancialReport(Map<String, Object> params, java.io.OutputStream outputStream, String fileType) throws java.io.IOException {
+    public void exportFinancialReport(Map<String, Object> params, OutputStream outputStream, String fileType) throws IOException {
         log.info("开始导出财务报表，参数: {}", params);
         
         try {
@@ -1236,56 +987,10 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
                 throw new BusinessException("结束日期不能为空");
             }
             
-            // 查询订单数据
-            LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(Order::getSellerId, sellerId)
-                       .eq(Order::getDeleted, 0)
-                       .ge(Order::getCreatedTime, startDateTime)
-                       .le(Order::getCreatedTime, endDateTime)
-                       .eq(Order::getStatus, 3) // 只包含已完成的订单
-                       .orderByAsc(Order::getCreatedTime);
-            
-            List<Order> orders = list(queryWrapper);
-            log.info("查询到已完成订单数量: {}", orders.size());
-            
-            // 获取订单详情
-            List<Map<String, Object>> orderDetails = new ArrayList<>();
-            for (Order order : orders) {
-                Map<String, Object> orderDetail = new HashMap<>();
-                orderDetail.put("orderNo", order.getOrderNo());
-                orderDetail.put("createdTime", order.getCreatedTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                orderDetail.put("status", getOrderStatusText(order.getStatus()));
-                orderDetail.put("totalAmount", order.getTotalAmount());
-                
-                // 查询订单用户信息
-                if (order.getUserId() != null) {
-                    User user = userService.getUserById(order.getUserId());
-                    orderDetail.put("username", user != null ? user.getUsername() : "未知用户");
-                } else {
-                    orderDetail.put("username", "未知用户");
-                }
-                
-                // 查询订单商品信息
-                List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderId(order.getId());
-                int productCount = orderItems.size();
-                String productNames = orderItems.stream()
-                        .map(OrderItemDTO::getProductName)
-                        .collect(Collectors.joining(", "));
-                
-                orderDetail.put("productCount", productCount);
-                orderDetail.put("productNames", productNames);
-                
-                orderDetails.add(orderDetail);
-            }
+            // 游标逐行读取已完成的订单，按批带出商品，边读边写
+            long count = financialReportExporter.export(sellerId, startDateTime, endDateTime, fileType, outputStream);
             
-            // 导出为CSV或Excel
-            if ("csv".equalsIgnoreCase(fileType)) {
-                exportToCSV(orderDetails, outputStream);
-            } else {
-                exportToExcel(orderDetails, outputStream);
-            }
-            
-            log.info("财务报表导出完成");
+            log.info("财务报表导出完成, 订单数: {}", count);
             
         } catch (Exception e) {
             log.error("导出财务报表失败", e);
@@ -1293,108 +998,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         }
     }
     
-    /**
-     * 导出为CSV格式
-     */
-    private void exportToCSV(List<Map<String, Object>> data, java.io.OutputStream outputStream) throws java.io.IOException {
-        log.info("导出为CSV格式, 数据条数: {}", data.size());
-        
-        // 添加UTF-8 BOM标记，使Excel可以正确识别UTF-8编码的CSV文件
-        byte[] bom = new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
-        outputStream.write(bom);
-        
-        try (java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.OutputStreamWriter(outputStream, "UTF-8"))) {
-            // 写入标题行
-            writer.write("订单号,创建时间,状态,金额,用户名,商品数量,商品名称");
-            writer.newLine();
-            
-            // 写入数据行
-            for (Map<String, Object> row : data) {
-                StringBuilder line = new StringBuilder();
-                line.append(row.get("orderNo")).append(",");
-                line.append(row.get("createdTime")).append(",");
-                line.append(row.get("status")).append(",");
-                line.append(row.get("totalAmount")).append(",");
-                line.append(row.get("username")).append(",");
-                line.append(row.get("productCount")).append(",");
-                
-                // 商品名称需要处理引号和逗号
-                String productNames = (String) row.get("productNames");
-                if (productNames.contains(",")) {
-                    line.append("\"").append(productNames).append("\"");
-                } else {
-                    line.append(productNames);
-                }
-                
-                writer.write(line.toString());
-                writer.newLine();
-            }
-            
-            writer.flush();
-        }
-    }
-    
-    /**
-     * 导出为Excel格式
-     */
-    private void exportToExcel(List<Map<String, Object>> data, java.io.OutputStream outputStream) throws java.io.IOException {
-        log.info("导出为Excel格式, 数据条数: {}", data.size());
-        
-        // 创建工作簿
-        org.apache.poi.ss.usermodel.Workbook workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
-        org.apache.poi.ss.usermodel.Sheet sheet = workbook.createSheet("财务报表");
-        
-        // 创建标题行
-        org.apache.poi.ss.usermodel.Row headerRow = sheet.createRow(0);
-        String[] headers = {"订单号", "创建时间", "状态", "金额", "用户名", "商品数量", "商品名称"};
-        for (int i = 0; i < headers.length; i++) {
-            org.apache.poi.ss.usermodel.Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-        }
-        
-        // 填充数据行
-        int rowNum = 1;
-        for (Map<String, Object> row : data) {
-            org.apache.poi.ss.usermodel.Row dataRow = sheet.createRow(rowNum++);
-            
-            dataRow.createCell(0).setCellValue((String) row.get("orderNo"));
-            dataRow.createCell(1).setCellValue((String) row.get("createdTime"));
-            dataRow.createCell(2).setCellValue((String) row.get("status"));
-            
-            org.apache.poi.ss.usermodel.Cell amountCell = dataRow.createCell(3);
-            amountCell.setCellValue(((BigDecimal) row.get("totalAmount")).doubleValue());
-            
-            dataRow.createCell(4).setCellValue((String) row.get("username"));
-            dataRow.createCell(5).setCellValue(((Integer) row.get("productCount")));
-            dataRow.createCell(6).setCellValue((String) row.get("productNames"));
-        }
-        
-        // 自动调整列宽
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-        
-        // 写入输出流
-        workbook.write(outputStream);
-        workbook.close();
-    }
-    
-    /**
-     * 获取订单状态文本
-     */
-    private String getOrderStatusText(Integer status) {
-        if (status == null) return "未知状态";
-        
-        switch (status) {
-            case 0: return "已取消";
-            case 1: return "待发货";
-            case 2: return "已发货";
-            case 3: return "已完成";
-            case 4: return "已退款";
-            default: return "未知状态";
-        }
-    }
-
     /**
      * 对单个商品申请退款
      */
@@ -1409,6 +1012,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         queryWrapper.eq(Order::getOrderNo, orderNo);
         queryWrapper.eq(Order::getUserId, userId);
         queryWrapper.eq(Order::getDeleted, 0); // 只查询未删除订单
+        // 锁定订单，与整单退款、其他商品的退款串行，销售日汇总按锁定时的状态扣减
+        queryWrapper.last("FOR UPDATE");
         Order order = baseMapper.selectOne(queryWrapper);
         
         if (order == null) {
@@ -1436,29 +1041,29 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             throw new BusinessException("订单中不存在该商品");
         }
         
+        // 从销售日汇总中扣减该商品，需在逻辑删除前读取明细
+        salesRollup.recordItemRefund(order, targetOrderItem.getId());
+        
         // 逻辑删除单个订单项
         int updated = orderItemMapper.deleteById(targetOrderItem.getId());
         log.info("订单项逻辑删除结果: itemId={}, updated={}", targetOrderItem.getId(), updated);
         
         // 恢复库存
-        Product product = productMapper.selectById(productId);
-        if (product != null) {
-            product.setStock(product.getStock() + targetOrderItem.getQuantity());
-            productMapper.updateById(product);
-            log.info("商品库存已恢复: productId={}, 恢复数量={}, 当前库存={}", 
-                    productId, targetOrderItem.getQuantity(), product.getStock());
-        }
+        inventoryService.restore(Collections.singletonList(new StockChangeDTO(productId, targetOrderItem.getQuantity())));
+        log.info("商品库存已恢复: productId={}, 恢复数量={}", productId, targetOrderItem.getQuantity());
+        
+        orderDetailCache.evict(orderNo);
+        
+        // 扣减销量
+        List<StockChangeDTO> refundedItems = Collections.singletonList(
+                new StockChangeDTO(productId, targetOrderItem.getQuantity()));
+        TransactionHooks.afterCommit(() -> salesCounter.subtract(refundedItems));
         
         // 检查是否所有订单项都已退款
         List<OrderItemDTO> remainingItems = orderItemMapper.selectByOrderId(order.getId());
         if (remainingItems.isEmpty()) {
-            // 所有商品都已退款，将订单设为已退款状态
-            LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
-            updateWrapper.eq(Order::getId, order.getId())
-                    .set(Order::getStatus, 5) // 已退款
-                    .set(Order::getUpdatedTime, LocalDateTime.now());
-            
-            boolean orderUpdated = update(updateWrapper);
+            // 所有商品都已退款，将订单设为已退款状态（经状态机流转，同时更新卖家订单计数和销售日汇总）
+            boolean orderUpdated = orderStateMachine.transit(OrderTransition.REFUND, orderNo, userId, null);
             log.info("所有商品已退款，订单状态更新为已退款: orderId={}, updated={}", order.getId(), orderUpdated);
         }
         
@@ -1496,137 +1101,14 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             // 只查询未删除的订单
             queryWrapper.eq(Order::getDeleted, 0);
             
-            // 按创建时间倒序
-            queryWrapper.orderByDesc(Order::getCreatedTime);
-            
-            // 分页查询
-            Page<Order> page = new Page<>(queryDTO.getPage(), queryDTO.getSize());
-            Page<Order> orderPage = baseMapper.selectPage(page, queryWrapper);
-            
-            if (CollectionUtils.isEmpty(orderPage.getRecords())) {
-                log.info("查询结果为空，返回空列表");
-                // 确保返回正确的格式
-                PageResult<OrderVO> emptyResult = PageResult.of(orderPage.getTotal(), new ArrayList<>());
-                return emptyResult;
-            }
-            
-            // 查询订单项
-            List<Long> orderIds = orderPage.getRecords().stream()
-                    .map(Order::getId)
-                    .collect(Collectors.toList());
-            
-            // 查询已退款的订单项（已删除的订单项）
-            List<OrderItemDTO> refundedItems = orderItemMapper.selectRefundedByOrderIds(orderIds);
-            log.info("查询到已退款订单项数量: {}", refundedItems.size());
-            
-            if (refundedItems.isEmpty()) {
-                log.info("没有查询到已退款商品，返回空列表");
-                return PageResult.of(0, new ArrayList<>());
-            }
-            
-            // 按订单ID分组，获取包含退款商品的订单ID
-            Set<Long> orderIdsWithRefunds = refundedItems.stream()
-                    .map(OrderItemDTO::getOrderId)
-                    .collect(Collectors.toSet());
-            
-            log.info("包含退款商品的订单数量: {}", orderIdsWithRefunds.size());
+            // 在SQL中筛选包含退款商品的订单：整单已退款，或存在单独退款的明细
+            queryWrapper.and(w -> w.eq(Order::getStatus, 5).or().exists(REFUNDED_ITEM_EXISTS));
             
-            // 筛选出包含退款商品的订单
-            List<Order> ordersWithRefunds = orderPage.getRecords().stream()
-                    .filter(order -> orderIdsWithRefunds.contains(order.getId()))
-                    .collect(Collectors.toList());
+            PageResult<OrderVO> result = orderPageAssembler.loadPage(baseMapper, queryWrapper,
+                    queryDTO.getPage(), queryDTO.getSize(), null, true, false);
+            log.info("包含退款商品的订单数量: {}", result.getTotal());
             
-            // 查询这些订单的正常订单项（未退款的）
-            List<OrderItemDTO> normalItems = orderItemMapper.selectByOrderIds(
-                    ordersWithRefunds.stream().map(Order::getId).collect(Collectors.toList())
-            );
-            
-            // 合并所有订单项（正常的和已退款的）
-            List<OrderItemDTO> allItems = new ArrayList<>(normalItems);
-            allItems.addAll(refundedItems);
-            
-            // 按订单ID分组
-            Map<Long, List<OrderItemDTO>> orderItemMap = allItems.stream()
-                    .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
-            
-            // 转换VO
-            List<OrderVO> orderVOList = ordersWithRefunds.stream().map(order -> {
-                OrderVO orderVO = new OrderVO();
-                
-                // 不要使用BeanUtils复制，因为字段名不一致，直接设置
-                orderVO.setId(order.getId().intValue());
-                orderVO.setOrderNo(order.getOrderNo());
-                orderVO.setStatus(order.getStatus().toString());
-                orderVO.setTotalAmount(order.getTotalAmount());
-                
-                // 设置手机号和地址
-                orderVO.setPhone(order.getPhone());
-                orderVO.setLocation(order.getLocation());
-                
-                // 设置订单创建时间
-                if (order.getCreatedTime() != null) {
-                    orderVO.setCreateTime(order.getCreatedTime());
-                }
-                
-                if (order.getUpdatedTime() != null) {
-                    orderVO.setUpdateTime(order.getUpdatedTime());
-                } else {
-                    orderVO.setUpdateTime(LocalDateTime.now());
-                }
-                
-                // 设置支付方式
-                if (order.getPaymentMethod() != null) {
-                    orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-                }
-                
-                // 封装订单商品
-                List<OrderItemDTO> items = orderItemMap.getOrDefault(order.getId(), new ArrayList<>());
-                
-                List<OrderVO.OrderProductVO> productVOList = items.stream().map(item -> {
-                    OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-                    productVO.setId(item.getProductId().intValue());
-                    productVO.setName(item.getProductName());
-                    productVO.setImage(item.getProductImage());
-                    productVO.setPrice(item.getPrice());
-                    productVO.setQuantity(item.getQuantity());
-                    
-                    // 设置默认为未评价和未退款
-                    productVO.setReviewed(false);
-                    productVO.setRefunded(false);
-                    
-                    // 设置退款状态 - 如果订单项的deleted=1，则表示已退款
-                    if (item.getDeleted() != null && item.getDeleted() == 1) {
-                        productVO.setRefunded(true);
-                        log.debug("订单商品已退款: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                    }
-                    
-                    // 检查订单状态是否为已完成(3)，只有已完成的订单才需要检查评价状态
-                    if (order.getStatus() == 3) {
-                        try {
-                            // 检查该用户是否已对该商品进行评价
-                            Integer reviewCount = productReviewMapper.hasReviewed(
-                                userId, order.getOrderNo(), item.getProductId());
-                            // 如果reviewCount大于0，表示已评价
-                            boolean isReviewed = reviewCount != null && reviewCount > 0;
-                            productVO.setReviewed(isReviewed);
-                            
-                            if (isReviewed) {
-                                log.debug("订单商品已评价: orderNo={}, productId={}", order.getOrderNo(), item.getProductId());
-                            }
-                        } catch (Exception e) {
-                            log.error("检查商品评价状态失败: orderNo={}, productId={}", order.getOrderNo(), item.getProductId(), e);
-                        }
-                    }
-                    
-                    return productVO;
-                }).collect(Collectors.toList());
-                
-                orderVO.setProducts(productVOList);
-                
-                return orderVO;
-            }).collect(Collectors.toList());
-            
-            return PageResult.of(orderVOList.size(), orderVOList);
+            return result;
         } catch (Exception e) {
             log.error("获取包含已退款商品的订单列表时发生异常", e);
             throw e;
@@ -1645,74 +1127,9 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
             queryWrapper.eq(Order::getUserId, userId)
                        .eq(Order::getStatus, 5)  // 已退款状态
-                       .eq(Order::getDeleted, 0)  // 查询未删除的订单
-                       .orderByDesc(Order::getCreatedTime);
-            
-            // 分页查询
-            Page<Order> pageParam = new Page<>(page, size);
-            Page<Order> orderPage = baseMapper.selectPage(pageParam, queryWrapper);
+                       .eq(Order::getDeleted, 0);  // 查询未删除的订单
             
-            if (CollectionUtils.isEmpty(orderPage.getRecords())) {
-                log.info("未找到退款订单");
-                return PageResult.of(0, new ArrayList<>());
-            }
-            
-            // 获取订单ID列表
-            List<Long> orderIds = orderPage.getRecords().stream()
-                    .map(Order::getId)
-                    .collect(Collectors.toList());
-            
-            // 查询订单项
-            List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderIds(orderIds);
-            
-            // 按订单ID分组
-            Map<Long, List<OrderItemDTO>> orderItemMap = orderItems.stream()
-                    .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
-            
-            // 转换为VO
-            List<OrderVO> orderVOList = orderPage.getRecords().stream().map(order -> {
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(order, orderVO);
-                
-                // 设置订单状态为字符串
-                orderVO.setStatus(order.getStatus().toString());
-                
-                // 设置订单创建时间
-                if (order.getCreatedTime() != null) {
-                    orderVO.setCreateTime(order.getCreatedTime());
-                }
-                
-                // 设置支付方式
-                if (order.getPaymentMethod() != null) {
-                    orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-                }
-                
-                // 设置手机号和地址
-                orderVO.setPhone(order.getPhone());
-                orderVO.setLocation(order.getLocation());
-                
-                // 设置订单项
-                List<OrderItemDTO> items = orderItemMap.getOrDefault(order.getId(), new ArrayList<>());
-                
-                List<OrderVO.OrderProductVO> productVOList = items.stream().map(item -> {
-                    OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-                    productVO.setId(item.getProductId().intValue());
-                    productVO.setName(item.getProductName());
-                    productVO.setImage(item.getProductImage());
-                    productVO.setPrice(item.getPrice());
-                    productVO.setQuantity(item.getQuantity());
-                    productVO.setRefunded(true);  // 退款订单的所有商品都标记为已退款
-                    productVO.setReviewed(false); // 退款商品不需要评价
-                    
-                    return productVO;
-                }).collect(Collectors.toList());
-                
-                orderVO.setProducts(productVOList);
-                
-                return orderVO;
-            }).collect(Collectors.toList());
-            
-            return PageResult.of(orderPage.getTotal(), orderVOList);
+            return orderPageAssembler.loadPage(baseMapper, queryWrapper, page, size, null, true, false);
             
         } catch (Exception e) {
             log.error("获取用户已退款订单列表时发生异常", e);
@@ -1732,97 +1149,9 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
             queryWrapper.eq(Order::getSellerId, sellerId)
                        .eq(Order::getStatus, 5)  // 已退款状态
-                       .eq(Order::getDeleted, 0)  // 查询未删除的订单
-                       .orderByDesc(Order::getCreatedTime);
-            
-            // 分页查询
-            Page<Order> pageParam = new Page<>(page, size);
-            Page<Order> orderPage = baseMapper.selectPage(pageParam, queryWrapper);
-            
-            if (CollectionUtils.isEmpty(orderPage.getRecords())) {
-                log.info("未找到退款订单");
-                return PageResult.of(0, new ArrayList<>());
-            }
-            
-            // 获取订单ID列表
-            List<Long> orderIds = orderPage.getRecords().stream()
-                    .map(Order::getId)
-                    .collect(Collectors.toList());
-                    
-            // 获取所有相关用户的信息
-            List<Long> userIds = orderPage.getRecords().stream()
-                    .map(Order::getUserId)
-                    .distinct()
-                    .collect(Collectors.toList());
-            
-            // 批量查询用户信息
-            final Map<Long, String> userMap = new HashMap<>();
-            if (!userIds.isEmpty()) {
-                List<User> users = userService.list(new LambdaQueryWrapper<User>().in(User::getId, userIds));
-                userIds.forEach(userId -> {
-                    User user = users.stream()
-                            .filter(u -> u.getId().equals(userId))
-                            .findFirst()
-                            .orElse(null);
-                    userMap.put(userId, user != null ? user.getUsername() : "未知用户");
-                });
-            }
-            
-            // 查询订单项
-            List<OrderItemDTO> orderItems = orderItemMapper.selectByOrderIds(orderIds);
-            
-            // 按订单ID分组
-            Map<Long, List<OrderItemDTO>> orderItemMap = orderItems.stream()
-                    .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
-            
-            // 转换为VO
-            List<OrderVO> orderVOList = orderPage.getRecords().stream().map(order -> {
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(order, orderVO);
-                
-                // 设置订单状态为字符串
-                orderVO.setStatus(order.getStatus().toString());
-                
-                // 设置订单创建时间
-                if (order.getCreatedTime() != null) {
-                    orderVO.setCreateTime(order.getCreatedTime());
-                }
-                
-                // 设置用户名
-                String username = userMap.getOrDefault(order.getUserId(), "未知用户");
-                orderVO.setUsername(username);
-                
-                // 设置支付方式
-                if (order.getPaymentMethod() != null) {
-                    orderVO.setPaymentMethod(order.getPaymentMethod().toString());
-                }
-                
-                // 设置手机号和地址
-                orderVO.setPhone(order.getPhone());
-                orderVO.setLocation(order.getLocation());
-                
-                // 设置订单项
-                List<OrderItemDTO> items = orderItemMap.getOrDefault(order.getId(), new ArrayList<>());
-                
-                List<OrderVO.OrderProductVO> productVOList = items.stream().map(item -> {
-                    OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
-                    productVO.setId(item.getProductId().intValue());
-                    productVO.setName(item.getProductName());
-                    productVO.setImage(item.getProductImage());
-                    productVO.setPrice(item.getPrice());
-                    productVO.setQuantity(item.getQuantity());
-                    productVO.setRefunded(true);  // 退款订单的所有商品都标记为已退款
-                    productVO.setReviewed(false); // 退款商品不需要评价
-                    
-                    return productVO;
-                }).collect(Collectors.toList());
-                
-                orderVO.setProducts(productVOList);
-                
-                return orderVO;
-            }).collect(Collectors.toList());
+                       .eq(Order::getDeleted, 0);  // 查询未删除的订单
             
-            return PageResult.of(orderPage.getTotal(), orderVOList);
+            return orderPageAssembler.loadPage(baseMapper, queryWrapper, page, size, null, true, true);
             
         } catch (Exception e) {
             log.error("获取卖家已退款订单列表时发生异常", e);
@@ -0,0 +1,171 @@
+package com.shop.online.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.entity.Order;
+import com.shop.online.exception.BusinessException;
+import com.shop.online.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 订单状态机
+ * 每次流转都是带“当前状态 = 原状态”条件的UPDATE，返回是否由本次调用完成流转；
+ * 重复点击或并发请求中只有一个能成功，失败时才查询订单给出具体原因。
+ * 允许多个原状态的流转（取消）按原状态逐个尝试，影响行数即从该状态流转的订单数，
+ * 据此登记卖家订单计数和销售日汇总的变化（提交前写入，应在事务中调用）。
+ * 需要知道具体是哪些订单流转了的批量操作先锁定订单再按ID更新。
+ * 流转成功的订单会失效其订单详情缓存。
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderDetailCache orderDetailCache;
+
+    @Autowired
+    private SellerOrderCounter sellerOrderCounter;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    /**
+     * 尝试流转单个订单
+     * @param userId 买家ID，为空时不限制
+     * @param sellerId 卖家ID，为空时不限制
+     * @return 是否流转成功
+     */
+    public boolean transit(OrderTransition transition, String orderNo, Long userId, Long sellerId) {
+        return transit(transition, orderNo, userId, sellerId, null);
+    }
+
+    /**
+     * 尝试流转单个订单，支付时可同时写入支付方式
+     */
+    public boolean transit(OrderTransition transition, String orderNo, Long userId, Long sellerId, Integer paymentMethod) {
+        Integer toStatus = transition.getToStatus();
+        Integer fromStatus = null;
+        for (Integer status : transition.getFromStatuses()) {
+            if (orderMapper.transitStatus(orderNo, userId, sellerId, status, toStatus, paymentMethod) > 0) {
+                fromStatus = status;
+                break;
+            }
+        }
+        boolean transited = fromStatus != null;
+        log.info("订单{}: orderNo={}, 结果={}", transition.getDescription(), orderNo, transited);
+        if (transited) {
+            if (sellerId != null) {
+                sellerOrderCounter.recordTransition(sellerId, fromStatus, toStatus, 1);
+            } else {
+                sellerOrderCounter.recordTransition(orderNo, fromStatus, toStatus);
+            }
+            salesRollup.recordTransition(orderNo, fromStatus, toStatus);
+            orderDetailCache.evict(orderNo);
+        }
+        return transited;
+    }
+
+    /**
+     * 流转单个订单，失败时抛出带原因的业务异常
+     */
+    public void transitOrThrow(OrderTransition transition, String orderNo, Long userId, Long sellerId) {
+        transitOrThrow(transition, orderNo, userId, sellerId, null);
+    }
+
+    public void transitOrThrow(OrderTransition transition, String orderNo, Long userId, Long sellerId, Integer paymentMethod) {
+        if (transit(transition, orderNo, userId, sellerId, paymentMethod)) {
+            return;
+        }
+        
+        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Order::getId, Order::getUserId, Order::getSellerId, Order::getStatus)
+                .eq(Order::getOrderNo, orderNo);
+        Order order = orderMapper.selectOne(queryWrapper);
+        if (order == null
+                || (userId != null && !Objects.equals(order.getUserId(), userId))
+                || (sellerId != null && !Objects.equals(order.getSellerId(), sellerId))) {
+            throw new BusinessException("订单不存在");
+        }
+        log.warn("订单{}失败, 订单号: {}, 当前状态: {}", transition.getDescription(), orderNo, order.getStatus());
+        throw new BusinessException(transition.getRejectMessage());
+    }
+
+    /**
+     * 批量流转订单，状态不满足的订单被跳过
+     * 指定卖家时每个原状态一条UPDATE；管理员操作不限卖家，需要每个订单的卖家来登记计数，先锁定再按ID更新
+     * @param sellerId 卖家ID，为空时不限制（管理员）
+     * @return 实际流转的订单数
+     */
+    public int transitBatch(OrderTransition transition, Collection<String> orderNos, Long sellerId) {
+        if (CollectionUtils.isEmpty(orderNos)) {
+            return 0;
+        }
+        Integer toStatus = transition.getToStatus();
+        // 进入或离开已完成的订单要按ID登记销售日汇总
+        boolean affectsSales = transition.getFromStatuses().stream().anyMatch(status -> SalesRollup.affects(status, toStatus));
+        if (sellerId == null || affectsSales) {
+            return transitBatchReturningIds(transition, orderNos, sellerId).size();
+        }
+        int updated = 0;
+        for (Integer fromStatus : transition.getFromStatuses()) {
+            int count = orderMapper.transitStatusBatch(orderNos, sellerId, fromStatus, toStatus);
+            sellerOrderCounter.recordTransition(sellerId, fromStatus, toStatus, count);
+            updated += count;
+        }
+        log.info("批量订单{}: 请求数={}, 成功数={}", transition.getDescription(), orderNos.size(), updated);
+        if (updated > 0) {
+            orderDetailCache.evictAll(orderNos);
+        }
+        return updated;
+    }
+
+    /**
+     * 批量流转订单并返回实际流转的订单ID
+     * 先锁定满足状态的订单，再按ID更新，保证返回的ID就是本次流转的订单；必须在事务中调用
+     */
+    public List<Long> transitBatchReturningIds(OrderTransition transition, Collection<String> orderNos, Long sellerId) {
+        if (CollectionUtils.isEmpty(orderNos)) {
+            return Collections.emptyList();
+        }
+        List<Order> locked = orderMapper.lockTransitable(orderNos, null, sellerId, transition.getFromStatuses());
+        if (locked.isEmpty()) {
+            log.info("批量订单{}: 请求数={}, 成功数=0", transition.getDescription(), orderNos.size());
+            return Collections.emptyList();
+        }
+        int updated = transitLocked(transition, locked);
+        log.info("批量订单{}: 请求数={}, 成功数={}", transition.getDescription(), orderNos.size(), updated);
+        orderDetailCache.evictAll(orderNos);
+        return ids(locked);
+    }
+
+    /**
+     * 更新已锁定的订单并登记卖家订单计数、销售日汇总的变化
+     */
+    private int transitLocked(OrderTransition transition, List<Order> locked) {
+        int updated = orderMapper.transitStatusByIds(ids(locked), transition.getFromStatuses(),
+                transition.getToStatus());
+        sellerOrderCounter.recordTransition(locked, transition.getToStatus());
+        salesRollup.recordTransition(locked, transition.getToStatus());
+        return updated;
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        List<Long> ids = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            ids.add(order.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,266 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.AdminStatsDTO;
+import com.shop.online.exception.BusinessException;
+import com.shop.online.mapper.PlatformStatsMapper;
+import com.shop.online.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 平台统计计数：用户数、卖家数、待审核的入驻申请数、上架商品数，管理员首页直接读取内存中的值
+ * 启动时用一条查询初始化；注册、入驻申请与审核、角色变更、商品上下架与删除在事务提交后调整计数；
+ * 定期重新查询校对，校对期间提交的调整在查询完成后补记，不会丢失。
+ * 计数变化后最多每秒向订阅的管理员页面（SSE）推送一次最新值。
+ * 多实例部署时每个实例只收到本实例提交的调整，其他实例的变化要等下次校对才体现。
+ */
+@Component
+@Slf4j
+public class PlatformCounters {
+
+    /**
+     * 计数项，与 AdminStatsDTO 的字段对应
+     */
+    public enum Metric {
+        USERS, SELLERS, PENDING_REQUESTS, PRODUCTS
+    }
+
+    private static final Integer SELLER_ROLE = 1;
+
+    private static final Integer PENDING = 0;
+
+    private static final Integer ON_SALE = 1;
+
+    @Autowired
+    private PlatformStatsMapper platformStatsMapper;
+
+    @Value("${admin.stats.stream-timeout-ms:1800000}")
+    private long streamTimeoutMillis;
+
+    @Value("${admin.stats.max-subscribers:100}")
+    private int maxSubscribers;
+
+    private final long[] values = new long[Metric.values().length];
+
+    /**
+     * 校对期间提交的调整，查询完成后补记；不在校对时为null
+     */
+    private long[] replay;
+
+    private boolean loaded;
+
+    private volatile boolean changed;
+
+    private final Object reconcileLock = new Object();
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile Map<String, Object> lastReconcile = Collections.emptyMap();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${admin.stats.reconcile-cron:0 */5 * * * ?}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("平台统计校对失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 调整计数，在当前事务提交后生效；没有事务时立即生效
+     */
+    public void add(Metric metric, long delta) {
+        if (delta != 0) {
+            TransactionHooks.afterCommit(() -> apply(metric, delta));
+        }
+    }
+
+    /**
+     * 用户角色变更
+     * @param from 原角色，新用户为null
+     * @param to 新角色，删除用户为null
+     */
+    public void roleChanged(Integer from, Integer to) {
+        add(Metric.SELLERS, indicator(SELLER_ROLE, to) - indicator(SELLER_ROLE, from));
+    }
+
+    /**
+     * 入驻申请状态变更
+     * @param from 原状态，新申请为null
+     * @param to 新状态，删除申请为null
+     */
+    public void sellerRequestStatusChanged(Integer from, Integer to) {
+        add(Metric.PENDING_REQUESTS, indicator(PENDING, to) - indicator(PENDING, from));
+    }
+
+    /**
+     * 商品状态变更
+     * @param from 原状态，新商品为null
+     * @param to 新状态，删除商品为null
+     */
+    public void productStatusChanged(Integer from, Integer to) {
+        add(Metric.PRODUCTS, indicator(ON_SALE, to) - indicator(ON_SALE, from));
+    }
+
+    private static int indicator(Integer expected, Integer actual) {
+        return expected.equals(actual) ? 1 : 0;
+    }
+
+    private synchronized void apply(Metric metric, long delta) {
+        values[metric.ordinal()] += delta;
+        if (replay != null) {
+            replay[metric.ordinal()] += delta;
+        }
+        changed = true;
+    }
+
+    /**
+     * 当前计数；启动加载完成之前调用时先查询一次
+     */
+    public AdminStatsDTO getStats() {
+        synchronized (this) {
+            if (loaded) {
+                return snapshot();
+            }
+        }
+        reconcile();
+        synchronized (this) {
+            return snapshot();
+        }
+    }
+
+    private AdminStatsDTO snapshot() {
+        AdminStatsDTO stats = new AdminStatsDTO();
+        stats.setUserCount(values[Metric.USERS.ordinal()]);
+        stats.setSellerCount(values[Metric.SELLERS.ordinal()]);
+        stats.setPendingRequests(values[Metric.PENDING_REQUESTS.ordinal()]);
+        stats.setProductCount(values[Metric.PRODUCTS.ordinal()]);
+        return stats;
+    }
+
+    /**
+     * 按数据库重新统计并替换内存中的计数
+     * @return 校对结果，drift 为校对前内存计数与数据库的差（数据库 - 内存）
+     */
+    public Map<String, Object> reconcile() {
+        synchronized (reconcileLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                replay = new long[values.length];
+            }
+            AdminStatsDTO counted;
+            try {
+                counted = platformStatsMapper.countPlatformStats();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw e;
+            }
+
+            long[] fresh = {counted.getUserCount(), counted.getSellerCount(),
+                    counted.getPendingRequests(), counted.getProductCount()};
+            Map<String, Long> drift = new HashMap<>();
+            boolean wasLoaded;
+            synchronized (this) {
+                wasLoaded = loaded;
+                for (Metric metric : Metric.values()) {
+                    int i = metric.ordinal();
+                    fresh[i] += replay[i];
+                    if (fresh[i] != values[i]) {
+                        drift.put(metric.name(), fresh[i] - values[i]);
+                    }
+                    values[i] = fresh[i];
+                }
+                replay = null;
+                loaded = true;
+                changed = true;
+            }
+
+            Map<String, Object> report = new HashMap<>();
+            report.put("stats", getStats());
+            report.put("drift", wasLoaded ? drift : Collections.emptyMap());
+            report.put("elapsedMillis", System.currentTimeMillis() - start);
+            report.put("finishedAt", LocalDateTime.now());
+            lastReconcile = report;
+            if (wasLoaded && !drift.isEmpty()) {
+                log.warn("平台统计与数据库不一致，已校正: {}", drift);
+            }
+            return report;
+        }
+    }
+
+    /**
+     * 最近一次校对的结果
+     */
+    public Map<String, Object> getLastReconcile() {
+        return lastReconcile;
+    }
+
+    /**
+     * 订阅计数推送：连接建立后立即推送一次当前值，之后每次变化推送
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new BusinessException("订阅平台统计的连接过多，请稍后再试");
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        try {
+            emitter.send(SseEmitter.event().name("stats").data(getStats()));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(emitter);
+        return emitter;
+    }
+
+    /**
+     * 计数有变化时推送给所有订阅者，多次变化合并为一次推送
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void publish() {
+        if (!changed) {
+            return;
+        }
+        changed = false;
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        AdminStatsDTO stats = getStats();
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name("stats").data(stats));
+            } catch (IOException | IllegalStateException e) {
+                // 连接已断开
+                subscribers.remove(emitter);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+}
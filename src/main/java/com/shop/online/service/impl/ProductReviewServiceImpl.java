@@ -42,6 +42,9 @@ public class ProductReviewServiceImpl extends ServiceImpl<ProductReviewMapper, P
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private OrderDetailCache orderDetailCache;
+    
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long submitReview(ReviewDTO reviewDTO) {
@@ -100,6 +103,9 @@ public class ProductReviewServiceImpl extends ServiceImpl<ProductReviewMapper, P
             throw new BusinessException("Failed to submit review");
         }
         
+        // Cached order detail carries the per-product reviewed flag
+        orderDetailCache.evict(reviewDTO.getOrderNo());
+        
         return review.getId();
     }
     
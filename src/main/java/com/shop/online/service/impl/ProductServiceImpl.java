@@ -13,11 +13,13 @@ import com.shop.online.mapper.ProductImageMapper;
 import com.shop.online.mapper.ProductMapper;
 import com.shop.online.service.ProductService;
 import com.shop.online.util.FileUtil;
+import com.shop.online.util.KeysetPagination;
 import com.shop.online.utils.BeanCopyUtils;
 import com.shop.online.vo.ProductVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -43,6 +45,12 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private PlatformCounters platformCounters;
+
+    @Value("${mybatis-plus.pagination.max-limit:500}")
+    private long maxLimit;
+
     @Override
     public PageResult<ProductVO> getProductsByCategory(Long categoryId, Integer page, Integer size) {
         // 判断是否为一级分类 (parent_id = 0)
@@ -82,6 +90,12 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     public PageResult<ProductVO> getProductsByCategoryWithSort(Long categoryId, Integer page, Integer size, String sortBy) {
+        return getProductsByCategoryWithSort(categoryId, page, size, sortBy, null, true);
+    }
+
+    @Override
+    public PageResult<ProductVO> getProductsByCategoryWithSort(Long categoryId, Integer page, Integer size, String sortBy,
+                                                               String cursor, boolean withTotal) {
         // 判断是否为一级分类 (parent_id = 0)
         boolean isPrimaryCategory = isPrimaryCategory(categoryId);
         
@@ -101,45 +115,68 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
                 .eq(Product::getDeleted, 0)  // 添加未删除条件
                 .eq(Product::getStatus, 1);  // 只查询上架商品
         
-        // 排序
-        if (StringUtils.hasText(sortBy)) {
-            switch (sortBy) {
-                case "price_asc":
-                    queryWrapper.orderByAsc(Product::getPrice);
-                    break;
-                case "price_desc":
-                    queryWrapper.orderByDesc(Product::getPrice);
-                    break;
-                case "sales_desc":
-                    queryWrapper.orderByDesc(Product::getSales);
-                    break;
-                case "rating_desc":
-                    // 替代rating排序，使用销量和创建时间排序
-                    queryWrapper.orderByDesc(Product::getSales)
-                            .orderByDesc(Product::getCreatedTime);
-                    break;
-                default:
-                    queryWrapper.orderByDesc(Product::getCreatedTime);
-                    break;
-            }
+        // 排序，最后按ID保证顺序唯一
+        KeysetPagination<Product> keyset = categorySortKeys(sortBy);
+        
+        // 分页查询，传入cursor时按排序键定位，不使用OFFSET
+        List<Product> records;
+        Long total;
+        String nextCursor = null;
+        if (cursor == null) {
+            keyset.applyOrder(queryWrapper);
+            Page<Product> pageResult = baseMapper.selectPage(new Page<>(page, size, withTotal), queryWrapper);
+            records = pageResult.getRecords();
+            total = withTotal ? pageResult.getTotal() : null;
         } else {
-            queryWrapper.orderByDesc(Product::getCreatedTime);
+            total = withTotal ? baseMapper.selectCount(queryWrapper) : null;
+            int limit = KeysetPagination.clampSize(size, maxLimit);
+            keyset.apply(queryWrapper, cursor, limit);
+            records = baseMapper.selectList(queryWrapper);
+            nextCursor = keyset.nextCursor(records, limit);
         }
         
-        // 分页查询
-        Page<Product> productPage = new Page<>(page, size);
-        Page<Product> pageResult = baseMapper.selectPage(productPage, queryWrapper);
-        
         // 转换为VO
         List<ProductVO> productVOList = new ArrayList<>();
-        for (Product product : pageResult.getRecords()) {
+        for (Product product : records) {
             ProductVO vo = convertToVO(product);
             // 加载产品图片
             vo.setImages(getProductImages(product.getId()));
             productVOList.add(vo);
         }
         
-        return PageResult.of(pageResult.getTotal(), productVOList);
+        return PageResult.of(total, productVOList, nextCursor);
+    }
+
+    /**
+     * 分类商品列表的排序键
+     */
+    private static KeysetPagination<Product> categorySortKeys(String sortBy) {
+        KeysetPagination<Product> keyset = new KeysetPagination<>();
+        switch (sortBy == null ? "" : sortBy) {
+            case "price_asc":
+                keyset.asc(Product::getPrice, KeysetPagination.DECIMAL)
+                        .asc(Product::getId, KeysetPagination.LONG);
+                break;
+            case "price_desc":
+                keyset.desc(Product::getPrice, KeysetPagination.DECIMAL)
+                        .desc(Product::getId, KeysetPagination.LONG);
+                break;
+            case "sales_desc":
+                keyset.desc(Product::getSales, KeysetPagination.INTEGER)
+                        .desc(Product::getId, KeysetPagination.LONG);
+                break;
+            case "rating_desc":
+                // 替代rating排序，使用销量和创建时间排序
+                keyset.desc(Product::getSales, KeysetPagination.INTEGER)
+                        .desc(Product::getCreatedTime, KeysetPagination.DATE_TIME)
+                        .desc(Product::getId, KeysetPagination.LONG);
+                break;
+            default:
+                keyset.desc(Product::getCreatedTime, KeysetPagination.DATE_TIME)
+                        .desc(Product::getId, KeysetPagination.LONG);
+                break;
+        }
+        return keyset;
     }
 
     @Override
@@ -148,6 +185,12 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         return getProductsByCategoryWithSort(categoryId.longValue(), page, size, sortBy);
     }
 
+    @Override
+    public PageResult<ProductVO> getProductsByCategory(Integer categoryId, Integer page, Integer size, String sortBy,
+                                                       String cursor, boolean withTotal) {
+        return getProductsByCategoryWithSort(categoryId.longValue(), page, size, sortBy, cursor, withTotal);
+    }
+
     @Override
     public PageResult<ProductVO> getProductsByCondition(ProductQueryDTO queryDTO) {
         Page<Product> pageParam = new Page<>(queryDTO.getPage(), queryDTO.getSize());
@@ -312,6 +355,7 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         // 保存商品基本信息
         this.save(product);
         log.info("商品基本信息保存成功, id={}", product.getId());
+        platformCounters.productStatusChanged(null, product.getStatus());
         
         // ----- 图片处理流程开始 -----
         // 获取项目根路径和静态资源目录
@@ -451,6 +495,10 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         product.setCreatedTime(existingProduct.getCreatedTime());
         product.setDeleted(existingProduct.getDeleted());
         product.setSellerId(existingProduct.getSellerId());  // 卖家ID不允许修改
+        if (product.getStatus() != null) {
+            // 各分支都会更新商品，计数在事务提交后调整
+            platformCounters.productStatusChanged(existingProduct.getStatus(), product.getStatus());
+        }
         
         // 设置更新时间
         product.setUpdatedTime(LocalDateTime.now());
@@ -709,11 +757,15 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         log.info("已将商品 {} 的所有图片记录标记为deleted=1，共 {} 张", productId, oldImageRecords.size());
         
         // 3. 逻辑删除商品记录
+        Integer oldStatus = product.getStatus();
         product.setDeleted(1);
         product.setStatus(0);  // 下架
         product.setUpdatedTime(LocalDateTime.now());
         boolean result = this.updateById(product);
         log.info("商品 {} 逻辑删除结果: {}", productId, result);
+        if (result) {
+            platformCounters.productStatusChanged(oldStatus, null);
+        }
         
         return result;
     }
@@ -0,0 +1,256 @@
+package com.shop.online.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 只读查询的并发执行器
+ * 一个请求中互不依赖的多个查询提交到固定大小的线程池并发执行，调用方按查询取结果；
+ * 每个查询有自己的超时时间（从提交开始计算），超时或失败时返回调用方给的默认值并记为降级，请求仍返回其他查询的结果。
+ * 线程数即同时占用的数据库连接数上限，要明显小于连接池大小，给写请求留出连接；
+ * 队列满时查询在调用线程中执行，在工作线程中再提交的查询也直接在当前线程执行，不会互相等待。
+ * 查询在工作线程中执行，不能依赖调用线程的ThreadLocal（当前登录用户、事务），只用于只读查询。
+ */
+@Component
+@Slf4j
+public class QueryFanOutExecutor {
+
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+    @Value("${query.fan-out.threads:4}")
+    private int threads;
+
+    @Value("${query.fan-out.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${query.fan-out.timeout-ms:3000}")
+    private long timeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder callerRuns = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private final LongAdder executed = new LongAdder();
+
+    private final LongAdder queryNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(() -> {
+                WORKER.set(true);
+                runnable.run();
+            }, "query-fan-out-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        log.info("查询并发执行器已启动: 线程{}个, 队列{}, 默认超时{}ms", threads, queueCapacity, timeoutMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 开始一组并发查询，同一请求中的查询提交到同一组
+     */
+    public FanOut start() {
+        return new FanOut();
+    }
+
+    /**
+     * 一组并发查询，记录其中降级的查询
+     */
+    public class FanOut {
+
+        private final List<String> degraded = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * 提交查询，使用默认超时时间
+         * @param name 查询名称，用于日志和降级列表
+         * @param fallback 超时或失败时的结果
+         */
+        public <T> Query<T> submit(String name, Supplier<T> query, T fallback) {
+            return submit(name, query, fallback, timeoutMillis);
+        }
+
+        public <T> Query<T> submit(String name, Supplier<T> query, T fallback, long timeoutMillis) {
+            Query<T> handle = new Query<>(this, name, fallback, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+            submitted.increment();
+            Runnable task = () -> handle.run(query);
+            if (WORKER.get()) {
+                callerRuns.increment();
+                task.run();
+                return handle;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 队列已满：在调用线程中执行，由调用方自己承担这次查询，不再增加数据库连接
+                callerRuns.increment();
+                task.run();
+            }
+            return handle;
+        }
+
+        /**
+         * 超时或失败、使用了默认值的查询名称
+         */
+        public List<String> getDegraded() {
+            synchronized (degraded) {
+                return new ArrayList<>(degraded);
+            }
+        }
+
+        public boolean isPartial() {
+            return !degraded.isEmpty();
+        }
+    }
+
+    /**
+     * 已提交的一个查询
+     */
+    public class Query<T> {
+
+        private final FanOut fanOut;
+
+        private final String name;
+
+        private final T fallback;
+
+        private final long deadline;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private boolean resolved;
+
+        private boolean degraded;
+
+        private T value;
+
+        Query(FanOut fanOut, String name, T fallback, long deadline) {
+            this.fanOut = fanOut;
+            this.name = name;
+            this.fallback = fallback;
+            this.deadline = deadline;
+        }
+
+        private void run(Supplier<T> query) {
+            // 排队期间已超时被放弃的查询不再执行，不占用连接
+            if (future.isDone()) {
+                skipped.increment();
+                return;
+            }
+            long start = System.nanoTime();
+            T result;
+            try {
+                result = query.get();
+            } catch (Throwable e) {
+                recordExecution(start);
+                future.completeExceptionally(e);
+                return;
+            }
+            recordExecution(start);
+            completed.increment();
+            future.complete(result);
+        }
+
+        private void recordExecution(long start) {
+            executed.increment();
+            queryNanos.add(System.nanoTime() - start);
+        }
+
+        /**
+         * 等待查询结果，最多等到超时时间；超时或失败时返回默认值
+         */
+        public synchronized T get() {
+            if (resolved) {
+                return value;
+            }
+            resolved = true;
+            try {
+                value = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                return value;
+            } catch (TimeoutException e) {
+                future.cancel(false);
+                timeouts.increment();
+                log.warn("查询超时，使用默认值: {}", name);
+            } catch (ExecutionException e) {
+                failures.increment();
+                log.error("查询失败，使用默认值: {}", name, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(false);
+                log.warn("等待查询结果被中断，使用默认值: {}", name);
+            }
+            degraded = true;
+            fanOut.degraded.add(name);
+            value = fallback;
+            return value;
+        }
+
+        /**
+         * 取结果后有效：是否使用了默认值
+         */
+        public synchronized boolean isDegraded() {
+            return degraded;
+        }
+    }
+
+    /**
+     * 执行器指标
+     */
+    public Map<String, Object> getStats() {
+        long executedCount = executed.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", threads);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("timeoutMillis", timeoutMillis);
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("poolSize", executor.getPoolSize());
+        stats.put("largestPoolSize", executor.getLargestPoolSize());
+        stats.put("queueSize", executor.getQueue().size());
+        stats.put("submittedCount", submitted.sum());
+        stats.put("completedCount", completed.sum());
+        stats.put("timeoutCount", timeouts.sum());
+        stats.put("failureCount", failures.sum());
+        stats.put("callerRunsCount", callerRuns.sum());
+        stats.put("skippedCount", skipped.sum());
+        stats.put("averageQueryMillis", executedCount == 0 ? 0
+                : queryNanos.sum() / 1_000_000.0 / executedCount);
+        return stats;
+    }
+}
@@ -0,0 +1,356 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.SalesPeriodDTO;
+import com.shop.online.dto.SalesTotalDTO;
+import com.shop.online.entity.SalesDailyBuyer;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.util.HyperLogLog;
+import com.shop.online.util.LocalCache;
+import com.shop.online.util.MoneyBuckets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 销售分析的分段缓存
+ * 查询的日期范围按自然月切成若干段，每段是一个卖家在该月内（与查询范围的交集）的销售日汇总合计，调用方把各段合并成结果。
+ * 截止日期早于今天的段（已结束的段）不设TTL，只按容量淘汰；包含今天的段（当前段）只缓存 open-ttl-seconds。
+ * 已结束的日期仍会因为晚到的确认收货、退款而变化（汇总按下单日期），SalesRollup 在这些变化提交后按 (卖家, 月) 失效：
+ * 每个 (卖家, 月) 有一个版本号，缓存键包含查询前读到的版本号，失效即换新版本号，
+ * 与失效并发、读到提交前数据的查询写入的是旧版本的键，不会再被读到。
+ * 多实例部署时其他实例的变化不会失效本实例的缓存，需要配置 closed-ttl-seconds 兜底。
+ * 未缓存的段的各项查询（每天合计、类别合计、商品合计、买家统计）通过 QueryFanOutExecutor 并发执行，
+ * 某项查询超时或失败时该项为空、段记为不完整，不完整的段不缓存。
+ * 缓存的对象由多个请求共享，调用方不能修改。
+ */
+@Component
+@Slf4j
+public class SalesAnalyticsCache {
+
+    /**
+     * 版本号表的最大条目数，超过时清空全部缓存重新开始
+     */
+    private static final int MAX_VERSIONS = 100000;
+
+    /**
+     * 段内各项数据，也是段不完整时 getMissing 返回的名称
+     */
+    public static final String SALES_BY_TIME = "salesByTime";
+
+    public static final String SALES_BY_CATEGORY = "salesByCategory";
+
+    public static final String TOP_PRODUCTS = "topProducts";
+
+    public static final String BUYERS = "buyers";
+
+    @Autowired
+    private SalesRollupMapper salesRollupMapper;
+
+    @Autowired
+    private QueryFanOutExecutor queryFanOutExecutor;
+
+    @Value("${sales.analytics-cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${sales.analytics-cache.open-ttl-seconds:60}")
+    private long openTtlSeconds;
+
+    @Value("${sales.analytics-cache.closed-ttl-seconds:0}")
+    private long closedTtlSeconds;
+
+    private Supplier<LocalDate> today = LocalDate::now;
+
+    private LocalCache<String, Bucket> closedBuckets;
+
+    private LocalCache<String, Bucket> openBuckets;
+
+    /**
+     * 卖家ID|月份 -> 版本号，没有条目时使用 baseVersion
+     */
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextVersion = new AtomicLong();
+
+    private volatile long baseVersion;
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 一段日期范围的销售合计，所有金额以分为单位
+     */
+    public static class Bucket {
+
+        private final List<SalesPeriodDTO> days;
+        private final Map<Long, long[]> categories;
+        private final Map<Long, long[]> products;
+        private final HyperLogLog buyers;
+        private final HyperLogLog repeatBuyers;
+        private final Set<String> missing;
+
+        Bucket(List<SalesPeriodDTO> days, Map<Long, long[]> categories, Map<Long, long[]> products,
+               HyperLogLog buyers, HyperLogLog repeatBuyers, Set<String> missing) {
+            this.days = days;
+            this.categories = categories;
+            this.products = products;
+            this.buyers = buyers;
+            this.repeatBuyers = repeatBuyers;
+            this.missing = missing;
+        }
+
+        /**
+         * 有成交的每一天，按日期排列
+         */
+        public List<SalesPeriodDTO> getDays() {
+            return days;
+        }
+
+        /**
+         * 类别ID -> {金额(分), 件数}
+         */
+        public Map<Long, long[]> getCategories() {
+            return categories;
+        }
+
+        /**
+         * 商品ID -> {金额(分), 件数}
+         */
+        public Map<Long, long[]> getProducts() {
+            return products;
+        }
+
+        public HyperLogLog getBuyers() {
+            return buyers;
+        }
+
+        public HyperLogLog getRepeatBuyers() {
+            return repeatBuyers;
+        }
+
+        /**
+         * 查询超时或失败、以空值代替的数据项，为空表示数据完整
+         */
+        public Set<String> getMissing() {
+            return missing;
+        }
+    }
+
+    private static final Bucket EMPTY = new Bucket(Collections.emptyList(), Collections.emptyMap(),
+            Collections.emptyMap(), new HyperLogLog(), new HyperLogLog(), Collections.emptySet());
+
+    /**
+     * 正在并发读取的段
+     */
+    private static class PendingBucket {
+        final int index;
+        final LocalCache<String, Bucket> cache;
+        final String key;
+        final QueryFanOutExecutor.Query<List<SalesPeriodDTO>> days;
+        final QueryFanOutExecutor.Query<Map<Long, long[]>> categories;
+        final QueryFanOutExecutor.Query<Map<Long, long[]>> products;
+        final QueryFanOutExecutor.Query<HyperLogLog[]> buyers;
+
+        PendingBucket(int index, LocalCache<String, Bucket> cache, String key,
+                      QueryFanOutExecutor.Query<List<SalesPeriodDTO>> days,
+                      QueryFanOutExecutor.Query<Map<Long, long[]>> categories,
+                      QueryFanOutExecutor.Query<Map<Long, long[]>> products,
+                      QueryFanOutExecutor.Query<HyperLogLog[]> buyers) {
+            this.index = index;
+            this.cache = cache;
+            this.key = key;
+            this.days = days;
+            this.categories = categories;
+            this.products = products;
+            this.buyers = buyers;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        closedBuckets = new LocalCache<>(maxEntries, TimeUnit.SECONDS.toMillis(closedTtlSeconds));
+        openBuckets = new LocalCache<>(maxEntries, TimeUnit.SECONDS.toMillis(openTtlSeconds));
+    }
+
+    /**
+     * 卖家在日期范围内（含首尾）按自然月切分的各段合计，未缓存的段从销售日汇总读取，各段的查询并发执行
+     */
+    public List<Bucket> getBuckets(Long sellerId, LocalDate startDate, LocalDate endDate) {
+        LocalDate now = today.get();
+        List<Bucket> buckets = new ArrayList<>();
+        List<PendingBucket> pending = new ArrayList<>();
+        QueryFanOutExecutor.FanOut fanOut = queryFanOutExecutor.start();
+        LocalDate from = startDate;
+        while (!from.isAfter(endDate)) {
+            LocalDate monthEnd = from.with(TemporalAdjusters.lastDayOfMonth());
+            LocalDate to = monthEnd.isBefore(endDate) ? monthEnd : endDate;
+            buckets.add(getBucket(sellerId, from, to, now, buckets.size(), fanOut, pending));
+            from = to.plusDays(1);
+        }
+        for (PendingBucket load : pending) {
+            Bucket bucket = complete(load);
+            buckets.set(load.index, bucket);
+            if (bucket.getMissing().isEmpty()) {
+                load.cache.put(load.key, bucket);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * 已缓存或不需要查询时返回段；否则提交查询、登记到 pending 并返回 null
+     */
+    private Bucket getBucket(Long sellerId, LocalDate from, LocalDate to, LocalDate now, int index,
+                             QueryFanOutExecutor.FanOut fanOut, List<PendingBucket> pending) {
+        // 还没有到来的日期没有成交
+        if (from.isAfter(now)) {
+            return EMPTY;
+        }
+        LocalCache<String, Bucket> cache = to.isBefore(now) ? closedBuckets : openBuckets;
+        // 先读版本号再查询：查询期间发生的失效会换掉版本号，本次结果不会被之后的请求读到
+        String key = sellerId + "|" + from + "|" + to + "|" + version(sellerId, from);
+        Bucket bucket = cache.get(key);
+        if (bucket == null) {
+            loads.increment();
+            pending.add(new PendingBucket(index, cache, key,
+                    fanOut.submit(SALES_BY_TIME,
+                            () -> salesRollupMapper.selectSellerPeriods(sellerId, from, to, "day"), null),
+                    fanOut.submit(SALES_BY_CATEGORY,
+                            () -> totals(salesRollupMapper.selectCategoryTotals(sellerId, from, to)), null),
+                    fanOut.submit(TOP_PRODUCTS,
+                            () -> totals(salesRollupMapper.selectProductTotals(sellerId, from, to)), null),
+                    fanOut.submit(BUYERS, () -> buyers(sellerId, from, to), null)));
+        }
+        return bucket;
+    }
+
+    private static Bucket complete(PendingBucket load) {
+        Set<String> missing = new HashSet<>();
+        List<SalesPeriodDTO> days = load.days.get();
+        if (days == null) {
+            missing.add(SALES_BY_TIME);
+            days = Collections.emptyList();
+        }
+        Map<Long, long[]> categories = load.categories.get();
+        if (categories == null) {
+            missing.add(SALES_BY_CATEGORY);
+            categories = Collections.emptyMap();
+        }
+        Map<Long, long[]> products = load.products.get();
+        if (products == null) {
+            missing.add(TOP_PRODUCTS);
+            products = Collections.emptyMap();
+        }
+        HyperLogLog[] buyers = load.buyers.get();
+        if (buyers == null) {
+            missing.add(BUYERS);
+            buyers = new HyperLogLog[]{new HyperLogLog(), new HyperLogLog()};
+        }
+        return new Bucket(days, categories, products, buyers[0], buyers[1], missing);
+    }
+
+    /**
+     * 合并段内每天的买家统计：{买家, 回头客}
+     */
+    private HyperLogLog[] buyers(Long sellerId, LocalDate from, LocalDate to) {
+        HyperLogLog buyers = new HyperLogLog();
+        HyperLogLog repeatBuyers = new HyperLogLog();
+        for (SalesDailyBuyer buyerDay : salesRollupMapper.selectBuyerDays(sellerId, from, to)) {
+            buyers.merge(HyperLogLog.fromBytes(buyerDay.getBuyers()));
+            repeatBuyers.merge(HyperLogLog.fromBytes(buyerDay.getRepeatBuyers()));
+        }
+        return new HyperLogLog[]{buyers, repeatBuyers};
+    }
+
+    private static Map<Long, long[]> totals(List<SalesTotalDTO> rows) {
+        Map<Long, long[]> totals = new HashMap<>(rows.size() * 2);
+        for (SalesTotalDTO row : rows) {
+            if (row.getId() != null) {
+                totals.put(row.getId(), new long[]{MoneyBuckets.toCents(row.getAmount()),
+                        row.getQuantity() == null ? 0 : row.getQuantity()});
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * 卖家某天的销售汇总已变化，失效包含这一天的各段
+     */
+    public void invalidate(Long sellerId, LocalDate date) {
+        invalidations.increment();
+        versions.put(versionKey(sellerId, date), nextVersion.incrementAndGet());
+        if (versions.size() > MAX_VERSIONS) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 失效全部缓存，用于重建销售日汇总之后
+     */
+    public void invalidateAll() {
+        invalidations.increment();
+        baseVersion = nextVersion.incrementAndGet();
+        versions.clear();
+        closedBuckets.clear();
+        openBuckets.clear();
+        log.info("销售分析缓存已全部失效");
+    }
+
+    private long version(Long sellerId, LocalDate date) {
+        Long version = versions.get(versionKey(sellerId, date));
+        return version == null ? baseVersion : version;
+    }
+
+    private static String versionKey(Long sellerId, LocalDate date) {
+        return sellerId + "|" + date.getYear() + "-" + date.getMonthValue();
+    }
+
+    /**
+     * 定期清理过期的当前段
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        openBuckets.evictExpired();
+        closedBuckets.evictExpired();
+    }
+
+    /**
+     * 缓存命中指标
+     */
+    public Map<String, Object> getStats() {
+        long hits = closedBuckets.getHitCount() + openBuckets.getHitCount();
+        long misses = closedBuckets.getMissCount() + openBuckets.getMissCount();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("closedSize", closedBuckets.size());
+        stats.put("closedHitRate", closedBuckets.getHitRate());
+        stats.put("openSize", openBuckets.size());
+        stats.put("openHitRate", openBuckets.getHitRate());
+        stats.put("maxEntries", maxEntries);
+        stats.put("openTtlSeconds", openTtlSeconds);
+        stats.put("closedTtlSeconds", closedTtlSeconds);
+        stats.put("hitCount", hits);
+        stats.put("missCount", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        stats.put("loadCount", loads.sum());
+        stats.put("invalidationCount", invalidations.sum());
+        return stats;
+    }
+}
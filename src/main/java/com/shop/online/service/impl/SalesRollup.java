@@ -0,0 +1,489 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.BuyerOrderDTO;
+import com.shop.online.dto.SalesLineDTO;
+import com.shop.online.entity.Order;
+import com.shop.online.entity.SalesDailyBuyer;
+import com.shop.online.entity.SalesDailyProduct;
+import com.shop.online.entity.SalesDailySeller;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.util.HyperLogLog;
+import com.shop.online.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 销售日汇总
+ * 订单进入已完成(3)时把未退款明细累加到 sales_daily_seller / sales_daily_product，离开已完成（整单退款）
+ * 或单独退款某个商品时扣减，汇总日期为订单的下单日期，与销售分析按下单时间筛选的口径一致。
+ * 变化量先在当前事务内合并，提交前按主键顺序一次写入：汇总行总是事务中最后加锁的行，
+ * 不会与订单、库存、卖家订单计数的加锁顺序交叉，热点行的持锁时间也只有提交这一段。
+ * 确认收货的订单同时把买家合并到 sales_daily_buyer 的 HyperLogLog 中（是否回头客见 SalesRollupMapper.selectRepeatOrderIds），
+ * 该统计只增不减，退款不从中移除买家。
+ * 同一批明细在事务提交后交给 BestSellerTracker 更新实时热销统计，并失效 SalesAnalyticsCache 中相应的下单日期。
+ * 在 TransactionHooks.withSavepointScope 范围内登记的变化量随保存点一起回滚。
+ */
+@Component
+@Slf4j
+public class SalesRollup {
+
+    private static final Integer COMPLETED = 3;
+
+    private static final Comparator<SalesDailySeller> SELLER_DAY_ORDER = Comparator
+            .comparing(SalesDailySeller::getSellerId)
+            .thenComparing(SalesDailySeller::getSalesDate);
+
+    private static final Comparator<SalesDailyBuyer> BUYER_DAY_ORDER = Comparator
+            .comparing(SalesDailyBuyer::getSellerId)
+            .thenComparing(SalesDailyBuyer::getSalesDate);
+
+    private static final Comparator<SalesDailyProduct> PRODUCT_DAY_ORDER = Comparator
+            .comparing(SalesDailyProduct::getSellerId)
+            .thenComparing(SalesDailyProduct::getSalesDate)
+            .thenComparing(SalesDailyProduct::getProductId);
+
+    @Autowired
+    private SalesRollupMapper salesRollupMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BestSellerTracker bestSellerTracker;
+
+    @Autowired
+    private SalesAnalyticsCache salesAnalyticsCache;
+
+    @Value("${sales.buyers.rebuild-batch-size:200}")
+    private int buyerRebuildBatchSize;
+
+    /**
+     * 一个卖家一天的买家统计
+     */
+    private static class BuyerDay {
+        final Long sellerId;
+        final LocalDate date;
+        final HyperLogLog buyers = new HyperLogLog();
+        final HyperLogLog repeatBuyers = new HyperLogLog();
+
+        BuyerDay(Long sellerId, LocalDate date) {
+            this.sellerId = sellerId;
+            this.date = date;
+        }
+
+        SalesDailyBuyer toRow() {
+            SalesDailyBuyer row = new SalesDailyBuyer();
+            row.setSellerId(sellerId);
+            row.setSalesDate(date);
+            row.setBuyers(buyers.toBytes());
+            row.setRepeatBuyers(repeatBuyers.toBytes());
+            return row;
+        }
+    }
+
+    /**
+     * 一个事务内合并的变化量
+     */
+    private static class Deltas {
+        final Map<String, SalesDailySeller> sellerDays = new HashMap<>();
+        final Map<String, SalesDailyProduct> productDays = new HashMap<>();
+        final Map<String, BuyerDay> buyerDays = new HashMap<>();
+
+        void addBuyer(Long sellerId, LocalDate date, Long userId, boolean repeat) {
+            BuyerDay day = buyerDays.computeIfAbsent(sellerId + "|" + date, key -> new BuyerDay(sellerId, date));
+            day.buyers.add(userId);
+            if (repeat) {
+                day.repeatBuyers.add(userId);
+            }
+        }
+
+        void addOrder(Long sellerId, LocalDate date, int orderCount, BigDecimal amount) {
+            SalesDailySeller row = sellerDays.computeIfAbsent(sellerId + "|" + date, key -> {
+                SalesDailySeller created = new SalesDailySeller();
+                created.setSellerId(sellerId);
+                created.setSalesDate(date);
+                created.setOrderCount(0);
+                created.setAmount(BigDecimal.ZERO);
+                return created;
+            });
+            row.setOrderCount(row.getOrderCount() + orderCount);
+            row.setAmount(row.getAmount().add(amount));
+        }
+
+        void addProduct(SalesLineDTO line, LocalDate date, int sign, int orderCount) {
+            SalesDailyProduct row = productDays.computeIfAbsent(
+                    line.getSellerId() + "|" + date + "|" + line.getProductId(), key -> {
+                        SalesDailyProduct created = new SalesDailyProduct();
+                        created.setSellerId(line.getSellerId());
+                        created.setSalesDate(date);
+                        created.setProductId(line.getProductId());
+                        created.setCategoryId(line.getCategoryId());
+                        created.setQuantity(0);
+                        created.setAmount(BigDecimal.ZERO);
+                        created.setOrderCount(0);
+                        return created;
+                    });
+            row.setQuantity(row.getQuantity() + sign * line.getQuantity());
+            row.setAmount(row.getAmount().add(lineAmount(line).multiply(BigDecimal.valueOf(sign))));
+            row.setOrderCount(row.getOrderCount() + orderCount);
+        }
+
+        /**
+         * 保存当前的变化量，返回恢复到此刻的动作
+         */
+        Runnable snapshot() {
+            Map<String, SalesDailySeller> savedSellerDays = new HashMap<>();
+            sellerDays.forEach((key, row) -> {
+                SalesDailySeller copy = new SalesDailySeller();
+                BeanUtils.copyProperties(row, copy);
+                savedSellerDays.put(key, copy);
+            });
+            Map<String, SalesDailyProduct> savedProductDays = new HashMap<>();
+            productDays.forEach((key, row) -> {
+                SalesDailyProduct copy = new SalesDailyProduct();
+                BeanUtils.copyProperties(row, copy);
+                savedProductDays.put(key, copy);
+            });
+            Map<String, BuyerDay> savedBuyerDays = new HashMap<>();
+            buyerDays.forEach((key, day) -> {
+                BuyerDay copy = new BuyerDay(day.sellerId, day.date);
+                copy.buyers.merge(day.buyers);
+                copy.repeatBuyers.merge(day.repeatBuyers);
+                savedBuyerDays.put(key, copy);
+            });
+            return () -> {
+                sellerDays.clear();
+                sellerDays.putAll(savedSellerDays);
+                productDays.clear();
+                productDays.putAll(savedProductDays);
+                buyerDays.clear();
+                buyerDays.putAll(savedBuyerDays);
+            };
+        }
+    }
+
+    /**
+     * 流转是否进入或离开已完成状态，即是否需要登记到销售日汇总
+     */
+    public static boolean affects(Integer fromStatus, Integer toStatus) {
+        return COMPLETED.equals(fromStatus) != COMPLETED.equals(toStatus);
+    }
+
+    /**
+     * 登记订单状态流转，必须在流转的事务中调用；只处理进入或离开已完成状态的订单
+     * @param orders 流转前的订单（需要 id 和 status）
+     * @param toStatus 目标状态
+     */
+    public void recordTransition(Collection<Order> orders, Integer toStatus) {
+        Map<Long, Integer> signs = new HashMap<>();
+        for (Order order : orders) {
+            if (affects(order.getStatus(), toStatus)) {
+                signs.put(order.getId(), COMPLETED.equals(order.getStatus()) ? -1 : 1);
+            }
+        }
+        if (!signs.isEmpty()) {
+            record(signs, salesRollupMapper.selectLines(signs.keySet(), null));
+        }
+    }
+
+    /**
+     * 登记按订单号流转的单个订单，必须在流转的事务中调用
+     */
+    public void recordTransition(String orderNo, Integer fromStatus, Integer toStatus) {
+        if (!affects(fromStatus, toStatus)) {
+            return;
+        }
+        List<SalesLineDTO> lines = salesRollupMapper.selectLinesByOrderNo(orderNo);
+        if (!lines.isEmpty()) {
+            record(Collections.singletonMap(lines.get(0).getOrderId(), COMPLETED.equals(fromStatus) ? -1 : 1), lines);
+        }
+    }
+
+    /**
+     * 合并订单的明细行
+     * @param signs 订单ID -> 1（进入已完成）或 -1（离开已完成）
+     */
+    private void record(Map<Long, Integer> signs, List<SalesLineDTO> lines) {
+        List<Long> completedIds = new ArrayList<>();
+        signs.forEach((orderId, sign) -> {
+            if (sign > 0) {
+                completedIds.add(orderId);
+            }
+        });
+        Set<Long> repeatOrderIds = completedIds.isEmpty()
+                ? Collections.emptySet() : new HashSet<>(salesRollupMapper.selectRepeatOrderIds(completedIds));
+
+        Deltas deltas = changingDeltas();
+        Set<Long> countedOrders = new HashSet<>();
+        Set<String> countedProducts = new HashSet<>();
+        List<SalesLineDTO> sold = new ArrayList<>();
+        List<SalesLineDTO> returned = new ArrayList<>();
+        for (SalesLineDTO line : lines) {
+            int sign = signs.get(line.getOrderId());
+            (sign > 0 ? sold : returned).add(line);
+            LocalDate date = line.getCreatedTime().toLocalDate();
+            // 每个订单计一次订单数和买家，没有未退款明细的订单只有这一行
+            boolean firstOfOrder = countedOrders.add(line.getOrderId());
+            deltas.addOrder(line.getSellerId(), date, firstOfOrder ? sign : 0,
+                    line.getProductId() == null ? BigDecimal.ZERO : lineAmount(line).multiply(BigDecimal.valueOf(sign)));
+            if (firstOfOrder && sign > 0) {
+                deltas.addBuyer(line.getSellerId(), date, line.getUserId(), repeatOrderIds.contains(line.getOrderId()));
+            }
+            if (line.getProductId() != null) {
+                boolean firstOfProduct = countedProducts.add(line.getOrderId() + "|" + line.getProductId());
+                deltas.addProduct(line, date, sign, firstOfProduct ? sign : 0);
+            }
+        }
+        writeIfNoTransaction(deltas);
+        TransactionHooks.afterCommit(() -> {
+            bestSellerTracker.record(sold, 1);
+            bestSellerTracker.record(returned, -1);
+            invalidateAnalytics(sold);
+            invalidateAnalytics(returned);
+        });
+    }
+
+    /**
+     * 登记已完成订单中单个明细的退款，必须在退款事务中、逻辑删除该明细之前调用
+     */
+    public void recordItemRefund(Order order, Long orderItemId) {
+        if (!COMPLETED.equals(order.getStatus())) {
+            return;
+        }
+        Deltas deltas = changingDeltas();
+        List<SalesLineDTO> lines = salesRollupMapper.selectLines(Collections.singletonList(order.getId()), orderItemId);
+        for (SalesLineDTO line : lines) {
+            if (line.getProductId() == null) {
+                continue;
+            }
+            LocalDate date = line.getCreatedTime().toLocalDate();
+            deltas.addOrder(line.getSellerId(), date, 0, lineAmount(line).negate());
+            deltas.addProduct(line, date, -1, -1);
+        }
+        writeIfNoTransaction(deltas);
+        TransactionHooks.afterCommit(() -> {
+            bestSellerTracker.record(lines, -1);
+            invalidateAnalytics(lines);
+        });
+    }
+
+    /**
+     * 按订单表（含归档）重新生成全部汇总
+     * 重建期间提交的确认收货、退款可能被重复计入或遗漏，建议在低峰期执行
+     * @return 重建的统计
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        int[] rows = transactionTemplate.execute(status -> {
+            salesRollupMapper.deleteAllSellerDays();
+            salesRollupMapper.deleteAllProductDays();
+            return new int[]{salesRollupMapper.rebuildSellerDays(), salesRollupMapper.rebuildProductDays()};
+        });
+
+        int buyerDays = rebuildBuyerDays();
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("sellerDays", rows == null ? 0 : rows[0]);
+        report.put("productDays", rows == null ? 0 : rows[1]);
+        report.put("buyerDays", buyerDays);
+        report.put("elapsedMillis", System.currentTimeMillis() - start);
+        report.put("finishedAt", LocalDateTime.now());
+        log.info("销售日汇总已重建: {}", report);
+        return report;
+    }
+
+    /**
+     * 启动时每日买家统计为空而已有销售日汇总（刚执行完建表迁移）时回填
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillBuyerDays() {
+        if (salesRollupMapper.countBuyerDays() == 0
+                && !salesRollupMapper.selectRollupSellerIdsAfter(0L, 1).isEmpty()) {
+            long start = System.currentTimeMillis();
+            int rows = rebuildBuyerDays();
+            log.info("每日买家统计已回填: rows={}, elapsedMillis={}", rows, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 按订单表（含归档）逐个卖家重新生成每日买家统计
+     * 每个卖家一个事务：先锁定该卖家的统计行再读取订单，期间该卖家的确认收货等待重建提交后再合并，不会遗漏
+     * @return 生成的行数
+     */
+    public int rebuildBuyerDays() {
+        int total = 0;
+        Long lastSellerId = 0L;
+        while (true) {
+            List<Long> sellerIds = salesRollupMapper.selectRollupSellerIdsAfter(lastSellerId, buyerRebuildBatchSize);
+            for (Long sellerId : sellerIds) {
+                Integer rows = transactionTemplate.execute(status -> rebuildBuyerDays(sellerId));
+                total += rows == null ? 0 : rows;
+            }
+            if (sellerIds.size() < buyerRebuildBatchSize) {
+                salesAnalyticsCache.invalidateAll();
+                return total;
+            }
+            lastSellerId = sellerIds.get(sellerIds.size() - 1);
+        }
+    }
+
+    private int rebuildBuyerDays(Long sellerId) {
+        salesRollupMapper.lockBuyerDays(sellerId);
+        Map<LocalDate, BuyerDay> days = new TreeMap<>();
+        // 回头客：下单时间晚于该买家在本店第一个已完成订单的订单
+        BuyerOrderDTO[] first = new BuyerOrderDTO[1];
+        salesRollupMapper.selectCompletedBuyers(sellerId, context -> {
+            BuyerOrderDTO order = context.getResultObject();
+            if (first[0] == null || !first[0].getUserId().equals(order.getUserId())) {
+                first[0] = order;
+            }
+            LocalDate date = order.getCreatedTime().toLocalDate();
+            BuyerDay day = days.computeIfAbsent(date, key -> new BuyerDay(sellerId, key));
+            day.buyers.add(order.getUserId());
+            if (order.getCreatedTime().isAfter(first[0].getCreatedTime())) {
+                day.repeatBuyers.add(order.getUserId());
+            }
+        });
+        salesRollupMapper.deleteBuyerDays(sellerId);
+        List<SalesDailyBuyer> rows = new ArrayList<>();
+        for (BuyerDay day : days.values()) {
+            rows.add(day.toRow());
+            if (rows.size() == 100) {
+                salesRollupMapper.insertBuyerDays(rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            salesRollupMapper.insertBuyerDays(rows);
+        }
+        return days.size();
+    }
+
+    /**
+     * 当前事务的变化量，第一次使用时登记提交前写入
+     */
+    private Deltas currentDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Deltas();
+        }
+        Deltas deltas = (Deltas) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Deltas created = new Deltas();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SalesRollup.this);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 将要修改的当前事务变化量，在保存点范围内时先保存快照，保存点回滚时恢复
+     */
+    private Deltas changingDeltas() {
+        Deltas deltas = currentDeltas();
+        TransactionHooks.beforeChange(deltas, deltas::snapshot);
+        return deltas;
+    }
+
+    private void writeIfNoTransaction(Deltas deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(deltas);
+        }
+    }
+
+    private void write(Deltas deltas) {
+        List<SalesDailySeller> sellerDays = new ArrayList<>(deltas.sellerDays.values());
+        sellerDays.removeIf(row -> row.getOrderCount() == 0 && row.getAmount().signum() == 0);
+        if (!sellerDays.isEmpty()) {
+            sellerDays.sort(SELLER_DAY_ORDER);
+            salesRollupMapper.addSellerDays(sellerDays);
+        }
+        List<SalesDailyProduct> productDays = new ArrayList<>(deltas.productDays.values());
+        productDays.removeIf(row -> row.getQuantity() == 0 && row.getOrderCount() == 0
+                && row.getAmount().signum() == 0);
+        if (!productDays.isEmpty()) {
+            productDays.sort(PRODUCT_DAY_ORDER);
+            salesRollupMapper.addProductDays(productDays);
+        }
+        if (!deltas.buyerDays.isEmpty()) {
+            writeBuyerDays(deltas.buyerDays.values());
+        }
+    }
+
+    /**
+     * HyperLogLog 不能在SQL中合并：先插入或锁定统计行，再读出、合并、写回
+     */
+    private void writeBuyerDays(Collection<BuyerDay> buyerDays) {
+        List<SalesDailyBuyer> keys = new ArrayList<>();
+        Map<String, BuyerDay> byKey = new HashMap<>();
+        for (BuyerDay day : buyerDays) {
+            SalesDailyBuyer key = new SalesDailyBuyer();
+            key.setSellerId(day.sellerId);
+            key.setSalesDate(day.date);
+            keys.add(key);
+            byKey.put(day.sellerId + "|" + day.date, day);
+        }
+        keys.sort(BUYER_DAY_ORDER);
+        salesRollupMapper.ensureBuyerDays(keys);
+        for (SalesDailyBuyer key : keys) {
+            BuyerDay delta = byKey.get(key.getSellerId() + "|" + key.getSalesDate());
+            SalesDailyBuyer current = salesRollupMapper.selectBuyerDayForUpdate(key.getSellerId(), key.getSalesDate());
+            HyperLogLog buyers = HyperLogLog.fromBytes(current.getBuyers());
+            HyperLogLog repeatBuyers = HyperLogLog.fromBytes(current.getRepeatBuyers());
+            buyers.merge(delta.buyers);
+            repeatBuyers.merge(delta.repeatBuyers);
+            key.setBuyers(buyers.toBytes());
+            key.setRepeatBuyers(repeatBuyers.toBytes());
+            salesRollupMapper.updateBuyerDay(key);
+        }
+    }
+
+    /**
+     * 失效明细所属卖家、下单日期的销售分析缓存
+     */
+    private void invalidateAnalytics(List<SalesLineDTO> lines) {
+        Set<String> invalidated = new HashSet<>();
+        for (SalesLineDTO line : lines) {
+            LocalDate date = line.getCreatedTime().toLocalDate();
+            if (invalidated.add(line.getSellerId() + "|" + date)) {
+                salesAnalyticsCache.invalidate(line.getSellerId(), date);
+            }
+        }
+    }
+
+    private static BigDecimal lineAmount(SalesLineDTO line) {
+        return line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+    }
+}
@@ -0,0 +1,316 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.entity.Order;
+import com.shop.online.entity.SellerOrderStats;
+import com.shop.online.mapper.SellerOrderStatsMapper;
+import com.shop.online.util.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 卖家订单状态计数
+ * 下单和每次状态流转时增减 seller_order_stats 中 (卖家, 状态) 的订单数，
+ * 卖家后台的待发货数、订单总数按主键直接读取，不再对订单表做COUNT。
+ * 变化量先在当前事务内合并，提交前一次写入，计数与订单在同一事务中提交，多实例部署时同样准确；
+ * 定时校对任务按订单表重新统计，修正人工改库等造成的偏差。
+ * 在 TransactionHooks.withSavepointScope 范围内登记的变化量随保存点一起回滚。
+ */
+@Component
+@Slf4j
+public class SellerOrderCounter {
+
+    @Autowired
+    private SellerOrderStatsMapper sellerOrderStatsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.seller-stats.reconcile-batch-size:200}")
+    private int reconcileBatchSize;
+
+    private volatile Map<String, Object> lastReconcile = new HashMap<>();
+
+    /**
+     * 一个事务内合并的变化量
+     */
+    private static class Deltas {
+        /**
+         * 卖家 -> 状态 -> 变化量，按主键排序
+         */
+        final Map<Long, Map<Integer, Integer>> counts = new TreeMap<>();
+        /**
+         * 只知道订单号的流转，提交前一次查询出卖家
+         */
+        final List<PendingTransition> pending = new ArrayList<>();
+
+        void add(Long sellerId, Integer fromStatus, Integer toStatus, int count) {
+            Map<Integer, Integer> bySeller = counts.computeIfAbsent(sellerId, id -> new TreeMap<>());
+            if (fromStatus != null) {
+                bySeller.merge(fromStatus, -count, Integer::sum);
+            }
+            bySeller.merge(toStatus, count, Integer::sum);
+        }
+
+        /**
+         * 保存当前的变化量，返回恢复到此刻的动作
+         */
+        Runnable snapshot() {
+            Map<Long, Map<Integer, Integer>> savedCounts = new TreeMap<>();
+            counts.forEach((sellerId, bySeller) -> savedCounts.put(sellerId, new TreeMap<>(bySeller)));
+            List<PendingTransition> savedPending = new ArrayList<>(pending);
+            return () -> {
+                counts.clear();
+                counts.putAll(savedCounts);
+                pending.clear();
+                pending.addAll(savedPending);
+            };
+        }
+    }
+
+    private static class PendingTransition {
+        final String orderNo;
+        final Integer fromStatus;
+        final Integer toStatus;
+
+        PendingTransition(String orderNo, Integer fromStatus, Integer toStatus) {
+            this.orderNo = orderNo;
+            this.fromStatus = fromStatus;
+            this.toStatus = toStatus;
+        }
+    }
+
+    /**
+     * 登记新建的待付款订单，在下单事务中调用
+     */
+    public void recordCreated(Long sellerId) {
+        Deltas deltas = changingDeltas();
+        deltas.add(sellerId, null, 0, 1);
+        writeIfNoTransaction(deltas);
+    }
+
+    /**
+     * 登记同一卖家的订单从一个状态流转到另一个状态，在流转的事务中调用
+     * @param count 流转的订单数（条件更新影响的行数）
+     */
+    public void recordTransition(Long sellerId, Integer fromStatus, Integer toStatus, int count) {
+        if (count == 0 || fromStatus.equals(toStatus)) {
+            return;
+        }
+        Deltas deltas = changingDeltas();
+        deltas.add(sellerId, fromStatus, toStatus, count);
+        writeIfNoTransaction(deltas);
+    }
+
+    /**
+     * 登记不知道卖家的单个订单的流转（买家操作），卖家在写入计数前按订单号查询
+     */
+    public void recordTransition(String orderNo, Integer fromStatus, Integer toStatus) {
+        if (fromStatus.equals(toStatus)) {
+            return;
+        }
+        Deltas deltas = changingDeltas();
+        deltas.pending.add(new PendingTransition(orderNo, fromStatus, toStatus));
+        writeIfNoTransaction(deltas);
+    }
+
+    /**
+     * 登记已锁定订单的流转，在流转的事务中调用
+     * @param orders 流转前的订单（需要 seller_id 和 status）
+     * @param toStatus 目标状态
+     */
+    public void recordTransition(Collection<Order> orders, Integer toStatus) {
+        Deltas deltas = changingDeltas();
+        for (Order order : orders) {
+            if (!order.getStatus().equals(toStatus)) {
+                deltas.add(order.getSellerId(), order.getStatus(), toStatus, 1);
+            }
+        }
+        writeIfNoTransaction(deltas);
+    }
+
+    /**
+     * 当前事务的变化量，第一次使用时登记提交前写入
+     * 计数行是卖家维度的热点行，只在提交前加锁一次，持锁时间只有提交这一段；
+     * 排在销售日汇总之前写入，所有事务按相同的顺序锁定这两类行
+     */
+    private Deltas currentDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Deltas();
+        }
+        Deltas deltas = (Deltas) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Deltas created = new Deltas();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE - 1;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SellerOrderCounter.this);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 将要修改的当前事务变化量，在保存点范围内时先保存快照，保存点回滚时恢复
+     */
+    private Deltas changingDeltas() {
+        Deltas deltas = currentDeltas();
+        TransactionHooks.beforeChange(deltas, deltas::snapshot);
+        return deltas;
+    }
+
+    private void writeIfNoTransaction(Deltas deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(deltas);
+        }
+    }
+
+    /**
+     * 按 (卖家, 状态) 排序后一条语句写入
+     */
+    private void write(Deltas deltas) {
+        if (!deltas.pending.isEmpty()) {
+            Set<String> orderNos = new HashSet<>();
+            for (PendingTransition transition : deltas.pending) {
+                orderNos.add(transition.orderNo);
+            }
+            Map<String, Long> sellers = new HashMap<>();
+            for (Order order : sellerOrderStatsMapper.selectOrderSellers(orderNos)) {
+                sellers.put(order.getOrderNo(), order.getSellerId());
+            }
+            for (PendingTransition transition : deltas.pending) {
+                deltas.add(sellers.get(transition.orderNo), transition.fromStatus, transition.toStatus, 1);
+            }
+            deltas.pending.clear();
+        }
+
+        List<SellerOrderStats> rows = new ArrayList<>();
+        deltas.counts.forEach((sellerId, bySeller) -> bySeller.forEach((status, delta) -> {
+            if (delta != 0) {
+                rows.add(new SellerOrderStats(sellerId, status, delta));
+            }
+        }));
+        deltas.counts.clear();
+        if (!rows.isEmpty()) {
+            sellerOrderStatsMapper.addCounts(rows);
+        }
+    }
+
+    /**
+     * 卖家各状态的订单数
+     * @return 状态 -> 订单数，没有订单的状态不在其中
+     */
+    public Map<Integer, Integer> getCounts(Long sellerId) {
+        return toCounts(sellerOrderStatsMapper.selectBySellerId(sellerId));
+    }
+
+    @Scheduled(cron = "${order.seller-stats.reconcile-cron:0 0 4 * * ?}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * 按订单表（含归档表）逐个卖家重新统计并修正计数
+     * 每个卖家一个事务：先锁定该卖家的计数行再统计，期间提交的流转要么已计入统计、要么在校对后才累加，不会重复或遗漏
+     * @return 本次校对的统计
+     */
+    public synchronized Map<String, Object> reconcile() {
+        long start = System.currentTimeMillis();
+        int sellers = 0;
+        int corrected = 0;
+        Long lastSellerId = 0L;
+        while (true) {
+            List<Long> sellerIds = sellerOrderStatsMapper.selectSellerIdsAfter(lastSellerId, reconcileBatchSize);
+            for (Long sellerId : sellerIds) {
+                Boolean fixed = transactionTemplate.execute(status -> reconcileSeller(sellerId));
+                if (Boolean.TRUE.equals(fixed)) {
+                    corrected++;
+                }
+            }
+            sellers += sellerIds.size();
+            if (sellerIds.size() < reconcileBatchSize) {
+                break;
+            }
+            lastSellerId = sellerIds.get(sellerIds.size() - 1);
+        }
+
+        long elapsedMillis = System.currentTimeMillis() - start;
+        Map<String, Object> report = new HashMap<>();
+        report.put("sellers", sellers);
+        report.put("corrected", corrected);
+        report.put("elapsedMillis", elapsedMillis);
+        report.put("finishedAt", LocalDateTime.now());
+        lastReconcile = report;
+        log.info("卖家订单计数校对完成: 卖家数={}, 修正数={}, 耗时={}ms", sellers, corrected, elapsedMillis);
+        return report;
+    }
+
+    /**
+     * 最近一次校对的统计
+     */
+    public Map<String, Object> getLastReconcile() {
+        return lastReconcile;
+    }
+
+    /**
+     * 校对单个卖家
+     * @return 是否有偏差并已修正
+     */
+    private boolean reconcileSeller(Long sellerId) {
+        Map<Integer, Integer> stored = toCounts(sellerOrderStatsMapper.lockBySellerId(sellerId));
+        List<SellerOrderStats> actualRows = sellerOrderStatsMapper.countActualBySellerId(sellerId);
+        Map<Integer, Integer> actual = toCounts(actualRows);
+        if (stored.equals(actual)) {
+            return false;
+        }
+
+        log.warn("卖家订单计数有偏差，已按订单表修正: sellerId={}, 计数={}, 实际={}", sellerId, stored, actual);
+        sellerOrderStatsMapper.deleteBySellerId(sellerId);
+        if (!actualRows.isEmpty()) {
+            sellerOrderStatsMapper.addCounts(actualRows);
+        }
+        return true;
+    }
+
+    /**
+     * 转为 状态 -> 订单数，忽略为0的行
+     */
+    private static Map<Integer, Integer> toCounts(List<SellerOrderStats> rows) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (SellerOrderStats stats : rows) {
+            if (stats.getOrderCount() != 0) {
+                counts.put(stats.getStatus(), stats.getOrderCount());
+            }
+        }
+        return counts;
+    }
+}
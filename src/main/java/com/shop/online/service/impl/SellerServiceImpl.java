@@ -34,6 +34,9 @@ public class SellerServiceImpl extends ServiceImpl<SellerMapper, Seller> impleme
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PlatformCounters platformCounters;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean apply(SellerApplyDTO sellerApplyDTO) {
@@ -121,6 +124,9 @@ public class SellerServiceImpl extends ServiceImpl<SellerMapper, Seller> impleme
                     existingSeller.setUpdatedTime(LocalDateTime.now());
                     boolean updateResult = updateById(existingSeller);
                     log.info("更新已有申请记录结果: {}", updateResult);
+                    if (updateResult) {
+                        platformCounters.sellerRequestStatusChanged(2, 0);
+                    }
                     return updateResult;
                 }
             }
@@ -144,6 +150,9 @@ public class SellerServiceImpl extends ServiceImpl<SellerMapper, Seller> impleme
 //                     currentUser.getId(), seller.getShopName());
             boolean saveResult = save(seller);
 //            log.info("保存新申请记录结果: {}", saveResult);
+            if (saveResult) {
+                platformCounters.sellerRequestStatusChanged(null, 0);
+            }
             return saveResult;
         } catch (BusinessException e) {
             throw e;
@@ -184,6 +193,9 @@ public class SellerServiceImpl extends ServiceImpl<SellerMapper, Seller> impleme
         }
         seller.setUpdatedTime(LocalDateTime.now());
         boolean updated = updateById(seller);
+        if (updated) {
+            platformCounters.sellerRequestStatusChanged(0, seller.getStatus());
+        }
 
         // 如果审核通过，更新用户角色为卖家
         if (approved && updated) {
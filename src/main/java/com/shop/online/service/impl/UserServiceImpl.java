@@ -31,6 +31,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Autowired
     private JwtUtil jwtUtil;
+
+    @Autowired
+    private PlatformCounters platformCounters;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
@@ -82,6 +85,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         
         // 保存用户
         save(user);
+        platformCounters.add(PlatformCounters.Metric.USERS, 1);
     }
 
     @Override
@@ -253,9 +257,14 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         }
         
         // 更新角色
+        Integer oldRole = user.getRole();
         user.setRole(role);
         
-        return updateById(user);
+        boolean updated = updateById(user);
+        if (updated) {
+            platformCounters.roleChanged(oldRole, role);
+        }
+        return updated;
     }
     
     /**
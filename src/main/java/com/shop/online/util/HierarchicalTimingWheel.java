@@ -0,0 +1,154 @@
+package com.shop.online.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮
+ * 第0层每格一个tick，第i层每格是第i-1层一整圈；任务按到期时间放入能容纳它的最低层，
+ * 高层的格子到期时把任务逐层下放，最终在第0层到期。
+ * 添加和推进都是O(1)（摊销），适合大量定时任务只需秒级精度的场景。
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    /** 每层一格代表的毫秒数 */
+    private final long[] spans;
+
+    private final List<ArrayDeque<Task<T>>[]> levels = new ArrayList<>();
+
+    /** 超出最高层一圈的任务，最高层转一格时重新放入 */
+    private final ArrayDeque<Task<T>> overflow = new ArrayDeque<>();
+
+    /** 添加时已经到期、等待下次推进返回的任务 */
+    private final List<T> due = new ArrayList<>();
+
+    /** 当前时间（tick的整数倍） */
+    private long currentTime;
+
+    private int size;
+
+    private static class Task<T> {
+        final T item;
+        /** 向上取整到tick的到期时间 */
+        final long deadline;
+
+        Task(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * @param tickMillis 第0层每格的毫秒数
+     * @param wheelSize 每层的格数
+     * @param levelCount 层数
+     * @param startMillis 起始时间
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.spans = new long[levelCount];
+        long span = tickMillis;
+        for (int i = 0; i < levelCount; i++) {
+            spans[i] = span;
+            span *= wheelSize;
+            ArrayDeque<Task<T>>[] buckets = new ArrayDeque[wheelSize];
+            for (int j = 0; j < wheelSize; j++) {
+                buckets[j] = new ArrayDeque<>();
+            }
+            levels.add(buckets);
+        }
+        this.currentTime = startMillis - startMillis % tickMillis;
+    }
+
+    /**
+     * 添加任务
+     * @param deadlineMillis 到期时间，早于当前时间的任务在下次推进时立即返回
+     */
+    public synchronized void add(T item, long deadlineMillis) {
+        long deadline = (deadlineMillis + tickMillis - 1) / tickMillis * tickMillis;
+        place(new Task<>(item, deadline));
+        size++;
+    }
+
+    /**
+     * 推进到指定时间，返回期间到期的任务
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            // 从高层到低层，把到期的高层格子下放
+            for (int level = spans.length - 1; level > 0; level--) {
+                if (currentTime % spans[level] == 0) {
+                    if (level == spans.length - 1) {
+                        cascade(overflow);
+                    }
+                    cascade(bucket(level, currentTime));
+                }
+            }
+            ArrayDeque<Task<T>> bucket = bucket(0, currentTime);
+            while (!bucket.isEmpty()) {
+                expired.add(bucket.poll().item);
+            }
+            expired.addAll(due);
+            due.clear();
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    /**
+     * 待到期的任务总数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 每层当前的任务数，最后一个元素是超出最高层的任务数
+     */
+    public synchronized int[] levelSizes() {
+        int[] sizes = new int[spans.length + 1];
+        for (int level = 0; level < spans.length; level++) {
+            for (ArrayDeque<Task<T>> bucket : levels.get(level)) {
+                sizes[level] += bucket.size();
+            }
+        }
+        sizes[spans.length] = overflow.size();
+        return sizes;
+    }
+
+    private void cascade(ArrayDeque<Task<T>> bucket) {
+        int count = bucket.size();
+        for (int i = 0; i < count; i++) {
+            place(bucket.poll());
+        }
+    }
+
+    private void place(Task<T> task) {
+        if (task.deadline <= currentTime) {
+            due.add(task.item);
+            return;
+        }
+        for (int level = 0; level < spans.length; level++) {
+            if (task.deadline / spans[level] - currentTime / spans[level] < wheelSize) {
+                bucket(level, task.deadline).add(task);
+                return;
+            }
+        }
+        overflow.add(task);
+    }
+
+    private ArrayDeque<Task<T>> bucket(int level, long time) {
+        return levels.get(level)[(int) (time / spans[level] % wheelSize)];
+    }
+}
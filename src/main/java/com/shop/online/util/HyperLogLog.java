@@ -0,0 +1,192 @@
+package com.shop.online.util;
+
+/**
+ * HyperLogLog 基数估计，精度 p = 12（4096 个寄存器）
+ * 估计值使用 Ertl 的改进估计量（New cardinality estimation algorithms for HyperLogLog sketches, 2017），
+ * 不需要偏差修正表：整个范围内相对标准误差约 1.04 / sqrt(4096) ≈ 1.6%，约 99.7% 的估计落在真实值 ±4.9% 以内，
+ * 基数较小时寄存器很少冲突，一百以内的误差通常不超过1。
+ * 合并即逐个寄存器取最大值，满足交换律、结合律和幂等：同一元素重复加入、同一统计重复合并都不改变结果。
+ * 序列化格式：首字节为 1 表示稀疏（每个非零寄存器3字节：12位下标 + 6位值），为 2 表示紧凑（4096 个6位寄存器共3072字节），
+ * 取两者中较短的一种，最多 3073 字节。
+ * 非线程安全。
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+
+    public static final int REGISTERS = 1 << PRECISION;
+
+    /**
+     * 相对标准误差
+     */
+    public static final double RELATIVE_STANDARD_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    /**
+     * 寄存器的最大值：哈希去掉下标后剩余 64 - p 位全为0时
+     */
+    private static final int MAX_RANK = 64 - PRECISION + 1;
+
+    private static final double ALPHA_INF = 0.5 / Math.log(2);
+
+    private static final byte SPARSE = 1;
+
+    private static final byte DENSE = 2;
+
+    private static final int DENSE_BYTES = REGISTERS * 6 / 8;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    /**
+     * 加入一个元素（如用户ID）
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, MAX_RANK);
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * 合并另一个统计，结果为两者并集的统计
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 估计的不同元素个数
+     */
+    public long estimate() {
+        int[] counts = new int[MAX_RANK + 1];
+        for (byte register : registers) {
+            counts[register]++;
+        }
+        double z = REGISTERS * tau(1 - (double) counts[MAX_RANK] / REGISTERS);
+        for (int k = MAX_RANK - 1; k >= 1; k--) {
+            z = 0.5 * (z + counts[k]);
+        }
+        z += REGISTERS * sigma((double) counts[0] / REGISTERS);
+        return Math.round(ALPHA_INF * REGISTERS * REGISTERS / z);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * 3 < DENSE_BYTES) {
+            byte[] bytes = new byte[1 + nonZero * 3];
+            bytes[0] = SPARSE;
+            int offset = 1;
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    int entry = i << 6 | registers[i];
+                    bytes[offset++] = (byte) (entry >>> 16);
+                    bytes[offset++] = (byte) (entry >>> 8);
+                    bytes[offset++] = (byte) entry;
+                }
+            }
+            return bytes;
+        }
+
+        byte[] bytes = new byte[1 + DENSE_BYTES];
+        bytes[0] = DENSE;
+        // 每4个寄存器（24位）占3个字节
+        for (int i = 0, offset = 1; i < REGISTERS; i += 4, offset += 3) {
+            int packed = registers[i] << 18 | registers[i + 1] << 12 | registers[i + 2] << 6 | registers[i + 3];
+            bytes[offset] = (byte) (packed >>> 16);
+            bytes[offset + 1] = (byte) (packed >>> 8);
+            bytes[offset + 2] = (byte) packed;
+        }
+        return bytes;
+    }
+
+    /**
+     * 反序列化，null或空数组为空统计
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        if (bytes[0] == SPARSE) {
+            for (int offset = 1; offset + 2 < bytes.length; offset += 3) {
+                int entry = (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8 | bytes[offset + 2] & 0xFF;
+                sketch.registers[entry >>> 6] = (byte) (entry & 0x3F);
+            }
+        } else if (bytes[0] == DENSE && bytes.length == 1 + DENSE_BYTES) {
+            for (int i = 0, offset = 1; i < REGISTERS; i += 4, offset += 3) {
+                int packed = (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8 | bytes[offset + 2] & 0xFF;
+                sketch.registers[i] = (byte) (packed >>> 18);
+                sketch.registers[i + 1] = (byte) (packed >>> 12 & 0x3F);
+                sketch.registers[i + 2] = (byte) (packed >>> 6 & 0x3F);
+                sketch.registers[i + 3] = (byte) (packed & 0x3F);
+            }
+        } else {
+            throw new IllegalArgumentException("unknown HyperLogLog format: " + bytes[0]);
+        }
+        return sketch;
+    }
+
+    /**
+     * MurmurHash3 的 fmix64，把连续的ID打散成均匀分布的64位哈希
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+}
@@ -0,0 +1,150 @@
+package com.shop.online.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.shop.online.exception.BusinessException;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（keyset）分页
+ * 按“排序字段 + 主键”定位上一页最后一行，用 WHERE (k1, k2, id) 之后 代替 OFFSET，
+ * 翻到多深都只扫描一页的数据。游标是最后一行排序字段值的Base64编码，对客户端不透明。
+ * 排序字段必须非空，最后一个排序字段必须唯一（一般是主键）。
+ */
+public class KeysetPagination<T> {
+
+    public static final Function<String, Object> LONG = Long::valueOf;
+    public static final Function<String, Object> INTEGER = Integer::valueOf;
+    public static final Function<String, Object> DECIMAL = BigDecimal::new;
+    public static final Function<String, Object> DATE_TIME = LocalDateTime::parse;
+
+    private static final String SEPARATOR = "|";
+
+    private final List<SortKey<T>> keys = new ArrayList<>();
+
+    private static class SortKey<T> {
+        final SFunction<T, ?> column;
+        final boolean asc;
+        final Function<String, Object> parser;
+
+        SortKey(SFunction<T, ?> column, boolean asc, Function<String, Object> parser) {
+            this.column = column;
+            this.asc = asc;
+            this.parser = parser;
+        }
+    }
+
+    public KeysetPagination<T> asc(SFunction<T, ?> column, Function<String, Object> parser) {
+        keys.add(new SortKey<>(column, true, parser));
+        return this;
+    }
+
+    public KeysetPagination<T> desc(SFunction<T, ?> column, Function<String, Object> parser) {
+        keys.add(new SortKey<>(column, false, parser));
+        return this;
+    }
+
+    /**
+     * 只追加排序，用于传统的页码分页
+     */
+    public void applyOrder(LambdaQueryWrapper<T> wrapper) {
+        for (SortKey<T> key : keys) {
+            wrapper.orderBy(true, key.asc, key.column);
+        }
+    }
+
+    /**
+     * 把每页条数限制在 [1, maxLimit] 之间：游标分页用 LIMIT 直接拼接，不经过分页插件的单页上限
+     * @param maxLimit 单页最多条数（mybatis-plus.pagination.max-limit），不大于0时不限制
+     */
+    public static int clampSize(int size, long maxLimit) {
+        if (maxLimit > 0 && size > maxLimit) {
+            return (int) maxLimit;
+        }
+        return Math.max(size, 1);
+    }
+
+    /**
+     * 追加游标条件、排序，并多取一行用于判断是否还有下一页
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param size 每页条数，调用前用 {@link #clampSize} 限制
+     */
+    public void apply(LambdaQueryWrapper<T> wrapper, String cursor, int size) {
+        if (StringUtils.hasText(cursor)) {
+            Object[] values = decode(cursor);
+            wrapper.and(w -> {
+                // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...，降序时用小于
+                for (int i = 0; i < keys.size(); i++) {
+                    int depth = i;
+                    Function<LambdaQueryWrapper<T>, LambdaQueryWrapper<T>> branch = b -> {
+                        for (int j = 0; j < depth; j++) {
+                            b.eq(keys.get(j).column, values[j]);
+                        }
+                        SortKey<T> key = keys.get(depth);
+                        return key.asc ? b.gt(key.column, values[depth]) : b.lt(key.column, values[depth]);
+                    };
+                    if (i == 0) {
+                        w.nested(branch::apply);
+                    } else {
+                        w.or(branch::apply);
+                    }
+                }
+            });
+        }
+        applyOrder(wrapper);
+        wrapper.last("LIMIT " + (size + 1));
+    }
+
+    /**
+     * 截掉多取的一行并生成下一页游标
+     * @param records 按 {@link #apply} 查询出的记录，会被原地截断为一页
+     * @return 下一页游标，没有下一页时返回null
+     */
+    public String nextCursor(List<T> records, int size) {
+        if (records.size() <= size) {
+            return null;
+        }
+        records.subList(size, records.size()).clear();
+        return encode(records.get(size - 1));
+    }
+
+    private String encode(T last) {
+        StringBuilder builder = new StringBuilder();
+        for (SortKey<T> key : keys) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            Object value = key.column.apply(last);
+            builder.append(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : String.valueOf(value));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != keys.size()) {
+                throw new BusinessException("分页游标无效");
+            }
+            Object[] values = new Object[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = keys.get(i).parser.apply(parts[i]);
+            }
+            return values;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BusinessException("分页游标无效");
+        }
+    }
+}
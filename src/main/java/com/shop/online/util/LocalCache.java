@@ -0,0 +1,164 @@
+package com.shop.online.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内缓存：按访问顺序淘汰(LRU)，写入后超过TTL自动失效，并统计命中率
+ * 适合数据量有限、允许短暂不一致的场景；多实例部署时各实例各自缓存
+ */
+public class LocalCache<K, V> {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private static class Entry<V> {
+        final V value;
+        final long expireAt;
+
+        Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * @param maxSize 最大条目数，超过时淘汰最久未访问的条目
+     * @param ttlMillis 写入后的存活时间（毫秒），不大于0表示不过期，只按容量淘汰
+     */
+    public LocalCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    LocalCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LocalCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期时返回null
+     */
+    public V get(K key) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry == null || entry.expireAt <= clock.getAsLong()) {
+                if (entry != null) {
+                    map.remove(key);
+                }
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        synchronized (map) {
+            map.put(key, new Entry<>(value, expireAt(clock.getAsLong())));
+        }
+    }
+
+    /**
+     * 不存在（或已过期）时写入
+     * @return 已存在的有效值；返回null表示本次写入成功
+     */
+    public V putIfAbsent(K key, V value) {
+        synchronized (map) {
+            long now = clock.getAsLong();
+            Entry<V> entry = map.get(key);
+            if (entry != null && entry.expireAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            misses.increment();
+            map.put(key, new Entry<>(value, expireAt(now)));
+            return null;
+        }
+    }
+
+    private long expireAt(long now) {
+        return ttlMillis > 0 ? now + ttlMillis : Long.MAX_VALUE;
+    }
+
+    public void remove(K key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * 只有当前值仍是value时才删除，避免误删其他请求写入的新值
+     */
+    public void remove(K key, V value) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry != null && entry.value == value) {
+                map.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    /**
+     * 清理已过期的条目
+     */
+    public void evictExpired() {
+        synchronized (map) {
+            long now = clock.getAsLong();
+            Iterator<Entry<V>> iterator = map.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expireAt <= now) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率，没有访问时为0
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,76 @@
+package com.shop.online.util;
+
+import java.math.BigDecimal;
+
+/**
+ * 按桶累加金额和笔数，金额以分为单位存在 long 数组中
+ * 累加过程不创建对象、没有浮点误差，只在读取时转换为 BigDecimal；桶的下标由调用方计算（如周期序号、类别序号）。
+ * 非线程安全。
+ */
+public class MoneyBuckets {
+
+    private final long[] cents;
+
+    private final int[] counts;
+
+    public MoneyBuckets(int size) {
+        this.cents = new long[size];
+        this.counts = new int[size];
+    }
+
+    public int size() {
+        return cents.length;
+    }
+
+    /**
+     * 累加一笔金额
+     */
+    public void add(int bucket, BigDecimal amount) {
+        add(bucket, toCents(amount), 1);
+    }
+
+    /**
+     * 累加已汇总的金额和笔数
+     */
+    public void add(int bucket, BigDecimal amount, int count) {
+        add(bucket, toCents(amount), count);
+    }
+
+    public void add(int bucket, long amountCents, int count) {
+        cents[bucket] = Math.addExact(cents[bucket], amountCents);
+        counts[bucket] += count;
+    }
+
+    public BigDecimal getAmount(int bucket) {
+        return BigDecimal.valueOf(cents[bucket], 2);
+    }
+
+    public long getCents(int bucket) {
+        return cents[bucket];
+    }
+
+    public int getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * 全部桶的金额合计（分）
+     */
+    public long totalCents() {
+        long total = 0;
+        for (long value : cents) {
+            total = Math.addExact(total, value);
+        }
+        return total;
+    }
+
+    /**
+     * 转为分，金额的小数超过两位时抛出 ArithmeticException
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.movePointRight(2).longValueExact();
+    }
+}
@@ -0,0 +1,103 @@
+package com.shop.online.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单号生成器
+ * 规则：yyMMddHHmmss(12位) + 节点号(2位) + 秒内序号(4位)，共18位
+ * 同一节点每秒最多生成10000个；序号用尽或系统时钟回拨时沿用逻辑时钟继续递增，
+ * 保证同一节点生成的订单号单调递增且不重复，多节点之间靠节点号区分。
+ */
+@Component
+public class OrderNoGenerator {
+
+    private static final int SEQUENCE_LIMIT = 10000;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+
+    private final String nodePart;
+
+    private final LongSupplier clock;
+
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    /**
+     * 逻辑时钟状态：秒 * 10000 + 序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 最近一次格式化的秒和对应的时间前缀，避免每次都格式化日期
+     */
+    private volatile CachedPrefix cachedPrefix = new CachedPrefix(-1, "");
+
+    @Autowired
+    public OrderNoGenerator(@Value("${order.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    OrderNoGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > 99) {
+            throw new IllegalArgumentException("订单节点号必须在0-99之间: " + nodeId);
+        }
+        this.nodePart = String.format("%02d", nodeId);
+        this.clock = clock;
+    }
+
+    public String nextOrderNo() {
+        long next;
+        while (true) {
+            long now = clock.getAsLong() / 1000;
+            long prev = state.get();
+            long prevSecond = prev / SEQUENCE_LIMIT;
+            if (now > prevSecond) {
+                next = now * SEQUENCE_LIMIT;
+            } else {
+                // 同一秒内或时钟回拨：在逻辑时钟上继续递增，序号用尽时借用下一秒
+                next = prev + 1;
+            }
+            if (state.compareAndSet(prev, next)) {
+                break;
+            }
+        }
+        
+        long second = next / SEQUENCE_LIMIT;
+        long sequence = next % SEQUENCE_LIMIT;
+        StringBuilder orderNo = new StringBuilder(18)
+                .append(prefixOf(second))
+                .append(nodePart);
+        for (long digit = SEQUENCE_LIMIT / 10; digit > 1 && sequence < digit; digit /= 10) {
+            orderNo.append('0');
+        }
+        return orderNo.append(sequence).toString();
+    }
+
+    private String prefixOf(long second) {
+        CachedPrefix cached = cachedPrefix;
+        if (cached.second == second) {
+            return cached.prefix;
+        }
+        String prefix = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zoneId).format(FORMATTER);
+        cachedPrefix = new CachedPrefix(second, prefix);
+        return prefix;
+    }
+
+    private static class CachedPrefix {
+        final long second;
+        final String prefix;
+
+        CachedPrefix(long second, String prefix) {
+            this.second = second;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.shop.online.util;
+
+import java.util.Arrays;
+
+/**
+ * 滑动窗口上的 Space-Saving：窗口按固定时长切成若干时间片，每片一个 {@link SpaceSaving}
+ * 写入落在当前时间片，过期的时间片在下次写入同一位置时清空；查询时合并窗口内的时间片。
+ * 窗口边界按时间片对齐，实际覆盖的时长在 (窗口 - 一个时间片, 窗口] 之间。
+ * 非线程安全。
+ */
+public class SlidingSpaceSaving<K> {
+
+    private final int capacity;
+
+    private final long slotMillis;
+
+    private final SpaceSaving<K>[] slots;
+
+    /**
+     * 每个位置当前存放的时间片序号（时间 / 时间片时长），-1 表示空
+     */
+    private final long[] slotEpochs;
+
+    /**
+     * @param capacity 每个时间片以及合并结果跟踪的元素数
+     * @param slotMillis 时间片时长
+     * @param slotCount 窗口包含的时间片数
+     */
+    @SuppressWarnings("unchecked")
+    public SlidingSpaceSaving(int capacity, long slotMillis, int slotCount) {
+        this.capacity = capacity;
+        this.slotMillis = slotMillis;
+        this.slots = new SpaceSaving[slotCount];
+        this.slotEpochs = new long[slotCount];
+        Arrays.fill(slotEpochs, -1);
+    }
+
+    /**
+     * 在 timeMillis 所在的时间片累加权重；早于窗口的写入被忽略
+     */
+    public void add(long timeMillis, K key, long weight, long units) {
+        long epoch = timeMillis / slotMillis;
+        int index = (int) (epoch % slots.length);
+        if (slotEpochs[index] != epoch) {
+            if (slotEpochs[index] > epoch) {
+                return;
+            }
+            slots[index] = new SpaceSaving<>(capacity);
+            slotEpochs[index] = epoch;
+        }
+        slots[index].add(key, weight, units);
+    }
+
+    /**
+     * 截至 nowMillis 的窗口内的合并统计
+     */
+    public SpaceSaving<K> snapshot(long nowMillis) {
+        long current = nowMillis / slotMillis;
+        SpaceSaving<K> merged = new SpaceSaving<>(capacity);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null && slotEpochs[i] > current - slots.length && slotEpochs[i] <= current) {
+                merged.merge(slots[i]);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 截至 nowMillis 窗口内是否没有任何数据，可用于清理不活跃的统计
+     */
+    public boolean isIdle(long nowMillis) {
+        long current = nowMillis / slotMillis;
+        for (long epoch : slotEpochs) {
+            if (epoch > current - slotEpochs.length) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
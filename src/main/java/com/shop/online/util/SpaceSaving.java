@@ -0,0 +1,204 @@
+package com.shop.online.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving 热门元素统计：最多跟踪 capacity 个元素，内存与数据量无关
+ * 新元素在满员时替换计数最小的元素，并继承其计数作为误差上界。
+ * 保证：总权重为 N 时，任何真实权重大于 N / capacity 的元素都在其中，每个元素的计数最多高估 N / capacity。
+ * 支持负权重（如退款），前提是扣减的不超过之前加入同一统计的权重：跟踪中的元素直接扣减，已被替换的元素的扣减被忽略。
+ * 扣减可能让最小计数变小，因此新元素继承的是历次被替换计数的最大值（untrackedBound），而不是当前的最小计数；
+ * 没有扣减时两者相同，即标准的 Space-Saving。
+ * 非线程安全。
+ */
+public class SpaceSaving<K> {
+
+    private final int capacity;
+
+    private final Map<K, Counter<K>> counters;
+
+    /**
+     * 按计数从小到大排列，计数相同时按加入顺序，便于找到最小计数的元素
+     */
+    private final TreeSet<Counter<K>> byCount = new TreeSet<>(
+            Comparator.<Counter<K>>comparingLong(counter -> counter.count).thenComparingLong(counter -> counter.seq));
+
+    private long nextSeq;
+
+    /**
+     * 未跟踪元素真实权重的上界
+     */
+    private long untrackedBound;
+
+    private long totalWeight;
+
+    /**
+     * 跟踪中的元素
+     */
+    public static class Counter<K> {
+        private final K key;
+        private final long seq;
+        private long count;
+        private long error;
+        private long units;
+
+        Counter(K key, long seq) {
+            this.key = key;
+            this.seq = seq;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * 估计的权重，不小于真实权重（负权重被忽略的情况除外）
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 计数中可能多算的部分，真实权重在 [count - error, count] 之间
+         */
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * 随权重一起累加的附带数量（如件数），只统计跟踪期间的部分
+         */
+        public long getUnits() {
+            return units;
+        }
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 所有已加入权重的合计
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    /**
+     * 累加元素的权重
+     * @param weight 权重，负数表示扣减
+     * @param units 附带数量
+     */
+    public void add(K key, long weight, long units) {
+        totalWeight += weight;
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            counter.units += units;
+            byCount.add(counter);
+            return;
+        }
+        if (weight <= 0) {
+            return;
+        }
+
+        if (counters.size() >= capacity) {
+            Counter<K> min = byCount.pollFirst();
+            counters.remove(min.key);
+            untrackedBound = Math.max(untrackedBound, min.count);
+        }
+        counter = new Counter<>(key, nextSeq++);
+        counter.count = untrackedBound + weight;
+        counter.error = untrackedBound;
+        counter.units = units;
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * 合并另一个统计的计数，用于把多个时间片合成一个窗口
+     * 合并后保留计数最大的 capacity 个元素，误差上界为各部分误差上界之和
+     */
+    public void merge(SpaceSaving<K> other) {
+        totalWeight += other.totalWeight;
+        // 一方未跟踪的元素，在该方的真实权重最多为该方的 untrackedBound
+        long otherBound = other.untrackedBound;
+        long selfBound = untrackedBound;
+
+        Map<K, Counter<K>> merged = new HashMap<>(counters);
+        for (Counter<K> counter : merged.values()) {
+            if (!other.counters.containsKey(counter.key)) {
+                counter.count += otherBound;
+                counter.error += otherBound;
+            }
+        }
+        for (Counter<K> theirs : other.counters.values()) {
+            Counter<K> ours = merged.get(theirs.key);
+            if (ours == null) {
+                ours = new Counter<>(theirs.key, nextSeq++);
+                ours.count = selfBound;
+                ours.error = selfBound;
+                merged.put(theirs.key, ours);
+            }
+            ours.count += theirs.count;
+            ours.error += theirs.error;
+            ours.units += theirs.units;
+        }
+
+        List<Counter<K>> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.<Counter<K>>comparingLong(counter -> counter.count).reversed());
+        counters.clear();
+        byCount.clear();
+        for (Counter<K> counter : sorted.subList(0, Math.min(capacity, sorted.size()))) {
+            counters.put(counter.key, counter);
+            byCount.add(counter);
+        }
+        // 两方都未跟踪的元素最多为两个上界之和；合并后舍弃的元素最多为其计数
+        untrackedBound = selfBound + otherBound;
+        if (sorted.size() > capacity) {
+            untrackedBound = Math.max(untrackedBound, sorted.get(capacity).count);
+        }
+    }
+
+    /**
+     * 计数最大的 k 个元素，按计数从大到小
+     */
+    public List<Counter<K>> top(int k) {
+        List<Counter<K>> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (Counter<K> counter : byCount.descendingSet()) {
+            if (top.size() >= k) {
+                break;
+            }
+            if (counter.count > 0) {
+                top.add(counter);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * 全部跟踪中的元素
+     */
+    public Collection<Counter<K>> counters() {
+        return counters.values();
+    }
+}
@@ -0,0 +1,128 @@
+package com.shop.online.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 事务回调工具类
+ * 用于把内存状态的变更与数据库事务的提交/回滚结果对齐
+ */
+public final class TransactionHooks {
+
+    /**
+     * 保存点范围内登记的回调，范围成功结束后才登记到事务上
+     */
+    private static final ThreadLocal<Deque<Scope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * 一个保存点范围：登记的回调，以及范围内修改过的内存状态的恢复动作（每个状态对象一个）
+     */
+    private static class Scope {
+        final List<Hook> hooks = new ArrayList<>();
+        final Map<Object, Runnable> restores = new LinkedHashMap<>();
+    }
+
+    private static class Hook {
+        final Runnable onCommit;
+        final Runnable onRollback;
+
+        Hook(Runnable onCommit, Runnable onRollback) {
+            this.onCommit = onCommit;
+            this.onRollback = onRollback;
+        }
+    }
+
+    /**
+     * 当前事务提交后执行；没有活动事务时立即执行
+     */
+    public static void afterCommit(Runnable action) {
+        afterCompletion(action, null);
+    }
+
+    /**
+     * 根据当前事务的结果执行对应回调；没有活动事务时视为已提交
+     * @param onCommit 提交后执行，可为null
+     * @param onRollback 回滚后执行，可为null
+     */
+    public static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit != null) {
+                onCommit.run();
+            }
+            return;
+        }
+        Deque<Scope> scopes = SCOPES.get();
+        if (!scopes.isEmpty()) {
+            scopes.peek().hooks.add(new Hook(onCommit, onRollback));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED && onCommit != null) {
+                    onCommit.run();
+                } else if (status == STATUS_ROLLED_BACK && onRollback != null) {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 修改与事务绑定的内存状态（如提交前才写入的变化量）之前调用
+     * 在保存点范围内时，该状态在本范围内第一次修改前保存快照，范围失败时恢复，撤销范围内的修改；
+     * 范围成功结束时快照转交给外层范围（外层已有更早的快照时保留外层的）。不在保存点范围内时不做任何事。
+     * @param state 状态对象，同一范围内只保存一次快照
+     * @param snapshot 保存快照，返回恢复到快照的动作
+     */
+    public static void beforeChange(Object state, Supplier<Runnable> snapshot) {
+        Deque<Scope> scopes = SCOPES.get();
+        if (!scopes.isEmpty()) {
+            scopes.peek().restores.computeIfAbsent(state, key -> snapshot.get());
+        }
+    }
+
+    /**
+     * 在保存点（嵌套事务）内执行，配合 PROPAGATION_NESTED 使用
+     * 抛出异常时，范围内登记的回滚回调立即执行（保存点回滚不会触发事务回调），
+     * 并恢复范围内修改过的内存状态（见 {@link #beforeChange}）；
+     * 正常结束时，回调转交给外层事务
+     */
+    public static <T> T withSavepointScope(Supplier<T> action) {
+        Deque<Scope> scopes = SCOPES.get();
+        Scope scope = new Scope();
+        scopes.push(scope);
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            scopes.pop();
+            scope.restores.values().forEach(Runnable::run);
+            for (Hook hook : scope.hooks) {
+                if (hook.onRollback != null) {
+                    hook.onRollback.run();
+                }
+            }
+            throw e;
+        }
+        scopes.pop();
+        if (!scopes.isEmpty()) {
+            scope.restores.forEach(scopes.peek().restores::putIfAbsent);
+        }
+        for (Hook hook : scope.hooks) {
+            afterCompletion(hook.onCommit, hook.onRollback);
+        }
+        return result;
+    }
+}
@@ -1,146 +1,4 @@
-CREATE DATABASE IF NOT EXISTS online_shop DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci;
-
-USE online_shop;
-
--- 用户表
-CREATE TABLE IF NOT EXISTS user (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    username VARCHAR(50) NOT NULL UNIQUE COMMENT '用户名',
-    password VARCHAR(100) NOT NULL COMMENT '密码',
-    nickname VARCHAR(50) COMMENT '昵称',
-    phone VARCHAR(20) COMMENT '手机号',
-    email VARCHAR(100) COMMENT '邮箱',
-    avatar VARCHAR(200) COMMENT '头像',
-    role TINYINT NOT NULL DEFAULT 0 COMMENT '角色 0-买家 1-卖家',
-    status TINYINT NOT NULL DEFAULT 1 COMMENT '状态 0-禁用 1-正常',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '用户表';
-
--- 商品分类表
-CREATE TABLE IF NOT EXISTS category (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    parent_id BIGINT NOT NULL DEFAULT 0 COMMENT '父分类ID',
-    name VARCHAR(50) NOT NULL COMMENT '分类名称',
-    level TINYINT NOT NULL COMMENT '层级 1-一级 2-二级 3-三级',
-    sort INT NOT NULL DEFAULT 0 COMMENT '排序',
-    icon VARCHAR(200) COMMENT '图标',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '商品分类表';
-
--- 商品表
-CREATE TABLE IF NOT EXISTS product (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    seller_id BIGINT NOT NULL COMMENT '卖家ID',
-    category_id BIGINT NOT NULL COMMENT '分类ID',
-    name VARCHAR(100) NOT NULL COMMENT '商品名称',
-    description TEXT COMMENT '商品描述',
-    price DECIMAL(10,2) NOT NULL COMMENT '价格',
-    stock INT NOT NULL DEFAULT 0 COMMENT '库存',
-    status TINYINT NOT NULL DEFAULT 1 COMMENT '状态 0-下架 1-上架',
-    sales INT NOT NULL DEFAULT 0 COMMENT '销量',
-    main_image VARCHAR(200) NOT NULL COMMENT '主图',
-    is_featured TINYINT NOT NULL DEFAULT 0 COMMENT '是否推荐 0-否 1-是',
-    featured_sort INT NOT NULL DEFAULT 0 COMMENT '推荐排序',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '商品表';
-
--- 商品图片表
-CREATE TABLE IF NOT EXISTS product_image (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    product_id BIGINT NOT NULL COMMENT '商品ID',
-    image_url VARCHAR(200) NOT NULL COMMENT '图片URL',
-    sort INT NOT NULL DEFAULT 0 COMMENT '排序',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '商品图片表';
-
--- 购物车表
-CREATE TABLE IF NOT EXISTS cart (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    user_id BIGINT NOT NULL COMMENT '用户ID',
-    product_id BIGINT NOT NULL COMMENT '商品ID',
-    quantity INT NOT NULL DEFAULT 1 COMMENT '数量',
-    selected TINYINT NOT NULL DEFAULT 1 COMMENT '是否选中 0-未选中 1-选中',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '购物车表';
-
--- 订单表
-CREATE TABLE IF NOT EXISTS `order` (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    order_no VARCHAR(50) NOT NULL UNIQUE COMMENT '订单号',
-    user_id BIGINT NOT NULL COMMENT '用户ID',
-    seller_id BIGINT NOT NULL COMMENT '卖家ID',
-    total_amount DECIMAL(10,2) NOT NULL COMMENT '订单总金额',
-    status TINYINT NOT NULL DEFAULT 0 COMMENT '订单状态 0-待付款 1-待发货 2-待收货 3-已完成 4-已取消',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-    payment_method VARCHAR(10) DEFAULT NULL COMMENT '支付方式: 1-支付宝，2-微信支付，3-银行卡，4-货到付款';
-) COMMENT '订单表';
-
--- 订单明细表
-CREATE TABLE IF NOT EXISTS order_item (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    order_id BIGINT NOT NULL COMMENT '订单ID',
-    product_id BIGINT NOT NULL COMMENT '商品ID',
-    product_name VARCHAR(100) NOT NULL COMMENT '商品名称',
-    product_image VARCHAR(200) NOT NULL COMMENT '商品图片',
-    price DECIMAL(10,2) NOT NULL COMMENT '商品单价',
-    quantity INT NOT NULL COMMENT '购买数量',
-    total_amount DECIMAL(10,2) NOT NULL COMMENT '总金额',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '订单明细表';
-
--- Product Review Table
-CREATE TABLE IF NOT EXISTS product_review (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    order_no VARCHAR(50) NOT NULL COMMENT 'Order number',
-    user_id BIGINT NOT NULL COMMENT 'User ID of the reviewer',
-    product_id BIGINT NOT NULL COMMENT 'Product ID',
-    rating TINYINT NOT NULL COMMENT 'Rating (1-5 stars)',
-    content TEXT COMMENT 'Review content',
-    images VARCHAR(500) COMMENT 'Review images (comma separated URLs)',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Creation time',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Update time',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT 'Soft delete flag'
-) COMMENT 'Product review table';
-
--- Add indexes for fast query
-CREATE INDEX idx_product_review_product_id ON product_review(product_id);
-CREATE INDEX idx_product_review_user_id ON product_review(user_id);
-CREATE INDEX idx_product_review_order_no ON product_review(order_no);
-
--- 商家表
-CREATE TABLE IF NOT EXISTS seller (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    user_id BIGINT NOT NULL UNIQUE COMMENT '用户ID',
-    shop_name VARCHAR(50) NOT NULL COMMENT '店铺名称',
-    shop_logo VARCHAR(200) COMMENT '店铺logo',
-    shop_desc TEXT COMMENT '店铺描述',
-    status TINYINT NOT NULL DEFAULT 0 COMMENT '状态 0-待审核 1-审核通过 2-审核拒绝',
-    contact_name VARCHAR(50) COMMENT '联系人姓名',
-    contact_phone VARCHAR(20) COMMENT '联系电话',
-    contact_email VARCHAR(100) COMMENT '联系邮箱',
-    business_license VARCHAR(100) COMMENT '营业执照号',
-    business_license_image VARCHAR(200) COMMENT '营业执照图片',
-    id_card_front VARCHAR(200) COMMENT '身份证正面照片',
-    id_card_back VARCHAR(200) COMMENT '身份证背面照片',
-    reject_reason VARCHAR(255) COMMENT '审核拒绝理由',
-    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
-) COMMENT '商家表';
+-- 本地演示数据，在迁移完成后手动执行
 
 INSERT INTO product (id, seller_id, category_id, name, description, price, stock, status, sales, main_image, is_featured, featured_sort, created_time, updated_time, deleted)
 VALUES
@@ -0,0 +1,30 @@
+-- 热点查询的组合索引与覆盖索引，对应 MigrationQueryPlanTest 中的查询计划检查
+
+-- 买家订单列表：user_id + deleted 过滤，按 created_time(, id) 倒序
+CREATE INDEX idx_order_user_deleted_created ON `order`(user_id, deleted, created_time);
+-- 卖家订单列表、按状态筛选的卖家订单/退款订单
+CREATE INDEX idx_order_seller_status_created ON `order`(seller_id, status, created_time);
+-- 按状态扫描待付款订单（超时取消任务重建）
+CREATE INDEX idx_order_status_id ON `order`(status, id);
+
+-- 查询订单的明细、判断订单是否有单独退款的明细
+CREATE INDEX idx_order_item_order_deleted ON order_item(order_id, deleted);
+-- 重建商品销量时按商品汇总明细
+CREATE INDEX idx_order_item_product_deleted ON order_item(product_id, deleted);
+
+-- 购物车按用户列出、按用户+商品合并
+CREATE INDEX idx_cart_user_product ON cart(user_id, product_id);
+
+-- 分类商品列表
+CREATE INDEX idx_product_category_status_deleted ON product(category_id, status, deleted);
+-- 卖家商品列表
+CREATE INDEX idx_product_seller_deleted ON product(seller_id, deleted);
+
+-- 商品图片按商品、排序读取
+CREATE INDEX idx_product_image_product_deleted_sort ON product_image(product_id, deleted, sort);
+
+-- 评价：是否已评价的判断只读索引即可完成；按商品统计评分同样走覆盖索引
+CREATE INDEX idx_product_review_order_user_product ON product_review(order_no, user_id, product_id, deleted);
+CREATE INDEX idx_product_review_product_deleted_rating ON product_review(product_id, deleted, rating);
+DROP INDEX idx_product_review_order_no ON product_review;
+DROP INDEX idx_product_review_product_id ON product_review;
@@ -0,0 +1,40 @@
+-- 冷订单归档表：已完成、已取消、已退款且超过保留期的订单从热表整单搬到这里
+-- 列与热表一致（保留原ID），末尾多一列归档时间
+
+CREATE TABLE IF NOT EXISTS order_archive (
+    id BIGINT PRIMARY KEY COMMENT '原订单ID',
+    order_no VARCHAR(50) NOT NULL UNIQUE COMMENT '订单号',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    seller_id BIGINT NOT NULL COMMENT '卖家ID',
+    total_amount DECIMAL(10,2) NOT NULL COMMENT '订单总金额',
+    status TINYINT NOT NULL DEFAULT 0 COMMENT '订单状态',
+    payment_method VARCHAR(10) DEFAULT NULL COMMENT '支付方式',
+    phone VARCHAR(20) COMMENT '收货电话',
+    location VARCHAR(200) COMMENT '收货地址',
+    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除',
+    archived_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间'
+) COMMENT '订单归档表';
+
+CREATE INDEX idx_order_archive_user_deleted_created ON order_archive(user_id, deleted, created_time);
+CREATE INDEX idx_order_archive_seller_status_created ON order_archive(seller_id, status, created_time);
+
+CREATE TABLE IF NOT EXISTS order_item_archive (
+    id BIGINT PRIMARY KEY COMMENT '原明细ID',
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    product_name VARCHAR(100) NOT NULL COMMENT '商品名称',
+    product_image VARCHAR(200) NOT NULL COMMENT '商品图片',
+    price DECIMAL(10,2) NOT NULL COMMENT '商品单价',
+    quantity INT NOT NULL COMMENT '购买数量',
+    total_amount DECIMAL(10,2) NOT NULL COMMENT '总金额',
+    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    deleted TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除'
+) COMMENT '订单明细归档表';
+
+CREATE INDEX idx_order_item_archive_order_deleted ON order_item_archive(order_id, deleted);
+
+-- 归档任务按状态、创建时间挑选候选订单
+CREATE INDEX idx_order_status_created ON `order`(status, created_time);
@@ -0,0 +1,18 @@
+-- 卖家各状态订单数：订单状态变化时在同一事务中增减，卖家后台直接按主键读取
+-- 统计范围与原先的COUNT一致（deleted = 0），归档的订单仍计入
+
+CREATE TABLE IF NOT EXISTS seller_order_stats (
+    seller_id BIGINT NOT NULL COMMENT '卖家ID',
+    status TINYINT NOT NULL COMMENT '订单状态',
+    order_count INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (seller_id, status)
+) COMMENT '卖家订单状态计数表';
+
+INSERT INTO seller_order_stats (seller_id, status, order_count)
+SELECT seller_id, status, COUNT(*) FROM (
+    SELECT seller_id, status FROM `order` WHERE deleted = 0
+    UNION ALL
+    SELECT seller_id, status FROM order_archive WHERE deleted = 0
+) o
+GROUP BY seller_id, status;
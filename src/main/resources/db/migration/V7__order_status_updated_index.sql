@@ -0,0 +1,2 @@
+-- 重新加载实时热销统计时，按状态扫描最近确认收货（更新时间在窗口内）的订单
+CREATE INDEX idx_order_status_updated ON `order`(status, updated_time);
@@ -0,0 +1,12 @@
+-- 卖家每日买家的 HyperLogLog 统计（p = 12，见 HyperLogLog），按下单日期与 sales_daily_seller 对应
+-- buyers 为已完成订单的买家，repeat_buyers 为其中的回头客（该订单之外在本店还有已完成订单）
+-- 确认收货时在同一事务中合并；统计不能扣减，退款不从中移除。历史数据在应用启动时发现表为空后按卖家回填
+
+CREATE TABLE IF NOT EXISTS sales_daily_buyer (
+    seller_id BIGINT NOT NULL COMMENT '卖家ID',
+    sales_date DATE NOT NULL COMMENT '下单日期',
+    buyers VARBINARY(3073) COMMENT '买家统计',
+    repeat_buyers VARBINARY(3073) COMMENT '回头客统计',
+    updated_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (seller_id, sales_date)
+) COMMENT '卖家每日买家统计表';
@@ -0,0 +1,20 @@
+-- 热点库存流水：热点商品的预占和归还在订单事务中各插入一行，定时写回 product.stock 后删除
+-- 宕机重启时先把剩余的流水写回，已提交但未写回的扣减不会丢失
+-- 热点库存租约：同一时间只有一个实例可以启用热点库存台账
+
+CREATE TABLE IF NOT EXISTS hot_stock_journal (
+    id BIGINT NOT NULL AUTO_INCREMENT COMMENT '流水ID',
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    delta INT NOT NULL COMMENT '库存变化量',
+    created_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (id)
+) COMMENT '热点库存流水表';
+
+CREATE TABLE IF NOT EXISTS hot_stock_lease (
+    id TINYINT NOT NULL COMMENT '固定为1',
+    owner VARCHAR(128) COMMENT '持有租约的实例',
+    expire_time DATETIME COMMENT '租约到期时间',
+    PRIMARY KEY (id)
+) COMMENT '热点库存租约表';
+
+INSERT INTO hot_stock_lease (id) VALUES (1);
@@ -0,0 +1,99 @@
+package com.shop.online.benchmark;
+
+import com.shop.online.service.impl.GroupCommitExecutor;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 组提交与逐个事务提交的对比基准测试
+ * 使用落盘的H2数据库模拟“下单 = 一次订单插入 + 一次库存更新”，每次提交都需要刷盘
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private PooledDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private GroupCommitExecutor groupCommitExecutor;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path dir = Files.createTempDirectory("group-commit");
+        dataSource = new PooledDataSource("org.h2.Driver",
+                "jdbc:h2:file:" + dir.resolve("bench") + ";MODE=MySQL", "sa", "");
+        dataSource.setPoolMaximumActiveConnections(32);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, product_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, stock BIGINT)");
+        for (int i = 0; i < 64; i++) {
+            jdbcTemplate.update("INSERT INTO product (id, stock) VALUES (?, ?)", i, Long.MAX_VALUE / 2);
+        }
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        groupCommitExecutor = new GroupCommitExecutor(transactionManager, true, 32, 2, 2);
+        groupCommitExecutor.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        groupCommitExecutor.stop();
+        dataSource.forceCloseAll();
+    }
+
+    @Benchmark
+    public Long transactionPerRequest() {
+        return transactionTemplate.execute(status -> checkout());
+    }
+
+    @Benchmark
+    public Long groupCommit() {
+        return groupCommitExecutor.execute(this::checkout);
+    }
+
+    private Long checkout() {
+        long id = ids.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO orders (id, product_id) VALUES (?, ?)", id, id % 64);
+        jdbcTemplate.update("UPDATE product SET stock = stock - 1 WHERE id = ?", id % 64);
+        return id;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GroupCommitBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
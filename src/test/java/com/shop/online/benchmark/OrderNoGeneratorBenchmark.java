@@ -0,0 +1,51 @@
+package com.shop.online.benchmark;
+
+import com.shop.online.util.OrderNoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器基准测试
+ * 运行：在IDE中执行main方法，或 mvn test-compile 后用 test classpath 启动本类
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderNoGeneratorBenchmark {
+
+    private final OrderNoGenerator generator = new OrderNoGenerator(1);
+
+    @Benchmark
+    @Threads(1)
+    public String singleThread() {
+        return generator.nextOrderNo();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String contended() {
+        return generator.nextOrderNo();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OrderNoGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,190 @@
+package com.shop.online.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shop.online.dto.OrderItemDTO;
+import com.shop.online.entity.Order;
+import com.shop.online.entity.User;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.ProductReviewMapper;
+import com.shop.online.mapper.UserMapper;
+import com.shop.online.service.impl.OrderPageAssembler;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.vo.OrderVO;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 订单列表组装基准测试：一页50个订单、每单3个商品、一半订单已完成
+ * legacy 按改造前的步骤组装（未退款/已退款明细各查一次、逐个商品查评价、逐个订单线性查找用户、BeanUtils复制），
+ * assembler 使用 OrderPageAssembler
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderPageAssemblerBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    private PooledDataSource dataSource;
+
+    private OrderItemMapper orderItemMapper;
+
+    private ProductReviewMapper productReviewMapper;
+
+    private UserMapper userMapper;
+
+    private OrderPageAssembler assembler;
+
+    private List<Order> page;
+
+    @Setup
+    public void setUp() throws Exception {
+        // 关闭SQL调试日志，避免日志输出淹没查询本身的耗时
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        TestDatabase database = TestDatabase.migrated("page_bench");
+        dataSource = database.getDataSource();
+        page = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            try (PreparedStatement insertOrder = connection.prepareStatement(
+                    "INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status) VALUES (?, ?, ?, 1, 29.70, ?)");
+                 PreparedStatement insertItem = connection.prepareStatement(
+                         "INSERT INTO order_item (order_id, product_id, product_name, product_image, price, quantity, " +
+                                 "total_amount, deleted) VALUES (?, ?, 'p', 'p.png', 9.90, 1, 9.90, ?)");
+                 PreparedStatement insertReview = connection.prepareStatement(
+                         "INSERT INTO product_review (user_id, order_no, product_id, rating, deleted) VALUES (?, ?, ?, 5, 0)")) {
+                for (long id = 1; id <= PAGE_SIZE; id++) {
+                    long userId = id % 20;
+                    int status = id % 2 == 0 ? 3 : 1;
+                    insertOrder.setLong(1, id);
+                    insertOrder.setString(2, "NO" + id);
+                    insertOrder.setLong(3, userId);
+                    insertOrder.setInt(4, status);
+                    insertOrder.executeUpdate();
+                    page.add(order(id, "NO" + id, userId, status));
+                    for (long productId = 1; productId <= 3; productId++) {
+                        insertItem.setLong(1, id);
+                        insertItem.setLong(2, productId);
+                        insertItem.setInt(3, productId == 3 && status == 3 ? 1 : 0);
+                        insertItem.executeUpdate();
+                    }
+                    if (status == 3) {
+                        insertReview.setLong(1, userId);
+                        insertReview.setString(2, "NO" + id);
+                        insertReview.setLong(3, 1);
+                        insertReview.executeUpdate();
+                    }
+                }
+            }
+            for (int userId = 0; userId < 20; userId++) {
+                statement.execute("INSERT INTO user (id, username, password, deleted) VALUES (" + userId + ", 'u" + userId
+                        + "', 'p', 0)");
+            }
+        }
+
+        orderItemMapper = database.getMapper(OrderItemMapper.class);
+        productReviewMapper = database.getMapper(ProductReviewMapper.class);
+        userMapper = database.getMapper(UserMapper.class);
+
+        assembler = new OrderPageAssembler();
+        ReflectionTestUtils.setField(assembler, "orderItemMapper", orderItemMapper);
+        ReflectionTestUtils.setField(assembler, "userMapper", userMapper);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.forceCloseAll();
+    }
+
+    @Benchmark
+    public List<OrderVO> assembler() {
+        return assembler.assemble(page, true);
+    }
+
+    @Benchmark
+    public List<OrderVO> legacy() {
+        List<Long> orderIds = page.stream().map(Order::getId).collect(Collectors.toList());
+        List<OrderItemDTO> allItems = new ArrayList<>(orderItemMapper.selectByOrderIds(orderIds));
+        allItems.addAll(orderItemMapper.selectRefundedByOrderIds(orderIds));
+        Map<Long, List<OrderItemDTO>> orderItemMap = allItems.stream()
+                .collect(Collectors.groupingBy(OrderItemDTO::getOrderId));
+
+        List<Long> userIds = page.stream().map(Order::getUserId).distinct().collect(Collectors.toList());
+        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>().in(User::getId, userIds));
+        Map<Long, String> userMap = new HashMap<>();
+        userIds.forEach(userId -> {
+            User user = users.stream().filter(u -> u.getId().equals(userId)).findFirst().orElse(null);
+            userMap.put(userId, user != null ? user.getUsername() : "未知用户");
+        });
+
+        return page.stream().map(order -> {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(order, orderVO);
+            orderVO.setStatus(order.getStatus().toString());
+            orderVO.setUsername(userMap.getOrDefault(order.getUserId(), "未知用户"));
+            orderVO.setProducts(orderItemMap.getOrDefault(order.getId(), new ArrayList<>()).stream().map(item -> {
+                OrderVO.OrderProductVO productVO = new OrderVO.OrderProductVO();
+                productVO.setId(item.getProductId().intValue());
+                productVO.setName(item.getProductName());
+                productVO.setPrice(item.getPrice());
+                productVO.setQuantity(item.getQuantity());
+                productVO.setRefunded(item.getDeleted() != null && item.getDeleted() == 1);
+                if (order.getStatus() == 3) {
+                    Integer reviewCount = productReviewMapper.hasReviewed(
+                            order.getUserId(), order.getOrderNo(), item.getProductId());
+                    productVO.setReviewed(reviewCount != null && reviewCount > 0);
+                }
+                return productVO;
+            }).collect(Collectors.toList()));
+            return orderVO;
+        }).collect(Collectors.toList());
+    }
+
+    private static Order order(long id, String orderNo, long userId, int status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal("29.70"));
+        order.setCreatedTime(LocalDateTime.now());
+        return order;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OrderPageAssemblerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,230 @@
+package com.shop.online.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.shop.online.common.enums.SalesPeriod;
+import com.shop.online.dto.SalesPeriodDTO;
+import com.shop.online.entity.Order;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.util.MoneyBuckets;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 销售分析按周期汇总的基准测试：一个卖家一年内 1,000,000 个已完成订单
+ * legacyGroupingByDouble 按改造前的做法，对已查出的 List&lt;Order&gt; 按格式化后的日期字符串分组、double 求和（不含查询本身的耗时）；
+ * centsBuckets 对同一批订单按周期序号写入 long 分数组；
+ * sqlOverOrders 在H2中直接对订单表分桶求和；sqlOverRollup 是 getSalesAnalytics 现在的做法，对日汇总表分桶求和。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SalesAggregationBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+
+    private static final int DAYS = 365;
+
+    private static final long SELLER_ID = 100L;
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(DAYS - 1);
+
+    @Param({"day", "week", "month"})
+    private String period;
+
+    private SalesPeriod salesPeriod;
+
+    private List<Order> orders;
+
+    private PooledDataSource dataSource;
+
+    private SalesRollupMapper salesRollupMapper;
+
+    private String ordersBucketSql;
+
+    @Setup
+    public void setUp() throws Exception {
+        // 关闭SQL调试日志，避免日志输出淹没查询本身的耗时
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        salesPeriod = SalesPeriod.of(period);
+
+        orders = new ArrayList<>(ORDERS);
+        for (long id = 1; id <= ORDERS; id++) {
+            Order order = new Order();
+            order.setId(id);
+            order.setSellerId(SELLER_ID);
+            order.setStatus(3);
+            order.setTotalAmount(BigDecimal.valueOf(amountCents(id), 2));
+            order.setCreatedTime(createdTime(id));
+            orders.add(order);
+        }
+
+        // H2默认在表未变化时直接返回相同查询的上次结果，基准测试中需要关闭
+        TestDatabase database = TestDatabase.migrated("sales_bench", "OPTIMIZE_REUSE_RESULTS=0");
+        dataSource = database.getDataSource();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            // 与内存中的订单使用相同的公式生成
+            statement.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) " +
+                    "SELECT X, CONCAT('NO', X), 1, " + SELLER_ID + ", MOD(X * 7919, 100000) / 100.0, 3, " +
+                    "TIMESTAMPADD(SECOND, MOD(X * 7, 86400), TIMESTAMPADD(DAY, MOD(X * 37, " + DAYS + "), " +
+                    "TIMESTAMP '" + FIRST_DAY + " 00:00:00')) FROM SYSTEM_RANGE(1, " + ORDERS + ")");
+            statement.execute("INSERT INTO sales_daily_seller (seller_id, sales_date, order_count, amount) " +
+                    "SELECT seller_id, CAST(created_time AS DATE), COUNT(*), SUM(total_amount) FROM `order` " +
+                    "GROUP BY seller_id, CAST(created_time AS DATE)");
+        }
+        // 与 SalesRollupMapper.selectSellerPeriods 相同的分桶表达式
+        String day = "CAST(created_time AS DATE)";
+        String bucket;
+        switch (salesPeriod) {
+            case WEEK:
+                bucket = String.format("TIMESTAMPADD(DAY, -MOD(DAYOFWEEK(%s) + 5, 7), %s)", day, day);
+                break;
+            case MONTH:
+                bucket = String.format("TIMESTAMPADD(DAY, 1 - DAYOFMONTH(%s), %s)", day, day);
+                break;
+            default:
+                bucket = day;
+        }
+        ordersBucketSql = "SELECT period_start, COUNT(*), SUM(total_amount) FROM (" +
+                "SELECT " + bucket + " AS period_start, total_amount FROM `order` " +
+                "WHERE seller_id = " + SELLER_ID + " AND status = 3 AND deleted = 0) o " +
+                "GROUP BY period_start ORDER BY period_start";
+
+        salesRollupMapper = database.getMapper(SalesRollupMapper.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.forceCloseAll();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyGroupingByDouble() {
+        DateTimeFormatter formatter;
+        switch (period) {
+            case "week":
+                formatter = DateTimeFormatter.ofPattern("yyyy-'W'ww");
+                break;
+            case "month":
+                formatter = DateTimeFormatter.ofPattern("yyyy-MM");
+                break;
+            default:
+                formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        }
+        Function<LocalDateTime, String> groupingFunction = dateTime -> dateTime.format(formatter);
+        Map<String, List<Order>> ordersByTime = orders.stream()
+                .collect(Collectors.groupingBy(order -> groupingFunction.apply(order.getCreatedTime()),
+                        LinkedHashMap::new, Collectors.toList()));
+
+        List<Map<String, Object>> salesByTime = new ArrayList<>();
+        for (Map.Entry<String, List<Order>> entry : ordersByTime.entrySet()) {
+            Map<String, Object> timeData = new HashMap<>();
+            timeData.put("period", entry.getKey());
+            timeData.put("amount", entry.getValue().stream()
+                    .mapToDouble(order -> order.getTotalAmount().doubleValue()).sum());
+            timeData.put("orderCount", entry.getValue().size());
+            salesByTime.add(timeData);
+        }
+        return salesByTime;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> centsBuckets() {
+        MoneyBuckets buckets = new MoneyBuckets(salesPeriod.index(FIRST_DAY, LAST_DAY) + 1);
+        for (Order order : orders) {
+            buckets.add(salesPeriod.index(FIRST_DAY, order.getCreatedTime().toLocalDate()), order.getTotalAmount());
+        }
+
+        List<Map<String, Object>> salesByTime = new ArrayList<>();
+        LocalDate periodStart = salesPeriod.start(FIRST_DAY);
+        for (int i = 0; i < buckets.size(); i++) {
+            if (buckets.getCount(i) > 0) {
+                Map<String, Object> timeData = new HashMap<>();
+                timeData.put("period", salesPeriod.label(periodStart));
+                timeData.put("amount", buckets.getAmount(i));
+                timeData.put("orderCount", buckets.getCount(i));
+                salesByTime.add(timeData);
+            }
+            periodStart = next(periodStart);
+        }
+        return salesByTime;
+    }
+
+    @Benchmark
+    public List<Object[]> sqlOverOrders() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(ordersBucketSql)) {
+            while (resultSet.next()) {
+                rows.add(new Object[]{resultSet.getDate(1), resultSet.getInt(2), resultSet.getBigDecimal(3)});
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<SalesPeriodDTO> sqlOverRollup() {
+        return salesRollupMapper.selectSellerPeriods(SELLER_ID, FIRST_DAY, LAST_DAY, salesPeriod.getKey());
+    }
+
+    private LocalDate next(LocalDate periodStart) {
+        switch (salesPeriod) {
+            case WEEK:
+                return periodStart.plusWeeks(1);
+            case MONTH:
+                return periodStart.plusMonths(1);
+            default:
+                return periodStart.plusDays(1);
+        }
+    }
+
+    private static long amountCents(long id) {
+        return id * 7919 % 100000;
+    }
+
+    private static LocalDateTime createdTime(long id) {
+        return FIRST_DAY.atStartOfDay().plusDays(id * 37 % DAYS).plusSeconds(id * 7 % 86400);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SalesAggregationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,148 @@
+package com.shop.online.config;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.shop.online.entity.Order;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.support.TestDatabase;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分页拦截器测试，使用H2(MySQL模式)执行并记录实际发出的SQL
+ */
+public class CountCachingPaginationInterceptorTest {
+
+    /**
+     * MyBatis-Plus 按语句ID全局缓存COUNT语句（连同创建它的配置和插件），所以记录的SQL放在静态变量里
+     */
+    private static final List<String> EXECUTED_SQL = new ArrayList<>();
+
+    private OrderMapper orderMapper;
+
+    private JoinedOrderMapper joinedOrderMapper;
+
+    /**
+     * 带 LEFT JOIN 的自定义分页查询
+     */
+    public interface JoinedOrderMapper {
+        @Select("SELECT o.* FROM `order` o LEFT JOIN user u ON u.id = o.user_id " +
+                "WHERE o.status = #{status} ORDER BY o.id DESC")
+        IPage<Order> selectByStatus(IPage<Order> page, @Param("status") Integer status);
+    }
+
+    /**
+     * 记录每条预编译的SQL
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare",
+            args = {Connection.class, Integer.class}))
+    public static class SqlRecorder implements Interceptor {
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            StatementHandler handler = (StatementHandler) invocation.getTarget();
+            EXECUTED_SQL.add(handler.getBoundSql().getSql().replaceAll("\\s+", " ").trim());
+            return invocation.proceed();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        EXECUTED_SQL.clear();
+        TestDatabase database = TestDatabase.migrated("pagination");
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO `order` (id, order_no, user_id, " +
+                     "seller_id, total_amount, status) VALUES (?, ?, ?, 100, 10, ?)")) {
+            for (int id = 1; id <= 25; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "NO" + id);
+                insert.setLong(3, id % 4);
+                insert.setInt(4, id % 2);
+                insert.executeUpdate();
+            }
+        }
+
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new CountCachingPaginationInterceptor(DbType.MYSQL, 100, 60_000));
+        database.getConfiguration().addInterceptor(interceptor);
+        database.getConfiguration().addInterceptor(new SqlRecorder());
+        orderMapper = database.getMapper(OrderMapper.class);
+        joinedOrderMapper = database.getMapper(JoinedOrderMapper.class);
+    }
+
+    @Test
+    public void pushesLimitDownAndCountsWithoutOrderBy() {
+        Page<Order> page = orderMapper.selectPage(new Page<>(2, 10), byStatus(1));
+
+        assertEquals(13, page.getTotal());
+        assertEquals(3, page.getRecords().size());
+        assertEquals(2, EXECUTED_SQL.size());
+        String countSql = EXECUTED_SQL.get(0);
+        assertTrue(countSql.startsWith("SELECT COUNT(*) AS total FROM `order` WHERE deleted = 0"), countSql);
+        assertFalse(countSql.contains("ORDER BY"), countSql);
+        assertTrue(EXECUTED_SQL.get(1).endsWith("ORDER BY id DESC LIMIT ?,?"), EXECUTED_SQL.get(1));
+    }
+
+    @Test
+    public void countDropsUnusedLeftJoin() {
+        IPage<Order> page = joinedOrderMapper.selectByStatus(new Page<>(1, 5), 0);
+
+        assertEquals(12, page.getTotal());
+        assertEquals(5, page.getRecords().size());
+        assertEquals("SELECT COUNT(*) AS total FROM `order` o WHERE o.status = ?", EXECUTED_SQL.get(0));
+        assertTrue(EXECUTED_SQL.get(1).endsWith("ORDER BY o.id DESC LIMIT ?"), EXECUTED_SQL.get(1));
+    }
+
+    @Test
+    public void laterPagesReuseCachedTotal() {
+        orderMapper.selectPage(new Page<>(1, 10), byStatus(1));
+        Page<Order> second = orderMapper.selectPage(new Page<>(2, 10), byStatus(1));
+        assertEquals(13, second.getTotal());
+        assertEquals(1, countQueries());
+
+        // 不同的筛选条件重新统计
+        Page<Order> other = orderMapper.selectPage(new Page<>(2, 10), byStatus(0));
+        assertEquals(12, other.getTotal());
+        assertEquals(2, countQueries());
+
+        // 回到第一页时刷新总数
+        orderMapper.selectPage(new Page<>(1, 10), byStatus(1));
+        assertEquals(3, countQueries());
+        assertEquals(7, EXECUTED_SQL.size());
+    }
+
+    @Test
+    public void skipsCountWhenNotRequested() {
+        Page<Order> page = orderMapper.selectPage(new Page<>(1, 10, false), byStatus(1));
+
+        assertEquals(10, page.getRecords().size());
+        assertEquals(0, countQueries());
+    }
+
+    private static LambdaQueryWrapper<Order> byStatus(int status) {
+        return new LambdaQueryWrapper<Order>().eq(Order::getStatus, status).orderByDesc(Order::getId);
+    }
+
+    private long countQueries() {
+        return EXECUTED_SQL.stream().filter(sql -> sql.startsWith("SELECT COUNT(*)")).collect(Collectors.counting());
+    }
+}
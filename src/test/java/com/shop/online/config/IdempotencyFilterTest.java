@@ -0,0 +1,115 @@
+package com.shop.online.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.online.vo.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.FilterChain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 幂等过滤器测试
+ */
+public class IdempotencyFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IdempotencyFilter filter;
+
+    private AtomicInteger executions;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new IdempotencyFilter();
+        ReflectionTestUtils.setField(filter, "maxEntries", 100);
+        ReflectionTestUtils.setField(filter, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(filter, "waitSeconds", 10L);
+        ReflectionTestUtils.setField(filter, "objectMapper", objectMapper);
+        filter.init();
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    public void retryReplaysFirstResponse() throws Exception {
+        FilterChain chain = respondWith(Result.success("order-1"), 0);
+
+        MockHttpServletResponse first = send("key-1", chain);
+        MockHttpServletResponse retry = send("key-1", chain);
+
+        assertEquals(1, executions.get());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader("Idempotency-Replayed"));
+
+        send("key-2", chain);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void failedResponseIsNotStored() throws Exception {
+        FilterChain chain = respondWith(Result.error("商品库存不足"), 0);
+
+        send("key-1", chain);
+        send("key-1", chain);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void concurrentDuplicatesWaitForInFlightRequest() throws Exception {
+        FilterChain chain = respondWith(Result.success("order-1"), 200);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return send("key-1", chain).getContentAsString();
+            }));
+        }
+        start.countDown();
+        for (Future<String> future : futures) {
+            assertEquals(objectMapper.writeValueAsString(Result.success("order-1")), future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, executions.get());
+    }
+
+    private FilterChain respondWith(Result<?> result, long delayMillis) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            response.setContentType("application/json");
+            response.getOutputStream().write(objectMapper.writeValueAsBytes(result));
+        };
+    }
+
+    private MockHttpServletResponse send(String key, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders/create");
+        request.addHeader("Authorization", "Bearer token-of-user-1");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
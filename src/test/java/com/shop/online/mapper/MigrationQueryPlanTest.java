@@ -0,0 +1,202 @@
+package com.shop.online.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shop.online.entity.Order;
+import com.shop.online.entity.Product;
+import com.shop.online.entity.ProductImage;
+import com.shop.online.support.TestDatabase;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 迁移脚本与热点查询计划的回归测试
+ * 在H2(MySQL模式)上执行 db/migration 下的全部迁移，再对各Mapper的热点查询执行 EXPLAIN，
+ * 查询退化为全表扫描或没有用上预期索引时失败
+ */
+public class MigrationQueryPlanTest {
+
+    private static TestDatabase database;
+
+    private static final List<String> PLANS = new ArrayList<>();
+
+    /**
+     * 在语句真正执行前，用同样的SQL和参数执行一次 EXPLAIN 并记录计划
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare",
+            args = {Connection.class, Integer.class}))
+    public static class PlanRecorder implements Interceptor {
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            StatementHandler handler = (StatementHandler) invocation.getTarget();
+            Connection connection = (Connection) invocation.getArgs()[0];
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + handler.getBoundSql().getSql())) {
+                handler.getParameterHandler().setParameters(explain);
+                try (ResultSet resultSet = explain.executeQuery()) {
+                    resultSet.next();
+                    PLANS.add(resultSet.getString(1));
+                }
+            }
+            return invocation.proceed();
+        }
+    }
+
+    @BeforeAll
+    public static void migrate() {
+        database = TestDatabase.migrated("migration_plan");
+        database.getConfiguration().addInterceptor(new PlanRecorder());
+    }
+
+    @BeforeEach
+    public void clearPlans() {
+        PLANS.clear();
+    }
+
+    @Test
+    public void migrationsApplyInVersionOrder() throws Exception {
+        try (Connection connection = database.getDataSource().getConnection();
+             ResultSet resultSet = connection.createStatement().executeQuery(
+                     "SELECT \"version\" FROM \"flyway_schema_history\" " +
+                             "WHERE \"version\" IS NOT NULL AND \"success\" ORDER BY \"installed_rank\"")) {
+            List<String> versions = new ArrayList<>();
+            while (resultSet.next()) {
+                versions.add(resultSet.getString(1));
+            }
+            assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9"), versions);
+        }
+    }
+
+    @Test
+    public void buyerOrderListUsesUserIndex() {
+        orderMapper().selectList(new LambdaQueryWrapper<Order>().eq(Order::getUserId, 1L)
+                .orderByDesc(Order::getCreatedTime).orderByDesc(Order::getId));
+        assertPlanUses("IDX_ORDER_USER_DELETED_CREATED");
+    }
+
+    @Test
+    public void sellerOrderListUsesSellerIndex() {
+        orderMapper().selectList(new LambdaQueryWrapper<Order>().eq(Order::getSellerId, 1L).eq(Order::getStatus, 5)
+                .orderByDesc(Order::getCreatedTime).orderByDesc(Order::getId));
+        assertPlanUses("IDX_ORDER_SELLER_STATUS_CREATED");
+    }
+
+    @Test
+    public void refundedOrderFilterUsesItemIndex() {
+        orderMapper().selectList(new LambdaQueryWrapper<Order>().eq(Order::getUserId, 1L)
+                .exists("SELECT 1 FROM order_item oi WHERE oi.order_id = `order`.id AND oi.deleted = 1"));
+        assertPlanUses("IDX_ORDER_USER_DELETED_CREATED", "IDX_ORDER_ITEM_ORDER_DELETED");
+    }
+
+    @Test
+    public void pendingPaymentScanUsesStatusIndex() {
+        orderMapper().selectPendingPaymentAfter(0L, 500);
+        assertPlanUses("IDX_ORDER_STATUS_ID");
+    }
+
+    @Test
+    public void financialExportScanUsesSellerIndex() {
+        orderMapper().selectFinancialReportRows(1L, LocalDateTime.now().minusDays(365), LocalDateTime.now(), false,
+                context -> { });
+        assertPlanUses("IDX_ORDER_SELLER_STATUS_CREATED");
+    }
+
+    @Test
+    public void archiveCandidateScanUsesStatusCreatedIndex() {
+        database.getMapper(OrderArchiveMapper.class)
+                .selectArchivableIds(Arrays.asList(3, 4, 5), LocalDateTime.now().minusDays(180), 500);
+        assertPlanUses("IDX_ORDER_STATUS_CREATED");
+    }
+
+    @Test
+    public void recentSalesScanUsesStatusUpdatedIndex() {
+        database.getMapper(SalesRollupMapper.class)
+                .selectRecentProductSlots(LocalDateTime.now().minusDays(7), 5, context -> { });
+        assertPlanUses("IDX_ORDER_STATUS_UPDATED", "IDX_ORDER_ITEM_ORDER_DELETED");
+    }
+
+    @Test
+    public void archivedItemLookupUsesArchiveIndex() {
+        database.getMapper(OrderArchiveMapper.class).selectItemsWithReviewStateByOrderIds(Arrays.asList(1L, 2L));
+        assertPlanUses("IDX_ORDER_ITEM_ARCHIVE_ORDER_DELETED");
+    }
+
+    @Test
+    public void orderItemLookupsUseOrderIndex() {
+        OrderItemMapper orderItemMapper = database.getMapper(OrderItemMapper.class);
+        orderItemMapper.selectByOrderIds(Arrays.asList(1L, 2L, 3L));
+        orderItemMapper.selectWithReviewStateByOrderIds(Arrays.asList(1L, 2L, 3L));
+        assertPlanUses("IDX_ORDER_ITEM_ORDER_DELETED");
+        assertTrue(PLANS.get(1).toUpperCase().contains("IDX_PRODUCT_REVIEW_ORDER_USER_PRODUCT"), PLANS.get(1));
+    }
+
+    @Test
+    public void cartLookupsUseUserProductIndex() {
+        CartMapper cartMapper = database.getMapper(CartMapper.class);
+        cartMapper.selectByUserId(1L);
+        cartMapper.selectByUserIdAndProductId(1L, 2L);
+        assertPlanUses("IDX_CART_USER_PRODUCT");
+    }
+
+    @Test
+    public void categoryListingUsesCategoryIndex() {
+        database.getMapper(ProductMapper.class).selectList(new LambdaQueryWrapper<Product>()
+                .in(Product::getCategoryId, Arrays.asList(1L, 8L, 9L)).eq(Product::getStatus, 1)
+                .orderByDesc(Product::getCreatedTime).orderByDesc(Product::getId));
+        assertPlanUses("IDX_PRODUCT_CATEGORY_STATUS_DELETED");
+    }
+
+    @Test
+    public void productImagesUseProductIndex() {
+        database.getMapper(ProductImageMapper.class).selectList(new LambdaQueryWrapper<ProductImage>()
+                .eq(ProductImage::getProductId, 1L).eq(ProductImage::getDeleted, 0)
+                .orderByAsc(ProductImage::getSort));
+        assertPlanUses("IDX_PRODUCT_IMAGE_PRODUCT_DELETED_SORT");
+    }
+
+    @Test
+    public void reviewQueriesUseCoveringIndexes() {
+        ProductReviewMapper productReviewMapper = database.getMapper(ProductReviewMapper.class);
+        productReviewMapper.getAverageRating(1L);
+        productReviewMapper.countReviewsByRating(1L, 5);
+        assertPlanUses("IDX_PRODUCT_REVIEW_PRODUCT_DELETED_RATING");
+
+        PLANS.clear();
+        productReviewMapper.hasReviewed(1L, "NO1", 1L);
+        assertPlanUses("IDX_PRODUCT_REVIEW_ORDER_USER_PRODUCT");
+    }
+
+    private static OrderMapper orderMapper() {
+        return database.getMapper(OrderMapper.class);
+    }
+
+    /**
+     * 每条记录下来的计划都不能有全表扫描，并且都用到了给定的索引
+     */
+    private static void assertPlanUses(String... indexes) {
+        assertFalse(PLANS.isEmpty());
+        for (String plan : PLANS) {
+            String normalized = plan.toUpperCase();
+            assertFalse(normalized.contains("TABLESCAN"), plan);
+            for (String index : indexes) {
+                assertTrue(normalized.contains(index), plan);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.shop.online.mapper;
+
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.entity.Order;
+import com.shop.online.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 订单状态条件更新测试，在按迁移建表的H2(MySQL模式)上执行OrderMapper中的语句
+ */
+public class OrderMapperTransitionTest {
+
+    private TestDatabase database;
+
+    private OrderMapper orderMapper;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        database = TestDatabase.migrated("order");
+        database.getDataSource().setPoolMaximumActiveConnections(32);
+        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, deleted) VALUES " +
+                "(1, 'A', 10, 100, 10, 0, 0), (2, 'B', 10, 100, 10, 1, 0), (3, 'C', 11, 100, 10, 1, 0), " +
+                "(4, 'D', 11, 200, 10, 1, 0), (5, 'E', 11, 100, 10, 2, 0), (6, 'F', 11, 100, 10, 1, 1)");
+        orderMapper = database.getMapper(OrderMapper.class);
+        transactionTemplate = new TransactionTemplate(database.getTransactionManager());
+    }
+
+    @Test
+    public void concurrentPaymentsWinOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger won = new AtomicInteger();
+        OrderTransition pay = OrderTransition.PAY;
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                won.addAndGet(transactionTemplate.execute(status ->
+                        transit(orderMapper, "A", 10L, null, pay, 2)));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, won.get());
+        assertEquals(1, statusOf("A"));
+    }
+
+    @Test
+    public void transitionChecksOwnerAndStatus() {
+        OrderTransition cancel = OrderTransition.CANCEL;
+        // 不是本人的订单
+        assertEquals(0, transit(orderMapper, "C", 10L, null, cancel, null));
+        // 待收货订单不能取消
+        assertEquals(0, transit(orderMapper, "E", 11L, null, cancel, null));
+        // 待发货订单在第二个原状态上更新成功，重复取消不再更新
+        assertEquals(1, transit(orderMapper, "C", 11L, null, cancel, null));
+        assertEquals(4, statusOf("C"));
+        assertEquals(0, transit(orderMapper, "C", 11L, null, cancel, null));
+        assertEquals(1, transit(orderMapper, "A", null, null, cancel, null));
+        assertEquals(4, statusOf("A"));
+    }
+
+    @Test
+    public void batchShipSkipsOtherSellersAndWrongStatus() {
+        OrderTransition ship = OrderTransition.SHIP;
+        assertEquals(2, orderMapper.transitStatusBatch(Arrays.asList("A", "B", "C", "D", "E", "F"), 100L,
+                1, ship.getToStatus()));
+        assertEquals(2, statusOf("B"));
+        assertEquals(2, statusOf("C"));
+        assertEquals(1, statusOf("D"));
+        assertEquals(1, statusOf("F"));
+    }
+
+    @Test
+    public void lockReturnsSellerAndStatusBeforeTransition() {
+        OrderTransition cancel = OrderTransition.CANCEL;
+        transactionTemplate.execute(status -> {
+            List<Order> locked = orderMapper.lockTransitable(Arrays.asList("A", "B", "E", "F"), null, null,
+                    cancel.getFromStatuses());
+            locked.sort(Comparator.comparing(Order::getId));
+            assertEquals(2, locked.size());
+            assertEquals(Arrays.asList(1L, 2L), Arrays.asList(locked.get(0).getId(), locked.get(1).getId()));
+            assertEquals(Arrays.asList(0, 1), Arrays.asList(locked.get(0).getStatus(), locked.get(1).getStatus()));
+            assertEquals(100L, locked.get(0).getSellerId());
+            assertEquals(2, orderMapper.transitStatusByIds(Arrays.asList(1L, 2L), cancel.getFromStatuses(),
+                    cancel.getToStatus()));
+            return null;
+        });
+        assertEquals(4, statusOf("A"));
+        assertEquals(2, statusOf("E"));
+    }
+
+    /**
+     * 与 OrderStateMachine 相同：按原状态逐个尝试条件更新，第一个成功的即为流转前的状态
+     */
+    private static int transit(OrderMapper mapper, String orderNo, Long userId, Long sellerId,
+                               OrderTransition transition, Integer paymentMethod) {
+        for (Integer fromStatus : transition.getFromStatuses()) {
+            if (mapper.transitStatus(orderNo, userId, sellerId, fromStatus, transition.getToStatus(), paymentMethod) > 0) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private long statusOf(String orderNo) {
+        return database.queryForLong("SELECT status FROM `order` WHERE order_no = '" + orderNo + "'");
+    }
+}
@@ -0,0 +1,158 @@
+package com.shop.online.mapper;
+
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 库存预占SQL测试，在按迁移建表的H2(MySQL模式)上直接执行ProductMapper.xml中的语句
+ */
+public class ProductMapperStockTest {
+
+    private TestDatabase database;
+
+    private ProductMapper productMapper;
+
+    @BeforeEach
+    public void setUp() {
+        database = TestDatabase.migrated("stock");
+        database.getDataSource().setPoolMaximumActiveConnections(64);
+        database.getDataSource().setPoolMaximumIdleConnections(64);
+        database.execute("INSERT INTO product (id, seller_id, category_id, name, price, stock, main_image, deleted) " +
+                        "VALUES (1, 100, 1, 'hot', 10, 100, 'a.png', 0), (2, 100, 1, 'normal', 10, 5, 'b.png', 0), " +
+                        "(3, 100, 1, 'removed', 10, 50, 'c.png', 1)",
+                // 订单11中商品2的明细已单独退款
+                "INSERT INTO order_item (order_id, product_id, product_name, product_image, price, quantity, " +
+                        "total_amount, deleted) VALUES (10, 1, 'hot', 'a.png', 10, 3, 30, 0), " +
+                        "(10, 2, 'normal', 'b.png', 10, 2, 20, 0), (11, 1, 'hot', 'a.png', 10, 4, 40, 0), " +
+                        "(11, 2, 'normal', 'b.png', 10, 1, 10, 1), (11, 3, 'removed', 'c.png', 10, 9, 90, 0), " +
+                        "(12, 2, 'normal', 'b.png', 10, 100, 1000, 0)",
+                // 10、11已完成，12待付款
+                "INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status) VALUES " +
+                        "(10, 'A', 1, 100, 50, 3), (11, 'B', 1, 100, 140, 3), (12, 'C', 1, 100, 1000, 0)",
+                // 已归档：5已完成（商品2的明细已退款），6已取消
+                "INSERT INTO order_archive (id, order_no, user_id, seller_id, total_amount, status) VALUES " +
+                        "(5, 'X', 1, 100, 60, 3), (6, 'Y', 1, 100, 10, 4)",
+                "INSERT INTO order_item_archive (id, order_id, product_id, product_name, product_image, price, " +
+                        "quantity, total_amount, deleted) VALUES (1, 5, 1, 'hot', 'a.png', 10, 5, 50, 0), " +
+                        "(2, 5, 2, 'normal', 'b.png', 10, 1, 10, 1), (3, 6, 2, 'normal', 'b.png', 10, 1, 10, 0)");
+        productMapper = database.getMapper(ProductMapper.class);
+    }
+
+    @Test
+    public void concurrentReservationsNeverOversell() throws Exception {
+        int threads = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (productMapper.reserveStock(Collections.singletonList(new StockChangeDTO(1L, 1))) == 1) {
+                    succeeded.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(100, succeeded.get());
+        assertEquals(0, stockOf(1L));
+    }
+
+    @Test
+    public void multiLineReservationAppliesOnlySatisfiableRows() {
+        List<StockChangeDTO> items = Arrays.asList(
+                new StockChangeDTO(1L, 10), new StockChangeDTO(2L, 6), new StockChangeDTO(3L, 1));
+        new TransactionTemplate(database.getTransactionManager()).execute(status -> {
+            assertEquals(1, productMapper.reserveStock(items));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        // 回滚后定位缺货商品：2库存不足，3已删除
+        assertEquals(Collections.singletonList(1L), productMapper.selectReservableProductIds(items));
+        assertEquals(100, stockOf(1L));
+    }
+
+    @Test
+    public void fullySatisfiableOrderReservesEveryLine() {
+        assertEquals(2, productMapper.reserveStock(Arrays.asList(
+                new StockChangeDTO(1L, 100), new StockChangeDTO(2L, 5))));
+        assertEquals(0, stockOf(1L));
+        assertEquals(0, stockOf(2L));
+    }
+
+    @Test
+    public void restoreByOrderIdsAddsBackUnrefundedItemsInOneStatement() {
+        assertEquals(2, productMapper.restoreStockByOrderIds(Arrays.asList(10L, 11L), Collections.emptySet()));
+        assertEquals(107, stockOf(1L));
+        assertEquals(7, stockOf(2L));
+        assertEquals(50, stockOf(3L));
+    }
+
+    @Test
+    public void restoreByOrderIdsSkipsExcludedProducts() {
+        List<Long> orderIds = Arrays.asList(10L, 11L);
+        assertEquals(1, productMapper.restoreStockByOrderIds(orderIds, Collections.singleton(1L)));
+        assertEquals(Collections.singletonList(new StockChangeDTO(1L, 7)),
+                productMapper.sumOrderQuantities(orderIds, Collections.singleton(1L)));
+        assertEquals(100, stockOf(1L));
+        assertEquals(7, stockOf(2L));
+    }
+
+    @Test
+    public void rebuildSalesCountsOnlyCompletedUnrefundedItems() {
+        productMapper.increaseSales(Collections.singletonList(new StockChangeDTO(2L, 999)));
+        assertEquals(3, productMapper.rebuildSales());
+        // 商品1：订单10、11共7件，归档订单5中5件
+        assertEquals(12, salesOf(1L));
+        assertEquals(2, salesOf(2L));
+        assertEquals(9, salesOf(3L));
+    }
+
+    @Test
+    public void increaseSalesNeverGoesNegative() {
+        assertEquals(2, productMapper.increaseSales(Arrays.asList(
+                new StockChangeDTO(1L, 5), new StockChangeDTO(2L, -3))));
+        assertEquals(5, salesOf(1L));
+        assertEquals(0, salesOf(2L));
+    }
+
+    @Test
+    public void mergeCollapsesRepeatedProducts() {
+        List<StockChangeDTO> merged = StockChangeDTO.merge(Arrays.asList(
+                new StockChangeDTO(1L, 1), new StockChangeDTO(2L, 4), new StockChangeDTO(1L, 2)));
+        assertEquals(2, merged.size());
+        assertEquals(Integer.valueOf(3), merged.get(0).getQuantity());
+    }
+
+    private long stockOf(Long productId) {
+        return database.queryForLong("SELECT stock FROM product WHERE id = " + productId);
+    }
+
+    private long salesOf(Long productId) {
+        return database.queryForLong("SELECT sales FROM product WHERE id = " + productId);
+    }
+}
@@ -0,0 +1,270 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.common.enums.SalesWindow;
+import com.shop.online.dto.SalesLineDTO;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.support.TestDatabase;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 实时热销统计测试：按 Zipf 分布生成一周的订单，事件驱动的结果、按订单表重新加载的结果分别与SQL精确统计对比
+ */
+public class BestSellerTrackerTest {
+
+    private static final int PRODUCTS = 500;
+
+    private static final int ORDERS = 20000;
+
+    private static final int CAPACITY = 100;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 12, 2, 30);
+
+    private PooledDataSource dataSource;
+
+    private SalesRollupMapper salesRollupMapper;
+
+    private long now;
+
+    /**
+     * 按事件时间排好序的确认收货、退款
+     */
+    private final List<Object[]> events = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestDatabase database = TestDatabase.migrated("best_seller");
+        dataSource = database.getDataSource();
+        salesRollupMapper = database.getMapper(SalesRollupMapper.class);
+        now = millis(NOW);
+        seed();
+    }
+
+    @Test
+    public void eventFedTopProductsMatchExactSql() throws Exception {
+        BestSellerTracker tracker = tracker();
+        for (Object[] event : events) {
+            now = (Long) event[0];
+            tracker.record(Collections.singletonList((SalesLineDTO) event[1]), (Integer) event[2]);
+        }
+        now = millis(NOW);
+        assertMatchesExact(tracker);
+    }
+
+    @Test
+    public void reloadedTopProductsMatchExactSql() throws Exception {
+        BestSellerTracker tracker = tracker();
+        Map<String, Object> report = tracker.reload();
+        assertEquals(3, report.get("sellers"));
+        assertMatchesExact(tracker);
+    }
+
+    @Test
+    public void windowsExpireBySlot() {
+        BestSellerTracker tracker = tracker();
+        now = millis(NOW.minusHours(3));
+        tracker.record(Collections.singletonList(line(1L, 10L, "100.00", 1, null)), 1);
+        now = millis(NOW.minusMinutes(10));
+        tracker.record(Collections.singletonList(line(1L, 11L, "30.00", 2, null)), 1);
+        // 退款扣减记在确认收货的时间片上
+        now = millis(NOW);
+        tracker.record(Collections.singletonList(line(1L, 10L, "100.00", 1, NOW.minusHours(3))), -1);
+        tracker.record(Collections.singletonList(line(1L, 11L, "30.00", 1, NOW.minusMinutes(10))), -1);
+
+        List<Map<String, Object>> hour = tracker.getTopProducts(1L, SalesWindow.HOUR, 10);
+        assertEquals(1, hour.size());
+        assertEquals(11L, hour.get(0).get("productId"));
+        assertEquals(new BigDecimal("30.00"), hour.get(0).get("salesAmount"));
+        assertEquals(1L, hour.get(0).get("salesCount"));
+        assertEquals(1, tracker.getTopProducts(BestSellerTracker.PLATFORM, SalesWindow.DAY, 10).size());
+
+        now = millis(NOW.plusDays(1));
+        assertTrue(tracker.getTopProducts(1L, SalesWindow.DAY, 10).isEmpty());
+        assertTrue(tracker.getTopProducts(2L, SalesWindow.WEEK, 10).isEmpty());
+    }
+
+    private BestSellerTracker tracker() {
+        BestSellerTracker tracker = new BestSellerTracker();
+        ReflectionTestUtils.setField(tracker, "salesRollupMapper", salesRollupMapper);
+        ReflectionTestUtils.setField(tracker, "capacity", CAPACITY);
+        ReflectionTestUtils.setField(tracker, "clock", (LongSupplier) () -> now);
+        return tracker;
+    }
+
+    /**
+     * 每个窗口、每个卖家及全平台：返回的销售额不低于精确值且误差不超过 maxError；
+     * 精确的前5名都在返回的前10名中，前10名至少有9个在其中（第10、11名接近时允许互换）
+     */
+    private void assertMatchesExact(BestSellerTracker tracker) throws Exception {
+        for (SalesWindow window : SalesWindow.values()) {
+            for (long sellerId = 0; sellerId <= 3; sellerId++) {
+                Map<Long, BigDecimal> exact = exactSales(window, sellerId);
+                List<Map<String, Object>> top = tracker.getTopProducts(sellerId, window, 10);
+                assertEquals(Math.min(10, exact.size()), top.size());
+                for (Map<String, Object> product : top) {
+                    BigDecimal truth = exact.getOrDefault((Long) product.get("productId"), BigDecimal.ZERO);
+                    BigDecimal amount = (BigDecimal) product.get("salesAmount");
+                    String message = window + " seller " + sellerId + " " + product + " exact " + truth;
+                    assertTrue(amount.compareTo(truth) >= 0, message);
+                    assertTrue(amount.subtract((BigDecimal) product.get("maxError")).compareTo(truth) <= 0, message);
+                    assertEquals("P" + product.get("productId"), product.get("productName"));
+                }
+                Set<Long> reported = top.stream().map(product -> (Long) product.get("productId"))
+                        .collect(Collectors.toSet());
+                List<Long> exactTop = exact.entrySet().stream()
+                        .sorted(Map.Entry.<Long, BigDecimal>comparingByValue().reversed())
+                        .limit(10).map(Map.Entry::getKey).collect(Collectors.toList());
+                String message = window + " seller " + sellerId + " " + exactTop + " " + reported;
+                assertTrue(reported.containsAll(exactTop.subList(0, Math.min(5, exactTop.size()))), message);
+                assertTrue(exactTop.stream().filter(reported::contains).count() >= Math.min(9, exactTop.size()), message);
+            }
+        }
+    }
+
+    /**
+     * 窗口内（与滑动窗口相同，按时间片对齐）确认收货且未退款的商品销售额
+     */
+    private Map<Long, BigDecimal> exactSales(SalesWindow window, long sellerId) throws Exception {
+        long slot = window.getSlotMillis();
+        long since = (now / slot - window.getSlotCount() + 1) * slot;
+        Map<Long, BigDecimal> sales = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT oi.product_id, SUM(oi.price * oi.quantity) FROM `order` o " +
+                             "JOIN order_item oi ON oi.order_id = o.id AND oi.deleted = 0 " +
+                             "WHERE o.status = 3 AND o.deleted = 0 AND o.updated_time >= ? AND o.updated_time <= ? " +
+                             "AND (? = 0 OR o.seller_id = ?) GROUP BY oi.product_id")) {
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(since), ZONE)));
+            statement.setTimestamp(2, Timestamp.valueOf(NOW));
+            statement.setLong(3, sellerId);
+            statement.setLong(4, sellerId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    sales.put(resultSet.getLong(1), resultSet.getBigDecimal(2));
+                }
+            }
+        }
+        return sales;
+    }
+
+    /**
+     * 商品按 Zipf(1.1) 分布成交，订单在最近7天内均匀确认收货，5% 的订单之后整单退款
+     */
+    private void seed() throws Exception {
+        double[] cumulative = new double[PRODUCTS];
+        double sum = 0;
+        for (int i = 0; i < PRODUCTS; i++) {
+            sum += 1 / Math.pow(i + 1, 1.1);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(42);
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement product = connection.prepareStatement("INSERT INTO product " +
+                    "(id, seller_id, category_id, name, price, main_image) VALUES (?, ?, 1, ?, ?, 'p.png')")) {
+                for (long id = 1; id <= PRODUCTS; id++) {
+                    product.setLong(1, id);
+                    product.setLong(2, sellerOf(id));
+                    product.setString(3, "P" + id);
+                    product.setBigDecimal(4, priceOf(id));
+                    product.addBatch();
+                }
+                product.executeBatch();
+            }
+            try (PreparedStatement order = connection.prepareStatement("INSERT INTO `order` " +
+                    "(id, order_no, user_id, seller_id, total_amount, status, created_time, updated_time) " +
+                    "VALUES (?, ?, 1, ?, ?, ?, ?, ?)");
+                 PreparedStatement item = connection.prepareStatement("INSERT INTO order_item " +
+                         "(id, order_id, product_id, product_name, product_image, price, quantity, total_amount) " +
+                         "VALUES (?, ?, ?, ?, 'p.png', ?, ?, ?)")) {
+                for (long id = 1; id <= ORDERS; id++) {
+                    int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                    long productId = Math.min(rank < 0 ? -rank - 1 : rank, PRODUCTS - 1) + 1;
+                    int quantity = 1 + random.nextInt(3);
+                    BigDecimal total = priceOf(productId).multiply(BigDecimal.valueOf(quantity));
+                    LocalDateTime completed = NOW.minusSeconds(random.nextInt(7 * 24 * 3600));
+                    LocalDateTime refunded = random.nextInt(20) == 0
+                            ? completed.plusSeconds(random.nextInt((int) Duration.between(completed, NOW).getSeconds() + 1))
+                            : null;
+
+                    order.setLong(1, id);
+                    order.setString(2, "NO" + id);
+                    order.setLong(3, sellerOf(productId));
+                    order.setBigDecimal(4, total);
+                    order.setInt(5, refunded == null ? 3 : 5);
+                    order.setTimestamp(6, Timestamp.valueOf(completed.minusDays(2)));
+                    order.setTimestamp(7, Timestamp.valueOf(refunded == null ? completed : refunded));
+                    order.addBatch();
+                    item.setLong(1, id);
+                    item.setLong(2, id);
+                    item.setLong(3, productId);
+                    item.setString(4, "P" + productId);
+                    item.setBigDecimal(5, priceOf(productId));
+                    item.setInt(6, quantity);
+                    item.setBigDecimal(7, total);
+                    item.addBatch();
+
+                    SalesLineDTO line = line(sellerOf(productId), productId, priceOf(productId).toPlainString(),
+                            quantity, completed);
+                    events.add(new Object[]{millis(completed), line, 1});
+                    if (refunded != null) {
+                        events.add(new Object[]{millis(refunded), line, -1});
+                    }
+                }
+                order.executeBatch();
+                item.executeBatch();
+            }
+        }
+        events.sort(Comparator.comparingLong(event -> (Long) event[0]));
+    }
+
+    private static SalesLineDTO line(Long sellerId, Long productId, String price, int quantity, LocalDateTime updatedTime) {
+        SalesLineDTO line = new SalesLineDTO();
+        line.setSellerId(sellerId);
+        line.setProductId(productId);
+        line.setProductName("P" + productId);
+        line.setPrice(new BigDecimal(price));
+        line.setQuantity(quantity);
+        line.setUpdatedTime(updatedTime);
+        return line;
+    }
+
+    private static long sellerOf(long productId) {
+        return 1 + productId % 3;
+    }
+
+    private static BigDecimal priceOf(long productId) {
+        return BigDecimal.valueOf(500 + productId % 40 * 125, 2);
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
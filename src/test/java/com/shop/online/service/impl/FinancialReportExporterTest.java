@@ -0,0 +1,146 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.mapper.OrderArchiveMapper;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.support.TestDatabase;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 财务报表流式导出测试，在H2(MySQL模式)上执行迁移，按小批量读取后核对CSV和Excel的内容
+ */
+public class FinancialReportExporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    private static final LocalDateTime END = LocalDateTime.of(2026, 3, 31, 23, 59, 59);
+
+    private OrderArchiver archiver;
+
+    private FinancialReportExporter exporter;
+
+    @BeforeEach
+    public void setUp() {
+        TestDatabase database = TestDatabase.migrated("financial_export");
+        // 卖家20：订单1~3在3月已完成（订单3的买家已删除），订单4未完成，订单5在4月；订单6属于卖家21；订单7已归档
+        database.execute("INSERT INTO `user` (id, username, password, deleted) VALUES " +
+                        "(10, 'alice', 'p', 0), (11, 'bob', 'p', 0), (12, 'carol', 'p', 1)",
+                "INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) VALUES " +
+                        "(1, 'NO1', 10, 20, 30.50, 3, '2026-03-02 10:00:00'), " +
+                        "(2, 'NO2', 11, 20, 8.00, 3, '2026-03-01 09:00:00'), " +
+                        "(3, 'NO3', 12, 20, 12.00, 3, '2026-03-31 23:00:00'), " +
+                        "(4, 'NO4', 10, 20, 9.00, 1, '2026-03-05 10:00:00'), " +
+                        "(5, 'NO5', 10, 20, 9.00, 3, '2026-04-01 00:00:00'), " +
+                        "(6, 'NO6', 10, 21, 9.00, 3, '2026-03-05 10:00:00')",
+                "INSERT INTO order_item (order_id, product_id, product_name, product_image, price, quantity, " +
+                        "total_amount, deleted) VALUES " +
+                        "(1, 1, '耳机', 'img', 10, 1, 10, 0), (1, 2, '数据线, 1米 \"快充\"', 'img', 20.5, 1, 20.5, 0), " +
+                        "(1, 3, '已退款', 'img', 5, 1, 5, 1), (2, 1, '耳机', 'img', 8, 1, 8, 0)",
+                "INSERT INTO order_archive (id, order_no, user_id, seller_id, total_amount, status, created_time) " +
+                        "VALUES (7, 'NO7', 11, 20, 15.00, 3, '2026-03-10 08:00:00')",
+                "INSERT INTO order_item_archive (id, order_id, product_id, product_name, product_image, price, " +
+                        "quantity, total_amount) VALUES (9, 7, 4, '充电器', 'img', 15, 1, 15)");
+
+        archiver = new OrderArchiver();
+        // 3月早于保留期的起点，需要合并归档表
+        ReflectionTestUtils.setField(archiver, "minAgeDays", 30);
+
+        exporter = new FinancialReportExporter();
+        ReflectionTestUtils.setField(exporter, "orderMapper", database.getMapper(OrderMapper.class));
+        ReflectionTestUtils.setField(exporter, "orderItemMapper", database.getMapper(OrderItemMapper.class));
+        ReflectionTestUtils.setField(exporter, "orderArchiveMapper", database.getMapper(OrderArchiveMapper.class));
+        ReflectionTestUtils.setField(exporter, "orderArchiver", archiver);
+        ReflectionTestUtils.setField(exporter, "transactionManager", database.getTransactionManager());
+        ReflectionTestUtils.setField(exporter, "chunkSize", 2);
+        ReflectionTestUtils.setField(exporter, "excelRowWindow", 2);
+    }
+
+    @Test
+    public void csvStreamsRowsInCreatedOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(4L, exporter.export(20L, START, END, "csv", out));
+
+        String csv = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals('﻿', csv.charAt(0));
+        assertEquals(Arrays.asList(
+                "订单号,创建时间,状态,金额,用户名,商品数量,商品名称",
+                "NO2,2026-03-01 09:00:00,已完成,8.00,bob,1,耳机",
+                "NO1,2026-03-02 10:00:00,已完成,30.50,alice,2,\"耳机, 数据线, 1米 \"\"快充\"\"\"",
+                "NO7,2026-03-10 08:00:00,已完成,15.00,bob,1,充电器",
+                "NO3,2026-03-31 23:00:00,已完成,12.00,未知用户,0,"),
+                Arrays.asList(csv.substring(1).split("\r\n")));
+    }
+
+    @Test
+    public void excelContinuesOnNextSheetWhenFull() throws Exception {
+        ReflectionTestUtils.setField(exporter, "maxRowsPerSheet", 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(4L, exporter.export(20L, START, END, "xlsx", out));
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(2, workbook.getNumberOfSheets());
+            Sheet first = workbook.getSheetAt(0);
+            assertEquals("财务报表", first.getSheetName());
+            assertEquals(2, first.getLastRowNum());
+            assertEquals("订单号", first.getRow(0).getCell(0).getStringCellValue());
+            Row row = first.getRow(2);
+            assertEquals("NO1", row.getCell(0).getStringCellValue());
+            assertEquals(30.5, row.getCell(3).getNumericCellValue());
+            assertEquals(2.0, row.getCell(5).getNumericCellValue());
+            assertEquals("耳机, 数据线, 1米 \"快充\"", row.getCell(6).getStringCellValue());
+            assertEquals(24 * 256, first.getColumnWidth(0));
+
+            Sheet second = workbook.getSheetAt(1);
+            assertEquals("财务报表2", second.getSheetName());
+            assertEquals(2, second.getLastRowNum());
+            assertEquals("NO7", second.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("充电器", second.getRow(1).getCell(6).getStringCellValue());
+            assertEquals("NO3", second.getRow(2).getCell(0).getStringCellValue());
+            assertEquals("未知用户", second.getRow(2).getCell(4).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void recentRangeSkipsArchive() throws Exception {
+        // 保留期足够长时3月仍在热表范围内，不读取归档表
+        ReflectionTestUtils.setField(archiver, "minAgeDays", 36500);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3L, exporter.export(20L, START, END, "csv", out));
+        assertFalse(new String(out.toByteArray(), StandardCharsets.UTF_8).contains("NO7"));
+    }
+
+    @Test
+    public void writeFailureSurfacesAsIOException() {
+        OutputStream broken = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                // BOM之后的第一批写出时连接断开
+                if (++written > 3) {
+                    throw new IOException("连接已断开");
+                }
+            }
+        };
+        IOException e = assertThrows(IOException.class, () -> exporter.export(20L, START, END, "csv", broken));
+        assertEquals("连接已断开", e.getMessage());
+    }
+}
@@ -0,0 +1,207 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.entity.Order;
+import com.shop.online.mapper.HotStockJournalMapper;
+import com.shop.online.mapper.ProductMapper;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.mapper.SellerOrderStatsMapper;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.util.TransactionHooks;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 组提交执行器测试
+ */
+public class GroupCommitExecutorTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private DataSourceTransactionManager transactionManager;
+
+    private GroupCommitExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        PooledDataSource dataSource = new PooledDataSource("org.h2.Driver",
+                "jdbc:h2:mem:group_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        executor = new GroupCommitExecutor(transactionManager, true, 16, 20, 1);
+        executor.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    public void failingRequestRollsBackAloneAndOthersCommit() throws Exception {
+        AtomicInteger committedHooks = new AtomicInteger();
+        AtomicInteger rolledBackHooks = new AtomicInteger();
+        TransactionTemplate participating = new TransactionTemplate(transactionManager);
+
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int id = i;
+            futures.add(callers.submit(() -> {
+                start.await();
+                return executor.execute(() -> {
+                    jdbcTemplate.update("INSERT INTO t (id) VALUES (?)", id);
+                    TransactionHooks.afterCompletion(committedHooks::incrementAndGet, rolledBackHooks::incrementAndGet);
+                    if (id % 5 == 0) {
+                        // 模拟内层@Transactional方法失败：参与外层事务时会把整个事务标记为只能回滚
+                        participating.executeWithoutResult(status -> {
+                            throw new IllegalStateException("库存不足: " + id);
+                        });
+                    }
+                    return id;
+                });
+            }));
+        }
+        start.countDown();
+
+        int failed = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                failed++;
+            }
+        }
+        callers.shutdown();
+
+        assertEquals(4, failed);
+        assertEquals(Integer.valueOf(16), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t", Integer.class));
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t WHERE MOD(id, 5) = 0", Integer.class));
+        assertEquals(16, committedHooks.get());
+        assertEquals(4, rolledBackHooks.get());
+    }
+
+    @Test
+    public void failingRequestLeavesNoCountsStockOrSales() throws Exception {
+        TestDatabase database = TestDatabase.migrated("group_side_effects");
+        database.execute("INSERT INTO category (id, name, level) VALUES (1, '数码', 1)");
+        database.execute("INSERT INTO product (id, seller_id, category_id, name, price, stock, main_image, deleted) " +
+                "VALUES (1, 100, 1, 'hot', 10, 100, 'a.png', 0)");
+        // A、B待收货，两个请求各确认收货一个
+        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) VALUES " +
+                "(1, 'A', 10, 100, 20, 2, '2026-03-02 10:00:00'), (2, 'B', 11, 100, 30, 2, '2026-03-03 10:00:00')");
+        database.execute("INSERT INTO order_item (id, order_id, product_id, product_name, product_image, price, quantity, " +
+                "total_amount, deleted) VALUES (1, 1, 1, 'hot', 'a.png', 10, 2, 20, 0), (2, 2, 1, 'hot', 'a.png', 10, 3, 30, 0)");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(database.getTransactionManager());
+
+        SellerOrderCounter counter = new SellerOrderCounter();
+        ReflectionTestUtils.setField(counter, "sellerOrderStatsMapper", database.getMapper(SellerOrderStatsMapper.class));
+        ReflectionTestUtils.setField(counter, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(counter, "reconcileBatchSize", 10);
+        counter.reconcile();
+
+        HotStockLedger ledger = new HotStockLedger();
+        ReflectionTestUtils.setField(ledger, "productMapper", database.getMapper(ProductMapper.class));
+        ReflectionTestUtils.setField(ledger, "hotStockJournalMapper", database.getMapper(HotStockJournalMapper.class));
+        ReflectionTestUtils.setField(ledger, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(ledger, "hotProductIds", Collections.singleton(1L));
+        ReflectionTestUtils.setField(ledger, "flushBatchSize", 10);
+        ReflectionTestUtils.setField(ledger, "leaseSeconds", 30);
+        ReflectionTestUtils.setField(ledger, "instanceId", "node-1");
+        ledger.load();
+
+        SalesRollup salesRollup = new SalesRollup();
+        ReflectionTestUtils.setField(salesRollup, "salesRollupMapper", database.getMapper(SalesRollupMapper.class));
+        ReflectionTestUtils.setField(salesRollup, "bestSellerTracker", mock(BestSellerTracker.class));
+        ReflectionTestUtils.setField(salesRollup, "salesAnalyticsCache", mock(SalesAnalyticsCache.class));
+
+        GroupCommitExecutor orders = new GroupCommitExecutor(database.getTransactionManager(), true, 16, 200, 1);
+        orders.start();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 1; i <= 2; i++) {
+                long id = i;
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    return orders.execute(() -> {
+                        // 与下单相同：保存订单、预占热点库存、登记待付款订单数
+                        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status) " +
+                                "VALUES (" + (10 + id) + ", 'N" + id + "', 10, 100, 10, 0)");
+                        List<StockChangeDTO> changes = Collections.singletonList(new StockChangeDTO(1L, (int) id * 10));
+                        assertTrue(ledger.tryReserve(changes).isEmpty());
+                        TransactionHooks.afterCompletion(null, () -> ledger.release(changes));
+                        ledger.confirm(changes);
+                        counter.recordCreated(100L);
+
+                        // 确认收货：订单计数和销售日汇总
+                        Order received = new Order();
+                        received.setId(id);
+                        received.setSellerId(100L);
+                        received.setStatus(2);
+                        database.execute("UPDATE `order` SET status = 3 WHERE id = " + id);
+                        counter.recordTransition(Collections.singletonList(received), 3);
+                        salesRollup.recordTransition(Collections.singletonList(received), 3);
+                        if (id == 2) {
+                            throw new IllegalStateException("下单失败: " + id);
+                        }
+                        return null;
+                    });
+                }));
+            }
+            start.countDown();
+            futures.get(0).get(10, TimeUnit.SECONDS);
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> futures.get(1).get(10, TimeUnit.SECONDS));
+            assertTrue(failed.getCause() instanceof IllegalStateException);
+        } finally {
+            callers.shutdown();
+            orders.stop();
+        }
+
+        // 只计入成功的请求：N1待付款，A已完成，B仍待收货
+        assertEquals(Arrays.asList("0|1", "2|1", "3|1"), database.query(
+                "SELECT status, order_count FROM seller_order_stats WHERE seller_id = 100 AND order_count <> 0 ORDER BY status"));
+        assertEquals(0, counter.reconcile().get("corrected"));
+
+        // 失败请求的预占已归还，流水只有成功请求的一条
+        assertEquals(1, database.queryForLong("SELECT COUNT(*) FROM hot_stock_journal"));
+        ledger.flush();
+        assertEquals(90, database.queryForLong("SELECT stock FROM product WHERE id = 1"));
+        assertTrue(ledger.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 90))).isEmpty());
+        assertEquals(Collections.singletonList(1L), ledger.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 1))));
+
+        // 销售日汇总只有A的下单日期
+        assertEquals(Collections.singletonList("100|2026-03-02|1|20.00"), database.query(
+                "SELECT seller_id, sales_date, order_count, amount FROM sales_daily_seller WHERE order_count <> 0 OR amount <> 0"));
+        assertEquals(Collections.singletonList("100|2026-03-02|1|2|20.00|1"), database.query(
+                "SELECT seller_id, sales_date, product_id, quantity, amount, order_count FROM sales_daily_product " +
+                        "WHERE quantity <> 0 OR amount <> 0 OR order_count <> 0"));
+    }
+}
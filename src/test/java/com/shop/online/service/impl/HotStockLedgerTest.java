@@ -0,0 +1,178 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.mapper.HotStockJournalMapper;
+import com.shop.online.mapper.ProductMapper;
+import com.shop.online.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 热点库存台账测试，在按迁移建表的H2(MySQL模式)上写入流水、写回库存
+ */
+public class HotStockLedgerTest {
+
+    private TestDatabase database;
+
+    private TransactionTemplate transactionTemplate;
+
+    private HotStockLedger ledger;
+
+    @BeforeEach
+    public void setUp() {
+        database = TestDatabase.migrated("hot_stock");
+        database.execute("INSERT INTO product (id, seller_id, category_id, name, price, stock, main_image, deleted) " +
+                "VALUES (1, 100, 1, 'hot', 10, 100, 'a.png', 0), (2, 100, 1, 'few', 10, 5, 'b.png', 0)");
+        transactionTemplate = new TransactionTemplate(database.getTransactionManager());
+        ledger = newLedger("node-1");
+        ledger.load();
+    }
+
+    @Test
+    public void concurrentReservationsNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (ledger.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 1))).isEmpty()) {
+                    succeeded.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(100, succeeded.get());
+    }
+
+    @Test
+    public void failedReservationReleasesEarlierLines() {
+        List<StockChangeDTO> order = Arrays.asList(new StockChangeDTO(1L, 10), new StockChangeDTO(2L, 6));
+        assertEquals(Collections.singletonList(2L), ledger.tryReserve(order));
+
+        // 商品1的10件已归还，可以整单扣完
+        assertTrue(ledger.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 100))).isEmpty());
+    }
+
+    @Test
+    public void flushWritesOnlyCommittedJournal() {
+        reserveCommitted(1L, 30);
+        // 回滚的订单：流水随事务回滚，预占由回滚回调归还
+        List<StockChangeDTO> rolledBack = Collections.singletonList(new StockChangeDTO(1L, 20));
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(ledger.tryReserve(rolledBack).isEmpty());
+            ledger.confirm(rolledBack);
+            status.setRollbackOnly();
+        });
+        ledger.release(rolledBack);
+        transactionTemplate.executeWithoutResult(status ->
+                ledger.restore(Collections.singletonList(new StockChangeDTO(1L, 5))));
+        assertEquals(2, journalRows());
+
+        ledger.flush();
+
+        assertEquals(75, stockOf(1L));
+        assertEquals(0, journalRows());
+        // 写回后可售库存应为75
+        assertTrue(ledger.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 75))).isEmpty());
+        assertEquals(Collections.singletonList(1L), ledger.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 1))));
+    }
+
+    @Test
+    public void flushAbsorbsExternalStockEdits() {
+        // 卖家在后台把商品2的库存从5改成20
+        database.execute("UPDATE product SET stock = 20 WHERE id = 2");
+        ledger.flush();
+
+        assertTrue(ledger.tryReserve(Collections.singletonList(new StockChangeDTO(2L, 20))).isEmpty());
+    }
+
+    @Test
+    public void committedReservationsSurviveRestartBeforeFlush() {
+        reserveCommitted(1L, 30);
+        assertEquals(100, stockOf(1L));
+
+        // 写回前宕机（未释放租约），同一实例重启
+        HotStockLedger restarted = newLedger("node-1");
+        restarted.load();
+
+        assertEquals(70, stockOf(1L));
+        assertEquals(0, journalRows());
+        assertTrue(restarted.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 70))).isEmpty());
+        assertEquals(Collections.singletonList(1L), restarted.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 1))));
+    }
+
+    @Test
+    public void onlyOneInstanceCanEnableLedger() {
+        HotStockLedger other = newLedger("node-2");
+        assertThrows(IllegalStateException.class, other::load);
+        assertFalse(other.isHot(1L));
+
+        reserveCommitted(1L, 10);
+        ledger.shutdown();
+        assertEquals(90, stockOf(1L));
+        assertFalse(ledger.isHot(1L));
+
+        other.load();
+        assertTrue(other.isHot(1L));
+        assertTrue(other.tryReserve(Collections.singletonList(new StockChangeDTO(1L, 90))).isEmpty());
+    }
+
+    private HotStockLedger newLedger(String instanceId) {
+        HotStockLedger created = new HotStockLedger();
+        ReflectionTestUtils.setField(created, "productMapper", database.getMapper(ProductMapper.class));
+        ReflectionTestUtils.setField(created, "hotStockJournalMapper", database.getMapper(HotStockJournalMapper.class));
+        ReflectionTestUtils.setField(created, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(created, "hotProductIds", new HashSet<>(Arrays.asList(1L, 2L)));
+        ReflectionTestUtils.setField(created, "flushBatchSize", 2);
+        ReflectionTestUtils.setField(created, "leaseSeconds", 30);
+        ReflectionTestUtils.setField(created, "instanceId", instanceId);
+        return created;
+    }
+
+    /**
+     * 与 InventoryServiceImpl 相同：预占后在下单事务中写入流水
+     */
+    private void reserveCommitted(Long productId, int quantity) {
+        List<StockChangeDTO> changes = Collections.singletonList(new StockChangeDTO(productId, quantity));
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(ledger.tryReserve(changes).isEmpty());
+            ledger.confirm(changes);
+        });
+    }
+
+    private long stockOf(Long productId) {
+        return database.queryForLong("SELECT stock FROM product WHERE id = " + productId);
+    }
+
+    private long journalRows() {
+        return database.queryForLong("SELECT COUNT(*) FROM hot_stock_journal");
+    }
+}
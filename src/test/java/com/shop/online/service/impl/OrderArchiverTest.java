@@ -0,0 +1,226 @@
+package com.shop.online.service.impl;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.shop.online.common.result.PageResult;
+import com.shop.online.config.CountCachingPaginationInterceptor;
+import com.shop.online.dto.OrderQueryDTO;
+import com.shop.online.entity.Order;
+import com.shop.online.entity.User;
+import com.shop.online.exception.BusinessException;
+import com.shop.online.mapper.OrderArchiveMapper;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.mapper.UserMapper;
+import com.shop.online.service.UserService;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.vo.OrderVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 冷订单归档测试，在按迁移建表的H2(MySQL模式)上归档，再经由订单服务读取
+ */
+public class OrderArchiverTest {
+
+    private TestDatabase database;
+
+    private OrderArchiver archiver;
+
+    private OrderPageAssembler assembler;
+
+    private OrderMapper orderMapper;
+
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        database = TestDatabase.migrated("archive");
+
+        // 用户10：订单1~5已完成/取消/退款且超过保留期，6超过保留期但未完成，7是近期订单；订单8属于用户11，可归档
+        LocalDateTime old = LocalDateTime.now().minusDays(400);
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement insertOrder = connection.prepareStatement(
+                     "INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) " +
+                             "VALUES (?, ?, ?, 20, 10, ?, ?)");
+             PreparedStatement insertItem = connection.prepareStatement(
+                     "INSERT INTO order_item (order_id, product_id, product_name, product_image, price, quantity, " +
+                             "total_amount, deleted) VALUES (?, ?, 'p', 'img', 5, 1, 5, ?)")) {
+            int[] statuses = {3, 4, 5, 3, 4, 1, 3, 3};
+            for (long id = 1; id <= 8; id++) {
+                insertOrder.setLong(1, id);
+                insertOrder.setString(2, "NO" + id);
+                insertOrder.setLong(3, id == 8 ? 11 : 10);
+                insertOrder.setInt(4, statuses[(int) id - 1]);
+                LocalDateTime createdTime = id == 7 ? LocalDateTime.now().minusDays(10) : old.plusMinutes(id);
+                insertOrder.setTimestamp(5, Timestamp.valueOf(createdTime));
+                insertOrder.executeUpdate();
+                for (long productId = 1; productId <= 2; productId++) {
+                    insertItem.setLong(1, id);
+                    insertItem.setLong(2, productId);
+                    insertItem.setInt(3, id == 1 && productId == 2 ? 1 : 0);
+                    insertItem.executeUpdate();
+                }
+            }
+        }
+
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new CountCachingPaginationInterceptor(DbType.MYSQL, 100, 0));
+        database.getConfiguration().addInterceptor(interceptor);
+        orderMapper = database.getMapper(OrderMapper.class);
+        OrderArchiveMapper orderArchiveMapper = database.getMapper(OrderArchiveMapper.class);
+
+        // 归档在Spring事务中执行，Mapper参与同一个事务
+        archiver = new OrderArchiver();
+        ReflectionTestUtils.setField(archiver, "orderArchiveMapper", orderArchiveMapper);
+        ReflectionTestUtils.setField(archiver, "transactionTemplate", new TransactionTemplate(database.getTransactionManager()));
+        ReflectionTestUtils.setField(archiver, "minAgeDays", 180);
+        ReflectionTestUtils.setField(archiver, "batchSize", 4);
+        ReflectionTestUtils.setField(archiver, "pauseMillis", 0L);
+
+        assembler = new OrderPageAssembler();
+        ReflectionTestUtils.setField(assembler, "orderItemMapper", database.getMapper(OrderItemMapper.class));
+        ReflectionTestUtils.setField(assembler, "userMapper", database.getMapper(UserMapper.class));
+        ReflectionTestUtils.setField(assembler, "orderArchiveMapper", orderArchiveMapper);
+
+        User user = new User();
+        user.setId(10L);
+        UserService userService = mock(UserService.class);
+        when(userService.getCurrentUser()).thenReturn(user);
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "baseMapper", orderMapper);
+        ReflectionTestUtils.setField(orderService, "orderPageAssembler", assembler);
+        ReflectionTestUtils.setField(orderService, "userService", userService);
+        ReflectionTestUtils.setField(orderService, "orderArchiver", archiver);
+        ReflectionTestUtils.setField(orderService, "orderArchiveMapper", orderArchiveMapper);
+        ReflectionTestUtils.setField(orderService, "orderDetailCache", mock(OrderDetailCache.class));
+    }
+
+    @Test
+    public void movesOnlyOldFinishedOrdersWithTheirItemsInBatches() throws Exception {
+        Map<String, Object> report = archiver.archive();
+
+        assertEquals(2, report.get("batches"));
+        assertEquals(6L, report.get("orders"));
+        assertEquals(12L, report.get("orderItems"));
+        assertEquals(report, archiver.getLastRun());
+
+        assertEquals(Arrays.asList(6L, 7L), ids("SELECT id FROM `order` ORDER BY id"));
+        assertEquals(Arrays.asList(6L, 7L), ids("SELECT DISTINCT order_id FROM order_item ORDER BY order_id"));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 8L), ids("SELECT id FROM order_archive ORDER BY id"));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 8L),
+                ids("SELECT DISTINCT order_id FROM order_item_archive ORDER BY order_id"));
+
+        // 再次运行没有可归档的订单
+        assertEquals(0L, archiver.archive().get("orders"));
+    }
+
+    @Test
+    public void scheduledRunDoesNotHoldTheSchedulerThread() throws Exception {
+        ReflectionTestUtils.setField(archiver, "enabled", true);
+        ReflectionTestUtils.setField(archiver, "pauseMillis", 60000L);
+        // 第一批之后进入长时间暂停，调度线程仍立即返回；上一次未结束时跳过
+        long start = System.currentTimeMillis();
+        archiver.scheduledArchive();
+        archiver.scheduledArchive();
+        assertTrue(System.currentTimeMillis() - start < 5000);
+
+        // 关闭时中断暂停，归档在第一批之后结束
+        waitUntil(() -> ids("SELECT id FROM order_archive").size() == 4);
+        archiver.stop();
+        waitUntil(() -> archiver.getLastRun().containsKey("batches"));
+        assertEquals(1, archiver.getLastRun().get("batches"));
+        assertEquals(4L, archiver.getLastRun().get("orders"));
+    }
+
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.call()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void listsIncludeArchiveOnlyWhenRangeStartsBeforeCutoff() {
+        archiver.archive();
+
+        PageResult<OrderVO> recent = orderService.getOrders(query(null));
+        assertEquals(2L, recent.getTotal());
+
+        PageResult<OrderVO> all = orderService.getOrders(query(LocalDateTime.now().minusDays(500).toLocalDate().toString()));
+        assertEquals(7L, all.getTotal());
+        List<Long> ids = new ArrayList<>();
+        for (OrderVO order : all.getList()) {
+            ids.add(order.getId().longValue());
+            assertEquals(2, order.getProducts().size());
+        }
+        // 热表与归档表合并后仍按 (created_time, id) 倒序
+        assertEquals(Arrays.asList(7L, 6L, 5L, 4L, 3L, 2L, 1L), ids);
+        assertTrue(all.getList().get(6).getProducts().get(1).getRefunded());
+    }
+
+    @Test
+    public void cursorPagesOverHotAndArchivedOrders() {
+        archiver.archive();
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = "";
+        do {
+            LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.eq(Order::getUserId, 10L).eq(Order::getDeleted, 0);
+            PageResult<OrderVO> page = assembler.loadPage(orderMapper, queryWrapper, 1, 3, cursor, false, false, true);
+            assertNull(page.getTotal());
+            page.getList().forEach(order -> ids.add(order.getId().longValue()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList(7L, 6L, 5L, 4L, 3L, 2L, 1L), ids);
+    }
+
+    @Test
+    public void detailFallsBackToArchiveForOwnOrdersOnly() {
+        archiver.archive();
+
+        OrderVO archived = orderService.getOrderDetail("NO1");
+        assertEquals("NO1", archived.getOrderNo());
+        assertEquals(2, archived.getProducts().size());
+        assertFalse(archived.getProducts().get(0).getRefunded());
+
+        assertThrows(BusinessException.class, () -> orderService.getOrderDetail("NO8"));
+    }
+
+    private static OrderQueryDTO query(String startDate) {
+        OrderQueryDTO queryDTO = new OrderQueryDTO();
+        queryDTO.setStartDate(startDate);
+        return queryDTO;
+    }
+
+    private List<Long> ids(String sql) {
+        List<Long> ids = new ArrayList<>();
+        database.query(sql).forEach(id -> ids.add(Long.valueOf(id)));
+        return ids;
+    }
+}
@@ -0,0 +1,75 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.vo.OrderVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 订单详情缓存测试
+ */
+public class OrderDetailCacheTest {
+
+    private OrderDetailCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new OrderDetailCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        cache.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void onlyOwnerSeesCachedOrder() {
+        OrderVO order = new OrderVO();
+        cache.put("A1", 1L, order, cache.version("A1"));
+
+        assertSame(order, cache.get("A1", 1L));
+        assertNull(cache.get("A1", 2L));
+        assertNull(cache.get("A2", 1L));
+        assertEquals(2.0 / 3, (Double) cache.getStats().get("hitRate"), 0.001);
+    }
+
+    @Test
+    public void evictInsideTransactionAlsoRemovesEntryCachedBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.put("A1", 1L, new OrderVO(), cache.version("A1"));
+        cache.evict("A1");
+        assertNull(cache.get("A1", 1L));
+
+        // 提交前的并发查询读到旧数据并放回缓存
+        cache.put("A1", 1L, new OrderVO(), cache.version("A1"));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertNull(cache.get("A1", 1L));
+    }
+
+    @Test
+    public void loadStartedBeforeEvictionIsNotCached() {
+        long version = cache.version("A1");
+        // 查询期间订单被修改并失效
+        cache.evict("A1");
+        cache.put("A1", 1L, new OrderVO(), version);
+        assertNull(cache.get("A1", 1L));
+
+        OrderVO fresh = new OrderVO();
+        cache.put("A1", 1L, fresh, cache.version("A1"));
+        assertSame(fresh, cache.get("A1", 1L));
+    }
+}
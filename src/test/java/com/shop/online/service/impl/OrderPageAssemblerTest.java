@@ -0,0 +1,131 @@
+package com.shop.online.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shop.online.common.result.PageResult;
+import com.shop.online.entity.Order;
+import com.shop.online.mapper.OrderArchiveMapper;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.mapper.UserMapper;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.vo.OrderVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单列表组装测试，在按迁移建表的H2(MySQL模式)上执行订单项、用户查询
+ */
+public class OrderPageAssemblerTest {
+
+    private TestDatabase database;
+
+    private OrderPageAssembler assembler;
+
+    @BeforeEach
+    public void setUp() {
+        database = TestDatabase.migrated("page");
+        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status) VALUES " +
+                "(1, 'A', 10, 100, 40, 3), (2, 'B', 11, 100, 10, 5), (3, 'C', 12, 100, 10, 0)",
+                "INSERT INTO order_item (id, order_id, product_id, product_name, product_image, price, quantity, " +
+                "total_amount, deleted) VALUES (1, 1, 100, 'p100', 'a.png', 10, 1, 10, 1), " +
+                "(2, 1, 101, 'p101', 'b.png', 10, 2, 20, 0), (3, 1, 102, 'p102', 'c.png', 10, 1, 10, 0), " +
+                "(4, 2, 100, 'p100', 'a.png', 10, 1, 10, 0)",
+                // 用户11对B中商品100的评价不计入（订单未完成），用户10对102的评价已删除
+                "INSERT INTO product_review (id, user_id, order_no, product_id, rating, deleted) VALUES " +
+                "(1, 10, 'A', 101, 5, 0), (2, 10, 'A', 102, 5, 1), (3, 11, 'B', 100, 5, 0)",
+                "INSERT INTO user (id, username, password, deleted) VALUES (10, 'alice', 'x', 0), (11, 'bob', 'x', 1)",
+                // 订单D已整单归档，明细只在归档表中
+                "INSERT INTO order_archive (id, order_no, user_id, seller_id, total_amount, status) " +
+                "VALUES (4, 'D', 10, 100, 10, 3)",
+                "INSERT INTO order_item_archive (id, order_id, product_id, product_name, product_image, price, " +
+                "quantity, total_amount, deleted) VALUES (5, 4, 103, 'p103', 'd.png', 10, 1, 10, 0), " +
+                "(6, 4, 101, 'p101', 'b.png', 10, 1, 10, 1)",
+                "INSERT INTO product_review (id, user_id, order_no, product_id, rating, deleted) VALUES " +
+                "(4, 10, 'D', 103, 5, 0)");
+
+        assembler = new OrderPageAssembler();
+        ReflectionTestUtils.setField(assembler, "orderItemMapper", database.getMapper(OrderItemMapper.class));
+        ReflectionTestUtils.setField(assembler, "userMapper", database.getMapper(UserMapper.class));
+        ReflectionTestUtils.setField(assembler, "orderArchiveMapper", database.getMapper(OrderArchiveMapper.class));
+        ReflectionTestUtils.setField(assembler, "maxLimit", 2L);
+    }
+
+    @Test
+    public void cursorPageSizeIsClampedToOneAndMaxLimit() {
+        OrderMapper orderMapper = database.getMapper(OrderMapper.class);
+
+        PageResult<OrderVO> empty = assembler.loadPage(orderMapper, new LambdaQueryWrapper<>(), 1, 0, "", false, false);
+        assertEquals(1, empty.getList().size());
+        assertNotNull(empty.getNextCursor());
+
+        PageResult<OrderVO> huge = assembler.loadPage(orderMapper, new LambdaQueryWrapper<>(), 1, 100000, "", false, false);
+        assertEquals(2, huge.getList().size());
+        PageResult<OrderVO> rest = assembler.loadPage(orderMapper, new LambdaQueryWrapper<>(), 1, 100000,
+                huge.getNextCursor(), false, false);
+        assertEquals(1, rest.getList().size());
+        assertNull(rest.getNextCursor());
+    }
+
+    @Test
+    public void assemblesItemsRefundAndReviewStateKeepingOrderSequence() {
+        List<OrderVO> orders = assembler.assemble(Arrays.asList(order(3L, "C", 12L, 0), order(1L, "A", 10L, 3),
+                order(2L, "B", 11L, 5)), false);
+
+        assertEquals(Arrays.asList("C", "A", "B"), Arrays.asList(
+                orders.get(0).getOrderNo(), orders.get(1).getOrderNo(), orders.get(2).getOrderNo()));
+        assertTrue(orders.get(0).getProducts().isEmpty());
+
+        List<OrderVO.OrderProductVO> completed = orders.get(1).getProducts();
+        assertEquals(Arrays.asList(101, 102, 100), Arrays.asList(
+                completed.get(0).getId(), completed.get(1).getId(), completed.get(2).getId()));
+        assertTrue(completed.get(0).getReviewed());
+        assertFalse(completed.get(1).getReviewed());
+        assertTrue(completed.get(2).getRefunded());
+        assertFalse(completed.get(0).getRefunded());
+
+        OrderVO.OrderProductVO refunded = orders.get(2).getProducts().get(0);
+        assertTrue(refunded.getRefunded());
+        assertFalse(refunded.getReviewed());
+        assertNull(orders.get(1).getUsername());
+    }
+
+    @Test
+    public void fillsBuyerNamesWhenRequested() {
+        List<OrderVO> orders = assembler.assemble(Arrays.asList(order(1L, "A", 10L, 3),
+                order(2L, "B", 11L, 5)), true);
+
+        assertEquals("alice", orders.get(0).getUsername());
+        assertEquals("未知用户", orders.get(1).getUsername());
+    }
+
+    @Test
+    public void readsItemsOfArchivedOrdersFromArchiveTable() {
+        List<OrderVO> orders = assembler.assemble(Arrays.asList(order(4L, "D", 10L, 3), order(2L, "B", 11L, 5)), false);
+
+        List<OrderVO.OrderProductVO> archived = orders.get(0).getProducts();
+        assertEquals(Arrays.asList(103, 101), Arrays.asList(archived.get(0).getId(), archived.get(1).getId()));
+        assertTrue(archived.get(0).getReviewed());
+        assertFalse(archived.get(0).getRefunded());
+        assertTrue(archived.get(1).getRefunded());
+        assertEquals(1, orders.get(1).getProducts().size());
+    }
+
+    private static Order order(Long id, String orderNo, Long userId, int status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderNo(orderNo);
+        order.setUserId(userId);
+        order.setStatus(status);
+        return order;
+    }
+}
@@ -0,0 +1,113 @@
+package com.shop.online.service.impl;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.shop.online.common.result.PageResult;
+import com.shop.online.config.CountCachingPaginationInterceptor;
+import com.shop.online.dto.OrderQueryDTO;
+import com.shop.online.entity.User;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.mapper.UserMapper;
+import com.shop.online.service.UserService;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.vo.OrderVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 含退款商品订单的分页测试，使用H2(MySQL模式)在SQL中筛选、分页
+ */
+public class OrderRefundedPageTest {
+
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestDatabase database = TestDatabase.migrated("refunded");
+        try (Connection connection = database.getDataSource().getConnection()) {
+            // 用户10的30个订单：ID为3的倍数的订单有一件商品单独退款，7、17整单退款；用户11的订单都有退款
+            LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+            try (PreparedStatement insertOrder = connection.prepareStatement(
+                    "INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) " +
+                            "VALUES (?, ?, ?, 100, 20, ?, ?)");
+                 PreparedStatement insertItem = connection.prepareStatement(
+                         "INSERT INTO order_item (order_id, product_id, product_name, product_image, price, quantity, " +
+                                 "total_amount, deleted) VALUES (?, ?, 'p', 'p.png', 10, 1, 10, ?)")) {
+                for (long id = 1; id <= 40; id++) {
+                    long userId = id <= 30 ? 10 : 11;
+                    insertOrder.setLong(1, id);
+                    insertOrder.setString(2, "NO" + id);
+                    insertOrder.setLong(3, userId);
+                    insertOrder.setInt(4, id == 7 || id == 17 ? 5 : 3);
+                    insertOrder.setTimestamp(5, Timestamp.valueOf(base.plusMinutes(id % 4)));
+                    insertOrder.executeUpdate();
+                    for (long productId = 1; productId <= 2; productId++) {
+                        insertItem.setLong(1, id);
+                        insertItem.setLong(2, productId);
+                        insertItem.setInt(3, productId == 2 && (id % 3 == 0 || userId == 11) ? 1 : 0);
+                        insertItem.executeUpdate();
+                    }
+                }
+            }
+        }
+
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new CountCachingPaginationInterceptor(DbType.MYSQL, 100, 0));
+        database.getConfiguration().addInterceptor(interceptor);
+
+        OrderPageAssembler assembler = new OrderPageAssembler();
+        ReflectionTestUtils.setField(assembler, "orderItemMapper", database.getMapper(OrderItemMapper.class));
+        ReflectionTestUtils.setField(assembler, "userMapper", database.getMapper(UserMapper.class));
+
+        User user = new User();
+        user.setId(10L);
+        UserService userService = mock(UserService.class);
+        when(userService.getCurrentUser()).thenReturn(user);
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "baseMapper", database.getMapper(OrderMapper.class));
+        ReflectionTestUtils.setField(orderService, "orderPageAssembler", assembler);
+        ReflectionTestUtils.setField(orderService, "userService", userService);
+    }
+
+    @Test
+    public void everyPageIsFullAndTotalIsExact() {
+        List<Long> ids = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        for (int page = 1; page <= 3; page++) {
+            PageResult<OrderVO> result = orderService.getOrdersWithRefundedItems(query(page, 5));
+            assertEquals(12L, result.getTotal());
+            pageSizes.add(result.getList().size());
+            for (OrderVO order : result.getList()) {
+                assertTrue(order.getProducts().stream().anyMatch(OrderVO.OrderProductVO::getRefunded));
+                ids.add(order.getId().longValue());
+            }
+        }
+
+        assertEquals(Arrays.asList(5, 5, 2), pageSizes);
+        // (created_time, id) 倒序
+        assertEquals(Arrays.asList(27L, 15L, 7L, 3L, 30L, 18L, 6L, 21L, 17L, 9L, 24L, 12L), ids);
+    }
+
+    private static OrderQueryDTO query(int page, int size) {
+        OrderQueryDTO queryDTO = new OrderQueryDTO();
+        queryDTO.setPage(page);
+        queryDTO.setSize(size);
+        return queryDTO;
+    }
+}
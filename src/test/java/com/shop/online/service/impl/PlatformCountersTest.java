@@ -0,0 +1,112 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.AdminStatsDTO;
+import com.shop.online.mapper.PlatformStatsMapper;
+import com.shop.online.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 平台统计计数测试，在H2(MySQL模式)上执行迁移，事务提交后的调整、校对结果与数据库实际统计对比
+ */
+public class PlatformCountersTest {
+
+    private TestDatabase database;
+
+    private TransactionTemplate transactionTemplate;
+
+    private PlatformStatsMapper platformStatsMapper;
+
+    private PlatformCounters counters;
+
+    @BeforeEach
+    public void setUp() {
+        database = TestDatabase.migrated("platform_stats");
+        // 用户4是已删除的卖家；申请3已删除；商品2已下架，商品3已删除
+        database.execute("INSERT INTO `user` (id, username, password, role, deleted) VALUES " +
+                "(1, 'a', 'p', 0, 0), (2, 'b', 'p', 1, 0), (3, 'c', 'p', 0, 0), (4, 'd', 'p', 1, 1)");
+        database.execute("INSERT INTO seller (id, user_id, shop_name, status, deleted) VALUES " +
+                "(1, 2, 's1', 1, 0), (2, 3, 's2', 0, 0), (3, 1, 's3', 0, 1)");
+        database.execute("INSERT INTO product (id, seller_id, category_id, name, price, status, main_image, deleted) VALUES " +
+                "(1, 2, 1, 'p1', 10, 1, 'a.png', 0), (2, 2, 1, 'p2', 10, 0, 'b.png', 0), " +
+                "(3, 2, 1, 'p3', 10, 1, 'c.png', 1)");
+
+        transactionTemplate = new TransactionTemplate(database.getTransactionManager());
+        platformStatsMapper = database.getMapper(PlatformStatsMapper.class);
+
+        counters = new PlatformCounters();
+        ReflectionTestUtils.setField(counters, "platformStatsMapper", platformStatsMapper);
+    }
+
+    @Test
+    public void seedsFromOneQuery() {
+        assertEquals("3|1|1|1", format(counters.getStats()));
+        assertEquals(format(platformStatsMapper.countPlatformStats()), format(counters.getStats()));
+    }
+
+    @Test
+    public void appliesAdjustmentsOnlyAfterCommit() {
+        counters.getStats();
+        transactionTemplate.executeWithoutResult(status -> {
+            // 申请2通过，用户3成为卖家；新上架一个商品
+            database.execute("UPDATE seller SET status = 1 WHERE id = 2");
+            counters.sellerRequestStatusChanged(0, 1);
+            database.execute("UPDATE `user` SET role = 1 WHERE id = 3");
+            counters.roleChanged(0, 1);
+            database.execute("INSERT INTO product (id, seller_id, category_id, name, price, status, main_image) " +
+                    "VALUES (4, 3, 1, 'p4', 10, 1, 'd.png')");
+            counters.productStatusChanged(null, 1);
+            // 提交前不可见
+            assertEquals("3|1|1|1", format(counters.getStats()));
+        });
+        assertEquals("3|2|0|2", format(counters.getStats()));
+
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            database.execute("INSERT INTO `user` (id, username, password) VALUES (5, 'e', 'p')");
+            counters.add(PlatformCounters.Metric.USERS, 1);
+            database.execute("UPDATE product SET status = 0 WHERE id = 1");
+            counters.productStatusChanged(1, 0);
+            throw new IllegalStateException("注册后续处理失败");
+        }));
+        assertEquals("3|2|0|2", format(counters.getStats()));
+        assertEquals(format(platformStatsMapper.countPlatformStats()), format(counters.getStats()));
+    }
+
+    @Test
+    public void reconcileCorrectsDriftAndKeepsConcurrentAdjustments() {
+        counters.getStats();
+        // 绕过业务方法的修改：商品2重新上架
+        database.execute("UPDATE product SET status = 1 WHERE id = 2");
+        Map<String, Object> report = counters.reconcile();
+        assertEquals(Collections.singletonMap("PRODUCTS", 1L), report.get("drift"));
+        assertEquals("3|1|1|2", format(counters.getStats()));
+
+        // 校对查询完成之后、写回计数之前提交的注册在写回时补记
+        ReflectionTestUtils.setField(counters, "platformStatsMapper", (PlatformStatsMapper) () -> {
+            AdminStatsDTO counted = platformStatsMapper.countPlatformStats();
+            database.execute("INSERT INTO `user` (id, username, password) VALUES (5, 'e', 'p')");
+            counters.add(PlatformCounters.Metric.USERS, 1);
+            return counted;
+        });
+        report = counters.reconcile();
+        assertEquals(Collections.emptyMap(), report.get("drift"));
+        assertEquals("4|1|1|2", format(counters.getStats()));
+        assertEquals(format(platformStatsMapper.countPlatformStats()), format(counters.getStats()));
+    }
+
+    private static String format(AdminStatsDTO stats) {
+        return stats.getUserCount() + "|" + stats.getSellerCount() + "|" + stats.getPendingRequests()
+                + "|" + stats.getProductCount();
+    }
+
+    /**
+     * 在当前事务（如果有）的连接上执行
+     */}
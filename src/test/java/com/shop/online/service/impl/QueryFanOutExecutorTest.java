@@ -0,0 +1,116 @@
+package com.shop.online.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 查询并发执行器测试：并发执行、超时与失败降级、队列满和嵌套提交时在当前线程执行
+ */
+public class QueryFanOutExecutorTest {
+
+    private QueryFanOutExecutor executor;
+
+    private QueryFanOutExecutor create(int threads, int queueCapacity, long timeoutMillis) {
+        executor = new QueryFanOutExecutor();
+        ReflectionTestUtils.setField(executor, "threads", threads);
+        ReflectionTestUtils.setField(executor, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(executor, "timeoutMillis", timeoutMillis);
+        executor.init();
+        return executor;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    public void runsQueriesConcurrently() {
+        create(3, 10, 5000);
+        // 三个查询互相等待，只有同时执行才能全部完成
+        CountDownLatch started = new CountDownLatch(3);
+        QueryFanOutExecutor.FanOut fanOut = executor.start();
+        QueryFanOutExecutor.Query<Integer> a = fanOut.submit("a", () -> await(started, 1), null);
+        QueryFanOutExecutor.Query<Integer> b = fanOut.submit("b", () -> await(started, 2), null);
+        QueryFanOutExecutor.Query<Integer> c = fanOut.submit("c", () -> await(started, 3), null);
+
+        assertEquals(Arrays.asList(1, 2, 3), Arrays.asList(a.get(), b.get(), c.get()));
+        assertFalse(fanOut.isPartial());
+        assertEquals(3L, executor.getStats().get("completedCount"));
+    }
+
+    @Test
+    public void timeoutAndFailureFallBackWithoutFailingOthers() {
+        create(2, 10, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        QueryFanOutExecutor.FanOut fanOut = executor.start();
+        QueryFanOutExecutor.Query<Integer> slow = fanOut.submit("slow", () -> block(release, 1), -1, 50);
+        QueryFanOutExecutor.Query<Integer> broken = fanOut.submit("broken", () -> {
+            throw new IllegalStateException("连接失败");
+        }, -2);
+        QueryFanOutExecutor.Query<Integer> ok = fanOut.submit("ok", () -> 3, null);
+
+        assertEquals(-1, slow.get());
+        assertEquals(-2, broken.get());
+        assertEquals(3, ok.get());
+        assertTrue(slow.isDegraded());
+        assertFalse(ok.isDegraded());
+        assertEquals(Arrays.asList("slow", "broken"), fanOut.getDegraded());
+        assertEquals(1L, executor.getStats().get("timeoutCount"));
+        assertEquals(1L, executor.getStats().get("failureCount"));
+        release.countDown();
+    }
+
+    @Test
+    public void runsInCallerThreadWhenSaturatedOrNested() {
+        create(1, 1, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        QueryFanOutExecutor.FanOut fanOut = executor.start();
+        // 占满唯一的线程和队列
+        QueryFanOutExecutor.Query<Integer> busy = fanOut.submit("busy", () -> block(release, 1), null);
+        QueryFanOutExecutor.Query<Integer> queued = fanOut.submit("queued", () -> 2, null);
+        Thread caller = Thread.currentThread();
+        QueryFanOutExecutor.Query<Boolean> inline = fanOut.submit("inline", () -> Thread.currentThread() == caller, null);
+        assertTrue(inline.get());
+        release.countDown();
+        assertEquals(1, busy.get());
+        assertEquals(2, queued.get());
+
+        // 在工作线程中再提交的查询直接执行，不等待唯一的线程
+        QueryFanOutExecutor.Query<String> outer = executor.start().submit("outer", () -> {
+            String worker = Thread.currentThread().getName();
+            return executor.start().submit("nested", () -> Thread.currentThread().getName(), null).get()
+                    + "|" + worker;
+        }, null);
+        String[] threads = outer.get().split("\\|");
+        assertEquals(threads[1], threads[0]);
+        assertNotEquals(caller.getName(), threads[0]);
+        assertEquals(2L, executor.getStats().get("callerRunsCount"));
+        assertEquals(Collections.emptyList(), fanOut.getDegraded());
+    }
+
+    private static int await(CountDownLatch latch, int value) {
+        latch.countDown();
+        return block(latch, value);
+    }
+
+    private static int block(CountDownLatch latch, int value) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,107 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.dto.StockChangeDTO;
+import com.shop.online.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品销量计数器测试
+ */
+public class SalesCounterTest {
+
+    private ProductMapper productMapper;
+
+    private SalesCounter salesCounter;
+
+    /** 模拟数据库中的销量 */
+    private final Map<Long, Long> persisted = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        productMapper = mock(ProductMapper.class);
+        when(productMapper.increaseSales(anyList())).thenAnswer(invocation -> {
+            List<StockChangeDTO> items = invocation.getArgument(0);
+            for (StockChangeDTO item : items) {
+                persisted.merge(item.getProductId(), (long) item.getQuantity(), Long::sum);
+            }
+            return items.size();
+        });
+
+        salesCounter = new SalesCounter();
+        ReflectionTestUtils.setField(salesCounter, "productMapper", productMapper);
+    }
+
+    @Test
+    public void concurrentUpdatesAreNotLostWhileFlushing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            long productId = i % 4;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 10000; j++) {
+                    salesCounter.add(Collections.singletonList(new StockChangeDTO(productId, 2)));
+                    salesCounter.subtract(Collections.singletonList(new StockChangeDTO(productId, 1)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < 50; i++) {
+            salesCounter.flush();
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        salesCounter.flush();
+
+        for (long productId = 0; productId < 4; productId++) {
+            assertEquals(40000L, persisted.get(productId));
+        }
+    }
+
+    @Test
+    public void failedFlushKeepsDeltasForNextRound() {
+        salesCounter.add(Collections.singletonList(new StockChangeDTO(1L, 3)));
+        when(productMapper.increaseSales(anyList())).thenThrow(new RuntimeException("db down"));
+        salesCounter.flush();
+
+        doReturn(1).when(productMapper).increaseSales(anyList());
+        salesCounter.flush();
+        verify(productMapper, times(2)).increaseSales(Collections.singletonList(new StockChangeDTO(1L, 3)));
+    }
+
+    @Test
+    public void rebuildDiscardsPendingDeltas() {
+        salesCounter.add(Collections.singletonList(new StockChangeDTO(1L, 3)));
+        salesCounter.rebuild();
+        salesCounter.flush();
+
+        verify(productMapper).rebuildSales();
+        verify(productMapper, never()).increaseSales(anyList());
+    }
+}
@@ -0,0 +1,385 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.common.enums.SalesWindow;
+import com.shop.online.entity.User;
+import com.shop.online.mapper.OrderItemMapper;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.mapper.SellerOrderStatsMapper;
+import com.shop.online.service.InventoryService;
+import com.shop.online.service.UserService;
+import com.shop.online.support.TestDatabase;
+import com.shop.online.util.HyperLogLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 销售日汇总测试，在H2(MySQL模式)上执行迁移，确认收货、退款后的增量结果与按订单表重建的结果对比
+ */
+public class SalesRollupTest {
+
+    private static final String SELLER_DAYS = "SELECT seller_id, sales_date, order_count, amount FROM sales_daily_seller " +
+            "WHERE order_count <> 0 OR amount <> 0 ORDER BY seller_id, sales_date";
+
+    private static final String PRODUCT_DAYS = "SELECT seller_id, sales_date, product_id, category_id, quantity, amount, " +
+            "order_count FROM sales_daily_product WHERE quantity <> 0 OR amount <> 0 OR order_count <> 0 " +
+            "ORDER BY seller_id, sales_date, product_id";
+
+    private static final String BUYER_DAYS = "SELECT seller_id, sales_date, buyers, repeat_buyers FROM sales_daily_buyer " +
+            "ORDER BY seller_id, sales_date";
+
+    private TestDatabase database;
+
+    private TransactionTemplate transactionTemplate;
+
+    private SalesRollup salesRollup;
+
+    private BestSellerTracker bestSellerTracker;
+
+    private SalesAnalyticsCache salesAnalyticsCache;
+
+    private OrderStateMachine stateMachine;
+
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // 先迁移到建汇总表之前，插入历史订单，再执行剩余迁移验证回填
+        database = TestDatabase.migratedTo("sales_rollup", "5");
+        database.execute("INSERT INTO category (id, name, level) VALUES (1, '数码', 1), (2, '图书', 1)");
+        database.execute("INSERT INTO product (id, seller_id, category_id, name, price, main_image) VALUES " +
+                "(10, 100, 1, '耳机', 50, 'a.png'), (11, 100, 2, '小说', 30, 'b.png'), (12, 200, 1, '键盘', 20, 'c.png')");
+        // A、B已完成（B的小说已单独退款），C、D待收货，E是另一个卖家的已完成订单
+        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) VALUES " +
+                "(1, 'A', 10, 100, 130, 3, '2026-03-02 10:00:00'), (2, 'B', 11, 100, 80, 3, '2026-03-02 20:00:00'), " +
+                "(3, 'C', 10, 100, 90, 2, '2026-03-03 09:00:00'), (4, 'D', 11, 100, 50, 2, '2026-03-10 09:00:00'), " +
+                "(5, 'E', 11, 200, 20, 3, '2026-03-02 11:00:00')");
+        database.execute("INSERT INTO order_item (id, order_id, product_id, product_name, product_image, price, quantity, " +
+                "total_amount, deleted) VALUES " +
+                "(1, 1, 10, '耳机', 'a.png', 50, 2, 100, 0), (2, 1, 11, '小说', 'b.png', 30, 1, 30, 0), " +
+                "(3, 2, 10, '耳机', 'a.png', 50, 1, 50, 0), (4, 2, 11, '小说', 'b.png', 30, 1, 30, 1), " +
+                "(5, 3, 11, '小说', 'b.png', 30, 3, 90, 0), (6, 4, 10, '耳机', 'a.png', 50, 1, 50, 0), " +
+                "(7, 5, 12, '键盘', 'c.png', 20, 1, 20, 0)");
+        // 已归档的历史订单
+        database.execute("INSERT INTO order_archive (id, order_no, user_id, seller_id, total_amount, status, created_time) " +
+                "VALUES (6, 'F', 10, 100, 50, 3, '2025-12-01 08:00:00')");
+        database.execute("INSERT INTO order_item_archive (id, order_id, product_id, product_name, product_image, price, " +
+                "quantity, total_amount) VALUES (8, 6, 10, '耳机', 'a.png', 50, 1, 50)");
+        database.migrate();
+
+        transactionTemplate = new TransactionTemplate(database.getTransactionManager());
+        SalesRollupMapper salesRollupMapper = database.getMapper(SalesRollupMapper.class);
+
+        bestSellerTracker = new BestSellerTracker();
+        ReflectionTestUtils.setField(bestSellerTracker, "salesRollupMapper", salesRollupMapper);
+        ReflectionTestUtils.setField(bestSellerTracker, "capacity", 10);
+
+        QueryFanOutExecutor queryFanOutExecutor = new QueryFanOutExecutor();
+        ReflectionTestUtils.setField(queryFanOutExecutor, "threads", 4);
+        ReflectionTestUtils.setField(queryFanOutExecutor, "queueCapacity", 16);
+        ReflectionTestUtils.setField(queryFanOutExecutor, "timeoutMillis", 10000L);
+        queryFanOutExecutor.init();
+
+        salesAnalyticsCache = new SalesAnalyticsCache();
+        ReflectionTestUtils.setField(salesAnalyticsCache, "salesRollupMapper", salesRollupMapper);
+        ReflectionTestUtils.setField(salesAnalyticsCache, "queryFanOutExecutor", queryFanOutExecutor);
+        ReflectionTestUtils.setField(salesAnalyticsCache, "maxEntries", 100);
+        ReflectionTestUtils.setField(salesAnalyticsCache, "openTtlSeconds", 60L);
+        salesAnalyticsCache.init();
+
+        salesRollup = new SalesRollup();
+        ReflectionTestUtils.setField(salesRollup, "salesRollupMapper", salesRollupMapper);
+        ReflectionTestUtils.setField(salesRollup, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(salesRollup, "bestSellerTracker", bestSellerTracker);
+        ReflectionTestUtils.setField(salesRollup, "salesAnalyticsCache", salesAnalyticsCache);
+        ReflectionTestUtils.setField(salesRollup, "buyerRebuildBatchSize", 1);
+
+        SellerOrderCounter counter = new SellerOrderCounter();
+        ReflectionTestUtils.setField(counter, "sellerOrderStatsMapper", database.getMapper(SellerOrderStatsMapper.class));
+
+        OrderDetailCache orderDetailCache = mock(OrderDetailCache.class);
+        stateMachine = new OrderStateMachine();
+        ReflectionTestUtils.setField(stateMachine, "orderMapper", database.getMapper(OrderMapper.class));
+        ReflectionTestUtils.setField(stateMachine, "orderDetailCache", orderDetailCache);
+        ReflectionTestUtils.setField(stateMachine, "sellerOrderCounter", counter);
+        ReflectionTestUtils.setField(stateMachine, "salesRollup", salesRollup);
+
+        User buyer = new User();
+        buyer.setId(10L);
+        UserService userService = mock(UserService.class);
+        when(userService.getCurrentUser()).thenReturn(buyer);
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "baseMapper", database.getMapper(OrderMapper.class));
+        ReflectionTestUtils.setField(orderService, "orderItemMapper", database.getMapper(OrderItemMapper.class));
+        ReflectionTestUtils.setField(orderService, "userService", userService);
+        ReflectionTestUtils.setField(orderService, "inventoryService", mock(InventoryService.class));
+        ReflectionTestUtils.setField(orderService, "orderDetailCache", orderDetailCache);
+        ReflectionTestUtils.setField(orderService, "salesCounter", mock(SalesCounter.class));
+        ReflectionTestUtils.setField(orderService, "orderStateMachine", stateMachine);
+        ReflectionTestUtils.setField(orderService, "salesRollup", salesRollup);
+        ReflectionTestUtils.setField(orderService, "salesRollupMapper", salesRollupMapper);
+        ReflectionTestUtils.setField(orderService, "salesAnalyticsCache", salesAnalyticsCache);
+    }
+
+    @Test
+    public void migrationBackfillsCompletedOrdersIncludingArchive() {
+        assertEquals(Arrays.asList(
+                "100|2025-12-01|1|50.00",
+                "100|2026-03-02|2|180.00",
+                "200|2026-03-02|1|20.00"), database.query(SELLER_DAYS));
+        assertEquals(Arrays.asList(
+                "100|2025-12-01|10|1|1|50.00|1",
+                "100|2026-03-02|10|1|3|150.00|2",
+                "100|2026-03-02|11|2|1|30.00|1",
+                "200|2026-03-02|12|1|1|20.00|1"), database.query(PRODUCT_DAYS));
+    }
+
+    @Test
+    public void incrementalRollupsMatchRebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "C", 10L, null);
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "D", 11L, null);
+        });
+        // A的小说单独退款，订单仍是已完成
+        transactionTemplate.executeWithoutResult(status -> orderService.refundProductItem("A", 11L));
+        // 实时热销只统计本次确认收货的C、D，A的小说在迁移时已计入日汇总，退款扣减记在A确认收货的时间片上
+        assertEquals(Arrays.asList("11|60.00|2", "10|50.00|1"),
+                topProducts(bestSellerTracker.getTopProducts(100L, SalesWindow.WEEK, 10)));
+        assertEquals(Arrays.asList(
+                "100|2025-12-01|1|50.00",
+                "100|2026-03-02|2|150.00",
+                "100|2026-03-03|1|90.00",
+                "100|2026-03-10|1|50.00",
+                "200|2026-03-02|1|20.00"), database.query(SELLER_DAYS));
+
+        // A的耳机也退款后整单退款，E整单退款
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.refundProductItem("A", 10L);
+            stateMachine.transitOrThrow(OrderTransition.REFUND, "E", 11L, null);
+        });
+        List<String> sellerDays = database.query(SELLER_DAYS);
+        List<String> productDays = database.query(PRODUCT_DAYS);
+        assertEquals(Arrays.asList(
+                "100|2025-12-01|1|50.00",
+                "100|2026-03-02|1|50.00",
+                "100|2026-03-03|1|90.00",
+                "100|2026-03-10|1|50.00"), sellerDays);
+
+        Map<String, Object> report = salesRollup.rebuild();
+        assertEquals(4, report.get("sellerDays"));
+        assertEquals(4, report.get("productDays"));
+        assertEquals(sellerDays, database.query(SELLER_DAYS));
+        assertEquals(productDays, database.query(PRODUCT_DAYS));
+    }
+
+    @Test
+    public void rolledBackTransitionLeavesRollupsUnchanged() {
+        List<String> sellerDays = database.query(SELLER_DAYS);
+        List<String> productDays = database.query(PRODUCT_DAYS);
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "C", 10L, null);
+            orderService.refundProductItem("A", 11L);
+            throw new IllegalStateException("确认收货后续处理失败");
+        }));
+        assertEquals(sellerDays, database.query(SELLER_DAYS));
+        assertEquals(productDays, database.query(PRODUCT_DAYS));
+        assertTrue(bestSellerTracker.getTopProducts(BestSellerTracker.PLATFORM, SalesWindow.WEEK, 10).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void salesAnalyticsReadsRollups() {
+        Map<String, Object> result = orderService.getSalesAnalytics(params("2026-03-01", "2026-03-31", "month"));
+
+        Map<String, Object> overview = (Map<String, Object>) result.get("overview");
+        assertEquals(new BigDecimal("180.00"), overview.get("totalSales"));
+        assertEquals(2, overview.get("totalOrders"));
+        assertEquals(new BigDecimal("90.00"), overview.get("averageOrderValue"));
+
+        List<Map<String, Object>> salesByTime = (List<Map<String, Object>>) result.get("salesByTime");
+        assertEquals(1, salesByTime.size());
+        assertEquals("2026-03", salesByTime.get(0).get("period"));
+        assertEquals(0, new BigDecimal("180").compareTo((BigDecimal) salesByTime.get(0).get("amount")));
+        assertEquals(2, salesByTime.get(0).get("orderCount"));
+
+        List<Map<String, Object>> salesByCategory = (List<Map<String, Object>>) result.get("salesByCategory");
+        assertEquals(2, salesByCategory.size());
+        assertEquals("数码", salesByCategory.get(0).get("category"));
+        assertEquals(150.0 / 180 * 100, (Double) salesByCategory.get(0).get("percentage"), 1e-9);
+
+        List<Map<String, Object>> topProducts = (List<Map<String, Object>>) result.get("topProducts");
+        assertEquals(2, topProducts.size());
+        assertEquals(10L, ((Number) topProducts.get(0).get("productId")).longValue());
+        assertEquals(3, ((Number) topProducts.get(0).get("salesCount")).intValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void salesByTimeIsBucketedByPeriod() {
+        transactionTemplate.executeWithoutResult(status -> {
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "C", 10L, null);
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "D", 11L, null);
+        });
+
+        // 2025-12-01 是周一；2026-03-02、03-03 同属 ISO 第10周，03-10 属第11周
+        List<Map<String, Object>> weeks = (List<Map<String, Object>>) orderService
+                .getSalesAnalytics(params("2025-11-01", "2026-03-31", "week")).get("salesByTime");
+        assertEquals(Arrays.asList("2025-W49|50.00|1", "2026-W10|270.00|3", "2026-W11|50.00|1"), periods(weeks));
+
+        List<Map<String, Object>> days = (List<Map<String, Object>>) orderService
+                .getSalesAnalytics(params("2026-03-03", "2026-03-10", null)).get("salesByTime");
+        assertEquals(Arrays.asList("2026-03-03|90.00|1", "2026-03-10|50.00|1"), periods(days));
+
+        List<Map<String, Object>> months = (List<Map<String, Object>>) orderService
+                .getSalesAnalytics(params("2025-01-01", "2026-12-31", "month")).get("salesByTime");
+        assertEquals(Arrays.asList("2025-12|50.00|1", "2026-03|320.00|4"), periods(months));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void analyticsCacheReusesClosedMonthsUntilTheyChange() {
+        Supplier<LocalDate> today = () -> LocalDate.of(2026, 4, 15);
+        ReflectionTestUtils.setField(salesAnalyticsCache, "today", today);
+
+        // 2025-12 到 2026-04 共5段，4月包含今天
+        Map<String, Object> first = orderService.getSalesAnalytics(params("2025-12-01", "2026-04-30", "month"));
+        assertEquals(5L, salesAnalyticsCache.getStats().get("loadCount"));
+        assertEquals(false, first.get("partial"));
+        // 另一个周期、另一个范围复用已结束的整月
+        List<Map<String, Object>> weeks = (List<Map<String, Object>>) orderService
+                .getSalesAnalytics(params("2025-12-01", "2026-03-31", "week")).get("salesByTime");
+        assertEquals(Arrays.asList("2025-W49|50.00|1", "2026-W10|180.00|2"), periods(weeks));
+        assertEquals(5L, salesAnalyticsCache.getStats().get("loadCount"));
+        assertEquals(first.get("overview"),
+                orderService.getSalesAnalytics(params("2025-12-01", "2026-04-30", "month")).get("overview"));
+        assertEquals(5L, salesAnalyticsCache.getStats().get("loadCount"));
+
+        // 退款、确认收货改变了3月的汇总，只重新读取3月
+        transactionTemplate.executeWithoutResult(status -> orderService.refundProductItem("A", 11L));
+        transactionTemplate.executeWithoutResult(status ->
+                stateMachine.transitOrThrow(OrderTransition.CONFIRM, "D", 11L, null));
+        Map<String, Object> result = orderService.getSalesAnalytics(params("2025-12-01", "2026-04-30", "month"));
+        assertEquals(6L, salesAnalyticsCache.getStats().get("loadCount"));
+        assertEquals(Arrays.asList("2025-12|50.00|1", "2026-03|200.00|3"),
+                periods((List<Map<String, Object>>) result.get("salesByTime")));
+        List<Map<String, Object>> salesByCategory = (List<Map<String, Object>>) result.get("salesByCategory");
+        assertEquals(1, salesByCategory.size());
+        assertEquals(new BigDecimal("250.00"), salesByCategory.get(0).get("amount"));
+        List<Map<String, Object>> topProducts = (List<Map<String, Object>>) result.get("topProducts");
+        assertEquals(1, topProducts.size());
+        assertEquals("耳机", topProducts.get(0).get("productName"));
+        assertEquals(5L, topProducts.get(0).get("salesCount"));
+
+        // 重建后全部失效
+        salesRollup.rebuild();
+        assertEquals(result.get("salesByTime"),
+                orderService.getSalesAnalytics(params("2025-12-01", "2026-04-30", "month")).get("salesByTime"));
+        assertEquals(11L, salesAnalyticsCache.getStats().get("loadCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void buyerSketchesTrackUniqueAndRepeatBuyers() {
+        salesRollup.backfillBuyerDays();
+        // 3月：A(买家10，此前有归档订单F)、B(买家11) 已完成
+        Map<String, Object> march = (Map<String, Object>) orderService
+                .getSalesAnalytics(params("2026-03-01", "2026-03-31", null)).get("overview");
+        assertEquals(2L, march.get("uniqueBuyers"));
+        assertEquals(1L, march.get("repeatBuyers"));
+        assertEquals(50.0, march.get("repeatRate"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "C", 10L, null);
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "D", 11L, null);
+        });
+        Map<String, Object> later = (Map<String, Object>) orderService
+                .getSalesAnalytics(params("2026-03-03", "2026-03-10", null)).get("overview");
+        assertEquals(2L, later.get("uniqueBuyers"));
+        assertEquals(2L, later.get("repeatBuyers"));
+        Map<String, Object> december = (Map<String, Object>) orderService
+                .getSalesAnalytics(params("2025-12-01", "2025-12-31", null)).get("overview");
+        assertEquals(1L, december.get("uniqueBuyers"));
+        assertEquals(0L, december.get("repeatBuyers"));
+
+        // 增量合并的结果与重建一致
+        List<String> buyerDays = database.query(BUYER_DAYS);
+        assertEquals(5, salesRollup.rebuildBuyerDays());
+        assertEquals(buyerDays, database.query(BUYER_DAYS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void buyerEstimatesMatchExactCounts() {
+        // 卖家300：90天内 20000 个已完成订单，来自 8000 个买家
+        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, created_time) " +
+                "SELECT 1000 + X, CONCAT('S', X), 100000 + MOD(X * 7919, 8000), 300, 10, 3, " +
+                "TIMESTAMPADD(MINUTE, MOD(X * 37, 129600), TIMESTAMP '2026-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, 20000)");
+        salesRollup.rebuild();
+
+        String[][] ranges = {{"2026-01-01", "2026-03-31"}, {"2026-02-01", "2026-02-28"}, {"2026-03-15", "2026-03-15"}};
+        for (String[] range : ranges) {
+            Map<String, Object> params = params(range[0], range[1], null);
+            params.put("sellerId", 300L);
+            Map<String, Object> overview = (Map<String, Object>) orderService.getSalesAnalytics(params).get("overview");
+            String between = "'" + range[0] + " 00:00:00' AND '" + range[1] + " 23:59:59'";
+            long uniqueBuyers = database.queryForLong("SELECT COUNT(DISTINCT user_id) FROM `order` WHERE seller_id = 300 " +
+                    "AND status = 3 AND created_time BETWEEN " + between);
+            long repeatBuyers = database.queryForLong("SELECT COUNT(DISTINCT o.user_id) FROM `order` o " +
+                    "WHERE o.seller_id = 300 AND o.status = 3 AND o.created_time BETWEEN " + between +
+                    " AND EXISTS (SELECT 1 FROM `order` p WHERE p.user_id = o.user_id AND p.deleted = 0 " +
+                    "AND p.created_time < o.created_time AND p.seller_id = 300 AND p.status = 3)");
+            assertWithinError(uniqueBuyers, (Long) overview.get("uniqueBuyers"));
+            assertWithinError(repeatBuyers, (Long) overview.get("repeatBuyers"));
+        }
+    }
+
+    private static void assertWithinError(long exact, long estimate) {
+        double error = Math.abs(estimate - exact) / (double) exact;
+        assertTrue(error <= 3 * HyperLogLog.RELATIVE_STANDARD_ERROR, "exact " + exact + " estimate " + estimate);
+    }
+
+    private static Map<String, Object> params(String startDate, String endDate, String period) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("sellerId", 100L);
+        params.put("startDate", startDate);
+        params.put("endDate", endDate);
+        params.put("period", period);
+        return params;
+    }
+
+    private static List<String> topProducts(List<Map<String, Object>> products) {
+        List<String> rows = new ArrayList<>();
+        for (Map<String, Object> product : products) {
+            rows.add(product.get("productId") + "|" + product.get("salesAmount") + "|" + product.get("salesCount"));
+        }
+        return rows;
+    }
+
+    private static List<String> periods(List<Map<String, Object>> salesByTime) {
+        List<String> periods = new ArrayList<>();
+        for (Map<String, Object> row : salesByTime) {
+            periods.add(row.get("period") + "|" + ((BigDecimal) row.get("amount")).setScale(2) + "|" + row.get("orderCount"));
+        }
+        return periods;
+    }
+}
@@ -0,0 +1,150 @@
+package com.shop.online.service.impl;
+
+import com.shop.online.common.enums.OrderTransition;
+import com.shop.online.mapper.OrderMapper;
+import com.shop.online.mapper.SalesRollupMapper;
+import com.shop.online.mapper.SellerOrderStatsMapper;
+import com.shop.online.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 卖家订单计数测试，在H2(MySQL模式)上执行迁移，经由订单状态机流转后与订单表实际统计对比
+ */
+public class SellerOrderCounterTest {
+
+    private TestDatabase database;
+
+    private TransactionTemplate transactionTemplate;
+
+    private SellerOrderStatsMapper statsMapper;
+
+    private SellerOrderCounter counter;
+
+    private OrderStateMachine stateMachine;
+
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // 先迁移到建计数表之前，插入历史订单，再执行剩余迁移验证回填
+        database = TestDatabase.migratedTo("seller_stats", "4");
+        database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status, deleted) VALUES " +
+                "(1, 'A', 10, 100, 10, 0, 0), (2, 'B', 10, 100, 10, 1, 0), (3, 'C', 11, 100, 10, 1, 0), " +
+                "(4, 'D', 11, 200, 10, 3, 0), (5, 'E', 11, 100, 10, 2, 0), (6, 'F', 11, 100, 10, 1, 1)");
+        database.execute("INSERT INTO order_archive (id, order_no, user_id, seller_id, total_amount, status) VALUES " +
+                "(7, 'G', 10, 100, 10, 3)");
+        database.migrate();
+
+        transactionTemplate = new TransactionTemplate(database.getTransactionManager());
+        statsMapper = database.getMapper(SellerOrderStatsMapper.class);
+
+        counter = new SellerOrderCounter();
+        ReflectionTestUtils.setField(counter, "sellerOrderStatsMapper", statsMapper);
+        ReflectionTestUtils.setField(counter, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(counter, "reconcileBatchSize", 1);
+
+        SalesRollup salesRollup = new SalesRollup();
+        ReflectionTestUtils.setField(salesRollup, "salesRollupMapper", database.getMapper(SalesRollupMapper.class));
+        ReflectionTestUtils.setField(salesRollup, "bestSellerTracker", mock(BestSellerTracker.class));
+        ReflectionTestUtils.setField(salesRollup, "salesAnalyticsCache", mock(SalesAnalyticsCache.class));
+
+        stateMachine = new OrderStateMachine();
+        ReflectionTestUtils.setField(stateMachine, "orderMapper", database.getMapper(OrderMapper.class));
+        ReflectionTestUtils.setField(stateMachine, "orderDetailCache", mock(OrderDetailCache.class));
+        ReflectionTestUtils.setField(stateMachine, "sellerOrderCounter", counter);
+        ReflectionTestUtils.setField(stateMachine, "salesRollup", salesRollup);
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "sellerOrderCounter", counter);
+    }
+
+    @Test
+    public void migrationBackfillsCountsIncludingArchivedOrders() {
+        assertEquals(counts(0, 1, 1, 2, 2, 1, 3, 1), counter.getCounts(100L));
+        assertEquals(counts(3, 1), counter.getCounts(200L));
+        assertEquals(2, orderService.countSellerOrdersByStatus(100L, 1));
+        assertEquals(0, orderService.countSellerOrdersByStatus(100L, 5));
+        assertEquals(5, orderService.countSellerOrders(100L));
+    }
+
+    @Test
+    public void transitionsKeepCountsInStepWithOrders() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            // 新订单H，待付款
+            database.execute("INSERT INTO `order` (id, order_no, user_id, seller_id, total_amount, status) VALUES " +
+                    "(8, 'H', 10, 100, 10, 0)");
+            counter.recordCreated(100L);
+            assertTrue(stateMachine.transit(OrderTransition.PAY, "A", 10L, null, 2));
+            // 取消：C从待发货、H从待付款
+            assertTrue(stateMachine.transit(OrderTransition.CANCEL, "C", 11L, null));
+            assertTrue(stateMachine.transit(OrderTransition.CANCEL, "H", 10L, null));
+            // 重复取消不再计数
+            assertTrue(!stateMachine.transit(OrderTransition.CANCEL, "H", 10L, null));
+            // 计数行在提交前才写入
+            assertEquals(counts(0, 1, 1, 2, 2, 1, 3, 1), counter.getCounts(100L));
+        });
+        assertCountsMatchOrders(100L);
+        assertEquals(counts(1, 2, 2, 1, 3, 1, 4, 2), counter.getCounts(100L));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(2, stateMachine.transitBatch(OrderTransition.SHIP, Arrays.asList("A", "B", "D", "F"), 100L));
+            stateMachine.transitOrThrow(OrderTransition.CONFIRM, "E", 11L, null);
+            stateMachine.transitOrThrow(OrderTransition.REFUND, "E", 11L, null);
+        });
+        assertCountsMatchOrders(100L);
+        assertCountsMatchOrders(200L);
+    }
+
+    @Test
+    public void rolledBackTransitionLeavesCountsUnchanged() throws Exception {
+        Map<Integer, Integer> before = counter.getCounts(100L);
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            stateMachine.transitOrThrow(OrderTransition.SHIP, "B", null, 100L);
+            throw new IllegalStateException("发货后续处理失败");
+        }));
+        assertEquals(before, counter.getCounts(100L));
+        assertCountsMatchOrders(100L);
+    }
+
+    @Test
+    public void reconcileCorrectsDrift() throws Exception {
+        database.execute("UPDATE seller_order_stats SET order_count = 99 WHERE seller_id = 100 AND status = 1");
+        database.execute("INSERT INTO seller_order_stats (seller_id, status, order_count) VALUES (300, 0, 5)");
+
+        Map<String, Object> report = counter.reconcile();
+
+        assertEquals(3, report.get("sellers"));
+        assertEquals(2, report.get("corrected"));
+        assertEquals(report, counter.getLastReconcile());
+        assertCountsMatchOrders(100L);
+        assertCountsMatchOrders(200L);
+        assertTrue(counter.getCounts(300L).isEmpty());
+        assertEquals(0, counter.reconcile().get("corrected"));
+    }
+
+    private void assertCountsMatchOrders(Long sellerId) {
+        Map<Integer, Integer> actual = new HashMap<>();
+        statsMapper.countActualBySellerId(sellerId).forEach(row -> actual.put(row.getStatus(), row.getOrderCount()));
+        assertEquals(actual, counter.getCounts(sellerId));
+    }
+
+    private static Map<Integer, Integer> counts(int... statusAndCount) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < statusAndCount.length; i += 2) {
+            counts.put(statusAndCount[i], statusAndCount[i + 1]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,177 @@
+package com.shop.online.support;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试用的H2数据库(MySQL模式)
+ * 表结构由 db/migration 下的Flyway迁移生成，与生产库一致，测试中不再手写建表语句。
+ * 映射器通过 SqlSessionTemplate 获取：在Spring事务中（{@link #getTransactionManager()}）执行时使用事务的连接，
+ * 事务外每条语句自动提交；与生产配置一样加载 classpath:mapper 下同名的XML。
+ * 每个实例是一个独立的内存库。
+ */
+public class TestDatabase {
+
+    /**
+     * 不转大写，保留查询结果中别名的大小写，与MySQL一致；行锁等待时间与MySQL默认值相近
+     */
+    private static final String SETTINGS = ";MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;DATABASE_TO_UPPER=FALSE"
+            + ";LOCK_TIMEOUT=30000";
+
+    private final String url;
+
+    private final PooledDataSource dataSource;
+
+    private final MybatisConfiguration configuration;
+
+    private final SqlSessionTemplate sqlSession;
+
+    private final DataSourceTransactionManager transactionManager;
+
+    private TestDatabase(String name, String... settings) {
+        StringBuilder url = new StringBuilder("jdbc:h2:mem:").append(name).append('_').append(System.nanoTime())
+                .append(SETTINGS);
+        for (String setting : settings) {
+            url.append(';').append(setting);
+        }
+        this.url = url.toString();
+        dataSource = new PooledDataSource("org.h2.Driver", this.url, "sa", "");
+        configuration = new MybatisConfiguration(new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        sqlSession = new SqlSessionTemplate(new MybatisSqlSessionFactoryBuilder().build(configuration));
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    /**
+     * 执行全部迁移
+     * @param settings 额外的H2连接参数，如 OPTIMIZE_REUSE_RESULTS=0
+     */
+    public static TestDatabase migrated(String name, String... settings) {
+        TestDatabase database = new TestDatabase(name, settings);
+        database.migrate();
+        return database;
+    }
+
+    /**
+     * 只迁移到指定版本，用于先准备旧表结构下的数据，再调用 {@link #migrate()} 验证后续迁移
+     */
+    public static TestDatabase migratedTo(String name, String version) {
+        TestDatabase database = new TestDatabase(name);
+        flyway().dataSource(database.url, "sa", "").target(MigrationVersion.fromVersion(version)).load().migrate();
+        return database;
+    }
+
+    /**
+     * 执行剩余的迁移
+     */
+    public void migrate() {
+        flyway().dataSource(url, "sa", "").load().migrate();
+    }
+
+    private static FluentConfiguration flyway() {
+        return Flyway.configure().locations("classpath:db/migration");
+    }
+
+    /**
+     * 获取映射器，第一次使用时注册，有 mapper/类名.xml 时解析XML（同时注册接口）
+     */
+    public <T> T getMapper(Class<T> mapperClass) {
+        synchronized (configuration) {
+            if (!configuration.hasMapper(mapperClass)) {
+                String resource = "mapper/" + mapperClass.getSimpleName() + ".xml";
+                InputStream inputStream = TestDatabase.class.getClassLoader().getResourceAsStream(resource);
+                if (inputStream == null) {
+                    configuration.addMapper(mapperClass);
+                } else {
+                    try (InputStream xml = inputStream) {
+                        new XMLMapperBuilder(xml, configuration, resource, configuration.getSqlFragments()).parse();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return sqlSession.getMapper(mapperClass);
+    }
+
+    public PooledDataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * 注册拦截器等，要在第一次获取映射器之前调用
+     */
+    public MybatisConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public DataSourceTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * 依次执行SQL，在Spring事务中时使用事务的连接，否则自动提交
+     */
+    public void execute(String... sqls) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 查询结果，每行的各列用 | 连接
+     */
+    public List<String> query(String sql) {
+        List<String> rows = new ArrayList<>();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    row.append(i > 1 ? "|" : "").append(resultSet.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        return rows;
+    }
+
+    /**
+     * 查询单个数值
+     */
+    public long queryForLong(String sql) {
+        return Long.parseLong(query(sql).get(0));
+    }
+}
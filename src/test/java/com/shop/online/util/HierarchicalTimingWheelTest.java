@@ -0,0 +1,58 @@
+package com.shop.online.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分层时间轮测试
+ */
+public class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void expiresEveryTaskWithinOneTickOfItsDeadline() {
+        // 1秒一格，每层10格，2层只能容纳100秒，更远的任务进入溢出队列
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1000, 10, 2, START);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 0; id < 2000; id++) {
+            long deadline = START + (long) (random.nextDouble() * 500_000);
+            deadlines.put(id, deadline);
+            wheel.add(id, deadline);
+        }
+        assertEquals(2000, wheel.size());
+
+        List<Long> expired = new ArrayList<>();
+        for (long now = START + 250; now <= START + 510_000; now += 1000) {
+            for (Long id : wheel.advance(now)) {
+                long deadline = deadlines.get(id);
+                assertTrue(now >= deadline, "提前到期: " + id);
+                assertTrue(now - deadline < 2000, "到期延迟过大: " + id);
+                expired.add(id);
+            }
+        }
+
+        assertEquals(2000, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void pastDeadlinesExpireOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 60, 3, START);
+        wheel.add("late", START - 60_000);
+        wheel.add("later", START + 3_600_000);
+
+        assertEquals(1, wheel.advance(START).size());
+        int[] levelSizes = wheel.levelSizes();
+        assertEquals(1, levelSizes[1] + levelSizes[2]);
+    }
+}
@@ -0,0 +1,71 @@
+package com.shop.online.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HyperLogLog 基数估计测试
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void estimatesWithinThreeStandardErrors() {
+        assertEquals(0, new HyperLogLog().estimate());
+        int[] cardinalities = {1, 10, 100, 1000, 5000, 20000, 100000, 1000000};
+        for (int cardinality : cardinalities) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 1; id <= cardinality; id++) {
+                sketch.add(id);
+                // 重复加入不改变结果
+                sketch.add(id);
+            }
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            assertTrue(error <= 3 * HyperLogLog.RELATIVE_STANDARD_ERROR, cardinality + " -> " + sketch.estimate());
+            if (cardinality <= 100) {
+                assertTrue(Math.abs(sketch.estimate() - cardinality) <= 1, cardinality + " -> " + sketch.estimate());
+            }
+        }
+    }
+
+    @Test
+    public void mergeEstimatesUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (long id = 1; id <= 30000; id++) {
+            first.add(id);
+            second.add(id + 20000);
+        }
+        first.merge(second);
+        first.merge(second);
+        double error = Math.abs(first.estimate() - 50000) / 50000.0;
+        assertTrue(error <= 3 * HyperLogLog.RELATIVE_STANDARD_ERROR, String.valueOf(first.estimate()));
+    }
+
+    @Test
+    public void serializesSparseAndDense() {
+        assertEquals(0, HyperLogLog.fromBytes(null).estimate());
+
+        HyperLogLog small = new HyperLogLog();
+        for (long id = 1; id <= 50; id++) {
+            small.add(id * 31);
+        }
+        byte[] sparse = small.toBytes();
+        assertEquals(1, sparse[0]);
+        assertEquals(1 + 50 * 3, sparse.length);
+        assertArrayEquals(sparse, HyperLogLog.fromBytes(sparse).toBytes());
+        assertEquals(50, HyperLogLog.fromBytes(sparse).estimate());
+
+        HyperLogLog large = new HyperLogLog();
+        for (long id = 1; id <= 100000; id++) {
+            large.add(id);
+        }
+        byte[] dense = large.toBytes();
+        assertEquals(2, dense[0]);
+        assertEquals(3073, dense.length);
+        assertEquals(large.estimate(), HyperLogLog.fromBytes(dense).estimate());
+        assertArrayEquals(dense, HyperLogLog.fromBytes(dense).toBytes());
+    }
+}
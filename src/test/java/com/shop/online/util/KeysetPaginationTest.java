@@ -0,0 +1,93 @@
+package com.shop.online.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.shop.online.entity.Product;
+import com.shop.online.exception.BusinessException;
+import com.shop.online.mapper.ProductMapper;
+import com.shop.online.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 游标分页测试，使用H2(MySQL模式)逐页翻完，结果应与一次性排序完全一致
+ */
+public class KeysetPaginationTest {
+
+    private ProductMapper productMapper;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        TestDatabase database = TestDatabase.migrated("keyset");
+        // 价格、销量、创建时间都有大量重复值
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO product (id, seller_id, category_id, " +
+                     "name, price, sales, main_image, created_time) VALUES (?, 1, 1, 'p', ?, ?, 'p.png', ?)")) {
+            LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+            for (int id = 1; id <= 53; id++) {
+                insert.setLong(1, id);
+                insert.setBigDecimal(2, new java.math.BigDecimal((id % 5) + ".50"));
+                insert.setInt(3, id % 3);
+                insert.setTimestamp(4, Timestamp.valueOf(base.plusSeconds(id % 7).plusNanos(id % 2 * 500_000_000L)));
+                insert.executeUpdate();
+            }
+        }
+        productMapper = database.getMapper(ProductMapper.class);
+    }
+
+    @Test
+    public void pagingByPriceAscMatchesFullSort() {
+        assertPagesMatchFullSort(new KeysetPagination<Product>()
+                .asc(Product::getPrice, KeysetPagination.DECIMAL)
+                .asc(Product::getId, KeysetPagination.LONG));
+    }
+
+    @Test
+    public void pagingBySalesAndTimeDescMatchesFullSort() {
+        assertPagesMatchFullSort(new KeysetPagination<Product>()
+                .desc(Product::getSales, KeysetPagination.INTEGER)
+                .desc(Product::getCreatedTime, KeysetPagination.DATE_TIME)
+                .desc(Product::getId, KeysetPagination.LONG));
+    }
+
+    @Test
+    public void malformedCursorIsRejected() {
+        KeysetPagination<Product> keyset = new KeysetPagination<Product>()
+                .desc(Product::getId, KeysetPagination.LONG);
+        assertThrows(BusinessException.class, () -> keyset.apply(new LambdaQueryWrapper<>(), "not-a-cursor", 10));
+    }
+
+    private void assertPagesMatchFullSort(KeysetPagination<Product> keyset) {
+        LambdaQueryWrapper<Product> all = new LambdaQueryWrapper<>();
+        keyset.applyOrder(all);
+        List<Long> expected = productMapper.selectList(all).stream().map(Product::getId).collect(Collectors.toList());
+
+        List<Long> actual = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<>();
+            keyset.apply(wrapper, cursor, 10);
+            List<Product> records = productMapper.selectList(wrapper);
+            cursor = keyset.nextCursor(records, 10);
+            records.forEach(product -> actual.add(product.getId()));
+            pages++;
+        }
+
+        assertEquals(53, expected.size());
+        assertEquals(expected, actual);
+        assertEquals(6, pages);
+        assertNull(keyset.nextCursor(new ArrayList<>(), 10));
+    }
+}
@@ -0,0 +1,53 @@
+package com.shop.online.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 进程内缓存测试
+ */
+public class LocalCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        LocalCache<String, Integer> cache = new LocalCache<>(2, 60000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void expiresAfterTtl() {
+        AtomicLong now = new AtomicLong(1000);
+        LocalCache<String, Integer> cache = new LocalCache<>(10, 500, now::get);
+        cache.put("a", 1);
+        now.addAndGet(499);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        now.addAndGet(1);
+        assertNull(cache.get("a"));
+
+        // 过期的条目可以被putIfAbsent覆盖
+        assertNull(cache.putIfAbsent("a", 2));
+        assertEquals(Integer.valueOf(2), cache.putIfAbsent("a", 3));
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void nonPositiveTtlNeverExpires() {
+        AtomicLong now = new AtomicLong(1000);
+        LocalCache<String, Integer> cache = new LocalCache<>(10, 0, now::get);
+        cache.put("a", 1);
+        now.set(Long.MAX_VALUE - 1);
+        cache.evictExpired();
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.shop.online.util;
+
+import com.shop.online.common.enums.SalesPeriod;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 按分累加金额的分桶测试
+ */
+public class MoneyBucketsTest {
+
+    @Test
+    public void sumsExactlyWhereDoubleDrifts() {
+        MoneyBuckets buckets = new MoneyBuckets(2);
+        double drifting = 0;
+        for (int i = 0; i < 1000; i++) {
+            buckets.add(i % 2, new BigDecimal("0.10"));
+            drifting += 0.10;
+        }
+
+        assertEquals(new BigDecimal("50.00"), buckets.getAmount(0));
+        assertEquals(500, buckets.getCount(1));
+        assertEquals(10000L, buckets.totalCents());
+        assertNotEquals(100.0, drifting);
+    }
+
+    @Test
+    public void rejectsFractionalCents() {
+        MoneyBuckets buckets = new MoneyBuckets(1);
+        buckets.add(0, new BigDecimal("12.5"), 3);
+        assertEquals(new BigDecimal("12.50"), buckets.getAmount(0));
+        assertEquals(3, buckets.getCount(0));
+        assertThrows(ArithmeticException.class, () -> buckets.add(0, new BigDecimal("0.001")));
+    }
+
+    @Test
+    public void periodIndexesAreBucketOffsets() {
+        LocalDate origin = LocalDate.of(2025, 12, 31);
+        // 2026-01-01 与 2025-12-31 同属 ISO 2026年第1周
+        assertEquals(0, SalesPeriod.WEEK.index(origin, LocalDate.of(2026, 1, 4)));
+        assertEquals(1, SalesPeriod.WEEK.index(origin, LocalDate.of(2026, 1, 5)));
+        assertEquals("2026-W01", SalesPeriod.WEEK.label(SalesPeriod.WEEK.start(origin)));
+        assertEquals(2, SalesPeriod.MONTH.index(origin, LocalDate.of(2026, 2, 1)));
+        assertEquals("2025-12", SalesPeriod.MONTH.label(SalesPeriod.MONTH.start(origin)));
+        assertEquals(32, SalesPeriod.DAY.index(origin, LocalDate.of(2026, 2, 1)));
+        assertEquals(SalesPeriod.DAY, SalesPeriod.of(null));
+    }
+}
@@ -0,0 +1,98 @@
+package com.shop.online.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单号生成器测试
+ */
+public class OrderNoGeneratorTest {
+
+    @Test
+    public void keepsEighteenDigitShape() {
+        OrderNoGenerator generator = new OrderNoGenerator(7, System::currentTimeMillis);
+        String orderNo = generator.nextOrderNo();
+
+        assertEquals(18, orderNo.length());
+        assertTrue(orderNo.matches("\\d{12}070000"), orderNo);
+    }
+
+    @Test
+    public void uniqueAcrossThreadsAndNodes() throws Exception {
+        int nodes = 4;
+        int threadsPerNode = 8;
+        int perThread = 20000;
+        Set<String> orderNos = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            OrderNoGenerator generator = new OrderNoGenerator(node, System::currentTimeMillis);
+            for (int t = 0; t < threadsPerNode; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    String previous = "";
+                    for (int i = 0; i < perThread; i++) {
+                        String orderNo = generator.nextOrderNo();
+                        // 同一线程看到的订单号严格递增
+                        assertTrue(orderNo.compareTo(previous) > 0, previous + " -> " + orderNo);
+                        orderNos.add(orderNo);
+                        previous = orderNo;
+                    }
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(nodes * threadsPerNode * perThread, orderNos.size());
+    }
+
+    @Test
+    public void staysMonotonicWhenClockMovesBackwards() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        OrderNoGenerator generator = new OrderNoGenerator(1, now::get);
+
+        String first = generator.nextOrderNo();
+        now.addAndGet(-5000);
+        String second = generator.nextOrderNo();
+        now.addAndGet(10000);
+        String third = generator.nextOrderNo();
+
+        assertTrue(second.compareTo(first) > 0);
+        assertTrue(third.compareTo(second) > 0);
+        assertEquals(first.substring(0, 12), second.substring(0, 12));
+    }
+
+    @Test
+    public void borrowsNextSecondWhenSequenceExhausted() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        OrderNoGenerator generator = new OrderNoGenerator(1, now::get);
+
+        String previous = generator.nextOrderNo();
+        for (int i = 1; i <= 10000; i++) {
+            String orderNo = generator.nextOrderNo();
+            assertTrue(orderNo.compareTo(previous) > 0);
+            previous = orderNo;
+        }
+        assertTrue(previous.endsWith("010000"), previous);
+    }
+}
@@ -0,0 +1,113 @@
+package com.shop.online.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Space-Saving 及其滑动窗口的测试
+ */
+public class SpaceSavingTest {
+
+    @Test
+    public void countsBoundTrueWeights() {
+        SpaceSaving<Integer> sketch = new SpaceSaving<>(20);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            // 一半的权重集中在 0-4，其余分散在 1000 个元素上
+            int key = random.nextBoolean() ? random.nextInt(5) : 5 + random.nextInt(1000);
+            long weight = 1 + random.nextInt(10);
+            sketch.add(key, weight, 1);
+            exact.merge(key, weight, Long::sum);
+        }
+
+        long bound = sketch.getTotalWeight() / sketch.getCapacity();
+        for (SpaceSaving.Counter<Integer> counter : sketch.counters()) {
+            long truth = exact.get(counter.getKey());
+            assertTrue(counter.getCount() >= truth);
+            assertTrue(counter.getCount() - counter.getError() <= truth);
+            assertTrue(counter.getError() <= bound);
+        }
+        for (int key = 0; key < 5; key++) {
+            int heavy = key;
+            assertTrue(sketch.top(5).stream().anyMatch(counter -> counter.getKey() == heavy));
+        }
+    }
+
+    @Test
+    public void negativeWeightsOnlyReduceTrackedKeys() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(2);
+        sketch.add("a", 10, 2);
+        sketch.add("b", 5, 1);
+        sketch.add("a", -4, -1);
+        sketch.add("c", -3, -1);
+
+        assertEquals(2, sketch.counters().size());
+        SpaceSaving.Counter<String> top = sketch.top(1).get(0);
+        assertEquals("a", top.getKey());
+        assertEquals(6, top.getCount());
+        assertEquals(1, top.getUnits());
+        assertEquals(8, sketch.getTotalWeight());
+
+        // 扣减让最小计数变为0后，新元素仍继承被替换元素的上界
+        SpaceSaving<String> single = new SpaceSaving<>(1);
+        single.add("a", 10, 1);
+        single.add("b", 5, 1);
+        single.add("b", -15, -1);
+        single.add("c", 1, 1);
+        assertEquals(11, single.top(1).get(0).getCount());
+        assertEquals(10, single.top(1).get(0).getError());
+    }
+
+    @Test
+    public void mergeKeepsLargestCounts() {
+        SpaceSaving<String> first = new SpaceSaving<>(2);
+        first.add("a", 10, 1);
+        first.add("b", 4, 1);
+        // 替换 b，d 继承 4
+        first.add("d", 1, 1);
+        SpaceSaving<String> second = new SpaceSaving<>(2);
+        second.add("b", 7, 1);
+        second.add("c", 3, 1);
+
+        first.merge(second);
+        assertEquals(25, first.getTotalWeight());
+        assertEquals(2, first.top(5).size());
+        // b 在第一部分已被替换，按第一部分的上界补足
+        SpaceSaving.Counter<String> b = first.top(1).get(0);
+        assertEquals("b", b.getKey());
+        assertEquals(11, b.getCount());
+        assertEquals(4, b.getError());
+        assertEquals("a", first.top(2).get(1).getKey());
+        assertEquals(10, first.top(2).get(1).getCount());
+        // 舍弃的 c 计数为7，上界取两方上界之和(4)与7中较大者；之后加入的 e 替换 a，继承 a 的计数10
+        first.add("e", 1, 1);
+        assertEquals(10, first.counters().stream().filter(counter -> "e".equals(counter.getKey()))
+                .findFirst().get().getError());
+    }
+
+    @Test
+    public void slidingWindowDropsExpiredSlots() {
+        SlidingSpaceSaving<String> window = new SlidingSpaceSaving<>(10, 1000, 3);
+        window.add(500, "a", 5, 1);
+        window.add(1500, "b", 3, 1);
+        window.add(2500, "a", 1, 1);
+
+        assertEquals(6, window.snapshot(2999).top(1).get(0).getCount());
+        // 第0片过期
+        SpaceSaving<String> later = window.snapshot(3000);
+        assertEquals(4, later.getTotalWeight());
+        assertEquals("b", later.top(1).get(0).getKey());
+        // 写入早于当前位置的时间片被忽略
+        window.add(3100, "c", 2, 1);
+        window.add(100, "c", 100, 1);
+        assertEquals(6, window.snapshot(3100).getTotalWeight());
+        assertTrue(window.isIdle(6000));
+    }
+}